@@ -0,0 +1,56 @@
+package com.realestate.config;
+
+import com.google.cloud.storage.Storage;
+import com.realestate.service.SignedUrlService;
+import com.realestate.storage.BlobStore;
+import com.realestate.storage.GcsBlobStore;
+import com.realestate.storage.LocalBlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+// Media goes to the Cloud Storage bucket, or to local disk with the "local-storage" profile
+@Configuration
+public class BlobStoreConfig {
+
+    @Bean
+    @Profile("!local-storage")
+    public BlobStore gcsBlobStore(Storage storage, SignedUrlService signedUrlService,
+                                  @Value("${firebase.storage.bucket}") String bucketName,
+                                  @Value("${upload.chunk-size:2097152}") int chunkSize) {
+        return new GcsBlobStore(storage, signedUrlService, bucketName, chunkSize);
+    }
+
+    @Bean
+    @Profile("local-storage")
+    public LocalBlobStore localBlobStore(@Value("${blobs.local.root:${java.io.tmpdir}/real-estate-blobs}") String root,
+                                         @Value("${blobs.local.base-url:http://localhost:8081/local-blobs}") String baseUrl) throws IOException {
+        return new LocalBlobStore(Paths.get(root), baseUrl);
+    }
+
+    // Serves the local blobs, with byte ranges, at the URLs LocalBlobStore hands out
+    @Configuration
+    @Profile("local-storage")
+    static class LocalBlobResources implements WebMvcConfigurer {
+        private final LocalBlobStore blobStore;
+
+        LocalBlobResources(LocalBlobStore blobStore) {
+            this.blobStore = blobStore;
+        }
+
+        @Override
+        public void addResourceHandlers(ResourceHandlerRegistry registry) {
+            registry.addResourceHandler("/local-blobs/**")
+                .addResourceLocations(blobStore.getDataDir().toUri().toString())
+                .setCacheControl(CacheControl.maxAge(Duration.ofHours(1)).cachePublic());
+        }
+    }
+}
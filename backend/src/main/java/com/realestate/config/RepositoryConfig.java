@@ -19,6 +19,31 @@ public class RepositoryConfig {
         return new FloorRepository(firestore);
     }
 
+    @Bean
+    public FloorAngleRepository floorAngleRepository(Firestore firestore) {
+        return new FloorAngleRepository(firestore);
+    }
+
+    @Bean
+    public FloorImageManifestRepository floorImageManifestRepository(Firestore firestore) {
+        return new FloorImageManifestRepository(firestore);
+    }
+
+    @Bean
+    public FloorAtlasRepository floorAtlasRepository(Firestore firestore) {
+        return new FloorAtlasRepository(firestore);
+    }
+
+    @Bean
+    public ModelAssetRepository modelAssetRepository(Firestore firestore) {
+        return new ModelAssetRepository(firestore);
+    }
+
+    @Bean
+    public ContentBlobRepository contentBlobRepository(Firestore firestore) {
+        return new ContentBlobRepository(firestore);
+    }
+
     @Bean
     public BuyerRepository buyerRepository(Firestore firestore) {
         return new BuyerRepository(firestore);
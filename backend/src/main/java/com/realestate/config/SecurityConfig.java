@@ -50,6 +50,8 @@ public class SecurityConfig {
                     "/viewer/**",
                     "/api/floors/**",
                     "/api/apartments/**",
+                    "/api/assets/**",
+                    "/local-blobs/**",
                     "/api/3d-plans/**",
                     "/api/buildings/**",
                     "/api/buyers/**",
@@ -87,8 +89,11 @@ public class SecurityConfig {
             "https://real-estate-vis-management-sys.firebaseapp.com"
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin", "Access-Control-Request-Method", "Access-Control-Request-Headers"));
-        configuration.setExposedHeaders(Arrays.asList("Access-Control-Allow-Origin", "Access-Control-Allow-Credentials"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin", "Access-Control-Request-Method", "Access-Control-Request-Headers",
+            // Ranged and conditional GETs of /api/assets, for progressive model loading
+            "Range", "If-Range", "If-None-Match"));
+        configuration.setExposedHeaders(Arrays.asList("Access-Control-Allow-Origin", "Access-Control-Allow-Credentials",
+            "Content-Range", "Accept-Ranges", "ETag", "Content-Length"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
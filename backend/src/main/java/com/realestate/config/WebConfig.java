@@ -17,8 +17,10 @@ public class WebConfig implements WebMvcConfigurer {
                     "https://real-estate-vis-management-sys.firebaseapp.com"
                 )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
-                .allowedHeaders("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin", "Access-Control-Request-Method", "Access-Control-Request-Headers")
-                .exposedHeaders("Access-Control-Allow-Origin", "Access-Control-Allow-Credentials")
+                .allowedHeaders("Authorization", "Content-Type", "X-Requested-With", "Accept", "Origin", "Access-Control-Request-Method", "Access-Control-Request-Headers",
+                    "Range", "If-Range", "If-None-Match")
+                .exposedHeaders("Access-Control-Allow-Origin", "Access-Control-Allow-Credentials",
+                    "Content-Range", "Accept-Ranges", "ETag", "Content-Length")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -1,23 +1,37 @@
 package com.realestate.controller;
 
+import com.realestate.dto.ApartmentSearchRequest;
+import com.realestate.dto.ApartmentSearchResult;
 import com.realestate.model.Apartment;
 import com.realestate.model.ApartmentStatus;
+import com.realestate.model.ModelAsset;
 import com.realestate.service.ApartmentService;
+import com.realestate.service.ImageDerivativeService;
+import com.realestate.service.ModelOptimizationService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/apartments")
 public class ApartmentController {
+    private static final String VARIANT_VARY = "Accept, Sec-CH-Width";
+
     private final ApartmentService apartmentService;
+    private final ModelOptimizationService modelOptimizationService;
     
-    public ApartmentController(ApartmentService apartmentService) {
+    public ApartmentController(ApartmentService apartmentService, ModelOptimizationService modelOptimizationService) {
         this.apartmentService = apartmentService;
+        this.modelOptimizationService = modelOptimizationService;
     }
     
     @GetMapping
@@ -25,12 +39,77 @@ public class ApartmentController {
         return ResponseEntity.ok(apartmentService.getAllApartments());
     }
     
+    @GetMapping("/search")
+    public ResponseEntity<ApartmentSearchResult> searchApartments(@ModelAttribute ApartmentSearchRequest request) {
+        try {
+            return ResponseEntity.ok(apartmentService.searchApartments(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Apartment> getApartment(@PathVariable String id) {
         Apartment apartment = apartmentService.getApartment(id);
         return apartment != null ? ResponseEntity.ok(apartment) : ResponseEntity.notFound().build();
     }
 
+    // Redirects to the rendered preview of the apartment's 3D model in the size and format the request asks for
+    @GetMapping("/{id}/preview")
+    public ResponseEntity<Void> getApartmentPreview(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer width,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = "Sec-CH-Width", required = false) String widthHint) {
+        Apartment apartment = apartmentService.getApartment(id);
+        String url = apartment != null ? modelOptimizationService.previewUrl(apartment.getModel3dUrl(),
+            ImageDerivativeService.Hint.of(accept, format, width, widthHint)) : null;
+        if (url == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .location(URI.create(url))
+            .header(HttpHeaders.VARY, VARIANT_VARY)
+            .header("Accept-CH", "Sec-CH-Width")
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePrivate())
+            .build();
+    }
+
+    // Model processing result: statistics of the original and of its mobile variant, if any
+    @GetMapping("/{id}/model/info")
+    public ResponseEntity<ModelAsset> getApartmentModelInfo(@PathVariable String id) {
+        Apartment apartment = apartmentService.getApartment(id);
+        ModelAsset asset = apartment != null ? modelOptimizationService.getAsset(apartment.getModel3dUrl()) : null;
+        return asset != null ? ResponseEntity.ok(asset) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Redirects to the apartment's model, or to its lighter mobile variant for phones, slow
+     * connections and Save-Data (from client hints, or ?variant=mobile|original).
+     */
+    @GetMapping("/{id}/model")
+    public ResponseEntity<Void> getApartmentModel(
+            @PathVariable String id,
+            @RequestParam(required = false) String variant,
+            @RequestHeader(value = "Sec-CH-UA-Mobile", required = false) String uaMobile,
+            @RequestHeader(value = "Save-Data", required = false) String saveData,
+            @RequestHeader(value = "Device-Memory", required = false) String deviceMemory,
+            @RequestHeader(value = "ECT", required = false) String ect) {
+        Apartment apartment = apartmentService.getApartment(id);
+        if (apartment == null || apartment.getModel3dUrl() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String url = modelOptimizationService.select(apartment.getModel3dUrl(),
+            ModelOptimizationService.Hint.of(variant, uaMobile, saveData, deviceMemory, ect));
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .location(URI.create(url))
+            .header(HttpHeaders.VARY, ModelOptimizationService.VARY)
+            .header("Accept-CH", ModelOptimizationService.ACCEPT_CH)
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePrivate())
+            .build();
+    }
+
     @PostMapping
     public ResponseEntity<String> createApartment(@RequestPart("apartment") Apartment apartment,
                                                 @RequestPart(value = "model", required = false) MultipartFile modelFile) throws IOException {
@@ -0,0 +1,234 @@
+package com.realestate.controller;
+
+import com.realestate.service.AssetCacheService;
+import com.realestate.storage.BlobStore;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves immutable blobs (content/… and derived/…) from the local asset cache, with strong
+ * ETags and byte ranges (Range, If-Range, multipart/byteranges) for progressive model loading.
+ * Whole files and single ranges are handed to Tomcat's sendfile; blobs the cache does not keep
+ * are redirected to a signed URL.
+ */
+@RestController
+@RequestMapping("/api/assets")
+public class AssetController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // More ranges than this are answered with the whole file, which the spec allows
+    private static final int MAX_RANGES = 16;
+    private static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+
+    private final AssetCacheService assetCacheService;
+    private final BlobStore blobStore;
+
+    private record Range(long start, long end) {
+        long length() {
+            return end - start;
+        }
+    }
+
+    public AssetController(AssetCacheService assetCacheService, BlobStore blobStore) {
+        this.assetCacheService = assetCacheService;
+        this.blobStore = blobStore;
+    }
+
+    @GetMapping("/{*path}")
+    public void getAsset(@PathVariable String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String blobName = path.startsWith("/") ? path.substring(1) : path;
+        if (!assetCacheService.isServable(blobName)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        AssetCacheService.Entry entry = assetCacheService.get(blobName);
+        if (entry == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (entry.file() == null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofMinutes(10)).cachePrivate().getHeaderValue());
+            response.sendRedirect(blobStore.sign(blobName));
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, entry.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entry.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range with another ETag (or a date, as no Last-Modified is sent) asks for the whole file
+        List<Range> ranges = rangeHeader != null && (ifRange == null || ifRange.trim().equals(entry.etag()))
+            ? parseRanges(rangeHeader, entry.size())
+            : null;
+        if (ranges != null && ranges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + entry.size());
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        if (ranges == null) {
+            response.setContentType(entry.contentType());
+            send(entry, new Range(0, entry.size()), request, response);
+        } else if (ranges.size() == 1) {
+            Range range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(entry.contentType());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, entry.size()));
+            send(entry, range, request, response);
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            sendMultipart(entry, ranges, request, response);
+        }
+    }
+
+    private void send(AssetCacheService.Entry entry, Range range, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(range.length());
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        // Tomcat streams the file itself with FileChannel.transferTo once this handler returns
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, entry.file().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(entry.file(), StandardOpenOption.READ)) {
+            transfer(channel, range, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private void sendMultipart(AssetCacheService.Entry entry, List<Range> ranges, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> headers = new ArrayList<>();
+        long length = 0;
+        for (Range range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\nContent-Type: " + entry.contentType()
+                + "\r\nContent-Range: " + contentRange(range, entry.size()) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            headers.add(header);
+            length += header.length + range.length();
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(length + trailer.length);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(entry.file(), StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(headers.get(i));
+                transfer(channel, ranges.get(i), target);
+            }
+        }
+        out.write(trailer);
+    }
+
+    private static void transfer(FileChannel channel, Range range, WritableByteChannel target) throws IOException {
+        long position = range.start();
+        while (position < range.end()) {
+            long sent = channel.transferTo(position, range.end() - position, target);
+            if (sent <= 0) {
+                throw new IOException("Cached asset is shorter than expected");
+            }
+            position += sent;
+        }
+    }
+
+    /**
+     * The satisfiable ranges of a "bytes=" Range header, in request order, or null when the
+     * header is malformed, uses another unit or asks for too many ranges (all of which mean the
+     * whole file is sent). An empty list means none of the ranges can be satisfied.
+     */
+    static List<Range> parseRanges(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // Suffix range: the last N bytes
+                    long suffix = Long.parseLong(last);
+                    start = Math.max(0, size - suffix);
+                    end = suffix > 0 ? size : start;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? size : Math.min(size, Long.parseLong(last) + 1);
+                    if (!last.isEmpty() && Long.parseLong(last) < start) {
+                        return null;
+                    }
+                }
+                if (start < 0) {
+                    return null;
+                }
+                if (start < end) {
+                    ranges.add(new Range(start, end));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    private static String contentRange(Range range, long size) {
+        return "bytes " + range.start() + "-" + (range.end() - 1) + "/" + size;
+    }
+
+    // Weak comparison, as If-None-Match requires
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || (candidate.startsWith("W/") ? candidate.substring(2) : candidate).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
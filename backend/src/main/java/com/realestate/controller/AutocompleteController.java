@@ -0,0 +1,32 @@
+package com.realestate.controller;
+
+import com.realestate.dto.AutocompleteSuggestion;
+import com.realestate.search.AutocompleteIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/autocomplete")
+public class AutocompleteController {
+    private static final int MAX_LIMIT = 50;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    public AutocompleteController(AutocompleteIndex autocompleteIndex) {
+        this.autocompleteIndex = autocompleteIndex;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<AutocompleteSuggestion>> autocomplete(
+            @RequestParam("field") String field,
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(autocompleteIndex.suggest(field, prefix, Math.min(limit, MAX_LIMIT)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
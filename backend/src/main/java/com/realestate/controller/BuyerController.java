@@ -1,7 +1,9 @@
 package com.realestate.controller;
 
+import com.realestate.dto.BuyerMatch;
 import com.realestate.model.Buyer;
 import com.realestate.model.BuyerStatus;
+import com.realestate.service.BuyerMatchingService;
 import com.realestate.service.BuyerService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -11,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -18,6 +21,7 @@ import java.util.concurrent.ExecutionException;
 @RequiredArgsConstructor
 public class BuyerController {
     private final BuyerService buyerService;
+    private final BuyerMatchingService buyerMatchingService;
 
     @PostMapping
     public ResponseEntity<String> createBuyer(@RequestBody Buyer buyer) {
@@ -50,6 +54,19 @@ public class BuyerController {
         return ResponseEntity.ok(buyerService.getBuyersByApartment(apartmentId));
     }
 
+    @GetMapping("/{id}/matches")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<BuyerMatch>> getBuyerMatches(@PathVariable String id) {
+        List<BuyerMatch> matches = buyerMatchingService.getMatches(id);
+        return matches != null ? ResponseEntity.ok(matches) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/matches/rematch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rematchAllBuyers() {
+        return ResponseEntity.ok(buyerMatchingService.rematchAll());
+    }
+
     @GetMapping("/date-range")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<Buyer>> getBuyersByDateRange(
@@ -1,13 +1,40 @@
 package com.realestate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.realestate.model.Floor;
+import com.realestate.model.FloorAtlas;
+import com.realestate.model.Hotspot;
+import com.realestate.model.ModelAsset;
+import com.realestate.repository.HotspotCodec;
 import com.realestate.service.FloorService;
 import com.realestate.service.FirebaseService;
+import com.realestate.service.FloorImageMoveService;
+import com.realestate.service.FloorImageUploadService;
+import com.realestate.service.HotspotOverlayService;
+import com.realestate.service.ImageDerivativeService;
+import com.realestate.service.ModelOptimizationService;
+import com.realestate.service.SpriteAtlasService;
+import com.realestate.service.TilePyramidService;
 import com.realestate.dto.HotspotUpdateRequest;
+import com.realestate.dto.ImageMove;
 import com.realestate.dto.FloorImageInfo;
+import com.realestate.dto.HotspotOverlap;
+import com.realestate.dto.HotspotOverlayEntry;
+import com.realestate.dto.HotspotPatchRequest;
+import com.realestate.dto.HotspotPatchResult;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
@@ -16,12 +43,32 @@ import java.util.HashMap;
 @RestController
 @RequestMapping("/api/floors")
 public class FloorController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String VARIANT_VARY = "Accept, Sec-CH-Width";
+
     private final FloorService floorService;
     private final FirebaseService firebaseService;
+    private final HotspotOverlayService hotspotOverlayService;
+    private final FloorImageUploadService floorImageUploadService;
+    private final FloorImageMoveService floorImageMoveService;
+    private final TilePyramidService tilePyramidService;
+    private final SpriteAtlasService spriteAtlasService;
+    private final ModelOptimizationService modelOptimizationService;
+    private final ObjectMapper objectMapper;
 
-    public FloorController(FloorService floorService, FirebaseService firebaseService) {
+    public FloorController(FloorService floorService, FirebaseService firebaseService, HotspotOverlayService hotspotOverlayService,
+                           FloorImageUploadService floorImageUploadService, FloorImageMoveService floorImageMoveService,
+                           TilePyramidService tilePyramidService, SpriteAtlasService spriteAtlasService,
+                           ModelOptimizationService modelOptimizationService, ObjectMapper objectMapper) {
         this.floorService = floorService;
         this.firebaseService = firebaseService;
+        this.hotspotOverlayService = hotspotOverlayService;
+        this.floorImageUploadService = floorImageUploadService;
+        this.floorImageMoveService = floorImageMoveService;
+        this.tilePyramidService = tilePyramidService;
+        this.spriteAtlasService = spriteAtlasService;
+        this.modelOptimizationService = modelOptimizationService;
+        this.objectMapper = objectMapper;
     }
     
     @GetMapping
@@ -38,11 +85,18 @@ public class FloorController {
         return ResponseEntity.notFound().build();
     }
     
+    // width/format (or the Sec-CH-Width and Accept headers) select resized variants over originals
     @GetMapping("/{id}/images")
-    public ResponseEntity<List<String>> getFloorImages(@PathVariable String id) {
+    public ResponseEntity<List<String>> getFloorImages(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer width,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = "Sec-CH-Width", required = false) String widthHint) {
         try {
-            List<String> imageUrls = firebaseService.getFloorImages(id);
-            return ResponseEntity.ok(imageUrls);
+            List<String> imageUrls = firebaseService.getFloorImages(id,
+                ImageDerivativeService.Hint.of(accept, format, width, widthHint));
+            return ResponseEntity.ok().header(HttpHeaders.VARY, VARIANT_VARY).body(imageUrls);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -53,11 +107,13 @@ public class FloorController {
             @PathVariable String id,
             @RequestParam("files") List<MultipartFile> files) {
         try {
+            Map<String, Object> summary = floorImageUploadService.uploadAll(id, files, event -> { });
+            if (files.size() > 0 && (int) summary.get("uploadedCount") == 0) {
+                return ResponseEntity.internalServerError().build();
+            }
             List<String> uploadedUrls = new ArrayList<>();
-            for (MultipartFile file : files) {
-                String fileName = "floors/" + id + "/" + file.getOriginalFilename();
-                String url = firebaseService.uploadFileToPath(file, fileName);
-                uploadedUrls.add(url);
+            for (Object uploaded : (List<?>) summary.get("uploadedImages")) {
+                uploadedUrls.add((String) ((Map<?, ?>) uploaded).get("downloadUrl"));
             }
             return ResponseEntity.ok(uploadedUrls);
         } catch (Exception e) {
@@ -113,16 +169,107 @@ public class FloorController {
         }
     }
 
+    @GetMapping(value = "/{id}/hotspots", produces = HotspotCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getEncodedFloorHotspots(@PathVariable String id) {
+        byte[] data = floorService.getEncodedHotspots(id);
+        return data != null ? ResponseEntity.ok(data) : ResponseEntity.notFound().build();
+    }
+
+    @PutMapping(value = "/{id}/hotspots", consumes = HotspotCodec.MEDIA_TYPE)
+    public ResponseEntity<Map<String, Object>> updateEncodedFloorHotspots(@PathVariable String id, @RequestBody byte[] data) {
+        try {
+            return updateFloorHotspots(id, HotspotCodec.decode(data));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{id}/hotspots")
-    public ResponseEntity<Void> updateFloorHotspots(@PathVariable String id, @RequestBody HotspotUpdateRequest request) {
+    public ResponseEntity<Map<String, Object>> updateFloorHotspots(@PathVariable String id, @RequestBody HotspotUpdateRequest request) {
         try {
-            floorService.updateHotspots(id, request.getTopViewHotspots(), request.getAngleHotspots());
-            return ResponseEntity.ok().build();
+            List<HotspotOverlap> overlaps = floorService.updateHotspots(id, request.getTopViewHotspots(), request.getAngleHotspots());
+            if (overlaps == null) {
+                return ResponseEntity.notFound().build();
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("overlaps", overlaps);
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @PatchMapping("/{id}/hotspots")
+    public ResponseEntity<HotspotPatchResult> patchFloorHotspots(@PathVariable String id, @RequestBody HotspotPatchRequest request) {
+        if (request.getOperations() == null || request.getOperations().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            HotspotPatchResult result = floorService.patchHotspots(id, request.getOperations());
+            return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}/angles/{angle}")
+    public ResponseEntity<List<Hotspot>> getAngleHotspots(@PathVariable String id, @PathVariable String angle) {
+        try {
+            List<Hotspot> hotspots = floorService.getAngleHotspots(id, angle);
+            return hotspots != null ? ResponseEntity.ok(hotspots) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/{id}/angles/{angle}")
+    public ResponseEntity<Map<String, Object>> updateAngleHotspots(
+            @PathVariable String id,
+            @PathVariable String angle,
+            @RequestBody List<Hotspot> hotspots) {
+        try {
+            List<HotspotOverlap> overlaps = floorService.updateAngleHotspots(id, angle, hotspots);
+            if (overlaps == null) {
+                return ResponseEntity.notFound().build();
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("overlaps", overlaps);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}/hotspots/{angle}")
+    public ResponseEntity<List<HotspotOverlayEntry>> getHotspotOverlay(@PathVariable String id, @PathVariable String angle) {
+        List<HotspotOverlayEntry> overlay = hotspotOverlayService.getOverlay(id, angle);
+        return overlay != null ? ResponseEntity.ok(overlay) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/{id}/hotspots/hit")
+    public ResponseEntity<List<Hotspot>> hitTestHotspots(
+            @PathVariable String id,
+            @RequestParam(value = "angle", required = false) String angle,
+            @RequestParam("x") double x,
+            @RequestParam("y") double y) {
+        List<Hotspot> hits = floorService.hitTestHotspots(id, angle, x, y);
+        return hits != null ? ResponseEntity.ok(hits) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/{id}/hotspots/region")
+    public ResponseEntity<List<Hotspot>> findHotspotsInRegion(
+            @PathVariable String id,
+            @RequestParam(value = "angle", required = false) String angle,
+            @RequestParam("x1") double x1,
+            @RequestParam("y1") double y1,
+            @RequestParam("x2") double x2,
+            @RequestParam("y2") double y2) {
+        List<Hotspot> hotspots = floorService.findHotspotsInRegion(id, angle, x1, y1, x2, y2);
+        return hotspots != null ? ResponseEntity.ok(hotspots) : ResponseEntity.notFound().build();
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteFloor(@PathVariable String id) {
         floorService.deleteFloor(id);
@@ -137,10 +284,16 @@ public class FloorController {
     // ========== FLOOR IMAGE MANAGEMENT ENDPOINTS ==========
 
     @GetMapping("/{id}/images/details")
-    public ResponseEntity<List<FloorImageInfo>> getFloorImageDetails(@PathVariable String id) {
+    public ResponseEntity<List<FloorImageInfo>> getFloorImageDetails(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer width,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = "Sec-CH-Width", required = false) String widthHint) {
         try {
-            List<FloorImageInfo> imageInfos = firebaseService.getFloorImageDetails(id);
-            return ResponseEntity.ok(imageInfos);
+            List<FloorImageInfo> imageInfos = firebaseService.getFloorImageDetails(id,
+                ImageDerivativeService.Hint.of(accept, format, width, widthHint));
+            return ResponseEntity.ok().header(HttpHeaders.VARY, VARIANT_VARY).body(imageInfos);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -175,34 +328,8 @@ public class FloorController {
             @PathVariable String id,
             @RequestParam("files") List<MultipartFile> files) {
         try {
-            List<Map<String, Object>> uploadedImages = new ArrayList<>();
-            List<String> errors = new ArrayList<>();
-            
-            for (MultipartFile file : files) {
-                try {
-                    String downloadUrl = firebaseService.uploadFloorImage(id, file, null);
-                    FloorImageInfo imageInfo = firebaseService.getFloorImageInfo(id, file.getOriginalFilename());
-                    
-                    Map<String, Object> uploadResult = new HashMap<>();
-                    uploadResult.put("fileName", file.getOriginalFilename());
-                    uploadResult.put("downloadUrl", downloadUrl);
-                    uploadResult.put("imageInfo", imageInfo);
-                    uploadedImages.add(uploadResult);
-                    
-                } catch (Exception e) {
-                    errors.add("Failed to upload " + file.getOriginalFilename() + ": " + e.getMessage());
-                }
-            }
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", errors.isEmpty());
-            response.put("uploadedImages", uploadedImages);
-            response.put("uploadedCount", uploadedImages.size());
-            response.put("totalCount", files.size());
-            if (!errors.isEmpty()) {
-                response.put("errors", errors);
-            }
-            
+            Map<String, Object> response = floorImageUploadService.uploadAll(id, files, event -> { });
+            response.remove("event");
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
@@ -212,6 +339,26 @@ public class FloorController {
         }
     }
 
+    // Same upload, answered as newline-delimited JSON: one event per file as it starts and
+    // finishes, then a final "complete" summary
+    @PostMapping(value = "/{id}/images/upload-multiple", produces = NDJSON)
+    public void uploadMultipleFloorImagesStreaming(
+            @PathVariable String id,
+            @RequestParam("files") List<MultipartFile> files,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        PrintWriter writer = response.getWriter();
+        floorImageUploadService.uploadAll(id, files, event -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     @DeleteMapping("/{id}/images/{fileName}")
     public ResponseEntity<Map<String, Object>> deleteFloorImage(
             @PathVariable String id,
@@ -257,6 +404,154 @@ public class FloorController {
         }
     }
 
+    // Bulk rename/move, e.g. reordering angle frames; swaps within the batch are allowed
+    @PostMapping("/{id}/images/move")
+    public ResponseEntity<Map<String, Object>> moveFloorImages(
+            @PathVariable String id,
+            @RequestBody List<ImageMove> moves) {
+        try {
+            List<Map<String, Object>> results = floorImageMoveService.moveAll(id, moves);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", results.stream().allMatch(r -> Boolean.TRUE.equals(r.get("success"))));
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Redirects to the image variant that fits the request, for use directly as an img src: the
+     * browser's Accept header picks WebP and Sec-CH-Width (or ?width=) picks the size.
+     */
+    @GetMapping("/{id}/images/{fileName}")
+    public ResponseEntity<Void> getFloorImage(
+            @PathVariable String id,
+            @PathVariable String fileName,
+            @RequestParam(required = false) Integer width,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = "Sec-CH-Width", required = false) String widthHint) {
+        String url = firebaseService.getFloorImageUrl(id, fileName,
+            ImageDerivativeService.Hint.of(accept, format, width, widthHint));
+        if (url == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .location(URI.create(url))
+            .header(HttpHeaders.VARY, VARIANT_VARY)
+            .header("Accept-CH", "Sec-CH-Width")
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePrivate())
+            .build();
+    }
+
+    // Redirects to the rendered preview of the floor's 3D model in the size and format the request asks for
+    @GetMapping("/{id}/preview")
+    public ResponseEntity<Void> getFloorPreview(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer width,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = "Sec-CH-Width", required = false) String widthHint) {
+        Floor floor = floorService.getFloor(id);
+        String url = floor != null ? modelOptimizationService.previewUrl(floor.getModel3dUrl(),
+            ImageDerivativeService.Hint.of(accept, format, width, widthHint)) : null;
+        if (url == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .location(URI.create(url))
+            .header(HttpHeaders.VARY, VARIANT_VARY)
+            .header("Accept-CH", "Sec-CH-Width")
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePrivate())
+            .build();
+    }
+
+    // Model processing result: statistics of the original and of its mobile variant, if any
+    @GetMapping("/{id}/model/info")
+    public ResponseEntity<ModelAsset> getFloorModelInfo(@PathVariable String id) {
+        Floor floor = floorService.getFloor(id);
+        ModelAsset asset = floor != null ? modelOptimizationService.getAsset(floor.getModel3dUrl()) : null;
+        return asset != null ? ResponseEntity.ok(asset) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Redirects to the floor's model, or to its lighter mobile variant for phones, slow
+     * connections and Save-Data (from client hints, or ?variant=mobile|original).
+     */
+    @GetMapping("/{id}/model")
+    public ResponseEntity<Void> getFloorModel(
+            @PathVariable String id,
+            @RequestParam(required = false) String variant,
+            @RequestHeader(value = "Sec-CH-UA-Mobile", required = false) String uaMobile,
+            @RequestHeader(value = "Save-Data", required = false) String saveData,
+            @RequestHeader(value = "Device-Memory", required = false) String deviceMemory,
+            @RequestHeader(value = "ECT", required = false) String ect) {
+        Floor floor = floorService.getFloor(id);
+        if (floor == null || floor.getModel3dUrl() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String url = modelOptimizationService.select(floor.getModel3dUrl(),
+            ModelOptimizationService.Hint.of(variant, uaMobile, saveData, deviceMemory, ect));
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .location(URI.create(url))
+            .header(HttpHeaders.VARY, ModelOptimizationService.VARY)
+            .header("Accept-CH", ModelOptimizationService.ACCEPT_CH)
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePrivate())
+            .build();
+    }
+
+    // Frame map and sheet URLs of the floor's angle sprite atlases; 404 (and a build is queued) until one exists
+    @GetMapping("/{id}/atlas")
+    public ResponseEntity<FloorAtlas> getFloorAtlas(@PathVariable String id) {
+        FloorAtlas atlas = spriteAtlasService.getAtlas(id);
+        if (atlas == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePrivate())
+            .eTag(atlas.getVersion())
+            .body(atlas);
+    }
+
+    // DZI-style pyramid layout; 404 until the image's tiles have been generated
+    @GetMapping("/{id}/images/{fileName}/tiles")
+    public ResponseEntity<Map<String, Object>> getFloorImageTiles(
+            @PathVariable String id,
+            @PathVariable String fileName) {
+        Map<String, Object> descriptor = firebaseService.getFloorImageTiles(id, fileName);
+        if (descriptor == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(descriptor);
+    }
+
+    // Tiles are addressed by image content hash, so they never change and cache for a year
+    @GetMapping("/tiles/{sha256}/{level}/{col}_{row}.{format}")
+    public ResponseEntity<byte[]> getTile(
+            @PathVariable String sha256,
+            @PathVariable int level,
+            @PathVariable int col,
+            @PathVariable int row,
+            @PathVariable String format) {
+        if (!sha256.matches("[0-9a-f]{64}") || !("jpg".equals(format) || "png".equals(format))
+                || level < 0 || col < 0 || row < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        byte[] tile = tilePyramidService.getTile(sha256, level, col, row, format);
+        if (tile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .contentType("png".equals(format) ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG)
+            .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+            .eTag(sha256 + "-" + level + "-" + col + "-" + row)
+            .body(tile);
+    }
+
     @GetMapping("/{id}/images/{fileName}/info")
     public ResponseEntity<FloorImageInfo> getFloorImageInfo(
             @PathVariable String id,
@@ -1,7 +1,14 @@
 package com.realestate.controller;
 
+import com.realestate.dto.OrphanBlobReport;
+import com.realestate.service.AssetCacheService;
+import com.realestate.service.ContentStoreService;
+import com.realestate.service.ImageDerivativeService;
+import com.realestate.service.ModelOptimizationService;
 import com.realestate.service.MediaService;
+import com.realestate.service.OrphanBlobService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +23,11 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MediaController {
     private final MediaService mediaService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ModelOptimizationService modelOptimizationService;
+    private final ContentStoreService contentStoreService;
+    private final AssetCacheService assetCacheService;
+    private final OrphanBlobService orphanBlobService;
 
     @PostMapping("/upload/{type}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -24,7 +36,14 @@ public class MediaController {
             @PathVariable String type) throws IOException {
         
         String folder = type.equals("3d") ? "models" : "images";
-        String fileUrl = mediaService.uploadFile(file, folder);
+        String fileUrl;
+        try {
+            fileUrl = mediaService.uploadFile(file, folder);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
         
         Map<String, String> response = new HashMap<>();
         response.put("url", fileUrl);
@@ -81,4 +100,51 @@ public class MediaController {
         
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+
+    // Jobs run and CPU cost per source megapixel of the image variant pipeline
+    @GetMapping("/derivatives/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDerivativeStats() {
+        return ResponseEntity.ok(imageDerivativeService.getStats());
+    }
+
+    // Models processed and bytes saved by the mobile model variants
+    @GetMapping("/models/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getModelStats() {
+        return ResponseEntity.ok(modelOptimizationService.getStats());
+    }
+
+    // Uploads stored and bytes saved by content deduplication
+    @GetMapping("/content/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getContentStats() {
+        return ResponseEntity.ok(contentStoreService.getStats());
+    }
+
+    // Hit rate, size and origin bytes of the local asset cache behind /api/assets
+    @GetMapping("/assets/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getAssetStats() {
+        return ResponseEntity.ok(assetCacheService.getStats());
+    }
+
+    // Collects blobs no floor, apartment or picture refers to; a dry run only reports them
+    @PostMapping("/gc")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OrphanBlobReport> collectOrphans(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            return ResponseEntity.ok(orphanBlobService.collect(dryRun));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Report of the last collection, scheduled or not
+    @GetMapping("/gc/report")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OrphanBlobReport> getOrphanReport() {
+        OrphanBlobReport report = orphanBlobService.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+}
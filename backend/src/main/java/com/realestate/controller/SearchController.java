@@ -0,0 +1,28 @@
+package com.realestate.controller;
+
+import com.realestate.dto.SearchHit;
+import com.realestate.search.TextSearchIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+    private static final int MAX_LIMIT = 100;
+
+    private final TextSearchIndex textSearchIndex;
+
+    public SearchController(TextSearchIndex textSearchIndex) {
+        this.textSearchIndex = textSearchIndex;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<SearchHit>> search(
+            @RequestParam("q") String query,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(textSearchIndex.search(query, type, Math.min(limit, MAX_LIMIT)));
+    }
+}
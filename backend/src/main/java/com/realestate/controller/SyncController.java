@@ -0,0 +1,25 @@
+package com.realestate.controller;
+
+import com.realestate.dto.SyncResponse;
+import com.realestate.service.SyncService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @GetMapping
+    public ResponseEntity<SyncResponse> sync(@RequestParam(value = "since", required = false) String since) {
+        try {
+            return ResponseEntity.ok(syncService.sync(since));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
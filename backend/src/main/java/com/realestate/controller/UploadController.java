@@ -0,0 +1,83 @@
+package com.realestate.controller;
+
+import com.realestate.dto.ResumableUploadRequest;
+import com.realestate.dto.ResumableUploadStatus;
+import com.realestate.dto.UploadResult;
+import com.realestate.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+// Resumable model uploads: initiate, PUT chunks at offsets (any order, in parallel), poll, complete
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> initiateUpload(@RequestBody ResumableUploadRequest request) throws IOException {
+        try {
+            return ResponseEntity.ok(resumableUploadService.initiate(request));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @PutMapping(value = "/{uploadId}/chunks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam("offset") long offset,
+            HttpServletRequest request) throws IOException {
+        try (InputStream in = request.getInputStream()) {
+            ResumableUploadStatus status = resumableUploadService.writeChunk(uploadId, offset, request.getContentLengthLong(), in);
+            return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ResumableUploadStatus> getUploadStatus(@PathVariable String uploadId) {
+        ResumableUploadStatus status = resumableUploadService.getStatus(uploadId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId) throws IOException {
+        try {
+            UploadResult result = resumableUploadService.complete(uploadId);
+            return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId) {
+        return resumableUploadService.abort(uploadId) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+}
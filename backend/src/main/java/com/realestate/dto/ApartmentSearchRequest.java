@@ -0,0 +1,115 @@
+package com.realestate.dto;
+
+import java.util.List;
+
+public class ApartmentSearchRequest {
+    // Values within one facet are OR-ed, facets are AND-ed together
+    private List<String> status;
+    private List<String> type;
+    private List<String> floorId;
+    private List<String> priceBand;
+    private List<String> areaBand;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double minArea;
+    private Double maxArea;
+    private String sort;
+    private int page = 0;
+    private int size = 20;
+
+    public List<String> getStatus() {
+        return status;
+    }
+
+    public void setStatus(List<String> status) {
+        this.status = status;
+    }
+
+    public List<String> getType() {
+        return type;
+    }
+
+    public void setType(List<String> type) {
+        this.type = type;
+    }
+
+    public List<String> getFloorId() {
+        return floorId;
+    }
+
+    public void setFloorId(List<String> floorId) {
+        this.floorId = floorId;
+    }
+
+    public List<String> getPriceBand() {
+        return priceBand;
+    }
+
+    public void setPriceBand(List<String> priceBand) {
+        this.priceBand = priceBand;
+    }
+
+    public List<String> getAreaBand() {
+        return areaBand;
+    }
+
+    public void setAreaBand(List<String> areaBand) {
+        this.areaBand = areaBand;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Double getMinArea() {
+        return minArea;
+    }
+
+    public void setMinArea(Double minArea) {
+        this.minArea = minArea;
+    }
+
+    public Double getMaxArea() {
+        return maxArea;
+    }
+
+    public void setMaxArea(Double maxArea) {
+        this.maxArea = maxArea;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,65 @@
+package com.realestate.dto;
+
+import com.realestate.model.Apartment;
+import java.util.List;
+import java.util.Map;
+
+public class ApartmentSearchResult {
+    private List<Apartment> items;
+    private int total;
+    private int page;
+    private int size;
+    // facet name -> facet value -> number of matching apartments
+    private Map<String, Map<String, Integer>> facets;
+
+    public ApartmentSearchResult() {
+    }
+
+    public ApartmentSearchResult(List<Apartment> items, int total, int page, int size, Map<String, Map<String, Integer>> facets) {
+        this.items = items;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.facets = facets;
+    }
+
+    public List<Apartment> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Apartment> items) {
+        this.items = items;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Map<String, Integer>> facets) {
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,50 @@
+package com.realestate.dto;
+
+public class BuyerMatch {
+    private String apartmentId;
+    private String lotNumber;
+    private double price;
+    private double score;
+
+    public BuyerMatch() {
+    }
+
+    public BuyerMatch(String apartmentId, String lotNumber, double price, double score) {
+        this.apartmentId = apartmentId;
+        this.lotNumber = lotNumber;
+        this.price = price;
+        this.score = score;
+    }
+
+    public String getApartmentId() {
+        return apartmentId;
+    }
+
+    public void setApartmentId(String apartmentId) {
+        this.apartmentId = apartmentId;
+    }
+
+    public String getLotNumber() {
+        return lotNumber;
+    }
+
+    public void setLotNumber(String lotNumber) {
+        this.lotNumber = lotNumber;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,51 @@
+package com.realestate.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.cloud.Timestamp;
+import java.util.List;
+
+public class ChangeSet<T> {
+    private List<T> upserts;
+    private List<String> deletedIds;
+    // Snapshot read time of the queries, used to build the next sync token
+    @JsonIgnore
+    private Timestamp readTime;
+
+    public ChangeSet() {
+    }
+
+    public ChangeSet(List<T> upserts, List<String> deletedIds, Timestamp readTime) {
+        this.upserts = upserts;
+        this.deletedIds = deletedIds;
+        this.readTime = readTime;
+    }
+
+    public List<T> getUpserts() {
+        return upserts;
+    }
+
+    public void setUpserts(List<T> upserts) {
+        this.upserts = upserts;
+    }
+
+    public List<String> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public void setDeletedIds(List<String> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+
+    public Timestamp getReadTime() {
+        return readTime;
+    }
+
+    public void setReadTime(Timestamp readTime) {
+        this.readTime = readTime;
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return (upserts == null || upserts.isEmpty()) && (deletedIds == null || deletedIds.isEmpty());
+    }
+}
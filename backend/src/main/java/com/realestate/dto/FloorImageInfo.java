@@ -10,6 +10,8 @@ public class FloorImageInfo {
     private String contentType;
     private Instant uploadDate;
     private boolean isImage;
+    private Integer width;
+    private Integer height;
 
     public FloorImageInfo() {
     }
@@ -79,4 +81,20 @@ public class FloorImageInfo {
     public void setImage(boolean image) {
         isImage = image;
     }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
 }
@@ -0,0 +1,84 @@
+package com.realestate.dto;
+
+// One edit in a hotspot patch; which fields are read depends on the operation
+public class HotspotOperation {
+    public static final String ADD = "add";
+    public static final String MOVE = "move";
+    public static final String RESIZE = "resize";
+    public static final String DELETE = "delete";
+
+    private String op;
+    // Angle key, or "top" / absent for the top view
+    private String angle;
+    // Target of move/resize/delete; optional client-chosen id for add
+    private String hotspotId;
+    private Double x;
+    private Double y;
+    private Double width;
+    private Double height;
+    private String apartmentId;
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public String getAngle() {
+        return angle;
+    }
+
+    public void setAngle(String angle) {
+        this.angle = angle;
+    }
+
+    public String getHotspotId() {
+        return hotspotId;
+    }
+
+    public void setHotspotId(String hotspotId) {
+        this.hotspotId = hotspotId;
+    }
+
+    public Double getX() {
+        return x;
+    }
+
+    public void setX(Double x) {
+        this.x = x;
+    }
+
+    public Double getY() {
+        return y;
+    }
+
+    public void setY(Double y) {
+        this.y = y;
+    }
+
+    public Double getWidth() {
+        return width;
+    }
+
+    public void setWidth(Double width) {
+        this.width = width;
+    }
+
+    public Double getHeight() {
+        return height;
+    }
+
+    public void setHeight(Double height) {
+        this.height = height;
+    }
+
+    public String getApartmentId() {
+        return apartmentId;
+    }
+
+    public void setApartmentId(String apartmentId) {
+        this.apartmentId = apartmentId;
+    }
+}
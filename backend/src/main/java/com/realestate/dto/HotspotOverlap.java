@@ -0,0 +1,60 @@
+package com.realestate.dto;
+
+public class HotspotOverlap {
+    private String angle;
+    private int firstIndex;
+    private int secondIndex;
+    private String firstApartmentId;
+    private String secondApartmentId;
+
+    public HotspotOverlap() {
+    }
+
+    public HotspotOverlap(String angle, int firstIndex, int secondIndex, String firstApartmentId, String secondApartmentId) {
+        this.angle = angle;
+        this.firstIndex = firstIndex;
+        this.secondIndex = secondIndex;
+        this.firstApartmentId = firstApartmentId;
+        this.secondApartmentId = secondApartmentId;
+    }
+
+    public String getAngle() {
+        return angle;
+    }
+
+    public void setAngle(String angle) {
+        this.angle = angle;
+    }
+
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    public void setFirstIndex(int firstIndex) {
+        this.firstIndex = firstIndex;
+    }
+
+    public int getSecondIndex() {
+        return secondIndex;
+    }
+
+    public void setSecondIndex(int secondIndex) {
+        this.secondIndex = secondIndex;
+    }
+
+    public String getFirstApartmentId() {
+        return firstApartmentId;
+    }
+
+    public void setFirstApartmentId(String firstApartmentId) {
+        this.firstApartmentId = firstApartmentId;
+    }
+
+    public String getSecondApartmentId() {
+        return secondApartmentId;
+    }
+
+    public void setSecondApartmentId(String secondApartmentId) {
+        this.secondApartmentId = secondApartmentId;
+    }
+}
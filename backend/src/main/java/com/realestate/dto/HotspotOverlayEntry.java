@@ -0,0 +1,95 @@
+package com.realestate.dto;
+
+import com.realestate.model.ApartmentStatus;
+import java.math.BigDecimal;
+
+// Hotspot geometry joined with the live state of the apartment it points at
+public class HotspotOverlayEntry {
+    private String apartmentId;
+    private double x;
+    private double y;
+    private Double width;
+    private Double height;
+    private String lotNumber;
+    private ApartmentStatus status;
+    private BigDecimal price;
+
+    public HotspotOverlayEntry() {
+    }
+
+    public HotspotOverlayEntry(String apartmentId, double x, double y, Double width, Double height,
+                               String lotNumber, ApartmentStatus status, BigDecimal price) {
+        this.apartmentId = apartmentId;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.lotNumber = lotNumber;
+        this.status = status;
+        this.price = price;
+    }
+
+    public String getApartmentId() {
+        return apartmentId;
+    }
+
+    public void setApartmentId(String apartmentId) {
+        this.apartmentId = apartmentId;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public void setX(double x) {
+        this.x = x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public void setY(double y) {
+        this.y = y;
+    }
+
+    public Double getWidth() {
+        return width;
+    }
+
+    public void setWidth(Double width) {
+        this.width = width;
+    }
+
+    public Double getHeight() {
+        return height;
+    }
+
+    public void setHeight(Double height) {
+        this.height = height;
+    }
+
+    public String getLotNumber() {
+        return lotNumber;
+    }
+
+    public void setLotNumber(String lotNumber) {
+        this.lotNumber = lotNumber;
+    }
+
+    public ApartmentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ApartmentStatus status) {
+        this.status = status;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+}
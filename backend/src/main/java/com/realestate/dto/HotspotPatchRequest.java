@@ -0,0 +1,15 @@
+package com.realestate.dto;
+
+import java.util.List;
+
+public class HotspotPatchRequest {
+    private List<HotspotOperation> operations;
+
+    public List<HotspotOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<HotspotOperation> operations) {
+        this.operations = operations;
+    }
+}
@@ -0,0 +1,45 @@
+package com.realestate.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HotspotPatchResult {
+    private int applied;
+    // Ids of the hotspots created by add operations, in request order
+    private List<String> addedIds = new ArrayList<>();
+    // Operations that could not be applied against the latest state, e.g. a moved hotspot someone deleted
+    private List<String> conflicts = new ArrayList<>();
+    private List<HotspotOverlap> overlaps = new ArrayList<>();
+
+    public int getApplied() {
+        return applied;
+    }
+
+    public void setApplied(int applied) {
+        this.applied = applied;
+    }
+
+    public List<String> getAddedIds() {
+        return addedIds;
+    }
+
+    public void setAddedIds(List<String> addedIds) {
+        this.addedIds = addedIds;
+    }
+
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(List<String> conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    public List<HotspotOverlap> getOverlaps() {
+        return overlaps;
+    }
+
+    public void setOverlaps(List<HotspotOverlap> overlaps) {
+        this.overlaps = overlaps;
+    }
+}
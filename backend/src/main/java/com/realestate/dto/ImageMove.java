@@ -0,0 +1,30 @@
+package com.realestate.dto;
+
+public class ImageMove {
+    private String from;
+    private String to;
+
+    public ImageMove() {
+    }
+
+    public ImageMove(String from, String to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+}
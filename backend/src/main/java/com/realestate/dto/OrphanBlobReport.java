@@ -0,0 +1,124 @@
+package com.realestate.dto;
+
+import com.google.cloud.Timestamp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class OrphanBlobReport {
+    private boolean dryRun;
+    private Timestamp startedAt;
+    private long durationMs;
+    private long scanned;
+    // Blob names referenced by floors, apartments and pictures
+    private int referenced;
+    private long orphans;
+    private long orphanBytes;
+    // Orphans actually removed; 0 on a dry run
+    private long deleted;
+    // Orphans younger than the grace period, left for a later run
+    private long young;
+    private Map<String, Long> orphansByPrefix = new TreeMap<>();
+    // The first orphan names found, up to the configured limit
+    private List<String> samples = new ArrayList<>();
+    // Parts of the bucket this run did not sweep, and why
+    private List<String> warnings = new ArrayList<>();
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public Timestamp getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Timestamp startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(long scanned) {
+        this.scanned = scanned;
+    }
+
+    public int getReferenced() {
+        return referenced;
+    }
+
+    public void setReferenced(int referenced) {
+        this.referenced = referenced;
+    }
+
+    public long getOrphans() {
+        return orphans;
+    }
+
+    public void setOrphans(long orphans) {
+        this.orphans = orphans;
+    }
+
+    public long getOrphanBytes() {
+        return orphanBytes;
+    }
+
+    public void setOrphanBytes(long orphanBytes) {
+        this.orphanBytes = orphanBytes;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getYoung() {
+        return young;
+    }
+
+    public void setYoung(long young) {
+        this.young = young;
+    }
+
+    public Map<String, Long> getOrphansByPrefix() {
+        return orphansByPrefix;
+    }
+
+    public void setOrphansByPrefix(Map<String, Long> orphansByPrefix) {
+        this.orphansByPrefix = orphansByPrefix;
+    }
+
+    public List<String> getSamples() {
+        return samples;
+    }
+
+    public void setSamples(List<String> samples) {
+        this.samples = samples;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public void setWarnings(List<String> warnings) {
+        this.warnings = warnings;
+    }
+}
@@ -0,0 +1,60 @@
+package com.realestate.dto;
+
+public class ResumableUploadRequest {
+    private String fileName;
+    private long size;
+    private String contentType;
+    // "floor" or "apartment"; the finished model becomes its model3dUrl
+    private String targetType;
+    private String targetId;
+    // Optional hex SHA-256 of the whole file, checked when the upload is finalized
+    private String sha256;
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getTargetType() {
+        return targetType;
+    }
+
+    public void setTargetType(String targetType) {
+        this.targetType = targetType;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(String targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+}
@@ -0,0 +1,94 @@
+package com.realestate.dto;
+
+import java.util.List;
+
+public class ResumableUploadStatus {
+    private String uploadId;
+    private String fileName;
+    private long size;
+    private long received;
+    // [start, end) byte ranges still to be sent
+    private List<long[]> missing;
+    private boolean complete;
+    private String targetType;
+    private String targetId;
+
+    public ResumableUploadStatus() {
+    }
+
+    public ResumableUploadStatus(String uploadId, String fileName, long size, long received, List<long[]> missing,
+                                 String targetType, String targetId) {
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.size = size;
+        this.received = received;
+        this.missing = missing;
+        this.complete = missing.isEmpty();
+        this.targetType = targetType;
+        this.targetId = targetId;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public List<long[]> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<long[]> missing) {
+        this.missing = missing;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public String getTargetType() {
+        return targetType;
+    }
+
+    public void setTargetType(String targetType) {
+        this.targetType = targetType;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(String targetId) {
+        this.targetId = targetId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.realestate.dto;
+
+import java.util.Map;
+
+public class SearchHit {
+    private String type;
+    private String id;
+    private double score;
+    // field name -> snippet with matched terms wrapped in <mark></mark>
+    private Map<String, String> highlights;
+
+    public SearchHit() {
+    }
+
+    public SearchHit(String type, String id, double score, Map<String, String> highlights) {
+        this.type = type;
+        this.id = id;
+        this.score = score;
+        this.highlights = highlights;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public Map<String, String> getHighlights() {
+        return highlights;
+    }
+
+    public void setHighlights(Map<String, String> highlights) {
+        this.highlights = highlights;
+    }
+}
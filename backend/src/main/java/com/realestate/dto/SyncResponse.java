@@ -0,0 +1,54 @@
+package com.realestate.dto;
+
+import com.realestate.model.Apartment;
+import com.realestate.model.Buyer;
+import com.realestate.model.Floor;
+
+public class SyncResponse {
+    private String token;
+    // True when the client must drop its local copy and apply this response as a full snapshot
+    private boolean fullSync;
+    private ChangeSet<Floor> floors;
+    private ChangeSet<Apartment> apartments;
+    private ChangeSet<Buyer> buyers;
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public boolean isFullSync() {
+        return fullSync;
+    }
+
+    public void setFullSync(boolean fullSync) {
+        this.fullSync = fullSync;
+    }
+
+    public ChangeSet<Floor> getFloors() {
+        return floors;
+    }
+
+    public void setFloors(ChangeSet<Floor> floors) {
+        this.floors = floors;
+    }
+
+    public ChangeSet<Apartment> getApartments() {
+        return apartments;
+    }
+
+    public void setApartments(ChangeSet<Apartment> apartments) {
+        this.apartments = apartments;
+    }
+
+    public ChangeSet<Buyer> getBuyers() {
+        return buyers;
+    }
+
+    public void setBuyers(ChangeSet<Buyer> buyers) {
+        this.buyers = buyers;
+    }
+}
@@ -0,0 +1,100 @@
+package com.realestate.dto;
+
+public class UploadResult {
+    private String url;
+    private String blobName;
+    private long size;
+    private String contentType;
+    // Hex SHA-256 and base64 CRC32C (the encoding GCS reports) of the uploaded bytes
+    private String sha256;
+    private String crc32c;
+    // Pixel dimensions read from the image header, null for other files
+    private Integer width;
+    private Integer height;
+    // Whether the content was already stored and the upload only added a reference to it
+    private boolean deduplicated;
+
+    public UploadResult() {
+    }
+
+    public UploadResult(String url, String blobName, long size, String contentType, String sha256, String crc32c) {
+        this.url = url;
+        this.blobName = blobName;
+        this.size = size;
+        this.contentType = contentType;
+        this.sha256 = sha256;
+        this.crc32c = crc32c;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public void setBlobName(String blobName) {
+        this.blobName = blobName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getCrc32c() {
+        return crc32c;
+    }
+
+    public void setCrc32c(String crc32c) {
+        this.crc32c = crc32c;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public boolean isDeduplicated() {
+        return deduplicated;
+    }
+
+    public void setDeduplicated(boolean deduplicated) {
+        this.deduplicated = deduplicated;
+    }
+}
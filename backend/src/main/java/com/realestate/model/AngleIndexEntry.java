@@ -0,0 +1,32 @@
+package com.realestate.model;
+
+import com.google.cloud.Timestamp;
+
+// One angle in a floor's angle index: how many hotspots it holds and when its shard last changed
+public class AngleIndexEntry {
+    private int count;
+    private Timestamp updatedAt;
+
+    public AngleIndexEntry() {}
+
+    public AngleIndexEntry(int count, Timestamp updatedAt) {
+        this.count = count;
+        this.updatedAt = updatedAt;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
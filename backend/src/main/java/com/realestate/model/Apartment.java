@@ -1,6 +1,7 @@
 package com.realestate.model;
 
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.Exclude;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -17,6 +18,8 @@ public class Apartment {
     private String model3dUrl;
     private Timestamp createdAt;
     private Timestamp updatedAt;
+    // Preview image endpoint of the 3D model, set on read when there is one; not stored
+    private String previewUrl;
 
     public Apartment() {
     }
@@ -128,4 +131,14 @@ public class Apartment {
     public void setUpdatedAt(Timestamp updatedAt) {
         this.updatedAt = updatedAt;
     }
-} 
\ No newline at end of file
+
+    @Exclude
+    public String getPreviewUrl() {
+        return previewUrl;
+    }
+
+    @Exclude
+    public void setPreviewUrl(String previewUrl) {
+        this.previewUrl = previewUrl;
+    }
+}
@@ -0,0 +1,40 @@
+package com.realestate.model;
+
+// Where one frame sits in a tier's atlas sheets, in pixels from the sheet's top left
+public class AtlasFrame {
+    private int sheet;
+    private int x;
+    private int y;
+
+    public AtlasFrame() {}
+
+    public AtlasFrame(int sheet, int x, int y) {
+        this.sheet = sheet;
+        this.x = x;
+        this.y = y;
+    }
+
+    public int getSheet() {
+        return sheet;
+    }
+
+    public void setSheet(int sheet) {
+        this.sheet = sheet;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public void setX(int x) {
+        this.x = x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public void setY(int y) {
+        this.y = y;
+    }
+}
@@ -0,0 +1,86 @@
+package com.realestate.model;
+
+import com.google.cloud.firestore.annotation.Exclude;
+
+import java.util.List;
+
+// One resolution of a floor's angle frames packed into grid sheets
+public class AtlasTier {
+    private int frameWidth;
+    private int frameHeight;
+    private int columns;      // grid columns per sheet
+    private int rows;         // grid rows per sheet
+    private String format;
+    private List<String> sheets;       // blob names, in sheet order
+    private List<AtlasFrame> frames;   // indexed like FloorAtlas.frames
+    // Signed sheet URLs, filled in when the atlas is served; not stored
+    private List<String> sheetUrls;
+
+    public AtlasTier() {}
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public void setFrameWidth(int frameWidth) {
+        this.frameWidth = frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    public void setFrameHeight(int frameHeight) {
+        this.frameHeight = frameHeight;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public List<String> getSheets() {
+        return sheets;
+    }
+
+    public void setSheets(List<String> sheets) {
+        this.sheets = sheets;
+    }
+
+    public List<AtlasFrame> getFrames() {
+        return frames;
+    }
+
+    public void setFrames(List<AtlasFrame> frames) {
+        this.frames = frames;
+    }
+
+    @Exclude
+    public List<String> getSheetUrls() {
+        return sheetUrls;
+    }
+
+    @Exclude
+    public void setSheetUrls(List<String> sheetUrls) {
+        this.sheetUrls = sheetUrls;
+    }
+}
@@ -1,6 +1,9 @@
 package com.realestate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.annotation.Exclude;
 import java.util.List;
 import java.util.Map;
 import com.realestate.model.Hotspot;
@@ -26,6 +29,12 @@ public class Floor {
     // New fields for top-view and angle-specific hotspots
     private List<Hotspot> topViewHotspots;
     private Map<String, List<Hotspot>> angleHotspots;
+    // Stored form of both hotspot collections, see HotspotCodec; never sent as JSON
+    private Blob hotspotData;
+    // Angle key -> hotspot count and last change, derived from the floors/{id}/angles shards on read; not stored
+    private Map<String, AngleIndexEntry> angleIndex;
+    // Preview image endpoint of the 3D model, set on read when there is one; not stored
+    private String previewUrl;
 
     public Floor() {
     }
@@ -168,4 +177,34 @@ public class Floor {
     public void setAngleHotspots(Map<String, List<Hotspot>> angleHotspots) {
         this.angleHotspots = angleHotspots;
     }
-} 
\ No newline at end of file
+
+    @JsonIgnore
+    public Blob getHotspotData() {
+        return hotspotData;
+    }
+
+    @JsonIgnore
+    public void setHotspotData(Blob hotspotData) {
+        this.hotspotData = hotspotData;
+    }
+
+    @Exclude
+    public Map<String, AngleIndexEntry> getAngleIndex() {
+        return angleIndex;
+    }
+
+    @Exclude
+    public void setAngleIndex(Map<String, AngleIndexEntry> angleIndex) {
+        this.angleIndex = angleIndex;
+    }
+
+    @Exclude
+    public String getPreviewUrl() {
+        return previewUrl;
+    }
+
+    @Exclude
+    public void setPreviewUrl(String previewUrl) {
+        this.previewUrl = previewUrl;
+    }
+}
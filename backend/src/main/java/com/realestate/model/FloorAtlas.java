@@ -0,0 +1,56 @@
+package com.realestate.model;
+
+import com.google.cloud.Timestamp;
+
+import java.util.List;
+
+// Sprite atlases of a floor's angle frames, see SpriteAtlasService
+public class FloorAtlas {
+    private String floorId;
+    private String version;       // hash of the frame names and checksums the atlas was built from
+    private List<String> frames;  // frame image names, in viewer order
+    private List<AtlasTier> tiers; // smallest frames first
+    private Timestamp generatedAt;
+
+    public FloorAtlas() {}
+
+    public String getFloorId() {
+        return floorId;
+    }
+
+    public void setFloorId(String floorId) {
+        this.floorId = floorId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public List<String> getFrames() {
+        return frames;
+    }
+
+    public void setFrames(List<String> frames) {
+        this.frames = frames;
+    }
+
+    public List<AtlasTier> getTiers() {
+        return tiers;
+    }
+
+    public void setTiers(List<AtlasTier> tiers) {
+        this.tiers = tiers;
+    }
+
+    public Timestamp getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(Timestamp generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+}
@@ -0,0 +1,128 @@
+package com.realestate.model;
+
+import com.google.cloud.Timestamp;
+
+import java.util.List;
+
+// One image in a floor's image manifest, see FloorImageManifestService
+public class FloorImageEntry {
+    private String name;
+    private String blobName;
+    private long size;
+    private String contentType;
+    private Integer width;  // pixels, null when the header could not be read
+    private Integer height;
+    private int order;      // position in the manifest, which is kept sorted by name
+    private String crc32c;  // base64, as reported by Cloud Storage
+    private String sha256;  // hex, only known for images uploaded through this service
+    private Timestamp uploadedAt;
+    // Generated variant files under derived/{sha256}/, e.g. "medium.webp"
+    private List<String> variants;
+    // Format of the deep-zoom tiles under tiles/{sha256}/, null when the image has no pyramid
+    private String tileFormat;
+
+    public FloorImageEntry() {}
+
+    public FloorImageEntry(String name, String blobName, long size, String contentType) {
+        this.name = name;
+        this.blobName = blobName;
+        this.size = size;
+        this.contentType = contentType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public void setBlobName(String blobName) {
+        this.blobName = blobName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    public String getCrc32c() {
+        return crc32c;
+    }
+
+    public void setCrc32c(String crc32c) {
+        this.crc32c = crc32c;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Timestamp getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(Timestamp uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+
+    public List<String> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(List<String> variants) {
+        this.variants = variants;
+    }
+
+    public String getTileFormat() {
+        return tileFormat;
+    }
+
+    public void setTileFormat(String tileFormat) {
+        this.tileFormat = tileFormat;
+    }
+}
@@ -1,6 +1,7 @@
 package com.realestate.model;
 
 public class Hotspot {
+    private String id; // stable per-hotspot id, assigned when first stored
     private String apartmentId;
     private double x; // percentage 0-100
     private double y; // percentage 0-100
@@ -15,6 +16,14 @@ public class Hotspot {
         this.y = y;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getApartmentId() {
         return apartmentId;
     }
@@ -0,0 +1,85 @@
+package com.realestate.model;
+
+import com.google.cloud.Timestamp;
+
+import java.util.List;
+
+// Processing result of an uploaded GLB model, see ModelOptimizationService
+public class ModelAsset {
+    private String blobName;
+    private String sha256;
+    private ModelStats stats;
+    // Lighter variant for phones, null when optimizing did not save enough or was not possible
+    private String mobileBlobName;
+    private ModelStats mobileStats;
+    private String skippedReason;
+    // Preview image files under derived/{sha256}/, e.g. "preview-640.png"
+    private List<String> previews;
+    private Timestamp processedAt;
+
+    public ModelAsset() {}
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public void setBlobName(String blobName) {
+        this.blobName = blobName;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public ModelStats getStats() {
+        return stats;
+    }
+
+    public void setStats(ModelStats stats) {
+        this.stats = stats;
+    }
+
+    public String getMobileBlobName() {
+        return mobileBlobName;
+    }
+
+    public void setMobileBlobName(String mobileBlobName) {
+        this.mobileBlobName = mobileBlobName;
+    }
+
+    public ModelStats getMobileStats() {
+        return mobileStats;
+    }
+
+    public void setMobileStats(ModelStats mobileStats) {
+        this.mobileStats = mobileStats;
+    }
+
+    public String getSkippedReason() {
+        return skippedReason;
+    }
+
+    public void setSkippedReason(String skippedReason) {
+        this.skippedReason = skippedReason;
+    }
+
+    public List<String> getPreviews() {
+        return previews;
+    }
+
+    public void setPreviews(List<String> previews) {
+        this.previews = previews;
+    }
+
+    public Timestamp getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(Timestamp processedAt) {
+        this.processedAt = processedAt;
+    }
+}
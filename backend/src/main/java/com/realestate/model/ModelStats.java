@@ -0,0 +1,81 @@
+package com.realestate.model;
+
+import java.util.List;
+
+// Geometry and texture totals of a GLB file; each mesh is counted once however many nodes use it
+public class ModelStats {
+    private long byteLength;
+    private int meshes;
+    private int primitives;
+    private long vertices;
+    private long triangles;
+    private int materials;
+    private long geometryBytes;   // bytes of the buffer views read by accessors
+    private List<ModelTexture> textures;
+
+    public ModelStats() {}
+
+    public long getByteLength() {
+        return byteLength;
+    }
+
+    public void setByteLength(long byteLength) {
+        this.byteLength = byteLength;
+    }
+
+    public int getMeshes() {
+        return meshes;
+    }
+
+    public void setMeshes(int meshes) {
+        this.meshes = meshes;
+    }
+
+    public int getPrimitives() {
+        return primitives;
+    }
+
+    public void setPrimitives(int primitives) {
+        this.primitives = primitives;
+    }
+
+    public long getVertices() {
+        return vertices;
+    }
+
+    public void setVertices(long vertices) {
+        this.vertices = vertices;
+    }
+
+    public long getTriangles() {
+        return triangles;
+    }
+
+    public void setTriangles(long triangles) {
+        this.triangles = triangles;
+    }
+
+    public int getMaterials() {
+        return materials;
+    }
+
+    public void setMaterials(int materials) {
+        this.materials = materials;
+    }
+
+    public long getGeometryBytes() {
+        return geometryBytes;
+    }
+
+    public void setGeometryBytes(long geometryBytes) {
+        this.geometryBytes = geometryBytes;
+    }
+
+    public List<ModelTexture> getTextures() {
+        return textures;
+    }
+
+    public void setTextures(List<ModelTexture> textures) {
+        this.textures = textures;
+    }
+}
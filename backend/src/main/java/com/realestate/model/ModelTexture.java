@@ -0,0 +1,50 @@
+package com.realestate.model;
+
+// One image of a glTF model; width and height are null when its header could not be read
+public class ModelTexture {
+    private String mimeType;
+    private Integer width;
+    private Integer height;
+    private long bytes;
+
+    public ModelTexture() {}
+
+    public ModelTexture(String mimeType, Integer width, Integer height, long bytes) {
+        this.mimeType = mimeType;
+        this.width = width;
+        this.height = height;
+        this.bytes = bytes;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+}
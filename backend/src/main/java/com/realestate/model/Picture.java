@@ -1,6 +1,7 @@
 package com.realestate.model;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class Picture {
     private String id;
@@ -9,6 +10,8 @@ public class Picture {
     private String type;
     private int order;
     private LocalDateTime createdAt;
+    // Variant file (e.g. "medium.webp") -> public URL, filled in once the variants are generated
+    private Map<String, String> variantUrls;
 
     // Default constructor
     public Picture() {
@@ -72,4 +75,12 @@ public class Picture {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
-} 
\ No newline at end of file
+
+    public Map<String, String> getVariantUrls() {
+        return variantUrls;
+    }
+
+    public void setVariantUrls(Map<String, String> variantUrls) {
+        this.variantUrls = variantUrls;
+    }
+}
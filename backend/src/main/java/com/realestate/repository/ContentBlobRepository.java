@@ -0,0 +1,163 @@
+package com.realestate.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.realestate.model.ContentBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference-counted index of the content-addressed store, one document per stored file at
+ * contentBlobs/{sha256}. Counts only change inside transactions, so concurrent uploads and
+ * deletes of the same content agree on when the file is no longer used. Releasing the last
+ * reference leaves the entry marked deleting until the file is gone ({@link #finishDelete}); an
+ * upload of the same content meanwhile gets that entry back unchanged and waits, instead of
+ * referencing a file that is about to disappear.
+ */
+public class ContentBlobRepository {
+    private static final Logger logger = LoggerFactory.getLogger(ContentBlobRepository.class);
+    private static final String COLLECTION = "contentBlobs";
+    // A delete not finished after this long was abandoned by a crashed instance, and is taken over
+    private static final long STALE_DELETE_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
+    private final Firestore firestore;
+
+    public ContentBlobRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    public ContentBlob find(String sha256) {
+        try {
+            DocumentSnapshot document = firestore.collection(COLLECTION).document(sha256).get().get();
+            return document.exists() ? document.toObject(ContentBlob.class) : null;
+        } catch (Exception e) {
+            logger.error("Error finding content blob {}: {}", sha256, e.getMessage());
+            throw new RuntimeException("Error finding content blob", e);
+        }
+    }
+
+    /**
+     * Adds a reference to the content, creating its entry from the candidate when it has none.
+     * Returns the stored entry, whose blob name is the existing one when the content was known,
+     * or, without adding anything, an entry whose file is being deleted; retry once it is gone.
+     */
+    public ContentBlob acquire(ContentBlob candidate) {
+        DocumentReference docRef = firestore.collection(COLLECTION).document(candidate.getSha256());
+        try {
+            return firestore.runTransaction(transaction -> {
+                DocumentSnapshot document = transaction.get(docRef).get();
+                ContentBlob blob = document.exists() ? document.toObject(ContentBlob.class) : null;
+                Timestamp now = Timestamp.now();
+                if (blob != null && blob.isDeleting()) {
+                    if (!isStale(blob, now)) {
+                        return blob;
+                    }
+                    blob = null;
+                }
+                if (blob == null) {
+                    blob = candidate;
+                    blob.setRefCount(0);
+                    blob.setCreatedAt(now);
+                }
+                blob.setRefCount(blob.getRefCount() + 1);
+                blob.setUpdatedAt(now);
+                transaction.set(docRef, blob);
+                return blob;
+            }).get();
+        } catch (Exception e) {
+            logger.error("Error acquiring content blob {}: {}", candidate.getSha256(), e.getMessage());
+            throw new RuntimeException("Error acquiring content blob", e);
+        }
+    }
+
+    /**
+     * Drops a reference to the content; with the last one the entry is marked deleting, and the
+     * caller deletes the file and then calls {@link #finishDelete}. Returns the entry with its
+     * remaining count (0 when that was the last reference), or null when the content is not
+     * indexed.
+     */
+    public ContentBlob release(String sha256) {
+        return release(sha256, 1);
+    }
+
+    // Drops several references at once, as a cascade delete of records sharing the content does
+    public ContentBlob release(String sha256, int count) {
+        DocumentReference docRef = firestore.collection(COLLECTION).document(sha256);
+        try {
+            return firestore.runTransaction(transaction -> {
+                DocumentSnapshot document = transaction.get(docRef).get();
+                if (!document.exists()) {
+                    return null;
+                }
+                ContentBlob blob = document.toObject(ContentBlob.class);
+                blob.setRefCount(Math.max(0, blob.getRefCount() - count));
+                blob.setUpdatedAt(Timestamp.now());
+                blob.setDeleting(blob.getRefCount() == 0);
+                transaction.set(docRef, blob);
+                return blob;
+            }).get();
+        } catch (Exception e) {
+            logger.error("Error releasing content blob {}: {}", sha256, e.getMessage());
+            throw new RuntimeException("Error releasing content blob", e);
+        }
+    }
+
+    /**
+     * Starts deleting content no record refers to any more, unless its entry changed after the
+     * cutoff (an upload may be about to save a record using it). Content without an entry gets a
+     * deleting one, so uploads of it wait as they do for {@link #release}. Returns whether the
+     * caller may delete the file, after which it calls {@link #finishDelete}.
+     */
+    public boolean markDeleting(String sha256, String blobName, Timestamp cutoff) {
+        DocumentReference docRef = firestore.collection(COLLECTION).document(sha256);
+        try {
+            return firestore.runTransaction(transaction -> {
+                DocumentSnapshot document = transaction.get(docRef).get();
+                ContentBlob blob = document.exists() ? document.toObject(ContentBlob.class) : null;
+                if (blob != null && blob.getUpdatedAt() != null && blob.getUpdatedAt().compareTo(cutoff) > 0) {
+                    return false;
+                }
+                if (blob == null) {
+                    blob = new ContentBlob();
+                    blob.setSha256(sha256);
+                    blob.setBlobName(blobName);
+                    blob.setCreatedAt(Timestamp.now());
+                }
+                blob.setRefCount(0);
+                blob.setDeleting(true);
+                blob.setUpdatedAt(Timestamp.now());
+                transaction.set(docRef, blob);
+                return true;
+            }).get();
+        } catch (Exception e) {
+            logger.error("Error marking content blob {} deleting: {}", sha256, e.getMessage());
+            throw new RuntimeException("Error marking content blob deleting", e);
+        }
+    }
+
+    // Removes the entry once its file is deleted, unless an upload took it over in the meantime
+    public void finishDelete(String sha256) {
+        DocumentReference docRef = firestore.collection(COLLECTION).document(sha256);
+        try {
+            firestore.runTransaction(transaction -> {
+                DocumentSnapshot document = transaction.get(docRef).get();
+                if (document.exists() && Boolean.TRUE.equals(document.getBoolean("deleting"))) {
+                    transaction.delete(docRef);
+                }
+                return null;
+            }).get();
+        } catch (Exception e) {
+            logger.error("Error finishing delete of content blob {}: {}", sha256, e.getMessage());
+            throw new RuntimeException("Error finishing delete of content blob", e);
+        }
+    }
+
+    private static boolean isStale(ContentBlob blob, Timestamp now) {
+        return blob.getUpdatedAt() == null
+            || now.getSeconds() - blob.getUpdatedAt().getSeconds() > STALE_DELETE_SECONDS;
+    }
+}
@@ -1,10 +1,15 @@
 package com.realestate.repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 import com.google.firebase.cloud.FirestoreClient;
+import com.realestate.dto.ChangeSet;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -12,9 +17,14 @@ import org.slf4j.LoggerFactory;
 
 public class FirebaseRepository<T> {
     private static final Logger logger = LoggerFactory.getLogger(FirebaseRepository.class);
+    // Tombstones for deleted documents, read by delta sync clients
+    public static final String DELETIONS_COLLECTION = "_deletions";
+    // A write batch takes at most 500 writes; each deletion is two (document and tombstone)
+    private static final int DELETE_BATCH_SIZE = 250;
     protected final Firestore firestore;
     private final String collectionName;
     private final Class<T> entityClass;
+    private final List<RepositoryListener<T>> listeners = new CopyOnWriteArrayList<>();
 
     public FirebaseRepository(Firestore firestore, String collectionName, Class<T> entityClass) {
         this.firestore = firestore;
@@ -32,6 +42,7 @@ public class FirebaseRepository<T> {
             
             ApiFuture<WriteResult> result = docRef.set(data);
             result.get(); // Wait for completion
+            notifySaved(docRef.getId(), entity);
             return docRef.getId();
         } catch (Exception e) {
             logger.error("Error saving document to {}: {}", collectionName, e.getMessage());
@@ -47,23 +58,75 @@ public class FirebaseRepository<T> {
             
             ApiFuture<WriteResult> result = docRef.update(data);
             result.get(); // Wait for completion
+            notifySaved(id, entity);
         } catch (Exception e) {
             logger.error("Error updating document {}/{}: {}", collectionName, id, e.getMessage());
             throw new RuntimeException("Error updating document", e);
         }
     }
 
+    // Writes only the given fields, so concurrent writers of other fields are not overwritten
+    public void updateFields(String id, Map<String, Object> fields) {
+        try {
+            DocumentReference docRef = firestore.collection(collectionName).document(id);
+            Map<String, Object> data = new HashMap<>(fields);
+            data.put("updatedAt", FieldValue.serverTimestamp());
+
+            docRef.update(data).get(); // Wait for completion
+            DocumentSnapshot document = docRef.get().get();
+            if (document.exists()) {
+                notifySaved(id, document.toObject(entityClass));
+            }
+        } catch (Exception e) {
+            logger.error("Error updating fields of document {}/{}: {}", collectionName, id, e.getMessage());
+            throw new RuntimeException("Error updating document fields", e);
+        }
+    }
+
     public void delete(String id) {
         try {
             DocumentReference docRef = firestore.collection(collectionName).document(id);
-            ApiFuture<WriteResult> result = docRef.delete();
-            result.get(); // Wait for completion
+
+            // Delete and record the tombstone atomically so sync clients never miss a removal
+            Map<String, Object> tombstone = new HashMap<>();
+            tombstone.put("collection", collectionName);
+            tombstone.put("documentId", id);
+            tombstone.put("deletedAt", FieldValue.serverTimestamp());
+
+            WriteBatch batch = firestore.batch();
+            batch.delete(docRef);
+            batch.set(firestore.collection(DELETIONS_COLLECTION).document(), tombstone);
+            batch.commit().get(); // Wait for completion
+            notifyDeleted(id);
         } catch (Exception e) {
             logger.error("Error deleting document {}/{}: {}", collectionName, id, e.getMessage());
             throw new RuntimeException("Error deleting document", e);
         }
     }
 
+    // Deletes with tombstones in as few write batches as possible; each batch commits atomically
+    public void deleteAll(List<String> ids) {
+        for (int start = 0; start < ids.size(); start += DELETE_BATCH_SIZE) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + DELETE_BATCH_SIZE));
+            try {
+                WriteBatch batch = firestore.batch();
+                for (String id : chunk) {
+                    Map<String, Object> tombstone = new HashMap<>();
+                    tombstone.put("collection", collectionName);
+                    tombstone.put("documentId", id);
+                    tombstone.put("deletedAt", FieldValue.serverTimestamp());
+                    batch.delete(firestore.collection(collectionName).document(id));
+                    batch.set(firestore.collection(DELETIONS_COLLECTION).document(), tombstone);
+                }
+                batch.commit().get(); // Wait for completion
+            } catch (Exception e) {
+                logger.error("Error deleting {} documents from {}: {}", chunk.size(), collectionName, e.getMessage());
+                throw new RuntimeException("Error deleting documents", e);
+            }
+            chunk.forEach(this::notifyDeleted);
+        }
+    }
+
     public T findById(String id) {
         try {
             DocumentReference docRef = firestore.collection(collectionName).document(id);
@@ -109,6 +172,84 @@ public class FirebaseRepository<T> {
         }
     }
 
+    public ChangeSet<T> findChangedSince(Timestamp since) {
+        try {
+            // Both queries are strictly "after since"; the returned read time becomes the next token
+            Query updatedQuery = firestore.collection(collectionName)
+                .whereGreaterThan("updatedAt", since)
+                .orderBy("updatedAt");
+            Query deletedQuery = firestore.collection(DELETIONS_COLLECTION)
+                .whereEqualTo("collection", collectionName)
+                .whereGreaterThan("deletedAt", since)
+                .orderBy("deletedAt");
+
+            ApiFuture<QuerySnapshot> updatedFuture = updatedQuery.get();
+            ApiFuture<QuerySnapshot> deletedFuture = deletedQuery.get();
+            QuerySnapshot updated = updatedFuture.get();
+            QuerySnapshot deleted = deletedFuture.get();
+
+            List<T> upserts = updated.getDocuments().stream()
+                .map(doc -> doc.toObject(entityClass))
+                .collect(Collectors.toList());
+            List<String> deletedIds = deleted.getDocuments().stream()
+                .map(doc -> doc.getString("documentId"))
+                .collect(Collectors.toList());
+
+            Timestamp readTime = earliest(updated.getReadTime(), deleted.getReadTime());
+            return new ChangeSet<>(upserts, deletedIds, readTime);
+        } catch (Exception e) {
+            logger.error("Error finding changes in {} since {}: {}", collectionName, since, e.getMessage());
+            throw new RuntimeException("Error finding changed documents", e);
+        }
+    }
+
+    public ChangeSet<T> findAllWithReadTime() {
+        try {
+            QuerySnapshot snapshot = firestore.collection(collectionName).get().get();
+            List<T> documents = snapshot.getDocuments().stream()
+                .map(doc -> doc.toObject(entityClass))
+                .collect(Collectors.toList());
+            return new ChangeSet<>(documents, new ArrayList<>(), snapshot.getReadTime());
+        } catch (Exception e) {
+            logger.error("Error finding all documents in {}: {}", collectionName, e.getMessage());
+            throw new RuntimeException("Error finding all documents", e);
+        }
+    }
+
+    public void addListener(RepositoryListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    private void notifySaved(String id, T entity) {
+        for (RepositoryListener<T> listener : listeners) {
+            try {
+                listener.onSaved(id, entity);
+            } catch (Exception e) {
+                logger.warn("Listener failed for {}/{}: {}", collectionName, id, e.getMessage());
+            }
+        }
+    }
+
+    private void notifyDeleted(String id) {
+        for (RepositoryListener<T> listener : listeners) {
+            try {
+                listener.onDeleted(id);
+            } catch (Exception e) {
+                logger.warn("Listener failed for {}/{}: {}", collectionName, id, e.getMessage());
+            }
+        }
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    private static Timestamp earliest(Timestamp a, Timestamp b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
     protected Map<String, Object> convertToMap(T entity) {
         try {
             DocumentReference tempDoc = firestore.collection("_temp").document();
@@ -0,0 +1,301 @@
+package com.realestate.repository;
+
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.realestate.model.AngleIndexEntry;
+import com.realestate.model.Floor;
+import com.realestate.model.Hotspot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-angle hotspot shards stored as floors/{floorId}/angles/{angle}. Each shard holds one
+ * angle's hotspots as a HotspotCodec Blob plus its hotspot count and updatedAt, so the floor
+ * document stays small and the angle index can be read with a projection instead of loading
+ * every angle; clients compare each angle's updatedAt to know which ones to re-fetch.
+ */
+public class FloorAngleRepository {
+    private static final Logger logger = LoggerFactory.getLogger(FloorAngleRepository.class);
+    private static final String FLOORS_COLLECTION = "floors";
+    public static final String ANGLES_COLLECTION = "angles";
+    // Addresses the top-view list, which is stored on the floor document itself
+    public static final String TOP_VIEW = "top";
+    private static final int MAX_BATCH_SIZE = 500;
+
+    // Also notified with TOP_VIEW when a patch rewrites the floor's top-view list
+    public interface AngleListener {
+        void onAngleSaved(String floorId, String angle, List<Hotspot> hotspots);
+
+        void onAngleDeleted(String floorId, String angle);
+    }
+
+    private final Firestore firestore;
+    private final List<AngleListener> listeners = new CopyOnWriteArrayList<>();
+
+    public FloorAngleRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    // Hotspots of one angle, or null when the floor has no shard for it
+    public List<Hotspot> findAngle(String floorId, String angle) {
+        try {
+            DocumentSnapshot document = angles(floorId).document(checkAngle(angle)).get().get();
+            if (!document.exists()) {
+                return null;
+            }
+            return decode(document.getBlob("hotspotData"));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error finding angle {} of floor {}: {}", angle, floorId, e.getMessage());
+            throw new RuntimeException("Error finding floor angle", e);
+        }
+    }
+
+    public Map<String, List<Hotspot>> findAll(String floorId) {
+        try {
+            Map<String, List<Hotspot>> result = new TreeMap<>();
+            for (QueryDocumentSnapshot document : angles(floorId).get().get().getDocuments()) {
+                result.put(document.getId(), decode(document.getBlob("hotspotData")));
+            }
+            return result;
+        } catch (Exception e) {
+            logger.error("Error finding angles of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error finding floor angles", e);
+        }
+    }
+
+    // angle -> hotspot count and last change, read without transferring the hotspot blobs
+    public Map<String, AngleIndexEntry> findIndex(String floorId) {
+        try {
+            Map<String, AngleIndexEntry> index = new TreeMap<>();
+            for (QueryDocumentSnapshot document : angles(floorId).select("count", "updatedAt").get().get().getDocuments()) {
+                index.put(document.getId(), indexEntry(document));
+            }
+            return index;
+        } catch (Exception e) {
+            logger.error("Error finding angle index of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error finding floor angle index", e);
+        }
+    }
+
+    // floorId -> angle index for every floor, in a single collection group query
+    public Map<String, Map<String, AngleIndexEntry>> findAllIndexes() {
+        try {
+            Map<String, Map<String, AngleIndexEntry>> indexes = new HashMap<>();
+            for (QueryDocumentSnapshot document : firestore.collectionGroup(ANGLES_COLLECTION)
+                    .select("floorId", "count", "updatedAt").get().get().getDocuments()) {
+                String floorId = document.getString("floorId");
+                if (floorId != null) {
+                    indexes.computeIfAbsent(floorId, k -> new TreeMap<>()).put(document.getId(), indexEntry(document));
+                }
+            }
+            return indexes;
+        } catch (Exception e) {
+            logger.error("Error finding angle indexes: {}", e.getMessage());
+            throw new RuntimeException("Error finding floor angle indexes", e);
+        }
+    }
+
+    /**
+     * Writes only the listed shards; an empty list keeps the shard, a null list deletes it. Each
+     * batch also touches the floor's updatedAt, so delta sync reports the floor as changed.
+     */
+    public void saveAngles(String floorId, Map<String, List<Hotspot>> angleHotspots) {
+        if (angleHotspots == null || angleHotspots.isEmpty()) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, List<Hotspot>>> entries = new ArrayList<>(angleHotspots.entrySet());
+            entries.forEach(entry -> checkAngle(entry.getKey()));
+            DocumentReference floorRef = firestore.collection(FLOORS_COLLECTION).document(floorId);
+            // One write of each batch goes to the floor document
+            int shardsPerBatch = MAX_BATCH_SIZE - 1;
+            for (int start = 0; start < entries.size(); start += shardsPerBatch) {
+                WriteBatch batch = firestore.batch();
+                batch.update(floorRef, "updatedAt", FieldValue.serverTimestamp());
+                for (Map.Entry<String, List<Hotspot>> entry : entries.subList(start, Math.min(entries.size(), start + shardsPerBatch))) {
+                    DocumentReference docRef = angles(floorId).document(entry.getKey());
+                    if (entry.getValue() == null) {
+                        batch.delete(docRef);
+                    } else {
+                        batch.set(docRef, shard(floorId, entry.getKey(), entry.getValue()));
+                    }
+                }
+                batch.commit().get(); // Wait for completion
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error saving angles of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error saving floor angles", e);
+        }
+        angleHotspots.forEach((angle, hotspots) -> {
+            if (hotspots == null) {
+                notifyDeleted(floorId, angle);
+            } else {
+                notifySaved(floorId, angle, hotspots);
+            }
+        });
+    }
+
+    public void saveAngle(String floorId, String angle, List<Hotspot> hotspots) {
+        Map<String, List<Hotspot>> single = new HashMap<>();
+        single.put(angle, hotspots);
+        saveAngles(floorId, single);
+    }
+
+    /**
+     * Reads the given lists inside a transaction, applies the mutation and writes back every
+     * list it returns. Firestore reruns the transaction when a concurrent write touches one of
+     * the documents, so the mutation must depend only on the lists it is handed. Absent angles
+     * start out empty. Returns null when the floor does not exist.
+     */
+    public Map<String, List<Hotspot>> patch(String floorId, Set<String> angleKeys,
+                                            UnaryOperator<Map<String, List<Hotspot>>> mutation) {
+        List<String> keys = new ArrayList<>(angleKeys);
+        keys.stream().filter(key -> !TOP_VIEW.equals(key)).forEach(FloorAngleRepository::checkAngle);
+        DocumentReference floorRef = firestore.collection(FLOORS_COLLECTION).document(floorId);
+        Map<String, List<Hotspot>> updated;
+        try {
+            updated = firestore.runTransaction(transaction -> {
+                // All reads happen before any write, as transactions require
+                DocumentSnapshot floorDoc = transaction.get(floorRef).get();
+                if (!floorDoc.exists()) {
+                    return null;
+                }
+                Map<String, List<Hotspot>> current = new HashMap<>();
+                List<String> shardKeys = new ArrayList<>();
+                for (String key : keys) {
+                    if (TOP_VIEW.equals(key)) {
+                        Floor floor = HotspotCodec.unpack(floorDoc.toObject(Floor.class));
+                        current.put(key, floor.getTopViewHotspots() != null ? new ArrayList<>(floor.getTopViewHotspots()) : new ArrayList<>());
+                    } else {
+                        shardKeys.add(key);
+                    }
+                }
+                if (!shardKeys.isEmpty()) {
+                    DocumentReference[] refs = shardKeys.stream().map(key -> angles(floorId).document(key)).toArray(DocumentReference[]::new);
+                    List<DocumentSnapshot> shards = transaction.getAll(refs).get();
+                    for (int i = 0; i < shards.size(); i++) {
+                        current.put(shardKeys.get(i), shards.get(i).exists() ? decode(shards.get(i).getBlob("hotspotData")) : new ArrayList<>());
+                    }
+                }
+
+                Map<String, List<Hotspot>> result = mutation.apply(current);
+                if (!result.containsKey(TOP_VIEW)) {
+                    // Lets delta sync see the floor changed; a top-view write sets updatedAt itself
+                    transaction.update(floorRef, "updatedAt", FieldValue.serverTimestamp());
+                }
+                for (Map.Entry<String, List<Hotspot>> entry : result.entrySet()) {
+                    if (TOP_VIEW.equals(entry.getKey())) {
+                        Map<String, Object> data = new HashMap<>();
+                        HotspotCodec.assignIds(entry.getValue());
+                        data.put("hotspotData", Blob.fromBytes(HotspotCodec.encode(entry.getValue(), null)));
+                        data.put("topViewHotspots", null);
+                        data.put("updatedAt", FieldValue.serverTimestamp());
+                        transaction.update(floorRef, data);
+                    } else {
+                        transaction.set(angles(floorId).document(entry.getKey()), shard(floorId, entry.getKey(), entry.getValue()));
+                    }
+                }
+                return result;
+            }).get();
+        } catch (Exception e) {
+            logger.error("Error patching hotspots of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error patching floor hotspots", e);
+        }
+        if (updated != null) {
+            updated.forEach((angle, hotspots) -> notifySaved(floorId, angle, hotspots));
+        }
+        return updated;
+    }
+
+    // Removes every shard of a floor; listeners learn about it from the floor deletion
+    public void deleteAll(String floorId) {
+        try {
+            List<DocumentReference> shards = new ArrayList<>();
+            angles(floorId).listDocuments().forEach(shards::add);
+            for (int start = 0; start < shards.size(); start += MAX_BATCH_SIZE) {
+                WriteBatch batch = firestore.batch();
+                shards.subList(start, Math.min(shards.size(), start + MAX_BATCH_SIZE)).forEach(batch::delete);
+                batch.commit().get(); // Wait for completion
+            }
+        } catch (Exception e) {
+            logger.error("Error deleting angles of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error deleting floor angles", e);
+        }
+    }
+
+    public void addListener(AngleListener listener) {
+        listeners.add(listener);
+    }
+
+    private void notifySaved(String floorId, String angle, List<Hotspot> hotspots) {
+        for (AngleListener listener : listeners) {
+            try {
+                listener.onAngleSaved(floorId, angle, hotspots);
+            } catch (Exception e) {
+                logger.warn("Angle listener failed for floor {} angle {}: {}", floorId, angle, e.getMessage());
+            }
+        }
+    }
+
+    private void notifyDeleted(String floorId, String angle) {
+        for (AngleListener listener : listeners) {
+            try {
+                listener.onAngleDeleted(floorId, angle);
+            } catch (Exception e) {
+                logger.warn("Angle listener failed for floor {} angle {}: {}", floorId, angle, e.getMessage());
+            }
+        }
+    }
+
+    private CollectionReference angles(String floorId) {
+        return firestore.collection(FLOORS_COLLECTION).document(floorId).collection(ANGLES_COLLECTION);
+    }
+
+    private static Map<String, Object> shard(String floorId, String angle, List<Hotspot> hotspots) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("floorId", floorId);
+        data.put("angle", angle);
+        data.put("count", hotspots.size());
+        HotspotCodec.assignIds(hotspots);
+        data.put("hotspotData", Blob.fromBytes(HotspotCodec.encodeList(hotspots)));
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        return data;
+    }
+
+    private static List<Hotspot> decode(Blob blob) {
+        return blob != null ? HotspotCodec.decodeList(blob.toBytes()) : new ArrayList<>();
+    }
+
+    private static AngleIndexEntry indexEntry(DocumentSnapshot document) {
+        Long count = document.getLong("count");
+        return new AngleIndexEntry(count != null ? count.intValue() : 0, document.getTimestamp("updatedAt"));
+    }
+
+    // Angle keys become document ids, so they must be usable as a single path segment
+    private static String checkAngle(String angle) {
+        if (angle == null || angle.isBlank() || angle.contains("/") || angle.startsWith("__")
+                || ".".equals(angle) || "..".equals(angle)) {
+            throw new IllegalArgumentException("Invalid angle key: " + angle);
+        }
+        return angle;
+    }
+}
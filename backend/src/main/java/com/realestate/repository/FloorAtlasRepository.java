@@ -0,0 +1,47 @@
+package com.realestate.repository;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.realestate.model.FloorAtlas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// One document per floor at floorAtlases/{floorId} describing its current sprite atlases
+public class FloorAtlasRepository {
+    private static final Logger logger = LoggerFactory.getLogger(FloorAtlasRepository.class);
+    private static final String COLLECTION = "floorAtlases";
+
+    private final Firestore firestore;
+
+    public FloorAtlasRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    public FloorAtlas find(String floorId) {
+        try {
+            DocumentSnapshot document = firestore.collection(COLLECTION).document(floorId).get().get();
+            return document.exists() ? document.toObject(FloorAtlas.class) : null;
+        } catch (Exception e) {
+            logger.error("Error finding atlas of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error finding floor atlas", e);
+        }
+    }
+
+    public void save(FloorAtlas atlas) {
+        try {
+            firestore.collection(COLLECTION).document(atlas.getFloorId()).set(atlas).get(); // Wait for completion
+        } catch (Exception e) {
+            logger.error("Error saving atlas of floor {}: {}", atlas.getFloorId(), e.getMessage());
+            throw new RuntimeException("Error saving floor atlas", e);
+        }
+    }
+
+    public void delete(String floorId) {
+        try {
+            firestore.collection(COLLECTION).document(floorId).delete().get(); // Wait for completion
+        } catch (Exception e) {
+            logger.error("Error deleting atlas of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error deleting floor atlas", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.realestate.repository;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.annotation.IgnoreExtraProperties;
+import com.realestate.model.FloorImageEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * One document per floor at floorImages/{floorId} listing the floor's images, so a listing is a
+ * single document read instead of a bucket listing.
+ */
+public class FloorImageManifestRepository {
+    private static final Logger logger = LoggerFactory.getLogger(FloorImageManifestRepository.class);
+    private static final String COLLECTION = "floorImages";
+
+    private final Firestore firestore;
+
+    // Firestore mapping target for the manifest document
+    @IgnoreExtraProperties
+    public static class ManifestDocument {
+        private List<FloorImageEntry> images;
+
+        public List<FloorImageEntry> getImages() {
+            return images;
+        }
+
+        public void setImages(List<FloorImageEntry> images) {
+            this.images = images;
+        }
+    }
+
+    public FloorImageManifestRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    // The floor's images, or null when no manifest has been written yet
+    public List<FloorImageEntry> find(String floorId) {
+        try {
+            DocumentSnapshot document = firestore.collection(COLLECTION).document(floorId).get().get();
+            return document.exists() ? images(document) : null;
+        } catch (Exception e) {
+            logger.error("Error finding image manifest of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error finding floor image manifest", e);
+        }
+    }
+
+    public List<String> findAllIds() {
+        try {
+            List<String> ids = new ArrayList<>();
+            firestore.collection(COLLECTION).listDocuments().forEach(docRef -> ids.add(docRef.getId()));
+            return ids;
+        } catch (Exception e) {
+            logger.error("Error listing image manifests: {}", e.getMessage());
+            throw new RuntimeException("Error listing floor image manifests", e);
+        }
+    }
+
+    public void save(String floorId, List<FloorImageEntry> images) {
+        try {
+            firestore.collection(COLLECTION).document(floorId).set(data(floorId, images)).get(); // Wait for completion
+        } catch (Exception e) {
+            logger.error("Error saving image manifest of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error saving floor image manifest", e);
+        }
+    }
+
+    /**
+     * Applies the mutation to the stored list inside a transaction and writes the result back.
+     * A missing manifest starts out empty. Returns the written list.
+     */
+    public List<FloorImageEntry> update(String floorId, UnaryOperator<List<FloorImageEntry>> mutation) {
+        DocumentReference docRef = firestore.collection(COLLECTION).document(floorId);
+        try {
+            return firestore.runTransaction(transaction -> {
+                DocumentSnapshot document = transaction.get(docRef).get();
+                List<FloorImageEntry> images = mutation.apply(document.exists() ? images(document) : new ArrayList<>());
+                transaction.set(docRef, data(floorId, images));
+                return images;
+            }).get();
+        } catch (Exception e) {
+            logger.error("Error updating image manifest of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error updating floor image manifest", e);
+        }
+    }
+
+    public void delete(String floorId) {
+        try {
+            firestore.collection(COLLECTION).document(floorId).delete().get(); // Wait for completion
+        } catch (Exception e) {
+            logger.error("Error deleting image manifest of floor {}: {}", floorId, e.getMessage());
+            throw new RuntimeException("Error deleting floor image manifest", e);
+        }
+    }
+
+    private static List<FloorImageEntry> images(DocumentSnapshot document) {
+        ManifestDocument manifest = document.toObject(ManifestDocument.class);
+        return manifest != null && manifest.getImages() != null ? new ArrayList<>(manifest.getImages()) : new ArrayList<>();
+    }
+
+    private static Map<String, Object> data(String floorId, List<FloorImageEntry> images) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("floorId", floorId);
+        data.put("images", images);
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        return data;
+    }
+}
@@ -0,0 +1,258 @@
+package com.realestate.repository;
+
+import com.google.cloud.firestore.Blob;
+import com.realestate.dto.HotspotUpdateRequest;
+import com.realestate.model.Floor;
+import com.realestate.model.Hotspot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compact binary form of a floor's hotspots, used both as the stored Firestore Blob and as
+ * the application/octet-stream wire format.
+ *
+ * Layout (big-endian): magic "HS", version u8, apartment dictionary (u16 count, UTF strings),
+ * top-view list, then u16 angle count of (UTF key, list). A list is a u16 count followed by
+ * 10 bytes per hotspot: x, y, width, height quantized to u16 over 0-100% and a u16
+ * dictionary index. 0xFFFF marks an absent width/height/apartment. Version 3 follows each
+ * hotspot with its 48-bit id (u16 high, u32 low; 0 when it has none), 16 bytes per hotspot in
+ * all. Ids are 12 lowercase hex characters in JSON. Version 2 payloads, which stored ids as UTF
+ * strings, and version 1 payloads without ids are still read.
+ *
+ * Encoding never invents ids, so reading the same document twice yields the same ids. Write
+ * paths call assignIds (pack does) so every stored hotspot can be addressed by the patch API.
+ */
+public final class HotspotCodec {
+    public static final String MEDIA_TYPE = "application/octet-stream";
+
+    private static final int MAGIC = ('H' << 8) | 'S';
+    private static final int VERSION = 3;
+    private static final int VERSION_WITH_STRING_IDS = 2;
+    private static final int VERSION_WITHOUT_IDS = 1;
+    private static final int ID_HEX_LENGTH = 12;
+    private static final long ID_LIMIT = 1L << 48;
+    private static final int ABSENT = 0xFFFF;
+    private static final double SCALE = 65534.0 / 100.0;
+
+    private HotspotCodec() {
+    }
+
+    public static byte[] encode(List<Hotspot> topView, Map<String, List<Hotspot>> angleHotspots) {
+        try {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            collect(dictionary, topView);
+            if (angleHotspots != null) {
+                angleHotspots.values().forEach(list -> collect(dictionary, list));
+            }
+            if (dictionary.size() >= ABSENT) {
+                throw new IllegalArgumentException("Too many distinct apartments for hotspot encoding");
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(MAGIC);
+            out.writeByte(VERSION);
+            out.writeShort(dictionary.size());
+            for (String apartmentId : dictionary.keySet()) {
+                out.writeUTF(apartmentId);
+            }
+            writeList(out, dictionary, topView);
+            Map<String, List<Hotspot>> angles = angleHotspots != null ? angleHotspots : new HashMap<>();
+            out.writeShort(angles.size());
+            for (Map.Entry<String, List<Hotspot>> angle : angles.entrySet()) {
+                out.writeUTF(angle.getKey());
+                writeList(out, dictionary, angle.getValue());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding hotspots", e);
+        }
+    }
+
+    public static HotspotUpdateRequest decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readUnsignedShort() != MAGIC) {
+                throw new IllegalArgumentException("Not a hotspot payload");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION && version != VERSION_WITH_STRING_IDS && version != VERSION_WITHOUT_IDS) {
+                throw new IllegalArgumentException("Unsupported hotspot payload version: " + version);
+            }
+            String[] dictionary = new String[in.readUnsignedShort()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = in.readUTF();
+            }
+
+            HotspotUpdateRequest request = new HotspotUpdateRequest();
+            request.setTopViewHotspots(readList(in, dictionary, version));
+            int angleCount = in.readUnsignedShort();
+            Map<String, List<Hotspot>> angles = new LinkedHashMap<>();
+            for (int i = 0; i < angleCount; i++) {
+                String key = in.readUTF();
+                angles.put(key, readList(in, dictionary, version));
+            }
+            request.setAngleHotspots(angles);
+            return request;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed hotspot payload", e);
+        }
+    }
+
+    // Single-list form used by the per-angle shards: the list rides in the top-view slot
+    public static byte[] encodeList(List<Hotspot> hotspots) {
+        return encode(hotspots, null);
+    }
+
+    public static List<Hotspot> decodeList(byte[] data) {
+        return decode(data).getTopViewHotspots();
+    }
+
+    // Moves the floor's hotspot lists into the encoded Blob before it is written
+    public static void pack(Floor floor) {
+        if (floor.getTopViewHotspots() == null && floor.getAngleHotspots() == null) {
+            return;
+        }
+        assignIds(floor.getTopViewHotspots());
+        if (floor.getAngleHotspots() != null) {
+            floor.getAngleHotspots().values().forEach(HotspotCodec::assignIds);
+        }
+        floor.setHotspotData(Blob.fromBytes(encode(floor.getTopViewHotspots(), floor.getAngleHotspots())));
+        floor.setTopViewHotspots(null);
+        floor.setAngleHotspots(null);
+    }
+
+    // Restores the hotspot lists from the Blob after a read; legacy map documents pass through
+    public static Floor unpack(Floor floor) {
+        if (floor != null && floor.getHotspotData() != null) {
+            HotspotUpdateRequest decoded = decode(floor.getHotspotData().toBytes());
+            floor.setTopViewHotspots(decoded.getTopViewHotspots());
+            // Angles now live in FloorAngleRepository shards; only older blobs still carry them
+            if (!decoded.getAngleHotspots().isEmpty()) {
+                floor.setAngleHotspots(decoded.getAngleHotspots());
+            }
+        }
+        return floor;
+    }
+
+    private static void collect(Map<String, Integer> dictionary, List<Hotspot> hotspots) {
+        if (hotspots == null) {
+            return;
+        }
+        for (Hotspot hotspot : hotspots) {
+            if (hotspot.getApartmentId() != null) {
+                dictionary.putIfAbsent(hotspot.getApartmentId(), dictionary.size());
+            }
+        }
+    }
+
+    private static void writeList(DataOutputStream out, Map<String, Integer> dictionary, List<Hotspot> hotspots) throws IOException {
+        int count = hotspots != null ? hotspots.size() : 0;
+        if (count >= ABSENT) {
+            throw new IllegalArgumentException("Too many hotspots in one view for hotspot encoding");
+        }
+        out.writeShort(count);
+        for (int i = 0; i < count; i++) {
+            Hotspot hotspot = hotspots.get(i);
+            out.writeShort(quantize(hotspot.getX()));
+            out.writeShort(quantize(hotspot.getY()));
+            out.writeShort(hotspot.getWidth() != null ? quantize(hotspot.getWidth()) : ABSENT);
+            out.writeShort(hotspot.getHeight() != null ? quantize(hotspot.getHeight()) : ABSENT);
+            out.writeShort(hotspot.getApartmentId() != null ? dictionary.get(hotspot.getApartmentId()) : ABSENT);
+            long id = idValue(hotspot.getId());
+            out.writeShort((int) (id >>> 32));
+            out.writeInt((int) id);
+        }
+    }
+
+    private static List<Hotspot> readList(DataInputStream in, String[] dictionary, int version) throws IOException {
+        int count = in.readUnsignedShort();
+        List<Hotspot> hotspots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Hotspot hotspot = new Hotspot();
+            hotspot.setX(dequantize(in.readUnsignedShort()));
+            hotspot.setY(dequantize(in.readUnsignedShort()));
+            int width = in.readUnsignedShort();
+            int height = in.readUnsignedShort();
+            int apartment = in.readUnsignedShort();
+            hotspot.setWidth(width != ABSENT ? dequantize(width) : null);
+            hotspot.setHeight(height != ABSENT ? dequantize(height) : null);
+            hotspot.setApartmentId(apartment != ABSENT ? dictionary[apartment] : null);
+            if (version == VERSION) {
+                long id = ((long) in.readUnsignedShort() << 32) | (in.readInt() & 0xFFFFFFFFL);
+                hotspot.setId(id != 0 ? formatId(id) : null);
+            } else if (version == VERSION_WITH_STRING_IDS) {
+                String id = in.readUTF();
+                hotspot.setId(id.isEmpty() ? null : id);
+            }
+            hotspots.add(hotspot);
+        }
+        return hotspots;
+    }
+
+    // Gives hotspots without a valid id, or repeating one earlier in the list, a new id; returns true if any changed
+    public static boolean assignIds(List<Hotspot> hotspots) {
+        if (hotspots == null) {
+            return false;
+        }
+        boolean changed = false;
+        Set<String> ids = new HashSet<>();
+        for (Hotspot hotspot : hotspots) {
+            if (!isId(hotspot.getId()) || !ids.add(hotspot.getId())) {
+                hotspot.setId(newId());
+                ids.add(hotspot.getId());
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public static String newId() {
+        return formatId(ThreadLocalRandom.current().nextLong(1, ID_LIMIT));
+    }
+
+    // Whether the string is an id in the form newId() produces, which is the only form stored
+    public static boolean isId(String id) {
+        if (id == null || id.length() != ID_HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return !id.equals("000000000000");
+    }
+
+    // Ids not in the stored form (only ever seen in version 2 payloads) encode as absent
+    private static long idValue(String id) {
+        return isId(id) ? Long.parseLong(id, 16) : 0;
+    }
+
+    private static String formatId(long id) {
+        return String.format("%012x", id);
+    }
+
+    private static int quantize(double percent) {
+        double clamped = Math.max(0, Math.min(100, percent));
+        return (int) Math.round(clamped * SCALE);
+    }
+
+    private static double dequantize(int value) {
+        // Round to 4 decimals so decoded values read cleanly in JSON
+        return Math.round(value / SCALE * 10000.0) / 10000.0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.realestate.repository;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.realestate.model.ModelAsset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+// One document per uploaded model at modelAssets/{url-encoded blob name}
+public class ModelAssetRepository {
+    private static final Logger logger = LoggerFactory.getLogger(ModelAssetRepository.class);
+    private static final String COLLECTION = "modelAssets";
+
+    private final Firestore firestore;
+
+    public ModelAssetRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    public ModelAsset find(String blobName) {
+        try {
+            DocumentSnapshot document = firestore.collection(COLLECTION).document(documentId(blobName)).get().get();
+            return document.exists() ? document.toObject(ModelAsset.class) : null;
+        } catch (Exception e) {
+            logger.error("Error finding model asset {}: {}", blobName, e.getMessage());
+            throw new RuntimeException("Error finding model asset", e);
+        }
+    }
+
+    public void save(ModelAsset asset) {
+        try {
+            firestore.collection(COLLECTION).document(documentId(asset.getBlobName())).set(asset).get(); // Wait for completion
+        } catch (Exception e) {
+            logger.error("Error saving model asset {}: {}", asset.getBlobName(), e.getMessage());
+            throw new RuntimeException("Error saving model asset", e);
+        }
+    }
+
+    public void delete(String blobName) {
+        try {
+            firestore.collection(COLLECTION).document(documentId(blobName)).delete().get(); // Wait for completion
+        } catch (Exception e) {
+            logger.error("Error deleting model asset {}: {}", blobName, e.getMessage());
+            throw new RuntimeException("Error deleting model asset", e);
+        }
+    }
+
+    // Blob names may contain '/', which Firestore document ids cannot
+    private static String documentId(String blobName) {
+        return URLEncoder.encode(blobName, StandardCharsets.UTF_8);
+    }
+}
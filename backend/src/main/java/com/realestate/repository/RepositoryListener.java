@@ -0,0 +1,8 @@
+package com.realestate.repository;
+
+// Notified after a write to a repository's collection has been committed
+public interface RepositoryListener<T> {
+    void onSaved(String id, T entity);
+
+    void onDeleted(String id);
+}
@@ -0,0 +1,314 @@
+package com.realestate.search;
+
+import com.realestate.dto.ApartmentSearchRequest;
+import com.realestate.dto.ApartmentSearchResult;
+import com.realestate.model.Apartment;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.RepositoryListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory facet index over apartments. Every facet value owns a bitmap of apartment
+ * ordinals; a search ORs the selected values of each facet and ANDs the facets together.
+ * Price and area are also kept in primitive columns for exact range filtering.
+ */
+@Component
+public class ApartmentFacetIndex implements RepositoryListener<Apartment> {
+    private static final Logger logger = LoggerFactory.getLogger(ApartmentFacetIndex.class);
+
+    public static final String STATUS = "status";
+    public static final String TYPE = "type";
+    public static final String FLOOR = "floorId";
+    public static final String PRICE_BAND = "priceBand";
+    public static final String AREA_BAND = "areaBand";
+    private static final String[] FACETS = {STATUS, TYPE, FLOOR, PRICE_BAND, AREA_BAND};
+    // Range filters take part in facet counting like any other facet
+    private static final String PRICE_RANGE = "priceRange";
+    private static final String AREA_RANGE = "areaRange";
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final ApartmentRepository apartmentRepository;
+    private final double priceBandWidth;
+    private final double areaBandWidth;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Apartment[] docs = new Apartment[1024];
+    private double[] prices = new double[1024];
+    private double[] areas = new double[1024];
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, Map<String, BitSet>> facets = new HashMap<>();
+
+    public ApartmentFacetIndex(ApartmentRepository apartmentRepository,
+                               @Value("${search.facets.price-band-width:50000}") double priceBandWidth,
+                               @Value("${search.facets.area-band-width:25}") double areaBandWidth) {
+        this.apartmentRepository = apartmentRepository;
+        this.priceBandWidth = priceBandWidth;
+        this.areaBandWidth = areaBandWidth;
+        for (String facet : FACETS) {
+            facets.put(facet, new HashMap<>());
+        }
+        apartmentRepository.addListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<Apartment> apartments = apartmentRepository.findAll();
+            lock.writeLock().lock();
+            try {
+                clear();
+                for (Apartment apartment : apartments) {
+                    if (apartment.getId() != null) {
+                        put(apartment.getId(), apartment);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Apartment facet index built with {} apartments", apartments.size());
+        } catch (Exception e) {
+            logger.error("Error building apartment facet index: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onSaved(String id, Apartment apartment) {
+        lock.writeLock().lock();
+        try {
+            put(id, apartment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                unindex(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ApartmentSearchResult search(ApartmentSearchRequest request) {
+        lock.readLock().lock();
+        try {
+            // One filter bitmap per constrained facet; unconstrained facets are absent
+            Map<String, BitSet> filters = new LinkedHashMap<>();
+            addValueFilter(filters, STATUS, request.getStatus());
+            addValueFilter(filters, TYPE, request.getType());
+            addValueFilter(filters, FLOOR, request.getFloorId());
+            addValueFilter(filters, PRICE_BAND, request.getPriceBand());
+            addValueFilter(filters, AREA_BAND, request.getAreaBand());
+            addRangeFilter(filters, PRICE_RANGE, prices, request.getMinPrice(), request.getMaxPrice());
+            addRangeFilter(filters, AREA_RANGE, areas, request.getMinArea(), request.getMaxArea());
+
+            BitSet matches = intersect(filters, null);
+
+            // Facet counts ignore the facet's own selection so the UI can offer alternatives
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            BitSet scratch = new BitSet(docs.length);
+            for (String facet : FACETS) {
+                BitSet base = filters.containsKey(facet) ? intersect(filters, facet) : matches;
+                Map<String, Integer> valueCounts = new TreeMap<>();
+                for (Map.Entry<String, BitSet> entry : facets.get(facet).entrySet()) {
+                    int count = andCardinality(scratch, base, entry.getValue());
+                    if (count > 0) {
+                        valueCounts.put(entry.getKey(), count);
+                    }
+                }
+                counts.put(facet, valueCounts);
+            }
+
+            int size = Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+            int page = Math.max(0, request.getPage());
+            List<Apartment> items = page(matches, request.getSort(), page, size);
+            return new ApartmentSearchResult(items, matches.cardinality(), page, size, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Apartment> page(BitSet matches, String sort, int page, int size) {
+        List<Apartment> items = new ArrayList<>(size);
+        int from = page * size;
+        if (sort == null || sort.isBlank()) {
+            // Ordinal order: walk the bitmap without materializing the full result
+            int skipped = 0;
+            for (int i = matches.nextSetBit(0); i >= 0 && items.size() < size; i = matches.nextSetBit(i + 1)) {
+                if (skipped++ >= from) {
+                    items.add(docs[i]);
+                }
+            }
+            return items;
+        }
+
+        Integer[] boxed = matches.stream().boxed().toArray(Integer[]::new);
+        Arrays.sort(boxed, comparator(sort));
+        for (int i = from; i < boxed.length && items.size() < size; i++) {
+            items.add(docs[boxed[i]]);
+        }
+        return items;
+    }
+
+    private Comparator<Integer> comparator(String sort) {
+        boolean descending = sort.startsWith("-");
+        String field = descending ? sort.substring(1) : sort;
+        Comparator<Integer> comparator = switch (field) {
+            case "price" -> Comparator.comparingDouble(i -> prices[i]);
+            case "area" -> Comparator.comparingDouble(i -> areas[i]);
+            case "lotNumber" -> Comparator.comparing(i -> docs[i].getLotNumber(), Comparator.nullsLast(String::compareTo));
+            default -> throw new IllegalArgumentException("Unsupported sort field: " + field);
+        };
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    private void addValueFilter(Map<String, BitSet> filters, String facet, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        BitSet union = new BitSet();
+        Map<String, BitSet> byValue = facets.get(facet);
+        for (String value : values) {
+            BitSet bitmap = byValue.get(value);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        filters.put(facet, union);
+    }
+
+    private void addRangeFilter(Map<String, BitSet> filters, String name, double[] column, Double min, Double max) {
+        if (min == null && max == null) {
+            return;
+        }
+        double lo = min != null ? min : Double.NEGATIVE_INFINITY;
+        double hi = max != null ? max : Double.POSITIVE_INFINITY;
+        BitSet inRange = new BitSet();
+        for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+            double value = column[i];
+            if (value >= lo && value <= hi) {
+                inRange.set(i);
+            }
+        }
+        filters.put(name, inRange);
+    }
+
+    private BitSet intersect(Map<String, BitSet> filters, String excluded) {
+        BitSet result = (BitSet) live.clone();
+        for (Map.Entry<String, BitSet> filter : filters.entrySet()) {
+            if (!filter.getKey().equals(excluded)) {
+                result.and(filter.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static int andCardinality(BitSet scratch, BitSet a, BitSet b) {
+        // Reuses one bitmap per search instead of copying both operands per facet value
+        scratch.clear();
+        scratch.or(a);
+        scratch.and(b);
+        return scratch.cardinality();
+    }
+
+    private void put(String id, Apartment apartment) {
+        if (apartment.getId() == null) {
+            apartment.setId(id);
+        }
+        Integer existing = ordinals.get(id);
+        if (existing != null) {
+            unindex(existing);
+        }
+        int ordinal = existing != null ? existing : live.nextClearBit(0);
+        ordinals.put(id, ordinal);
+        ensureCapacity(ordinal + 1);
+
+        docs[ordinal] = apartment;
+        prices[ordinal] = apartment.getPrice() != null ? apartment.getPrice().doubleValue() : Double.NaN;
+        areas[ordinal] = apartment.getArea();
+        live.set(ordinal);
+        forEachFacetValue(ordinal, (facet, value) ->
+            facets.get(facet).computeIfAbsent(value, v -> new BitSet()).set(ordinal));
+    }
+
+    private void unindex(int ordinal) {
+        forEachFacetValue(ordinal, (facet, value) -> {
+            Map<String, BitSet> byValue = facets.get(facet);
+            BitSet bitmap = byValue.get(value);
+            if (bitmap != null) {
+                bitmap.clear(ordinal);
+                if (bitmap.isEmpty()) {
+                    byValue.remove(value);
+                }
+            }
+        });
+        live.clear(ordinal);
+        docs[ordinal] = null;
+    }
+
+    private void forEachFacetValue(int ordinal, BiConsumer<String, String> action) {
+        Apartment apartment = docs[ordinal];
+        if (apartment == null) {
+            return;
+        }
+        if (apartment.getStatus() != null) {
+            action.accept(STATUS, apartment.getStatus().name());
+        }
+        if (apartment.getType() != null) {
+            action.accept(TYPE, apartment.getType());
+        }
+        if (apartment.getFloorId() != null) {
+            action.accept(FLOOR, apartment.getFloorId());
+        }
+        if (!Double.isNaN(prices[ordinal])) {
+            action.accept(PRICE_BAND, band(prices[ordinal], priceBandWidth));
+        }
+        action.accept(AREA_BAND, band(areas[ordinal], areaBandWidth));
+    }
+
+    private static String band(double value, double width) {
+        long lower = (long) (Math.floor(value / width) * width);
+        return lower + "-" + (long) (lower + width);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= docs.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, docs.length * 2);
+        docs = Arrays.copyOf(docs, newLength);
+        prices = Arrays.copyOf(prices, newLength);
+        areas = Arrays.copyOf(areas, newLength);
+    }
+
+    private void clear() {
+        ordinals.clear();
+        live.clear();
+        facets.values().forEach(Map::clear);
+        Arrays.fill(docs, null);
+    }
+}
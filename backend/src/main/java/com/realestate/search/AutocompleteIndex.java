@@ -0,0 +1,256 @@
+package com.realestate.search;
+
+import com.realestate.dto.AutocompleteSuggestion;
+import com.realestate.model.Apartment;
+import com.realestate.model.Buyer;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.BuyerRepository;
+import com.realestate.repository.RepositoryListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Prefix lookup for type-ahead. Each field is a sorted array of folded keys that readers
+ * binary-search without locking; writers insert or remove with a single array copy and
+ * publish the new snapshot. Names are also keyed by every word so "doe" finds "John Doe".
+ */
+@Component
+public class AutocompleteIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+    public static final String LOT_NUMBER = "lotNumber";
+    public static final String NAME = "name";
+    public static final String EMAIL = "email";
+    public static final String PHONE = "phone";
+
+    private static final int MAX_KEY_LENGTH = 64;
+    // Separates the folded value from the id so equal values stay distinct and ordered
+    private static final char SEPARATOR = '\u0000';
+
+    private final ApartmentRepository apartmentRepository;
+    private final BuyerRepository buyerRepository;
+    private final Map<String, FieldIndex> fields = new HashMap<>();
+
+    public AutocompleteIndex(ApartmentRepository apartmentRepository, BuyerRepository buyerRepository) {
+        this.apartmentRepository = apartmentRepository;
+        this.buyerRepository = buyerRepository;
+        fields.put(LOT_NUMBER, new FieldIndex(LOT_NUMBER, false));
+        fields.put(NAME, new FieldIndex(NAME, true));
+        fields.put(EMAIL, new FieldIndex(EMAIL, false));
+        fields.put(PHONE, new FieldIndex(PHONE, false));
+
+        apartmentRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Apartment apartment) {
+                fields.get(LOT_NUMBER).put(id, apartment.getLotNumber());
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                fields.get(LOT_NUMBER).remove(id);
+            }
+        });
+        buyerRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Buyer buyer) {
+                fields.get(NAME).put(id, buyer.getName());
+                fields.get(EMAIL).put(id, buyer.getEmail());
+                fields.get(PHONE).put(id, buyer.getPhone());
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                fields.get(NAME).remove(id);
+                fields.get(EMAIL).remove(id);
+                fields.get(PHONE).remove(id);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<Apartment> apartments = apartmentRepository.findAll();
+            List<Buyer> buyers = buyerRepository.findAll();
+            fields.get(LOT_NUMBER).load(apartments, Apartment::getId, Apartment::getLotNumber);
+            fields.get(NAME).load(buyers, Buyer::getId, Buyer::getName);
+            fields.get(EMAIL).load(buyers, Buyer::getId, Buyer::getEmail);
+            fields.get(PHONE).load(buyers, Buyer::getId, Buyer::getPhone);
+            logger.info("Autocomplete index built with {} apartments and {} buyers", apartments.size(), buyers.size());
+        } catch (Exception e) {
+            logger.error("Error building autocomplete index: {}", e.getMessage());
+        }
+    }
+
+    public List<AutocompleteSuggestion> suggest(String field, String prefix, int limit) {
+        FieldIndex index = fields.get(field);
+        if (index == null) {
+            throw new IllegalArgumentException("Unsupported autocomplete field: " + field);
+        }
+        return index.lookup(normalize(field, prefix), limit);
+    }
+
+    private static String normalize(String field, String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = PHONE.equals(field) ? value.replaceAll("[^0-9+]", "") : TextAnalyzer.fold(value).trim();
+        return normalized.length() > MAX_KEY_LENGTH ? normalized.substring(0, MAX_KEY_LENGTH) : normalized;
+    }
+
+    private record Snapshot(String[] keys, String[] ids, String[] values) {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new String[0], new String[0]);
+    }
+
+    private static final class FieldIndex {
+        private final String field;
+        private final boolean wordKeys;
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+        // id -> keys currently stored for it, so updates can remove the stale ones
+        private final Map<String, List<String>> keysById = new HashMap<>();
+
+        FieldIndex(String field, boolean wordKeys) {
+            this.field = field;
+            this.wordKeys = wordKeys;
+        }
+
+        List<AutocompleteSuggestion> lookup(String prefix, int limit) {
+            Snapshot current = snapshot;
+            List<AutocompleteSuggestion> suggestions = new ArrayList<>();
+            if (prefix.isEmpty() || limit <= 0) {
+                return suggestions;
+            }
+            Set<String> seen = new HashSet<>();
+            for (int i = lowerBound(current.keys(), prefix); i < current.keys().length && suggestions.size() < limit; i++) {
+                if (!current.keys()[i].startsWith(prefix)) {
+                    break;
+                }
+                if (seen.add(current.ids()[i])) {
+                    suggestions.add(new AutocompleteSuggestion(current.ids()[i], field, current.values()[i]));
+                }
+            }
+            return suggestions;
+        }
+
+        synchronized <T> void load(List<T> entities, Function<T, String> id, Function<T, String> value) {
+            keysById.clear();
+            List<String[]> entries = new ArrayList<>();
+            for (T entity : entities) {
+                String entityId = id.apply(entity);
+                String entityValue = value.apply(entity);
+                if (entityId == null || entityValue == null) {
+                    continue;
+                }
+                List<String> keys = keys(entityId, entityValue);
+                keysById.put(entityId, keys);
+                keys.forEach(key -> entries.add(new String[] {key, entityId, entityValue}));
+            }
+            entries.sort((a, b) -> a[0].compareTo(b[0]));
+
+            int n = entries.size();
+            String[] keys = new String[n];
+            String[] ids = new String[n];
+            String[] values = new String[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = entries.get(i)[0];
+                ids[i] = entries.get(i)[1];
+                values[i] = entries.get(i)[2];
+            }
+            snapshot = new Snapshot(keys, ids, values);
+        }
+
+        synchronized void put(String id, String value) {
+            remove(id);
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            List<String> keys = keys(id, value);
+            keysById.put(id, keys);
+            for (String key : keys) {
+                Snapshot current = snapshot;
+                int position = lowerBound(current.keys(), key);
+                snapshot = new Snapshot(
+                    insert(current.keys(), position, key),
+                    insert(current.ids(), position, id),
+                    insert(current.values(), position, value));
+            }
+        }
+
+        synchronized void remove(String id) {
+            List<String> keys = keysById.remove(id);
+            if (keys == null) {
+                return;
+            }
+            for (String key : keys) {
+                Snapshot current = snapshot;
+                int position = lowerBound(current.keys(), key);
+                if (position < current.keys().length && current.keys()[position].equals(key)) {
+                    snapshot = new Snapshot(
+                        delete(current.keys(), position),
+                        delete(current.ids(), position),
+                        delete(current.values(), position));
+                }
+            }
+        }
+
+        private List<String> keys(String id, String value) {
+            List<String> keys = new ArrayList<>();
+            String normalized = normalize(field, value);
+            if (!normalized.isEmpty()) {
+                keys.add(normalized + SEPARATOR + id);
+            }
+            if (wordKeys) {
+                // Secondary keys start at every later word: "john doe" -> "doe"
+                for (TextAnalyzer.Token token : TextAnalyzer.tokenize(value)) {
+                    if (token.start() > 0) {
+                        String suffix = normalize(field, value.substring(token.start()));
+                        if (!suffix.isEmpty()) {
+                            keys.add(suffix + SEPARATOR + id);
+                        }
+                    }
+                }
+            }
+            return keys;
+        }
+    }
+
+    private static int lowerBound(String[] keys, String target) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(target) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String[] insert(String[] array, int position, String value) {
+        String[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        result[position] = value;
+        return result;
+    }
+
+    private static String[] delete(String[] array, int position) {
+        String[] result = new String[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+}
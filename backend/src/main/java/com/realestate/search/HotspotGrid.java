@@ -0,0 +1,168 @@
+package com.realestate.search;
+
+import com.realestate.model.Hotspot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid over the 0-100% image space of one floor angle. Hotspots are stored as
+ * centre + size rectangles (as drawn by the annotator); each rectangle is registered in
+ * every cell it covers so hit tests and region queries only look at a cell's residents.
+ * Overlap detection uses a sweep line instead.
+ */
+public final class HotspotGrid {
+    // Hotspots saved without width/height are treated as a small square marker
+    public static final double DEFAULT_MARKER_SIZE = 2.0;
+    private static final int CELLS_PER_SIDE = 16;
+    private static final double CELL_SIZE = 100.0 / CELLS_PER_SIDE;
+    private static final long MAX_OVERLAP_CHECKS = 1_000_000;
+
+    private final List<Hotspot> hotspots;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final int[][] cells;
+
+    private HotspotGrid(List<Hotspot> hotspots) {
+        int n = hotspots.size();
+        this.hotspots = hotspots;
+        this.minX = new double[n];
+        this.minY = new double[n];
+        this.maxX = new double[n];
+        this.maxY = new double[n];
+
+        int[] counts = new int[CELLS_PER_SIDE * CELLS_PER_SIDE];
+        for (int i = 0; i < n; i++) {
+            Hotspot hotspot = hotspots.get(i);
+            double halfWidth = (hotspot.getWidth() != null ? hotspot.getWidth() : DEFAULT_MARKER_SIZE) / 2;
+            double halfHeight = (hotspot.getHeight() != null ? hotspot.getHeight() : DEFAULT_MARKER_SIZE) / 2;
+            minX[i] = hotspot.getX() - halfWidth;
+            maxX[i] = hotspot.getX() + halfWidth;
+            minY[i] = hotspot.getY() - halfHeight;
+            maxY[i] = hotspot.getY() + halfHeight;
+            forEachCell(i, cell -> counts[cell]++);
+        }
+
+        this.cells = new int[counts.length][];
+        for (int c = 0; c < counts.length; c++) {
+            cells[c] = new int[counts[c]];
+        }
+        int[] fill = new int[counts.length];
+        for (int i = 0; i < n; i++) {
+            int index = i;
+            forEachCell(i, cell -> cells[cell][fill[cell]++] = index);
+        }
+    }
+
+    public static HotspotGrid build(List<Hotspot> hotspots) {
+        return new HotspotGrid(hotspots != null ? new ArrayList<>(hotspots) : new ArrayList<>());
+    }
+
+    public int size() {
+        return hotspots.size();
+    }
+
+    public Hotspot get(int index) {
+        return hotspots.get(index);
+    }
+
+    // Indexes of hotspots containing the point, smallest (most specific) first
+    public List<Integer> hit(double x, double y) {
+        List<Integer> hits = new ArrayList<>();
+        for (int i : cells[cellOf(x) + cellOf(y) * CELLS_PER_SIDE]) {
+            if (x >= minX[i] && x <= maxX[i] && y >= minY[i] && y <= maxY[i]) {
+                hits.add(i);
+            }
+        }
+        hits.sort(Comparator.comparingDouble(this::area));
+        return hits;
+    }
+
+    // Indexes of hotspots intersecting the rectangle, in saved order
+    public List<Integer> region(double x1, double y1, double x2, double y2) {
+        double left = Math.min(x1, x2);
+        double right = Math.max(x1, x2);
+        double top = Math.min(y1, y2);
+        double bottom = Math.max(y1, y2);
+
+        BitSet found = new BitSet(hotspots.size());
+        for (int cy = cellOf(top); cy <= cellOf(bottom); cy++) {
+            for (int cx = cellOf(left); cx <= cellOf(right); cx++) {
+                for (int i : cells[cx + cy * CELLS_PER_SIDE]) {
+                    if (minX[i] <= right && maxX[i] >= left && minY[i] <= bottom && maxY[i] >= top) {
+                        found.set(i);
+                    }
+                }
+            }
+        }
+        return found.stream().boxed().toList();
+    }
+
+    /**
+     * Pairs of hotspots whose rectangles overlap (touching edges do not count), found with a
+     * sweep over the hotspots by left edge: rectangles the sweep is still inside stay in an
+     * active set ordered by top edge, and each new one is compared only with the active ones
+     * starting above its bottom edge. That is O(n log n) plus the pairs reported; the grid is
+     * not used, since one image-sized hotspot lands in every cell. The pair checks are capped
+     * at MAX_OVERLAP_CHECKS so a degenerate annotation (hundreds of stacked rectangles) cannot
+     * stall a save; the pairs found up to then are returned.
+     */
+    public List<int[]> overlaps() {
+        Integer[] order = new Integer[hotspots.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> minX[i]));
+        TreeSet<Integer> active = new TreeSet<>(Comparator.<Integer>comparingDouble(i -> minY[i]).thenComparingInt(i -> i));
+        PriorityQueue<Integer> byRight = new PriorityQueue<>(Comparator.comparingDouble(i -> maxX[i]));
+
+        List<int[]> pairs = new ArrayList<>();
+        long checks = 0;
+        sweep:
+        for (int r : order) {
+            while (!byRight.isEmpty() && maxX[byRight.peek()] <= minX[r]) {
+                active.remove(byRight.poll());
+            }
+            for (int a : active) {
+                if (minY[a] >= maxY[r]) {
+                    break;
+                }
+                if (++checks > MAX_OVERLAP_CHECKS) {
+                    break sweep;
+                }
+                if (maxY[a] > minY[r] && minX[a] < maxX[r]) {
+                    pairs.add(new int[] {Math.min(a, r), Math.max(a, r)});
+                }
+            }
+            active.add(r);
+            byRight.add(r);
+        }
+        pairs.sort(Comparator.<int[]>comparingInt(p -> p[0]).thenComparingInt(p -> p[1]));
+        return pairs;
+    }
+
+    private double area(int i) {
+        return (maxX[i] - minX[i]) * (maxY[i] - minY[i]);
+    }
+
+    private void forEachCell(int i, IntConsumer action) {
+        for (int cy = cellOf(minY[i]); cy <= cellOf(maxY[i]); cy++) {
+            for (int cx = cellOf(minX[i]); cx <= cellOf(maxX[i]); cx++) {
+                action.accept(cx + cy * CELLS_PER_SIDE);
+            }
+        }
+    }
+
+    private static int cellOf(double percent) {
+        int cell = (int) Math.floor(percent / CELL_SIZE);
+        return Math.max(0, Math.min(CELLS_PER_SIDE - 1, cell));
+    }
+}
@@ -0,0 +1,64 @@
+package com.realestate.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Shared tokenizer for the in-memory search indexes: splits on anything that is not a
+ * letter or digit, lowercases and strips accents so "Résidence" matches "residence".
+ */
+public final class TextAnalyzer {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private TextAnalyzer() {
+    }
+
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && isWordChar(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String term = fold(text.substring(start, i));
+                if (!term.isEmpty()) {
+                    tokens.add(new Token(term, start, i));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (Token token : tokenize(text)) {
+            terms.add(token.term());
+        }
+        return terms;
+    }
+
+    private static boolean isWordChar(char c) {
+        // Combining marks stay inside the word so they can be folded away with it
+        return Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+
+    // Folded term plus its character offsets in the original text, used for highlighting
+    public record Token(String term, int start, int end) {
+    }
+}
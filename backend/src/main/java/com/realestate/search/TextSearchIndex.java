@@ -0,0 +1,342 @@
+package com.realestate.search;
+
+import com.realestate.dto.SearchHit;
+import com.realestate.model.Apartment;
+import com.realestate.model.Buyer;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.BuyerRepository;
+import com.realestate.repository.RepositoryListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index with BM25 ranking over apartment and buyer text fields.
+ * Updates never rewrite postings: the old ordinal is marked deleted and the document is
+ * appended under a new one, keeping posting lists sorted. Deleted ordinals are dropped
+ * by a compaction once they make up a quarter of the index. Each posting list keeps the
+ * number of live documents holding its term, so deleted ordinals never count toward IDF.
+ */
+@Component
+public class TextSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TextSearchIndex.class);
+
+    public static final String APARTMENT = "apartment";
+    public static final String BUYER = "buyer";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int SNIPPET_CONTEXT = 60;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1000;
+
+    private final ApartmentRepository apartmentRepository;
+    private final BuyerRepository buyerRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final List<IndexedDocument> documents = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int[] lengths = new int[1024];
+    private long totalLength;
+
+    public TextSearchIndex(ApartmentRepository apartmentRepository, BuyerRepository buyerRepository) {
+        this.apartmentRepository = apartmentRepository;
+        this.buyerRepository = buyerRepository;
+
+        apartmentRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Apartment apartment) {
+                index(APARTMENT, id, apartmentFields(apartment));
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                remove(APARTMENT, id);
+            }
+        });
+        buyerRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Buyer buyer) {
+                index(BUYER, id, buyerFields(buyer));
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                remove(BUYER, id);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<Apartment> apartments = apartmentRepository.findAll();
+            List<Buyer> buyers = buyerRepository.findAll();
+            lock.writeLock().lock();
+            try {
+                clear();
+                apartments.stream()
+                    .filter(a -> a.getId() != null)
+                    .forEach(a -> add(APARTMENT, a.getId(), apartmentFields(a)));
+                buyers.stream()
+                    .filter(b -> b.getId() != null)
+                    .forEach(b -> add(BUYER, b.getId(), buyerFields(b)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Text search index built with {} apartments and {} buyers", apartments.size(), buyers.size());
+        } catch (Exception e) {
+            logger.error("Error building text search index: {}", e.getMessage());
+        }
+    }
+
+    public List<SearchHit> search(String query, String type, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.terms(query));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size() - deleted.cardinality();
+            if (docCount == 0) {
+                return new ArrayList<>();
+            }
+            double avgLength = (double) totalLength / docCount;
+
+            // Term-at-a-time accumulation into a dense score array
+            float[] scores = new float[documents.size()];
+            BitSet touched = new BitSet(documents.size());
+            for (String term : queryTerms) {
+                Postings list = postings.get(term);
+                if (list == null || list.live == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docCount - list.live + 0.5) / (list.live + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.docs[i];
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    int tf = list.freqs[i];
+                    double norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                    scores[doc] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+                    touched.set(doc);
+                }
+            }
+
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+            for (int doc = touched.nextSetBit(0); doc >= 0; doc = touched.nextSetBit(doc + 1)) {
+                if (type != null && !type.equals(documents.get(doc).type())) {
+                    continue;
+                }
+                top.offer(doc);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int doc = top.poll();
+                IndexedDocument document = documents.get(doc);
+                hits.add(new SearchHit(document.type(), document.id(), scores[doc], highlight(document, queryTerms)));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(String type, String id, Map<String, String> fields) {
+        lock.writeLock().lock();
+        try {
+            markDeleted(type, id);
+            add(type, id, fields);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String type, String id) {
+        lock.writeLock().lock();
+        try {
+            markDeleted(type, id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(String type, String id, Map<String, String> fields) {
+        int ordinal = documents.size();
+        documents.add(new IndexedDocument(type, id, fields));
+        ordinals.put(key(type, id), ordinal);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String value : fields.values()) {
+            for (String term : TextAnalyzer.terms(value)) {
+                frequencies.merge(term, 1, Integer::sum);
+                length++;
+            }
+        }
+        frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Postings()).add(ordinal, tf));
+
+        if (ordinal >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        lengths[ordinal] = length;
+        totalLength += length;
+    }
+
+    private void markDeleted(String type, String id) {
+        Integer ordinal = ordinals.remove(key(type, id));
+        if (ordinal != null && !deleted.get(ordinal)) {
+            deleted.set(ordinal);
+            totalLength -= lengths[ordinal];
+            // The postings stay until compaction, but no longer count toward document frequency
+            Set<String> terms = new HashSet<>();
+            documents.get(ordinal).fields().values().forEach(value -> terms.addAll(TextAnalyzer.terms(value)));
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    list.live--;
+                }
+            }
+        }
+    }
+
+    private void compactIfNeeded() {
+        int deletedCount = deleted.cardinality();
+        if (deletedCount < MIN_DELETED_FOR_COMPACTION || deletedCount * 4 < documents.size()) {
+            return;
+        }
+        List<IndexedDocument> liveDocuments = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            if (!deleted.get(i)) {
+                liveDocuments.add(documents.get(i));
+            }
+        }
+        clear();
+        liveDocuments.forEach(doc -> add(doc.type(), doc.id(), doc.fields()));
+    }
+
+    private void clear() {
+        postings.clear();
+        documents.clear();
+        ordinals.clear();
+        deleted.clear();
+        totalLength = 0;
+    }
+
+    private static Map<String, String> highlight(IndexedDocument document, Set<String> queryTerms) {
+        Map<String, String> highlights = new LinkedHashMap<>();
+        document.fields().forEach((field, value) -> {
+            List<TextAnalyzer.Token> matches = TextAnalyzer.tokenize(value).stream()
+                .filter(token -> queryTerms.contains(token.term()))
+                .toList();
+            if (!matches.isEmpty()) {
+                highlights.put(field, snippet(value, matches));
+            }
+        });
+        return highlights;
+    }
+
+    private static String snippet(String text, List<TextAnalyzer.Token> matches) {
+        int from = Math.max(0, matches.get(0).start() - SNIPPET_CONTEXT);
+        int to = Math.min(text.length(), matches.get(0).end() + SNIPPET_CONTEXT);
+        StringBuilder snippet = new StringBuilder();
+        if (from > 0) {
+            snippet.append("…");
+        }
+        int cursor = from;
+        for (TextAnalyzer.Token match : matches) {
+            if (match.start() < cursor || match.end() > to) {
+                continue;
+            }
+            snippet.append(escape(text.substring(cursor, match.start())))
+                .append("<mark>")
+                .append(escape(text.substring(match.start(), match.end())))
+                .append("</mark>");
+            cursor = match.end();
+        }
+        snippet.append(escape(text.substring(cursor, to)));
+        if (to < text.length()) {
+            snippet.append("…");
+        }
+        return snippet.toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static Map<String, String> apartmentFields(Apartment apartment) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        putIfPresent(fields, "lotNumber", apartment.getLotNumber());
+        putIfPresent(fields, "type", apartment.getType());
+        putIfPresent(fields, "description", apartment.getDescription());
+        return fields;
+    }
+
+    private static Map<String, String> buyerFields(Buyer buyer) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        putIfPresent(fields, "name", buyer.getName());
+        putIfPresent(fields, "email", buyer.getEmail());
+        putIfPresent(fields, "notes", buyer.getNotes());
+        return fields;
+    }
+
+    private static void putIfPresent(Map<String, String> fields, String name, String value) {
+        if (value != null && !value.isBlank()) {
+            fields.put(name, value);
+        }
+    }
+
+    private static String key(String type, String id) {
+        return type + ":" + id;
+    }
+
+    private record IndexedDocument(String type, String id, Map<String, String> fields) {
+    }
+
+    // Growable primitive posting list; ordinals are appended in increasing order
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        // Entries whose document is not deleted: the term's document frequency
+        int live;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.realestate.service;
 
+import com.realestate.dto.ApartmentSearchRequest;
+import com.realestate.dto.ApartmentSearchResult;
+import com.realestate.dto.UploadResult;
 import com.realestate.model.Apartment;
 import com.realestate.model.ApartmentStatus;
 import com.realestate.repository.ApartmentRepository;
+import com.realestate.search.ApartmentFacetIndex;
 import com.google.cloud.Timestamp;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -15,18 +19,25 @@ import java.util.List;
 public class ApartmentService {
     private final ApartmentRepository apartmentRepository;
     private final FirebaseService firebaseService;
+    private final ApartmentFacetIndex facetIndex;
+    private final ModelOptimizationService modelOptimizationService;
+    private final PictureService pictureService;
 
-    public ApartmentService(ApartmentRepository apartmentRepository, FirebaseService firebaseService) {
+    public ApartmentService(ApartmentRepository apartmentRepository, FirebaseService firebaseService, ApartmentFacetIndex facetIndex,
+                            ModelOptimizationService modelOptimizationService, PictureService pictureService) {
         this.apartmentRepository = apartmentRepository;
         this.firebaseService = firebaseService;
+        this.facetIndex = facetIndex;
+        this.modelOptimizationService = modelOptimizationService;
+        this.pictureService = pictureService;
     }
 
     public List<Apartment> getAllApartments() {
-        return apartmentRepository.findAll();
+        return withPreviewUrls(apartmentRepository.findAll());
     }
     
     public Apartment getApartment(String id) {
-        return apartmentRepository.findById(id);
+        return withPreviewUrl(apartmentRepository.findById(id));
     }
     
     public String createApartment(Apartment apartment, MultipartFile modelFile) throws IOException {
@@ -34,7 +45,7 @@ public class ApartmentService {
         apartment.setUpdatedAt(Timestamp.now());
 
         if (modelFile != null && !modelFile.isEmpty()) {
-            String modelUrl = firebaseService.uploadFile(modelFile);
+            String modelUrl = uploadModel(modelFile);
             apartment.setModel3dUrl(modelUrl);
         }
 
@@ -46,44 +57,90 @@ public class ApartmentService {
         apartment.setUpdatedAt(Timestamp.now());
 
         if (modelFile != null && !modelFile.isEmpty()) {
-            // Delete old model if exists
+            // Upload the new model before releasing the old one, so unchanged content is kept
+            String modelUrl = uploadModel(modelFile);
             Apartment existingApartment = apartmentRepository.findById(id);
             if (existingApartment != null && existingApartment.getModel3dUrl() != null) {
-                firebaseService.deleteFile(existingApartment.getModel3dUrl());
+                deleteModel(existingApartment.getModel3dUrl());
             }
-
-            // Upload new model
-            String modelUrl = firebaseService.uploadFile(modelFile);
             apartment.setModel3dUrl(modelUrl);
         }
 
         apartmentRepository.update(id, apartment);
     }
 
+    // Points the apartment at an already uploaded model, releasing the one it replaces (the
+    // upload holds its own reference, so re-attaching the same content keeps it)
+    public boolean attachModel(String id, String modelUrl) {
+        Apartment apartment = apartmentRepository.findById(id);
+        if (apartment == null) return false;
+        if (apartment.getModel3dUrl() != null) {
+            deleteModel(apartment.getModel3dUrl());
+        }
+        apartment.setModel3dUrl(modelUrl);
+        apartment.setUpdatedAt(Timestamp.now());
+        apartmentRepository.update(id, apartment);
+        return true;
+    }
+
     public void deleteApartment(String id) {
         Apartment apartment = apartmentRepository.findById(id);
         if (apartment != null && apartment.getModel3dUrl() != null) {
-            firebaseService.deleteFile(apartment.getModel3dUrl());
+            deleteModel(apartment.getModel3dUrl());
         }
+        pictureService.deleteAllPicturesForApartment(id);
         apartmentRepository.delete(id);
     }
 
+    // Uploads a model and queues its mobile variant
+    private String uploadModel(MultipartFile modelFile) throws IOException {
+        UploadResult result = firebaseService.uploadFileWithResult(modelFile);
+        modelOptimizationService.submit(result);
+        return result.getUrl();
+    }
+
+    // Releases the model; its variants go once no other record uses the same content
+    private void deleteModel(String modelUrl) {
+        if (firebaseService.releaseFile(modelUrl)) {
+            modelOptimizationService.deleteVariants(modelUrl);
+        }
+    }
+
     public List<Apartment> getApartmentsByStatus(ApartmentStatus status) {
-        return apartmentRepository.findByField("status", status);
+        return withPreviewUrls(apartmentRepository.findByField("status", status));
     }
 
     public List<Apartment> getApartmentsByFloorId(String floorId) {
-        return apartmentRepository.findByField("floorId", floorId);
+        return withPreviewUrls(apartmentRepository.findByField("floorId", floorId));
     }
 
     public List<Apartment> getApartmentsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
         // TODO: Implement price range query using Firestore compound queries
-        return apartmentRepository.findAll().stream()
+        return withPreviewUrls(apartmentRepository.findAll().stream()
             .filter(apt -> apt.getPrice().compareTo(minPrice) >= 0 && apt.getPrice().compareTo(maxPrice) <= 0)
-            .toList();
+            .toList());
     }
 
     public List<Apartment> getApartmentsByType(String type) {
-        return apartmentRepository.findByField("type", type);
+        return withPreviewUrls(apartmentRepository.findByField("type", type));
+    }
+
+    public ApartmentSearchResult searchApartments(ApartmentSearchRequest request) {
+        ApartmentSearchResult result = facetIndex.search(request);
+        withPreviewUrls(result.getItems());
+        return result;
+    }
+
+    // The preview endpoint redirects to the rendered image once the model has been processed
+    private static Apartment withPreviewUrl(Apartment apartment) {
+        if (apartment != null) {
+            apartment.setPreviewUrl(apartment.getModel3dUrl() != null ? "/api/apartments/" + apartment.getId() + "/preview" : null);
+        }
+        return apartment;
+    }
+
+    private static List<Apartment> withPreviewUrls(List<Apartment> apartments) {
+        apartments.forEach(ApartmentService::withPreviewUrl);
+        return apartments;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,405 @@
+package com.realestate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import com.realestate.storage.BlobStore;
+import com.realestate.storage.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of immutable blobs (the content store and derived files) on local disk, for
+ * serving them from this process instead of the blob store. A miss downloads the blob once, however
+ * many requests wait for it. Every download gets a file name of its own and evicted or removed
+ * files stay at their path for a grace period before they are deleted, so responses already
+ * handed to sendfile can still open them. Entries are persisted as {key}.{n}.bin with a
+ * {key}.{n}.json sidecar and restored on startup.
+ */
+@Service
+public class AssetCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(AssetCacheService.class);
+    private static final List<String> SERVABLE_PREFIXES = List.of("content/", "derived/");
+    private static final long EVICTION_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    // A cached blob; the ETag is its generation, which changes whenever the bytes do
+    public record Entry(String blobName, Path file, long size, String contentType, String etag) {
+    }
+
+    // Persisted as {key}.json beside the {key}.bin data file
+    static final class Metadata {
+        public String blobName;
+        public long size;
+        public String contentType;
+        public String etag;
+    }
+
+    private record Evicted(long deleteAfter, Path file) {
+    }
+
+    private final BlobStore blobStore;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final ThreadPoolExecutor prefetcher;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<Evicted> evicted = new ArrayDeque<>();
+    private final Map<String, CompletableFuture<Entry>> downloads = new ConcurrentHashMap<>();
+    // Suffix of the next data file, so no file name is ever reused while a response may hold it
+    private final AtomicLong fileSequence = new AtomicLong(System.currentTimeMillis());
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesFetched = new LongAdder();
+    private final LongAdder prefetches = new LongAdder();
+
+    public AssetCacheService(BlobStore blobStore,
+                             ObjectMapper objectMapper,
+                             @Value("${assets.cache.enabled:true}") boolean enabled,
+                             @Value("${assets.cache.dir:${java.io.tmpdir}/real-estate-assets}") String cacheDir,
+                             @Value("${assets.cache.max-bytes:2147483648}") long maxBytes,
+                             @Value("${assets.cache.max-object-bytes:268435456}") long maxObjectBytes,
+                             @Value("${assets.cache.prefetch-workers:1}") int prefetchWorkers,
+                             @Value("${assets.cache.prefetch-queue-size:20}") int prefetchQueueSize) throws IOException {
+        this.blobStore = blobStore;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled && maxBytes > 0;
+        this.cacheDir = this.enabled ? Files.createDirectories(Paths.get(cacheDir)) : Paths.get(cacheDir);
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = Math.min(maxObjectBytes, maxBytes);
+
+        this.prefetcher = ImageDerivativeService.backgroundPool("asset-prefetch", prefetchWorkers, prefetchQueueSize);
+    }
+
+    // Restores the entries of earlier runs, most recently used last; leftovers are deleted
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadEntries() {
+        if (!enabled) {
+            return;
+        }
+        List<Path> sidecars = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".json")) {
+                    sidecars.add(file);
+                } else if (name.endsWith(".tmp") || name.endsWith(".evicted") || (name.endsWith(".bin") && !Files.exists(metadataPath(file)))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            sidecars.sort(Comparator.comparing(AssetCacheService::lastModified));
+            synchronized (entries) {
+                for (Path sidecar : sidecars) {
+                    try {
+                        Metadata metadata = objectMapper.readValue(sidecar.toFile(), Metadata.class);
+                        Path file = dataPathOf(sidecar);
+                        if (Files.size(file) == metadata.size) {
+                            Entry replaced = entries.put(metadata.blobName, new Entry(metadata.blobName, file, metadata.size, metadata.contentType, metadata.etag));
+                            totalBytes += metadata.size;
+                            if (replaced != null) {
+                                // Nothing is being served yet, so an older copy can go right away
+                                totalBytes -= replaced.size();
+                                Files.deleteIfExists(metadataPath(replaced.file()));
+                                Files.deleteIfExists(replaced.file());
+                            }
+                        } else {
+                            Files.deleteIfExists(file);
+                            Files.deleteIfExists(sidecar);
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Skipping unreadable asset cache entry {}: {}", sidecar, e.getMessage());
+                        Files.deleteIfExists(sidecar);
+                    }
+                }
+                evict();
+            }
+            logger.info("Restored {} cached assets ({} bytes)", entries.size(), totalBytes);
+        } catch (Exception e) {
+            logger.error("Error restoring the asset cache: {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Only immutable, content-addressed blobs may be served from the cache
+    public boolean isServable(String blobName) {
+        return blobName != null && !blobName.contains("..") && SERVABLE_PREFIXES.stream().anyMatch(blobName::startsWith);
+    }
+
+    /**
+     * The cached copy of the blob, downloading it on a miss. Returns null when the blob does not
+     * exist; an entry without a file when the cache is disabled or the blob is too large to keep.
+     */
+    public Entry get(String blobName) throws IOException {
+        if (enabled) {
+            Entry cached;
+            synchronized (entries) {
+                cached = entries.get(blobName);
+            }
+            if (cached != null) {
+                hits.increment();
+                touch(cached);
+                return cached;
+            }
+        }
+        misses.increment();
+        CompletableFuture<Entry> download = new CompletableFuture<>();
+        CompletableFuture<Entry> running = downloads.putIfAbsent(blobName, download);
+        if (running != null) {
+            return join(running);
+        }
+        try {
+            download.complete(download(blobName));
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+        } finally {
+            downloads.remove(blobName);
+        }
+        return join(download);
+    }
+
+    // Warms the cache with a just-written blob in the background; dropped when the queue is full
+    public void prefetch(String blobName) {
+        if (!enabled || !isServable(blobName)) {
+            return;
+        }
+        try {
+            prefetcher.execute(() -> {
+                try {
+                    get(blobName);
+                    prefetches.increment();
+                } catch (Exception e) {
+                    logger.warn("Could not prefetch asset {}: {}", blobName, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Asset prefetch queue full, skipping {}", blobName);
+        }
+    }
+
+    // Drops a deleted blob from the cache, so it is no longer served; responses under way still finish
+    public void remove(String blobName) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            Entry entry = entries.remove(blobName);
+            if (entry != null) {
+                totalBytes -= entry.size();
+                retire(entry, now);
+            }
+            deleteExpired(now);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("bytesFetched", bytesFetched.sum());
+        stats.put("prefetches", prefetches.sum());
+        return stats;
+    }
+
+    private Entry download(String blobName) throws IOException {
+        StoredBlob blob = blobStore.stat(blobName);
+        if (blob == null) {
+            return null;
+        }
+        long size = blob.size();
+        String etag = "\"" + blob.generation() + "\"";
+        String contentType = blob.contentType() != null ? blob.contentType() : "application/octet-stream";
+        if (!enabled || size > maxObjectBytes) {
+            return new Entry(blobName, null, size, contentType, etag);
+        }
+
+        Path file = newDataPath(blobName);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (ReadableByteChannel reader = blobStore.reader(blobName, 0, -1);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+            while (reader.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        long written = Files.size(temp);
+        bytesFetched.add(written);
+        if (written != size) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Downloaded " + written + " of " + size + " bytes of " + blobName);
+        }
+
+        Metadata metadata = new Metadata();
+        metadata.blobName = blobName;
+        metadata.size = size;
+        metadata.contentType = contentType;
+        metadata.etag = etag;
+        Entry entry = new Entry(blobName, file, size, contentType, etag);
+        synchronized (entries) {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            objectMapper.writeValue(metadataPath(file).toFile(), metadata);
+            Entry replaced = entries.put(blobName, entry);
+            totalBytes += size;
+            if (replaced != null) {
+                totalBytes -= replaced.size();
+                retire(replaced, System.currentTimeMillis());
+            }
+            evict();
+        }
+        logger.debug("Cached asset {} ({} bytes)", blobName, size);
+        return entry;
+    }
+
+    // Drops least recently used entries until the cache fits; called holding the entries lock
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            totalBytes -= entry.size();
+            retire(entry, now);
+        }
+        deleteExpired(now);
+    }
+
+    /**
+     * Forgets an entry's sidecar but leaves its data file where it is until the grace period ends:
+     * sendfile opens the file by path after the handler returns. Called holding the entries lock.
+     */
+    private void retire(Entry entry, long now) {
+        try {
+            Files.deleteIfExists(metadataPath(entry.file()));
+        } catch (IOException e) {
+            logger.warn("Could not drop the sidecar of cached asset {}: {}", entry.blobName(), e.getMessage());
+        }
+        evicted.add(new Evicted(now + EVICTION_GRACE_MILLIS, entry.file()));
+    }
+
+    // Called holding the entries lock
+    private void deleteExpired(long now) {
+        while (!evicted.isEmpty() && evicted.peekFirst().deleteAfter() <= now) {
+            Evicted expired = evicted.pollFirst();
+            try {
+                Files.deleteIfExists(expired.file());
+            } catch (IOException e) {
+                logger.warn("Could not delete evicted asset {}: {}", expired.file(), e.getMessage());
+            }
+        }
+    }
+
+    // Keeps the access order across restarts, which restore entries by sidecar modification time
+    private void touch(Entry entry) {
+        try {
+            Files.setLastModifiedTime(metadataPath(entry.file()), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // The entry was evicted meanwhile
+        }
+    }
+
+    private Entry join(CompletableFuture<Entry> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an asset download", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // Blob names may contain '/' and arbitrary characters, so files are named by their hash
+    private Path newDataPath(String blobName) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(blobName.getBytes(StandardCharsets.UTF_8));
+            return cacheDir.resolve(HexFormat.of().formatHex(digest) + "." + fileSequence.incrementAndGet() + ".bin");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Path metadataPath(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - ".bin".length()) + ".json");
+    }
+
+    private static Path dataPathOf(Path sidecar) {
+        String name = sidecar.getFileName().toString();
+        return sidecar.resolveSibling(name.substring(0, name.length() - ".json".length()) + ".bin");
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetcher.shutdownNow();
+    }
+}
@@ -0,0 +1,400 @@
+package com.realestate.service;
+
+import com.realestate.dto.BuyerMatch;
+import com.realestate.model.Apartment;
+import com.realestate.model.ApartmentStatus;
+import com.realestate.model.Buyer;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.BuyerRepository;
+import com.realestate.repository.RepositoryListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scores buyers against AVAILABLE apartments on budget fit, type preference and the floors
+ * of apartments they showed interest in. Both sides are flattened into primitive columns;
+ * apartments are sorted by price so each buyer only scans units it can afford.
+ */
+@Service
+public class BuyerMatchingService {
+    private static final Logger logger = LoggerFactory.getLogger(BuyerMatchingService.class);
+
+    private static final double BUDGET_WEIGHT = 0.5;
+    private static final double TYPE_WEIGHT = 0.3;
+    private static final double FLOOR_WEIGHT = 0.2;
+    // Units up to this fraction above budget still match, with a decaying budget score
+    private static final double BUDGET_TOLERANCE = 0.10;
+    private static final double NEUTRAL = 0.5;
+    private static final int BATCH_THRESHOLD = 256;
+
+    private final ApartmentRepository apartmentRepository;
+    private final BuyerRepository buyerRepository;
+    private final ForkJoinPool pool;
+    private final int topK;
+
+    private final Map<String, Apartment> apartments = new ConcurrentHashMap<>();
+    private final Map<String, Buyer> buyers = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+    private volatile BatchResult lastBatch;
+    private final AtomicLong writeVersion = new AtomicLong();
+
+    public BuyerMatchingService(ApartmentRepository apartmentRepository,
+                                BuyerRepository buyerRepository,
+                                @Value("${matching.parallelism:0}") int parallelism,
+                                @Value("${matching.top-k:10}") int topK) {
+        this.apartmentRepository = apartmentRepository;
+        this.buyerRepository = buyerRepository;
+        if (topK <= 0) {
+            throw new IllegalArgumentException("matching.top-k must be positive: " + topK);
+        }
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.topK = topK;
+
+        apartmentRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Apartment apartment) {
+                // Entities saved as new, or updated from a request body, may not carry their id
+                apartment.setId(id);
+                apartments.put(id, apartment);
+                invalidate();
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                apartments.remove(id);
+                invalidate();
+            }
+        });
+        buyerRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Buyer buyer) {
+                buyer.setId(id);
+                buyers.put(id, buyer);
+                invalidate();
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                buyers.remove(id);
+                invalidate();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            apartmentRepository.findAll().stream()
+                .filter(a -> a.getId() != null)
+                .forEach(a -> apartments.put(a.getId(), a));
+            buyerRepository.findAll().stream()
+                .filter(b -> b.getId() != null)
+                .forEach(b -> buyers.put(b.getId(), b));
+            invalidate();
+            logger.info("Matching engine loaded {} apartments and {} buyers", apartments.size(), buyers.size());
+        } catch (Exception e) {
+            logger.error("Error loading matching data: {}", e.getMessage());
+        }
+    }
+
+    public List<BuyerMatch> getMatches(String buyerId) {
+        Snapshot current = currentSnapshot();
+        Integer buyer = current.buyerIndex.get(buyerId);
+        if (buyer == null) {
+            return null;
+        }
+
+        BatchResult batch = lastBatch;
+        if (batch != null && batch.snapshot == current) {
+            return toMatches(current, batch.topApartments, batch.topScores, buyer);
+        }
+
+        int[] topApartments = new int[topK];
+        double[] topScores = new double[topK];
+        current.scoreBuyer(buyer, topApartments, topScores, 0, topK);
+        return toMatches(current, topApartments, topScores, 0);
+    }
+
+    @Scheduled(cron = "${matching.rematch-cron:0 0 4 * * *}")
+    public void scheduledRematch() {
+        try {
+            rematchAll();
+        } catch (Exception e) {
+            logger.error("Error re-matching buyers: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> rematchAll() {
+        long started = System.nanoTime();
+        Snapshot current = currentSnapshot();
+        int buyerCount = current.buyerIds.length;
+        int[] topApartments = new int[buyerCount * topK];
+        double[] topScores = new double[buyerCount * topK];
+
+        pool.invoke(new MatchTask(current, topApartments, topScores, 0, buyerCount));
+        lastBatch = new BatchResult(current, topApartments, topScores);
+
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        logger.info("Re-matched {} buyers against {} available apartments in {} ms",
+            buyerCount, current.apartmentIds.length, millis);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buyers", buyerCount);
+        stats.put("availableApartments", current.apartmentIds.length);
+        stats.put("durationMs", millis);
+        return stats;
+    }
+
+    private List<BuyerMatch> toMatches(Snapshot current, int[] topApartments, double[] topScores, int buyer) {
+        List<BuyerMatch> matches = new ArrayList<>();
+        for (int k = 0; k < topK; k++) {
+            int slot = buyer * topK + k;
+            if (topApartments[slot] < 0) {
+                break;
+            }
+            int apartment = topApartments[slot];
+            matches.add(new BuyerMatch(current.apartmentIds[apartment], current.lotNumbers[apartment],
+                current.prices[apartment], topScores[slot]));
+        }
+        return matches;
+    }
+
+    private void invalidate() {
+        writeVersion.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    long version = writeVersion.get();
+                    current = new Snapshot(new ArrayList<>(apartments.values()), new ArrayList<>(buyers.values()), topK);
+                    // A write that raced with the copy leaves the snapshot unpublished
+                    if (writeVersion.get() == version) {
+                        snapshot = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private record BatchResult(Snapshot snapshot, int[] topApartments, double[] topScores) {
+    }
+
+    private static final class MatchTask extends RecursiveAction {
+        private final Snapshot snapshot;
+        private final int[] topApartments;
+        private final double[] topScores;
+        private final int from;
+        private final int to;
+
+        MatchTask(Snapshot snapshot, int[] topApartments, double[] topScores, int from, int to) {
+            this.snapshot = snapshot;
+            this.topApartments = topApartments;
+            this.topScores = topScores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                for (int buyer = from; buyer < to; buyer++) {
+                    snapshot.scoreBuyer(buyer, topApartments, topScores, buyer * snapshot.topK, snapshot.topK);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MatchTask(snapshot, topApartments, topScores, from, mid),
+                new MatchTask(snapshot, topApartments, topScores, mid, to));
+        }
+    }
+
+    // Immutable columnar view of both sides; rebuilt lazily after any write
+    private static final class Snapshot {
+        final int topK;
+
+        // AVAILABLE apartments, sorted by ascending price
+        final String[] apartmentIds;
+        final String[] lotNumbers;
+        final double[] prices;
+        final int[] typeCodes;
+        final int[] floorCodes;
+
+        final String[] buyerIds;
+        final Map<String, Integer> buyerIndex;
+        final double[] budgets;
+        // Per-buyer bitsets over type and floor codes, flattened into one long[] each
+        final int typeWords;
+        final int floorWords;
+        final long[] typePreferences;
+        final long[] floorPreferences;
+        final boolean[] hasTypePreference;
+        final boolean[] hasFloorPreference;
+
+        Snapshot(List<Apartment> allApartments, List<Buyer> allBuyers, int topK) {
+            this.topK = topK;
+
+            Map<String, Integer> typeDictionary = new HashMap<>();
+            Map<String, Integer> floorDictionary = new HashMap<>();
+            Map<String, Apartment> byId = new HashMap<>();
+            for (Apartment apartment : allApartments) {
+                byId.put(apartment.getId(), apartment);
+                code(typeDictionary, apartment.getType());
+                code(floorDictionary, apartment.getFloorId());
+            }
+
+            List<Apartment> available = allApartments.stream()
+                .filter(a -> a.getStatus() == ApartmentStatus.AVAILABLE && a.getPrice() != null)
+                .sorted(Comparator.comparing(Apartment::getPrice))
+                .toList();
+            int n = available.size();
+            apartmentIds = new String[n];
+            lotNumbers = new String[n];
+            prices = new double[n];
+            typeCodes = new int[n];
+            floorCodes = new int[n];
+            for (int i = 0; i < n; i++) {
+                Apartment apartment = available.get(i);
+                apartmentIds[i] = apartment.getId();
+                lotNumbers[i] = apartment.getLotNumber();
+                prices[i] = apartment.getPrice().doubleValue();
+                typeCodes[i] = code(typeDictionary, apartment.getType());
+                floorCodes[i] = code(floorDictionary, apartment.getFloorId());
+            }
+
+            int m = allBuyers.size();
+            typeWords = Math.max(1, (typeDictionary.size() + 63) >>> 6);
+            floorWords = Math.max(1, (floorDictionary.size() + 63) >>> 6);
+            buyerIds = new String[m];
+            buyerIndex = new HashMap<>(m * 2);
+            budgets = new double[m];
+            typePreferences = new long[m * typeWords];
+            floorPreferences = new long[m * floorWords];
+            hasTypePreference = new boolean[m];
+            hasFloorPreference = new boolean[m];
+            for (int b = 0; b < m; b++) {
+                Buyer buyer = allBuyers.get(b);
+                buyerIds[b] = buyer.getId();
+                buyerIndex.put(buyer.getId(), b);
+                budgets[b] = buyer.getBudget() != null && buyer.getBudget() > 0 ? buyer.getBudget() : Double.NaN;
+                if (buyer.getInterestedApartmentIds() == null) {
+                    continue;
+                }
+                for (String apartmentId : buyer.getInterestedApartmentIds()) {
+                    Apartment interested = byId.get(apartmentId);
+                    if (interested == null) {
+                        continue;
+                    }
+                    if (interested.getType() != null) {
+                        setBit(typePreferences, b * typeWords, typeDictionary.get(interested.getType()));
+                        hasTypePreference[b] = true;
+                    }
+                    if (interested.getFloorId() != null) {
+                        setBit(floorPreferences, b * floorWords, floorDictionary.get(interested.getFloorId()));
+                        hasFloorPreference[b] = true;
+                    }
+                }
+            }
+        }
+
+        // Writes the buyer's best matches into out[offset..offset+k), best first, -1 padded
+        void scoreBuyer(int buyer, int[] outApartments, double[] outScores, int offset, int k) {
+            Arrays.fill(outApartments, offset, offset + k, -1);
+            Arrays.fill(outScores, offset, offset + k, Double.NEGATIVE_INFINITY);
+
+            double budget = budgets[buyer];
+            boolean hasBudget = !Double.isNaN(budget);
+            int end = hasBudget ? upperBound(prices, budget * (1 + BUDGET_TOLERANCE)) : prices.length;
+            int typeBase = buyer * typeWords;
+            int floorBase = buyer * floorWords;
+            boolean typePreference = hasTypePreference[buyer];
+            boolean floorPreference = hasFloorPreference[buyer];
+
+            for (int a = 0; a < end; a++) {
+                double budgetFit;
+                if (!hasBudget) {
+                    budgetFit = NEUTRAL;
+                } else if (prices[a] <= budget) {
+                    // Prefer units that use the budget well over much cheaper ones
+                    budgetFit = 1.0 - 0.5 * (budget - prices[a]) / budget;
+                } else {
+                    budgetFit = 1.0 - (prices[a] - budget) / (budget * BUDGET_TOLERANCE);
+                }
+                double typeFit = typePreference ? (testBit(typePreferences, typeBase, typeCodes[a]) ? 1.0 : 0.0) : NEUTRAL;
+                double floorFit = floorPreference ? (testBit(floorPreferences, floorBase, floorCodes[a]) ? 1.0 : 0.0) : NEUTRAL;
+                double score = BUDGET_WEIGHT * budgetFit + TYPE_WEIGHT * typeFit + FLOOR_WEIGHT * floorFit;
+
+                // Insertion into the small sorted top-k window
+                int last = offset + k - 1;
+                if (score <= outScores[last]) {
+                    continue;
+                }
+                int i = last;
+                while (i > offset && outScores[i - 1] < score) {
+                    outScores[i] = outScores[i - 1];
+                    outApartments[i] = outApartments[i - 1];
+                    i--;
+                }
+                outScores[i] = score;
+                outApartments[i] = a;
+            }
+        }
+
+        private static int code(Map<String, Integer> dictionary, String value) {
+            if (value == null) {
+                return -1;
+            }
+            return dictionary.computeIfAbsent(value, v -> dictionary.size());
+        }
+
+        private static void setBit(long[] words, int base, int bit) {
+            words[base + (bit >>> 6)] |= 1L << (bit & 63);
+        }
+
+        private static boolean testBit(long[] words, int base, int bit) {
+            return bit >= 0 && (words[base + (bit >>> 6)] & (1L << (bit & 63))) != 0;
+        }
+
+        private static int upperBound(double[] sorted, double value) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.realestate.service;
+
+import com.google.cloud.Timestamp;
+import com.realestate.dto.UploadResult;
+import com.realestate.model.ContentBlob;
+import com.realestate.repository.ContentBlobRepository;
+import com.realestate.storage.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed, deduplicated storage for uploaded files. An upload streams to a staging
+ * blob while {@link StreamingUploadService} hashes it; the content then lives once at
+ * content/{sha256}.{ext}, published with an immutable Cache-Control since the bytes behind a
+ * name never change. A reference-counted index ({@link ContentBlobRepository}) tracks how many
+ * records use each file: uploading known content only adds a reference, and the file is deleted
+ * when the last one is released.
+ */
+@Service
+public class ContentStoreService {
+    private static final Logger logger = LoggerFactory.getLogger(ContentStoreService.class);
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // How long an upload waits for a release of the same content to finish deleting its file
+    private static final long DELETE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long DELETE_POLL_MILLIS = 100;
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,8}");
+    private static final Map<String, String> EXTENSIONS = Map.of(
+        StreamingUploadService.GLB_CONTENT_TYPE, "glb",
+        "image/jpeg", "jpg",
+        "image/png", "png",
+        "image/webp", "webp",
+        "image/gif", "gif",
+        "image/bmp", "bmp");
+
+    private final BlobStore blobStore;
+    private final StreamingUploadService uploadService;
+    private final AssetCacheService assetCacheService;
+    private final ContentBlobRepository repository;
+    private final String contentPrefix;
+    private final String stagingPrefix;
+
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+
+    public ContentStoreService(BlobStore blobStore,
+                               StreamingUploadService uploadService,
+                               AssetCacheService assetCacheService,
+                               ContentBlobRepository repository,
+                               @Value("${content.prefix:content}") String contentPrefix,
+                               @Value("${content.staging-prefix:staging}") String stagingPrefix) {
+        this.blobStore = blobStore;
+        this.uploadService = uploadService;
+        this.assetCacheService = assetCacheService;
+        this.repository = repository;
+        this.contentPrefix = contentPrefix;
+        this.stagingPrefix = stagingPrefix;
+    }
+
+    /**
+     * Stores the stream and adds a reference to its content. The result names the shared blob
+     * and is marked deduplicated when the content was already stored. Validation failures throw
+     * IllegalArgumentException, as {@link StreamingUploadService#upload} does.
+     */
+    public UploadResult store(InputStream in, String fileName, String contentType) throws IOException {
+        String staging = stagingPrefix + "/" + UUID.randomUUID();
+        // Staged with the final Cache-Control, which the copy to the content name keeps
+        UploadResult result = uploadService.upload(in, staging, fileName, contentType, CACHE_CONTROL, null);
+        try {
+            uploads.increment();
+            ContentBlob existing = repository.find(result.getSha256());
+            String blobName = existing != null && !existing.isDeleting()
+                ? existing.getBlobName()
+                : blobName(result.getSha256(), result.getContentType(), fileName);
+            if (existing == null) {
+                // false: the same bytes are already stored under this name
+                blobStore.copy(staging, blobName, true);
+            }
+
+            ContentBlob candidate = new ContentBlob();
+            candidate.setSha256(result.getSha256());
+            candidate.setBlobName(blobName);
+            candidate.setContentType(result.getContentType());
+            candidate.setSize(result.getSize());
+            // A concurrent upload of the same content may have indexed it in the meantime
+            ContentBlob stored = acquire(candidate);
+            if (stored.getRefCount() == 1) {
+                // The first reference, perhaps right after a release deleted the file: the staged
+                // copy is still here to restore it from (false: it already exists)
+                blobStore.copy(staging, stored.getBlobName(), true);
+            } else {
+                deduplicated.increment();
+                bytesSaved.add(result.getSize());
+                result.setDeduplicated(true);
+            }
+            result.setBlobName(stored.getBlobName());
+            result.setUrl(publicUrl(stored.getBlobName()));
+            if (StreamingUploadService.GLB_CONTENT_TYPE.equals(result.getContentType())) {
+                // Viewers open a model right after uploading it
+                assetCacheService.prefetch(stored.getBlobName());
+            }
+            logger.debug("Stored {} as {} ({} references)", fileName, stored.getBlobName(), stored.getRefCount());
+            return result;
+        } finally {
+            blobStore.delete(staging);
+        }
+    }
+
+    // Waits out a release deleting the same content, which gives the entry back unchanged meanwhile
+    private ContentBlob acquire(ContentBlob candidate) throws IOException {
+        long deadline = System.nanoTime() + DELETE_WAIT_NANOS;
+        ContentBlob stored;
+        while ((stored = repository.acquire(candidate)).isDeleting()) {
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Content " + candidate.getSha256() + " is being deleted, try again");
+            }
+            try {
+                Thread.sleep(DELETE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a content delete");
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Drops one reference to the file at this URL and deletes it with the last one. Files
+     * outside the content store (uploaded before it existed) are deleted directly. Returns
+     * whether the file was deleted, so callers know when to clean up what was derived from it.
+     */
+    public boolean release(String fileUrl) {
+        String blobName = blobNameOf(fileUrl);
+        if (blobName == null) {
+            return false;
+        }
+        String fenced = null;
+        if (isContentBlob(blobName)) {
+            fenced = sha256Of(blobName);
+            if (!fenceDelete(fenced, blobName, 1)) {
+                return false;
+            }
+        }
+        assetCacheService.remove(blobName);
+        boolean removed = blobStore.delete(blobName);
+        if (removed) {
+            deleted.increment();
+        }
+        if (fenced != null) {
+            repository.finishDelete(fenced);
+        }
+        return removed;
+    }
+
+    /**
+     * {@link #release} for many files, as cascade deletes need: one count transaction per
+     * distinct content, however many of the files share it, and batched blob deletes. Returns
+     * the URLs whose files were deleted.
+     */
+    public List<String> releaseAll(List<String> fileUrls) {
+        // blob name -> references dropped, and one of the URLs naming it
+        Map<String, Integer> references = new LinkedHashMap<>();
+        Map<String, String> urls = new HashMap<>();
+        for (String fileUrl : fileUrls) {
+            String blobName = blobNameOf(fileUrl);
+            if (blobName != null) {
+                references.merge(blobName, 1, Integer::sum);
+                urls.putIfAbsent(blobName, fileUrl);
+            }
+        }
+
+        List<String> unused = new ArrayList<>();
+        List<String> deleting = new ArrayList<>();
+        references.forEach((blobName, count) -> {
+            if (isContentBlob(blobName)) {
+                String sha256 = sha256Of(blobName);
+                if (!fenceDelete(sha256, blobName, count)) {
+                    return;
+                }
+                deleting.add(sha256);
+            }
+            unused.add(blobName);
+        });
+        if (unused.isEmpty()) {
+            return List.of();
+        }
+        unused.forEach(assetCacheService::remove);
+        deleted.add(blobStore.deleteAll(unused));
+        deleting.forEach(repository::finishDelete);
+        return unused.stream().map(urls::get).toList();
+    }
+
+    /**
+     * Drops count references and returns whether the file may now be deleted, its entry marked
+     * deleting so uploads of the same bytes wait. Content without an entry is marked the way the
+     * orphan collector does it, unless an upload indexed it since this call began.
+     */
+    private boolean fenceDelete(String sha256, String blobName, int count) {
+        Timestamp started = Timestamp.now();
+        ContentBlob blob = repository.release(sha256, count);
+        if (blob != null) {
+            return blob.getRefCount() == 0;
+        }
+        return repository.markDeleting(sha256, blobName, started);
+    }
+
+    public String blobNameOf(String fileUrl) {
+        return blobStore.blobNameOf(fileUrl);
+    }
+
+    public String publicUrl(String blobName) {
+        return blobStore.publicUrl(blobName);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("uploads", uploads.sum());
+        stats.put("deduplicated", deduplicated.sum());
+        stats.put("bytesSaved", bytesSaved.sum());
+        stats.put("deleted", deleted.sum());
+        return stats;
+    }
+
+    private String blobName(String sha256, String contentType, String fileName) {
+        String extension = EXTENSIONS.get(contentType);
+        if (extension == null && fileName != null && fileName.lastIndexOf('.') >= 0) {
+            String candidate = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            extension = EXTENSION.matcher(candidate).matches() ? candidate : null;
+        }
+        return contentPrefix + "/" + sha256 + (extension != null ? "." + extension : "");
+    }
+
+    boolean isContentBlob(String blobName) {
+        return blobName.startsWith(contentPrefix + "/");
+    }
+
+    // content/{sha256}.{ext} -> sha256
+    String sha256Of(String blobName) {
+        String name = blobName.substring(contentPrefix.length() + 1);
+        int dot = name.indexOf('.');
+        return dot >= 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -1,39 +1,52 @@
 package com.realestate.service;
 
 import com.google.cloud.firestore.Firestore;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.cloud.StorageClient;
+import com.realestate.dto.UploadResult;
+import com.realestate.model.FloorImageEntry;
+import com.realestate.storage.BlobStore;
+import com.realestate.storage.StoredBlob;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.UUID;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class FirebaseService {
     private final Firestore firestore;
-    private final Storage storage;
-    private final String bucketName;
+    private final BlobStore blobStore;
+    private final StreamingUploadService uploadService;
+    private final ContentStoreService contentStoreService;
+    private final FloorImageManifestService floorImageManifestService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final TilePyramidService tilePyramidService;
 
     @Autowired
     public FirebaseService(
             Firestore firestore,
-            Storage storage,
-            @Value("${firebase.storage.bucket}") String bucketName
+            BlobStore blobStore,
+            StreamingUploadService uploadService,
+            ContentStoreService contentStoreService,
+            FloorImageManifestService floorImageManifestService,
+            ImageDerivativeService imageDerivativeService,
+            TilePyramidService tilePyramidService
     ) throws IOException {
         this.firestore = firestore;
-        this.storage = storage; // injected bean already has proper credentials
-        this.bucketName = bucketName;
+        this.blobStore = blobStore;
+        this.uploadService = uploadService;
+        this.contentStoreService = contentStoreService;
+        this.floorImageManifestService = floorImageManifestService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.tilePyramidService = tilePyramidService;
 
         // Initialize Firebase App once (ensures StorageClient works elsewhere if needed)
         if (FirebaseApp.getApps().isEmpty()) {
@@ -73,53 +86,66 @@ public class FirebaseService {
     }
 
     public String uploadFile(MultipartFile file) throws IOException {
-        String fileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-        BlobId blobId = BlobId.of(bucketName, fileName);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                .setContentType(file.getContentType())
-                .build();
-        
-        storage.create(blobInfo, file.getBytes());
-        
-        return String.format("https://storage.googleapis.com/%s/%s", bucketName, fileName);
+        return uploadFileWithResult(file).getUrl();
+    }
+
+    public UploadResult uploadFileWithResult(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return uploadContent(in, file.getOriginalFilename(), file.getContentType());
+        }
+    }
+
+    // Stored once per content hash under an immutable URL; see ContentStoreService
+    public UploadResult uploadContent(InputStream in, String originalFileName, String contentType) throws IOException {
+        return contentStoreService.store(in, originalFileName, contentType);
     }
 
     public String uploadFileToPath(MultipartFile file, String filePath) throws IOException {
-        BlobId blobId = BlobId.of(bucketName, filePath);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                .setContentType(file.getContentType())
-                .build();
-        
-        storage.create(blobInfo, file.getBytes());
-        
-        return String.format("https://storage.googleapis.com/%s/%s", bucketName, filePath);
+        return uploadToPath(file, filePath).getUrl();
+    }
+
+    // Streams the part into the bucket; the result carries size, detected type and checksums
+    public UploadResult uploadToPath(MultipartFile file, String filePath) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return uploadStream(in, filePath, file.getOriginalFilename(), file.getContentType());
+        }
     }
 
-    public void deleteFile(String fileUrl) {
-        String fileName = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
-        BlobId blobId = BlobId.of(bucketName, fileName);
-        storage.delete(blobId);
+    public UploadResult uploadStream(InputStream in, String filePath, String originalFileName, String contentType) throws IOException {
+        return uploadService.upload(in, filePath, originalFileName, contentType, null, publicUrl(filePath));
+    }
+
+    public String publicUrl(String filePath) {
+        return blobStore.publicUrl(filePath);
+    }
+
+    // Drops a reference to a file from uploadFile; returns whether that deleted the file itself
+    public boolean releaseFile(String fileUrl) {
+        return contentStoreService.release(fileUrl);
+    }
+
+    // releaseFile for many files in batches; returns the URLs whose files were deleted
+    public List<String> releaseFiles(List<String> fileUrls) {
+        return contentStoreService.releaseAll(fileUrls);
     }
 
     public List<String> getFloorImages(String floorId) {
+        return getFloorImages(floorId, ImageDerivativeService.Hint.NONE);
+    }
+
+    // Image URLs point at the variant that best fits the hint, or the original
+    public List<String> getFloorImages(String floorId, ImageDerivativeService.Hint hint) {
         try {
-            List<String> imageUrls = new ArrayList<>();
-            String prefix = "floors/" + floorId + "/";
-            
-            // List all blobs with the floor prefix
-            com.google.api.gax.paging.Page<com.google.cloud.storage.Blob> blobsPage = storage.list(bucketName, Storage.BlobListOption.prefix(prefix));
-            for (com.google.cloud.storage.Blob blob : blobsPage.iterateAll()) {
-                if (blob.getName().endsWith(".jpg") || blob.getName().endsWith(".jpeg") || 
-                    blob.getName().endsWith(".png") || blob.getName().endsWith(".webp")) {
-                    // Generate signed URL for the image
-                    String signedUrl = blob.signUrl(7, java.util.concurrent.TimeUnit.DAYS).toString();
-                    imageUrls.add(signedUrl);
-                }
-            }
-            
-            // Sort by filename to maintain order
-            imageUrls.sort(String::compareTo);
-            return imageUrls;
+            // The manifest is kept sorted by filename, which is the frame order
+            List<String> blobNames = floorImageManifestService.getImages(floorId).stream()
+                .filter(image -> image.getBlobName().endsWith(".jpg") || image.getBlobName().endsWith(".jpeg") ||
+                                 image.getBlobName().endsWith(".png") || image.getBlobName().endsWith(".webp"))
+                .map(image -> servedBlob(image, hint))
+                .toList();
+
+            // Generate signed URLs for the images
+            Map<String, String> signedUrls = blobStore.signAll(blobNames);
+            return blobNames.stream().map(signedUrls::get).collect(Collectors.toCollection(ArrayList::new));
         } catch (Exception e) {
             e.printStackTrace();
             return new ArrayList<>();
@@ -127,37 +153,19 @@ public class FirebaseService {
     }
 
     public List<com.realestate.dto.FloorImageInfo> getFloorImageDetails(String floorId) {
+        return getFloorImageDetails(floorId, ImageDerivativeService.Hint.NONE);
+    }
+
+    public List<com.realestate.dto.FloorImageInfo> getFloorImageDetails(String floorId, ImageDerivativeService.Hint hint) {
         try {
+            List<FloorImageEntry> images = floorImageManifestService.getImages(floorId);
+            Map<String, String> signedUrls = blobStore.signAll(
+                images.stream().map(image -> servedBlob(image, hint)).toList());
+
             List<com.realestate.dto.FloorImageInfo> imageInfos = new ArrayList<>();
-            String prefix = "floors/" + floorId + "/";
-            
-            // List all blobs with the floor prefix
-            com.google.api.gax.paging.Page<com.google.cloud.storage.Blob> blobsPage = storage.list(bucketName, Storage.BlobListOption.prefix(prefix));
-            for (com.google.cloud.storage.Blob blob : blobsPage.iterateAll()) {
-                // Check if it's an image file
-                boolean isImage = blob.getName().endsWith(".jpg") || blob.getName().endsWith(".jpeg") || 
-                                 blob.getName().endsWith(".png") || blob.getName().endsWith(".webp") || 
-                                 blob.getName().endsWith(".gif") || blob.getName().endsWith(".bmp");
-                
-                if (isImage) {
-                    String signedUrl = blob.signUrl(7, java.util.concurrent.TimeUnit.DAYS).toString();
-                    String fileName = blob.getName().substring(blob.getName().lastIndexOf("/") + 1);
-                    
-                    com.realestate.dto.FloorImageInfo imageInfo = new com.realestate.dto.FloorImageInfo(
-                        fileName,
-                        blob.getName(),
-                        signedUrl,
-                        blob.getSize() != null ? blob.getSize() : 0,
-                        blob.getContentType(),
-                        blob.getCreateTime() != null ? java.time.Instant.ofEpochMilli(blob.getCreateTime()) : java.time.Instant.now(),
-                        true
-                    );
-                    imageInfos.add(imageInfo);
-                }
+            for (FloorImageEntry image : images) {
+                imageInfos.add(toFloorImageInfo(image, signedUrls.get(servedBlob(image, hint))));
             }
-            
-            // Sort by filename
-            imageInfos.sort((a, b) -> a.getName().compareTo(b.getName()));
             return imageInfos;
         } catch (Exception e) {
             e.printStackTrace();
@@ -165,48 +173,117 @@ public class FirebaseService {
         }
     }
 
+    // Blob to serve for an image: the variant that fits the hint, or the original
+    private String servedBlob(FloorImageEntry image, ImageDerivativeService.Hint hint) {
+        String variant = imageDerivativeService.select(image.getSha256(), image.getVariants(), hint);
+        return variant != null ? variant : image.getBlobName();
+    }
+
+    // Signed URL of the image best fitting the hint, or null when the floor has no such image
+    public String getFloorImageUrl(String floorId, String fileName, ImageDerivativeService.Hint hint) {
+        FloorImageEntry image = floorImageManifestService.getImage(floorId, fileName);
+        return image != null ? blobStore.sign(servedBlob(image, hint)) : null;
+    }
+
+    // Deep-zoom descriptor of a floor image, or null when it has no tile pyramid
+    public Map<String, Object> getFloorImageTiles(String floorId, String fileName) {
+        FloorImageEntry image = floorImageManifestService.getImage(floorId, fileName);
+        if (image == null || image.getTileFormat() == null || image.getWidth() == null || image.getHeight() == null) {
+            return null;
+        }
+        Map<String, Object> descriptor = new HashMap<>();
+        descriptor.put("width", image.getWidth());
+        descriptor.put("height", image.getHeight());
+        descriptor.put("tileSize", TilePyramidService.TILE_SIZE);
+        descriptor.put("overlap", 0);
+        descriptor.put("format", image.getTileFormat());
+        descriptor.put("maxLevel", TilePyramidService.maxLevel(image.getWidth(), image.getHeight()));
+        descriptor.put("tileUrlTemplate",
+            "/api/floors/tiles/" + image.getSha256() + "/{level}/{col}_{row}." + image.getTileFormat());
+        return descriptor;
+    }
+
+    private com.realestate.dto.FloorImageInfo toFloorImageInfo(FloorImageEntry image, String signedUrl) {
+        com.realestate.dto.FloorImageInfo imageInfo = new com.realestate.dto.FloorImageInfo(
+            image.getName(),
+            image.getBlobName(),
+            signedUrl,
+            image.getSize(),
+            image.getContentType(),
+            image.getUploadedAt() != null ? image.getUploadedAt().toDate().toInstant() : java.time.Instant.now(),
+            true
+        );
+        imageInfo.setWidth(image.getWidth());
+        imageInfo.setHeight(image.getHeight());
+        return imageInfo;
+    }
+
     public String uploadFloorImage(String floorId, MultipartFile file, String customFileName) throws IOException {
+        return uploadFloorImageWithResult(floorId, file, customFileName).getUrl();
+    }
+
+    // Describes a just-uploaded floor image from the upload result, without another stat
+    public com.realestate.dto.FloorImageInfo toFloorImageInfo(String fileName, UploadResult result) {
+        String signedUrl = blobStore.sign(result.getBlobName());
+        com.realestate.dto.FloorImageInfo imageInfo = new com.realestate.dto.FloorImageInfo(
+            fileName,
+            result.getBlobName(),
+            signedUrl,
+            result.getSize(),
+            result.getContentType(),
+            java.time.Instant.now(),
+            result.getContentType() != null && result.getContentType().startsWith("image/")
+        );
+        imageInfo.setWidth(result.getWidth());
+        imageInfo.setHeight(result.getHeight());
+        return imageInfo;
+    }
+
+    public UploadResult uploadFloorImageWithResult(String floorId, MultipartFile file, String customFileName) throws IOException {
         String fileName = customFileName != null ? customFileName : file.getOriginalFilename();
-        String filePath = "floors/" + floorId + "/" + fileName;
-        return uploadFileToPath(file, filePath);
+        UploadResult result = uploadToPath(file, "floors/" + floorId + "/" + fileName);
+        floorImageManifestService.recordUpload(floorId, fileName, result);
+        if (FloorImageManifestService.isImageName(fileName)) {
+            imageDerivativeService.submit(result.getBlobName(), result.getSha256(),
+                variants -> floorImageManifestService.recordVariants(floorId, fileName, result.getSha256(), variants));
+            if (tilePyramidService.needsPyramid(result.getWidth(), result.getHeight())) {
+                tilePyramidService.submit(result.getBlobName(), result.getSha256(),
+                    format -> floorImageManifestService.recordTiles(floorId, fileName, result.getSha256(), format));
+            }
+        }
+        return result;
     }
 
     public boolean deleteFloorImage(String floorId, String fileName) {
         try {
             String filePath = "floors/" + floorId + "/" + fileName;
-            BlobId blobId = BlobId.of(bucketName, filePath);
-            return storage.delete(blobId);
+            boolean deleted = blobStore.delete(filePath);
+            if (deleted) {
+                floorImageManifestService.recordDelete(floorId, fileName);
+            }
+            return deleted;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    // Removes every file stored for the floor and its image manifest; returns how many files there were
+    public int deleteFloorImages(String floorId) {
+        List<String> names = blobStore.list("floors/" + floorId + "/").stream()
+            .map(StoredBlob::name)
+            .collect(Collectors.toList());
+        int deleted = names.isEmpty() ? 0 : blobStore.deleteAll(names);
+        floorImageManifestService.removeFloor(floorId);
+        return deleted;
+    }
+
     public boolean renameFloorImage(String floorId, String oldFileName, String newFileName) {
         try {
             String oldPath = "floors/" + floorId + "/" + oldFileName;
             String newPath = "floors/" + floorId + "/" + newFileName;
-            
-            // Get the existing blob
-            BlobId oldBlobId = BlobId.of(bucketName, oldPath);
-            com.google.cloud.storage.Blob oldBlob = storage.get(oldBlobId);
-            
-            if (oldBlob == null) {
-                return false;
-            }
-            
-            // Create new blob with same content
-            BlobId newBlobId = BlobId.of(bucketName, newPath);
-            BlobInfo newBlobInfo = BlobInfo.newBuilder(newBlobId)
-                    .setContentType(oldBlob.getContentType())
-                    .build();
-            
-            // Copy the content
-            storage.create(newBlobInfo, oldBlob.getContent());
-            
-            // Delete the old blob
-            storage.delete(oldBlobId);
-            
+            moveBlob(oldPath, newPath, false);
+            floorImageManifestService.recordRenames(floorId, Map.of(oldFileName, newFileName));
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -214,25 +291,41 @@ public class FirebaseService {
         }
     }
 
+    /**
+     * Moves a blob with a server-side copy followed by a delete. With failIfExists the copy is
+     * conditional on the target not existing yet, and an existing target throws.
+     */
+    public void moveBlob(String fromPath, String toPath, boolean failIfExists) {
+        if (!blobStore.copy(fromPath, toPath, failIfExists)) {
+            throw new IllegalStateException("Target already exists: " + toPath);
+        }
+        blobStore.delete(fromPath);
+    }
+
     public com.realestate.dto.FloorImageInfo getFloorImageInfo(String floorId, String fileName) {
         try {
             String filePath = "floors/" + floorId + "/" + fileName;
-            BlobId blobId = BlobId.of(bucketName, filePath);
-            com.google.cloud.storage.Blob blob = storage.get(blobId);
+            FloorImageEntry image = floorImageManifestService.getImage(floorId, fileName);
+            if (image != null) {
+                return toFloorImageInfo(image, blobStore.sign(filePath));
+            }
+
+            // Not an image tracked by the manifest
+            StoredBlob blob = blobStore.stat(filePath);
             
             if (blob != null) {
-                String signedUrl = blob.signUrl(7, java.util.concurrent.TimeUnit.DAYS).toString();
+                String signedUrl = blobStore.sign(filePath);
                 boolean isImage = fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") || 
                                  fileName.endsWith(".png") || fileName.endsWith(".webp") || 
                                  fileName.endsWith(".gif") || fileName.endsWith(".bmp");
                 
                 return new com.realestate.dto.FloorImageInfo(
                     fileName,
-                    blob.getName(),
+                    blob.name(),
                     signedUrl,
-                    blob.getSize() != null ? blob.getSize() : 0,
-                    blob.getContentType(),
-                    blob.getCreateTime() != null ? java.time.Instant.ofEpochMilli(blob.getCreateTime()) : java.time.Instant.now(),
+                    blob.size(),
+                    blob.contentType(),
+                    blob.createTime() > 0 ? java.time.Instant.ofEpochMilli(blob.createTime()) : java.time.Instant.now(),
                     isImage
                 );
             }
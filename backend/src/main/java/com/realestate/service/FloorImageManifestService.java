@@ -0,0 +1,331 @@
+package com.realestate.service;
+
+import com.google.cloud.Timestamp;
+import com.realestate.dto.UploadResult;
+import com.realestate.model.FloorImageEntry;
+import com.realestate.repository.FloorImageManifestRepository;
+import com.realestate.storage.BlobStore;
+import com.realestate.storage.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-floor image manifests: name, size, content type, dimensions, order and checksum of every
+ * image under floors/{floorId}/. Kept up to date by the upload, delete and rename paths and
+ * reconciled against the bucket on a schedule, so listing a floor's images is a cached document
+ * read instead of a paginated, eventually consistent bucket listing.
+ */
+@Service
+public class FloorImageManifestService {
+    private static final Logger logger = LoggerFactory.getLogger(FloorImageManifestService.class);
+    private static final String FLOORS_PREFIX = "floors/";
+    private static final List<String> IMAGE_EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".webp", ".gif", ".bmp");
+
+    private final FloorImageManifestRepository repository;
+    private final BlobStore blobStore;
+    private final long cacheMillis;
+
+    private final Map<String, CachedManifest> cache = new ConcurrentHashMap<>();
+    // Serializes this instance's writes per floor, so concurrent uploads don't fight over the transaction
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    // Called with the floor id after its stored manifest changed
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    private record CachedManifest(List<FloorImageEntry> images, long loadedAt) {
+    }
+
+    public FloorImageManifestService(FloorImageManifestRepository repository,
+                                     BlobStore blobStore,
+                                     @Value("${images.manifest.cache-seconds:60}") long cacheSeconds) {
+        this.repository = repository;
+        this.blobStore = blobStore;
+        this.cacheMillis = TimeUnit.SECONDS.toMillis(cacheSeconds);
+    }
+
+    // The floor's images sorted by name; a floor without a manifest gets one built from the bucket
+    public List<FloorImageEntry> getImages(String floorId) {
+        CachedManifest cached = cache.get(floorId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < cacheMillis) {
+            return cached.images();
+        }
+        List<FloorImageEntry> images = repository.find(floorId);
+        if (images == null) {
+            return reconcile(floorId);
+        }
+        return cache(floorId, images);
+    }
+
+    public FloorImageEntry getImage(String floorId, String fileName) {
+        return getImages(floorId).stream()
+            .filter(entry -> entry.getName().equals(fileName))
+            .findFirst()
+            .orElse(null);
+    }
+
+    public void recordUpload(String floorId, String fileName, UploadResult result) {
+        if (!isImageName(fileName)) {
+            return;
+        }
+        FloorImageEntry entry = new FloorImageEntry(fileName, result.getBlobName(), result.getSize(), result.getContentType());
+        entry.setWidth(result.getWidth());
+        entry.setHeight(result.getHeight());
+        entry.setCrc32c(result.getCrc32c());
+        entry.setSha256(result.getSha256());
+        entry.setUploadedAt(Timestamp.now());
+        update(floorId, true, images -> {
+            images.removeIf(image -> image.getName().equals(fileName));
+            images.add(entry);
+            return images;
+        });
+    }
+
+    // Only applies while the entry still holds the image the variants were generated from
+    public void recordVariants(String floorId, String fileName, String sha256, List<String> variants) {
+        update(floorId, true, images -> {
+            images.stream()
+                .filter(image -> image.getName().equals(fileName) && sha256.equals(image.getSha256()))
+                .forEach(image -> image.setVariants(variants));
+            return images;
+        });
+    }
+
+    public void recordTiles(String floorId, String fileName, String sha256, String tileFormat) {
+        update(floorId, true, images -> {
+            images.stream()
+                .filter(image -> image.getName().equals(fileName) && sha256.equals(image.getSha256()))
+                .forEach(image -> image.setTileFormat(tileFormat));
+            return images;
+        });
+    }
+
+    public void recordDelete(String floorId, String fileName) {
+        update(floorId, false, images -> {
+            images.removeIf(image -> image.getName().equals(fileName));
+            return images;
+        });
+    }
+
+    // Applies a set of from -> to renames at once, so swaps within the set work
+    public void recordRenames(String floorId, Map<String, String> renames) {
+        if (renames.isEmpty()) {
+            return;
+        }
+        update(floorId, false, images -> {
+            // A rename onto an existing name replaced that image
+            images.removeIf(image -> renames.containsValue(image.getName()) && !renames.containsKey(image.getName()));
+            for (FloorImageEntry image : images) {
+                String to = renames.get(image.getName());
+                if (to != null) {
+                    image.setName(to);
+                    image.setBlobName(FLOORS_PREFIX + floorId + "/" + to);
+                }
+            }
+            images.removeIf(image -> !isImageName(image.getName()));
+            return images;
+        });
+    }
+
+    public void removeFloor(String floorId) {
+        synchronized (lock(floorId)) {
+            repository.delete(floorId);
+            cache.remove(floorId);
+        }
+    }
+
+    /**
+     * Rebuilds the manifest from the bucket listing, keeping stored details of images whose
+     * size and checksum are unchanged. Writes only when something differs.
+     */
+    public List<FloorImageEntry> reconcile(String floorId) {
+        synchronized (lock(floorId)) {
+            List<FloorImageEntry> stored = repository.find(floorId);
+            Map<String, FloorImageEntry> storedByName = new HashMap<>();
+            if (stored != null) {
+                stored.forEach(entry -> storedByName.put(entry.getName(), entry));
+            }
+
+            String prefix = FLOORS_PREFIX + floorId + "/";
+            List<FloorImageEntry> images = new ArrayList<>();
+            for (StoredBlob blob : blobStore.list(prefix)) {
+                String fileName = blob.name().substring(prefix.length());
+                if (fileName.contains("/") || !isImageName(fileName)) {
+                    continue;
+                }
+                FloorImageEntry entry = storedByName.get(fileName);
+                if (entry == null || !Objects.equals(entry.getCrc32c(), blob.crc32c()) || entry.getSize() != blob.size()) {
+                    entry = fromBlob(fileName, blob);
+                }
+                images.add(entry);
+            }
+            images = byName(images);
+
+            // Reused entries are shared with stored, so compare before renumbering anything
+            if (stored == null || !sameEntries(byName(stored), images)) {
+                images = sorted(images);
+                repository.save(floorId, images);
+                logger.info("Reconciled image manifest of floor {}: {} images", floorId, images.size());
+                notifyChanged(floorId);
+            }
+            return cache(floorId, images);
+        }
+    }
+
+    @Scheduled(cron = "${images.manifest.reconcile-cron:0 15 3 * * *}")
+    public void reconcileAll() {
+        Set<String> floorIds = new TreeSet<>();
+        try {
+            floorIds.addAll(repository.findAllIds());
+            // One pseudo-directory entry per floors/{id}/ prefix
+            for (String directory : blobStore.listDirectories(FLOORS_PREFIX)) {
+                String floorId = directory.substring(FLOORS_PREFIX.length()).replace("/", "");
+                if (!floorId.isEmpty()) {
+                    floorIds.add(floorId);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error listing floors to reconcile image manifests: {}", e.getMessage());
+            return;
+        }
+        for (String floorId : floorIds) {
+            try {
+                reconcile(floorId);
+            } catch (Exception e) {
+                logger.error("Error reconciling image manifest of floor {}: {}", floorId, e.getMessage());
+            }
+        }
+    }
+
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyChanged(String floorId) {
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(floorId);
+            } catch (Exception e) {
+                logger.warn("Image manifest listener failed for floor {}: {}", floorId, e.getMessage());
+            }
+        }
+    }
+
+    public static boolean isImageName(String fileName) {
+        return fileName != null && IMAGE_EXTENSIONS.stream().anyMatch(fileName::endsWith);
+    }
+
+    /**
+     * Runs the mutation against the stored manifest. A floor that predates manifests first gets
+     * one built from the bucket, which already reflects the storage change behind this update;
+     * only mutations that add details the bucket lacks (replayable) are applied on top of it.
+     */
+    private void update(String floorId, boolean replayable, UnaryOperator<List<FloorImageEntry>> mutation) {
+        synchronized (lock(floorId)) {
+            try {
+                CachedManifest cached = cache.get(floorId);
+                if (cached == null && repository.find(floorId) == null) {
+                    reconcile(floorId);
+                    if (!replayable) {
+                        return;
+                    }
+                }
+                cache(floorId, repository.update(floorId, images -> sorted(mutation.apply(images))));
+                notifyChanged(floorId);
+            } catch (Exception e) {
+                // The storage change already happened; the next reconcile repairs the manifest
+                cache.remove(floorId);
+                logger.error("Error updating image manifest of floor {}: {}", floorId, e.getMessage());
+            }
+        }
+    }
+
+    private FloorImageEntry fromBlob(String fileName, StoredBlob blob) {
+        FloorImageEntry entry = new FloorImageEntry(fileName, blob.name(), blob.size(), blob.contentType());
+        entry.setCrc32c(blob.crc32c());
+        entry.setUploadedAt(blob.createTime() > 0
+            ? Timestamp.ofTimeMicroseconds(TimeUnit.MILLISECONDS.toMicros(blob.createTime()))
+            : Timestamp.now());
+        int[] dimensions = probeDimensions(blob);
+        if (dimensions != null) {
+            entry.setWidth(dimensions[0]);
+            entry.setHeight(dimensions[1]);
+        }
+        return entry;
+    }
+
+    // Reads only the leading bytes of the image
+    private int[] probeDimensions(StoredBlob blob) {
+        try (ReadableByteChannel reader = blobStore.reader(blob.name(), 0, ImageDimensions.PROBE_BYTES)) {
+            ByteBuffer head = ByteBuffer.allocate(ImageDimensions.PROBE_BYTES);
+            int read;
+            do {
+                read = reader.read(head);
+            } while (read >= 0 && head.hasRemaining());
+            return ImageDimensions.read(head.array(), head.position());
+        } catch (Exception e) {
+            logger.warn("Could not read dimensions of {}: {}", blob.name(), e.getMessage());
+            return null;
+        }
+    }
+
+    private List<FloorImageEntry> cache(String floorId, List<FloorImageEntry> images) {
+        List<FloorImageEntry> snapshot = List.copyOf(images);
+        cache.put(floorId, new CachedManifest(snapshot, System.currentTimeMillis()));
+        return snapshot;
+    }
+
+    private Object lock(String floorId) {
+        return locks.computeIfAbsent(floorId, k -> new Object());
+    }
+
+    // Sorted by name, the order the viewer shows angle frames in; leaves the entries untouched
+    private static List<FloorImageEntry> byName(List<FloorImageEntry> images) {
+        List<FloorImageEntry> result = new ArrayList<>(images);
+        result.sort(Comparator.comparing(FloorImageEntry::getName));
+        return result;
+    }
+
+    // Sorted by name with order set to match; only for a list about to be saved
+    private static List<FloorImageEntry> sorted(List<FloorImageEntry> images) {
+        List<FloorImageEntry> result = byName(images);
+        for (int i = 0; i < result.size(); i++) {
+            result.get(i).setOrder(i);
+        }
+        return result;
+    }
+
+    // a is the stored manifest: its orders must already match its positions
+    private static boolean sameEntries(List<FloorImageEntry> a, List<FloorImageEntry> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            FloorImageEntry x = a.get(i);
+            FloorImageEntry y = b.get(i);
+            if (!x.getName().equals(y.getName()) || x.getSize() != y.getSize() || x.getOrder() != i
+                    || !Objects.equals(x.getCrc32c(), y.getCrc32c())
+                    || !Objects.equals(x.getWidth(), y.getWidth()) || !Objects.equals(x.getHeight(), y.getHeight())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
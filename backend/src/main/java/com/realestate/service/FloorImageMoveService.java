@@ -0,0 +1,185 @@
+package com.realestate.service;
+
+import com.realestate.dto.ImageMove;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk rename/move of a floor's images, e.g. to reorder angle frames. Every move is a
+ * server-side copy + delete run in parallel. When a target name is also a source in the same
+ * batch (swaps, shifting a sequence) the images are first parked under temporary names.
+ */
+@Service
+public class FloorImageMoveService {
+    private static final Logger logger = LoggerFactory.getLogger(FloorImageMoveService.class);
+    // Outside floors/{id}/ so parked images never show up in floor listings
+    private static final String STAGING_PREFIX = "_moving/";
+
+    private final FirebaseService firebaseService;
+    private final FloorImageManifestService floorImageManifestService;
+    private final ExecutorService executor;
+
+    public FloorImageMoveService(FirebaseService firebaseService,
+                                 FloorImageManifestService floorImageManifestService,
+                                 @Value("${storage.copy-parallelism:8}") int parallelism) {
+        this.firebaseService = firebaseService;
+        this.floorImageManifestService = floorImageManifestService;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "floor-image-move-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // One result per move, in request order: from, to, success and error when it failed
+    public List<Map<String, Object>> moveAll(String floorId, List<ImageMove> moves) {
+        validate(moves);
+        Set<String> sources = new HashSet<>();
+        moves.forEach(move -> sources.add(move.getFrom()));
+        boolean staged = moves.stream().anyMatch(move -> !move.getFrom().equals(move.getTo()) && sources.contains(move.getTo()));
+
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+        for (ImageMove move : moves) {
+            futures.add(CompletableFuture.supplyAsync(
+                () -> staged ? parkAndMove(floorId, move) : move(floorId, move), executor));
+        }
+        if (!staged) {
+            return updateManifest(floorId, futures.stream().map(CompletableFuture::join).toList());
+        }
+
+        // Second phase: every source is parked (or failed), so targets can be claimed
+        List<Map<String, Object>> parked = futures.stream().map(CompletableFuture::join).toList();
+        List<CompletableFuture<Map<String, Object>>> finals = new ArrayList<>();
+        for (Map<String, Object> result : parked) {
+            finals.add(CompletableFuture.supplyAsync(() -> unpark(floorId, result), executor));
+        }
+        return updateManifest(floorId, finals.stream().map(CompletableFuture::join).toList());
+    }
+
+    // Applies the renames in one manifest write; after a failure the bucket is the reference
+    private List<Map<String, Object>> updateManifest(String floorId, List<Map<String, Object>> results) {
+        if (results.stream().allMatch(result -> Boolean.TRUE.equals(result.get("success")))) {
+            Map<String, String> renames = new HashMap<>();
+            results.stream()
+                .filter(result -> !result.get("from").equals(result.get("to")))
+                .forEach(result -> renames.put((String) result.get("from"), (String) result.get("to")));
+            floorImageManifestService.recordRenames(floorId, renames);
+        } else {
+            try {
+                floorImageManifestService.reconcile(floorId);
+            } catch (Exception e) {
+                logger.error("Error reconciling image manifest of floor {}: {}", floorId, e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    private Map<String, Object> move(String floorId, ImageMove move) {
+        Map<String, Object> result = result(move);
+        if (move.getFrom().equals(move.getTo())) {
+            result.put("success", true);
+            return result;
+        }
+        try {
+            firebaseService.moveBlob(path(floorId, move.getFrom()), path(floorId, move.getTo()), true);
+            result.put("success", true);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
+    private Map<String, Object> parkAndMove(String floorId, ImageMove move) {
+        Map<String, Object> result = result(move);
+        if (move.getFrom().equals(move.getTo())) {
+            result.put("success", true);
+            return result;
+        }
+        String staging = STAGING_PREFIX + floorId + "/" + UUID.randomUUID();
+        try {
+            firebaseService.moveBlob(path(floorId, move.getFrom()), staging, false);
+            result.put("staging", staging);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
+    private Map<String, Object> unpark(String floorId, Map<String, Object> result) {
+        String staging = (String) result.remove("staging");
+        if (staging == null) {
+            return result;
+        }
+        String from = (String) result.get("from");
+        String to = (String) result.get("to");
+        try {
+            firebaseService.moveBlob(staging, path(floorId, to), true);
+            result.put("success", true);
+        } catch (Exception e) {
+            // The target is still taken (its own move failed); put the image back where it was
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            try {
+                firebaseService.moveBlob(staging, path(floorId, from), true);
+            } catch (Exception restoreError) {
+                logger.error("Could not restore {} from {}: {}", from, staging, restoreError.getMessage());
+                result.put("stagedAt", staging);
+            }
+        }
+        return result;
+    }
+
+    private static void validate(List<ImageMove> moves) {
+        Set<String> sources = new HashSet<>();
+        Set<String> targets = new HashSet<>();
+        for (ImageMove move : moves) {
+            if (!isPlainName(move.getFrom()) || !isPlainName(move.getTo())) {
+                throw new IllegalArgumentException("Image names must be plain file names");
+            }
+            if (!sources.add(move.getFrom())) {
+                throw new IllegalArgumentException("Image moved more than once: " + move.getFrom());
+            }
+            if (!targets.add(move.getTo())) {
+                throw new IllegalArgumentException("Two images moved to the same name: " + move.getTo());
+            }
+        }
+    }
+
+    private static boolean isPlainName(String name) {
+        return name != null && !name.isBlank() && !name.contains("/") && !name.equals("..");
+    }
+
+    private static String path(String floorId, String fileName) {
+        return "floors/" + floorId + "/" + fileName;
+    }
+
+    private static Map<String, Object> result(ImageMove move) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("from", move.getFrom());
+        result.put("to", move.getTo());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
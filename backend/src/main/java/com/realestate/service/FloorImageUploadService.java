@@ -0,0 +1,115 @@
+package com.realestate.service;
+
+import com.realestate.dto.FloorImageInfo;
+import com.realestate.dto.UploadResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Uploads a set of floor images concurrently on a bounded pool. Each file is reported through
+ * the event callback as it starts, finishes or fails; one failure never cancels the others.
+ */
+@Service
+public class FloorImageUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(FloorImageUploadService.class);
+
+    private final FirebaseService firebaseService;
+    private final ExecutorService executor;
+
+    public FloorImageUploadService(FirebaseService firebaseService,
+                                   @Value("${upload.image-parallelism:6}") int parallelism) {
+        this.firebaseService = firebaseService;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "floor-image-upload-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Uploads every file and returns the summary event. Results keep the request order; the
+     * callback may be invoked from several threads and is serialized here.
+     */
+    public Map<String, Object> uploadAll(String floorId, List<MultipartFile> files, Consumer<Map<String, Object>> events) {
+        List<Map<String, Object>> uploadedImages = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+        Consumer<Map<String, Object>> emit = event -> {
+            synchronized (events) {
+                events.accept(event);
+            }
+        };
+
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            int index = i;
+            futures.add(CompletableFuture.supplyAsync(() -> upload(floorId, file, index, emit), executor));
+        }
+        for (CompletableFuture<Map<String, Object>> future : futures) {
+            Map<String, Object> result = future.join();
+            if (result.containsKey("error")) {
+                errors.add("Failed to upload " + result.get("fileName") + ": " + result.get("error"));
+            } else {
+                uploadedImages.add(result);
+            }
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("event", "complete");
+        summary.put("success", errors.isEmpty());
+        summary.put("uploadedImages", uploadedImages);
+        summary.put("uploadedCount", uploadedImages.size());
+        summary.put("totalCount", files.size());
+        if (!errors.isEmpty()) {
+            summary.put("errors", errors);
+        }
+        emit.accept(summary);
+        return summary;
+    }
+
+    private Map<String, Object> upload(String floorId, MultipartFile file, int index, Consumer<Map<String, Object>> emit) {
+        Map<String, Object> started = new HashMap<>();
+        started.put("event", "started");
+        started.put("index", index);
+        started.put("fileName", file.getOriginalFilename());
+        emit.accept(started);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("index", index);
+        result.put("fileName", file.getOriginalFilename());
+        try {
+            UploadResult upload = firebaseService.uploadFloorImageWithResult(floorId, file, null);
+            FloorImageInfo imageInfo = firebaseService.toFloorImageInfo(file.getOriginalFilename(), upload);
+            result.put("event", "uploaded");
+            result.put("downloadUrl", upload.getUrl());
+            result.put("imageInfo", imageInfo);
+            result.put("sha256", upload.getSha256());
+        } catch (Exception e) {
+            logger.warn("Floor image upload failed for {}/{}: {}", floorId, file.getOriginalFilename(), e.getMessage());
+            result.put("event", "failed");
+            result.put("error", e.getMessage());
+        }
+        emit.accept(result);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,24 +1,80 @@
 package com.realestate.service;
 
+import com.realestate.dto.HotspotOperation;
+import com.realestate.dto.HotspotOverlap;
+import com.realestate.dto.HotspotPatchResult;
+import com.realestate.dto.UploadResult;
+import com.realestate.model.AngleIndexEntry;
 import com.realestate.model.Floor;
 import com.realestate.repository.FirebaseRepository;
+import com.realestate.repository.FloorAngleRepository;
+import com.realestate.repository.HotspotCodec;
 import com.google.cloud.Timestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
 import java.time.LocalDateTime;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import com.realestate.model.Hotspot;
 
 @Service
 public class FloorService {
+    private static final Logger logger = LoggerFactory.getLogger(FloorService.class);
+
     private final FirebaseRepository<Floor> repository;
+    private final FloorAngleRepository angleRepository;
     private final FirebaseService firebaseService;
+    private final HotspotIndexService hotspotIndexService;
+    private final ModelOptimizationService modelOptimizationService;
+    private final SpriteAtlasService spriteAtlasService;
 
-    public FloorService(FirebaseRepository<Floor> repository, FirebaseService firebaseService) {
+    public FloorService(FirebaseRepository<Floor> repository, FloorAngleRepository angleRepository,
+                        FirebaseService firebaseService, HotspotIndexService hotspotIndexService,
+                        ModelOptimizationService modelOptimizationService, SpriteAtlasService spriteAtlasService) {
         this.repository = repository;
+        this.angleRepository = angleRepository;
         this.firebaseService = firebaseService;
+        this.hotspotIndexService = hotspotIndexService;
+        this.modelOptimizationService = modelOptimizationService;
+        this.spriteAtlasService = spriteAtlasService;
+    }
+
+    // Moves angle hotspots still stored inline on floor documents into their shards, and gives
+    // top-view hotspots stored before ids existed an id of their own, once
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInlineAngles() {
+        try {
+            int migrated = 0;
+            int identified = 0;
+            for (Floor floor : repository.findAll()) {
+                HotspotCodec.unpack(floor);
+                if (migrateInlineAngles(floor)) {
+                    migrated++;
+                } else if (HotspotCodec.assignIds(floor.getTopViewHotspots())) {
+                    HotspotCodec.pack(floor);
+                    repository.update(floor.getId(), floor);
+                    identified++;
+                }
+            }
+            if (migrated > 0) {
+                logger.info("Moved inline angle hotspots of {} floors into angle shards", migrated);
+            }
+            if (identified > 0) {
+                logger.info("Assigned hotspot ids on {} floors", identified);
+            }
+        } catch (Exception e) {
+            logger.error("Error migrating inline angle hotspots: {}", e.getMessage());
+        }
     }
 
     public String createFloor(Floor floor, MultipartFile modelFile) throws IOException {
@@ -26,11 +82,16 @@ public class FloorService {
         floor.setUpdatedAt(Timestamp.now());
 
         if (modelFile != null && !modelFile.isEmpty()) {
-            String modelUrl = firebaseService.uploadFile(modelFile);
+            String modelUrl = uploadModel(modelFile);
             floor.setModel3dUrl(modelUrl);
         }
 
-        return repository.save(floor);
+        Map<String, List<Hotspot>> angles = floor.getAngleHotspots();
+        floor.setAngleHotspots(null);
+        HotspotCodec.pack(floor);
+        String id = repository.save(floor);
+        angleRepository.saveAngles(id, angles);
+        return id;
     }
 
     public void updateFloor(String id, Floor floor, MultipartFile modelFile) throws IOException {
@@ -38,50 +99,312 @@ public class FloorService {
         floor.setUpdatedAt(Timestamp.now());
 
         if (modelFile != null && !modelFile.isEmpty()) {
-            // Delete old model if exists
+            // Upload the new model before releasing the old one, so unchanged content is kept
+            String modelUrl = uploadModel(modelFile);
             Floor existingFloor = repository.findById(id);
             if (existingFloor != null && existingFloor.getModel3dUrl() != null) {
-                firebaseService.deleteFile(existingFloor.getModel3dUrl());
+                deleteModel(existingFloor.getModel3dUrl());
             }
-
-            // Upload new model
-            String modelUrl = firebaseService.uploadFile(modelFile);
             floor.setModel3dUrl(modelUrl);
         }
 
+        // Angles sent with the floor are upserted into their shards; omitted angles are kept
+        Map<String, List<Hotspot>> angles = floor.getAngleHotspots();
+        floor.setAngleHotspots(null);
+        HotspotCodec.pack(floor);
         repository.update(id, floor);
+        angleRepository.saveAngles(id, angles);
+    }
+
+    // Points the floor at an already uploaded model, releasing the one it replaces (the
+    // upload holds its own reference, so re-attaching the same content keeps it)
+    public boolean attachModel(String id, String modelUrl) {
+        Floor floor = repository.findById(id);
+        if (floor == null) return false;
+        if (floor.getModel3dUrl() != null) {
+            deleteModel(floor.getModel3dUrl());
+        }
+        floor.setModel3dUrl(modelUrl);
+        floor.setUpdatedAt(Timestamp.now());
+        repository.update(id, floor);
+        return true;
     }
 
     public void deleteFloor(String id) {
         Floor floor = repository.findById(id);
         if (floor != null && floor.getModel3dUrl() != null) {
-            firebaseService.deleteFile(floor.getModel3dUrl());
+            deleteModel(floor.getModel3dUrl());
         }
+        angleRepository.deleteAll(id);
         repository.delete(id);
+        // Derived images and tiles are shared by content hash; the orphan collector reclaims them
+        int images = firebaseService.deleteFloorImages(id);
+        spriteAtlasService.removeFloor(id);
+        logger.info("Deleted floor {} with {} stored images", id, images);
+    }
+
+    // Uploads a model and queues its mobile variant
+    private String uploadModel(MultipartFile modelFile) throws IOException {
+        UploadResult result = firebaseService.uploadFileWithResult(modelFile);
+        modelOptimizationService.submit(result);
+        return result.getUrl();
+    }
+
+    // Releases the model; its variants go once no other record uses the same content
+    private void deleteModel(String modelUrl) {
+        if (firebaseService.releaseFile(modelUrl)) {
+            modelOptimizationService.deleteVariants(modelUrl);
+        }
     }
 
     public Floor getFloor(String id) {
-        return repository.findById(id);
+        Floor floor = HotspotCodec.unpack(repository.findById(id));
+        if (floor == null) {
+            return null;
+        }
+        floor.setAngleIndex(withInline(angleRepository.findIndex(id), floor));
+        floor.setAngleHotspots(null);
+        floor.setPreviewUrl(previewUrl(floor));
+        return floor;
     }
 
     public List<Floor> getAllFloors() {
-        return repository.findAll();
+        return withAngleIndexes(repository.findAll());
     }
 
     public List<Floor> getFloorsByStatus(String status) {
-        return repository.findByField("status", status);
+        return withAngleIndexes(repository.findByField("status", status));
     }
 
-    public void updateHotspots(String id, List<Hotspot> topView, Map<String, List<Hotspot>> angleHotspots) {
+    // Hotspots of one angle, loaded from its shard; the "top" key addresses the top view
+    public List<Hotspot> getAngleHotspots(String id, String angle) {
+        if (HotspotIndexService.TOP_VIEW.equals(angle)) {
+            Floor floor = HotspotCodec.unpack(repository.findById(id));
+            return floor != null ? floor.getTopViewHotspots() : null;
+        }
+        List<Hotspot> hotspots = angleRepository.findAngle(id, angle);
+        if (hotspots != null) {
+            return hotspots;
+        }
         Floor floor = repository.findById(id);
-        if (floor == null) return;
+        if (floor == null) {
+            return null;
+        }
+        // Not migrated to its shard yet
+        if (floor.getAngleHotspots() != null && floor.getAngleHotspots().get(angle) != null) {
+            return floor.getAngleHotspots().get(angle);
+        }
+        return List.of();
+    }
+
+    // Writes a single angle shard without touching the floor document or other angles
+    public List<HotspotOverlap> updateAngleHotspots(String id, String angle, List<Hotspot> hotspots) {
+        if (HotspotIndexService.TOP_VIEW.equals(angle)) {
+            return updateHotspots(id, hotspots, null);
+        }
+        if (repository.findById(id) == null) return null;
+        angleRepository.saveAngle(id, angle, hotspots);
+        Map<String, List<Hotspot>> saved = new HashMap<>();
+        saved.put(angle, hotspots);
+        return HotspotIndexService.overlaps(HotspotIndexService.build(null, saved));
+    }
+
+    public List<HotspotOverlap> updateHotspots(String id, List<Hotspot> topView, Map<String, List<Hotspot>> angleHotspots) {
+        Floor floor = HotspotCodec.unpack(repository.findById(id));
+        if (floor == null) return null;
         if (topView != null) {
+            migrateInlineAngles(floor);
             floor.setTopViewHotspots(topView);
+            floor.setUpdatedAt(Timestamp.now());
+            HotspotCodec.pack(floor);
+            repository.update(id, floor);
         }
-        if (angleHotspots != null) {
-            floor.setAngleHotspots(angleHotspots);
+        // Only the angles present in the request are written; a null list removes that angle
+        angleRepository.saveAngles(id, angleHotspots);
+
+        // Overlaps are reported back to the annotator, not rejected
+        return HotspotIndexService.overlaps(HotspotIndexService.build(topView, angleHotspots));
+    }
+
+    /**
+     * Applies add/move/resize/delete operations addressed by hotspot id. The touched lists are
+     * re-read and the operations replayed inside a transaction, so edits from concurrent
+     * annotators merge; operations whose target no longer exists are reported as conflicts.
+     */
+    public HotspotPatchResult patchHotspots(String id, List<HotspotOperation> operations) {
+        Set<String> angles = new LinkedHashSet<>();
+        List<String> addedIds = new ArrayList<>();
+        for (HotspotOperation operation : operations) {
+            validate(operation);
+            if (operation.getAngle() == null || operation.getAngle().isBlank()) {
+                operation.setAngle(HotspotIndexService.TOP_VIEW);
+            }
+            angles.add(operation.getAngle());
+            // Ids are chosen once so a retried transaction creates the same hotspots
+            if (HotspotOperation.ADD.equals(operation.getOp())) {
+                if (operation.getHotspotId() == null || operation.getHotspotId().isBlank()) {
+                    operation.setHotspotId(HotspotCodec.newId());
+                }
+                addedIds.add(operation.getHotspotId());
+            }
+        }
+
+        AtomicReference<HotspotPatchResult> outcome = new AtomicReference<>();
+        Map<String, List<Hotspot>> updated = angleRepository.patch(id, angles, current -> {
+            HotspotPatchResult result = new HotspotPatchResult();
+            for (int i = 0; i < operations.size(); i++) {
+                String conflict = apply(current.get(operations.get(i).getAngle()), operations.get(i));
+                if (conflict != null) {
+                    result.getConflicts().add(i + ": " + conflict);
+                } else {
+                    result.setApplied(result.getApplied() + 1);
+                }
+            }
+            outcome.set(result);
+            return current;
+        });
+        if (updated == null) return null;
+
+        HotspotPatchResult result = outcome.get();
+        result.setAddedIds(addedIds);
+        result.setOverlaps(HotspotIndexService.overlaps(HotspotIndexService.build(null, updated)));
+        return result;
+    }
+
+    public byte[] getEncodedHotspots(String id) {
+        Floor floor = HotspotCodec.unpack(repository.findById(id));
+        if (floor == null) return null;
+        Map<String, List<Hotspot>> angles = angleRepository.findAll(id);
+        if (floor.getAngleHotspots() != null) {
+            angles.putAll(floor.getAngleHotspots());
+        }
+        return HotspotCodec.encode(floor.getTopViewHotspots(), angles);
+    }
+
+    public List<Hotspot> hitTestHotspots(String id, String angle, double x, double y) {
+        return hotspotIndexService.hit(id, angle, x, y);
+    }
+
+    public List<Hotspot> findHotspotsInRegion(String id, String angle, double x1, double y1, double x2, double y2) {
+        return hotspotIndexService.region(id, angle, x1, y1, x2, y2);
+    }
+
+    private List<Floor> withAngleIndexes(List<Floor> floors) {
+        Map<String, Map<String, AngleIndexEntry>> indexes = angleRepository.findAllIndexes();
+        for (Floor floor : floors) {
+            HotspotCodec.unpack(floor);
+            Map<String, AngleIndexEntry> index = indexes.getOrDefault(floor.getId(),
+                floor.getAngleIndex() != null ? floor.getAngleIndex() : new HashMap<>());
+            floor.setAngleIndex(withInline(index, floor));
+            floor.setAngleHotspots(null);
+            floor.setPreviewUrl(previewUrl(floor));
+        }
+        return floors;
+    }
+
+    // The preview endpoint redirects to the rendered image once the model has been processed
+    private static String previewUrl(Floor floor) {
+        return floor.getModel3dUrl() != null ? "/api/floors/" + floor.getId() + "/preview" : null;
+    }
+
+    /**
+     * The shard index with the counts of angles still stored inline on the floor, which reads
+     * report without migrating them: that happens at startup and on the next write.
+     */
+    private static Map<String, AngleIndexEntry> withInline(Map<String, AngleIndexEntry> index, Floor floor) {
+        Map<String, List<Hotspot>> inline = floor.getAngleHotspots();
+        if (inline == null || inline.isEmpty()) {
+            return index;
+        }
+        Map<String, AngleIndexEntry> merged = new HashMap<>(index);
+        merged.putAll(inlineIndex(inline, floor.getUpdatedAt()));
+        return merged;
+    }
+
+    // Inline angles change only with the floor document, so they carry its updatedAt
+    private static Map<String, AngleIndexEntry> inlineIndex(Map<String, List<Hotspot>> inline, Timestamp updatedAt) {
+        Map<String, AngleIndexEntry> index = new HashMap<>();
+        inline.forEach((angle, hotspots) -> index.put(angle, new AngleIndexEntry(hotspots != null ? hotspots.size() : 0, updatedAt)));
+        return index;
+    }
+
+    // Returns true when the floor still carried inline angles and they were moved to shards
+    private boolean migrateInlineAngles(Floor floor) {
+        Map<String, List<Hotspot>> inline = floor.getAngleHotspots();
+        if (inline == null || inline.isEmpty()) {
+            return false;
+        }
+        angleRepository.saveAngles(floor.getId(), inline);
+
+        List<Hotspot> topView = floor.getTopViewHotspots();
+        floor.setAngleHotspots(null);
+        HotspotCodec.pack(floor);
+        repository.update(floor.getId(), floor);
+        floor.setTopViewHotspots(topView);
+
+        floor.setAngleIndex(inlineIndex(inline, floor.getUpdatedAt()));
+        return true;
+    }
+
+    private static void validate(HotspotOperation operation) {
+        String op = operation.getOp();
+        if (op == null || !List.of(HotspotOperation.ADD, HotspotOperation.MOVE, HotspotOperation.RESIZE, HotspotOperation.DELETE).contains(op)) {
+            throw new IllegalArgumentException("Unsupported hotspot operation: " + op);
+        }
+        if (!HotspotOperation.ADD.equals(op) && (operation.getHotspotId() == null || operation.getHotspotId().isBlank())) {
+            throw new IllegalArgumentException("Hotspot operation '" + op + "' needs a hotspotId");
+        }
+        if (HotspotOperation.ADD.equals(op) && operation.getHotspotId() != null && !operation.getHotspotId().isBlank()
+                && !HotspotCodec.isId(operation.getHotspotId())) {
+            throw new IllegalArgumentException("Hotspot ids are 12 lowercase hex characters: " + operation.getHotspotId());
+        }
+        if ((HotspotOperation.ADD.equals(op) || HotspotOperation.MOVE.equals(op))
+                && (operation.getX() == null || operation.getY() == null)) {
+            throw new IllegalArgumentException("Hotspot operation '" + op + "' needs x and y");
+        }
+        if (HotspotOperation.RESIZE.equals(op) && (operation.getWidth() == null || operation.getHeight() == null)) {
+            throw new IllegalArgumentException("Hotspot operation 'resize' needs width and height");
+        }
+    }
+
+    // Applies one operation to the list in place; returns a conflict description or null
+    private static String apply(List<Hotspot> hotspots, HotspotOperation operation) {
+        int index = -1;
+        for (int i = 0; i < hotspots.size(); i++) {
+            if (operation.getHotspotId().equals(hotspots.get(i).getId())) {
+                index = i;
+                break;
+            }
+        }
+        switch (operation.getOp()) {
+            case HotspotOperation.ADD:
+                if (index >= 0) {
+                    return "hotspot " + operation.getHotspotId() + " already exists";
+                }
+                Hotspot hotspot = new Hotspot(operation.getApartmentId(), operation.getX(), operation.getY());
+                hotspot.setId(operation.getHotspotId());
+                hotspot.setWidth(operation.getWidth());
+                hotspot.setHeight(operation.getHeight());
+                hotspots.add(hotspot);
+                return null;
+            case HotspotOperation.DELETE:
+                // Deleting something already gone is not a conflict
+                if (index >= 0) {
+                    hotspots.remove(index);
+                }
+                return null;
+            default:
+                if (index < 0) {
+                    return "hotspot " + operation.getHotspotId() + " not found on angle " + operation.getAngle();
+                }
+                if (HotspotOperation.MOVE.equals(operation.getOp())) {
+                    hotspots.get(index).setX(operation.getX());
+                    hotspots.get(index).setY(operation.getY());
+                } else {
+                    hotspots.get(index).setWidth(operation.getWidth());
+                    hotspots.get(index).setHeight(operation.getHeight());
+                }
+                return null;
         }
-        floor.setUpdatedAt(Timestamp.now());
-        repository.update(id, floor);
     }
-} 
\ No newline at end of file
+}
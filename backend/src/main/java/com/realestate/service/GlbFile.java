@@ -0,0 +1,250 @@
+package com.realestate.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+
+/**
+ * The two chunks of a binary glTF 2.0 container: the JSON document and the optional BIN chunk
+ * holding buffer 0, with typed reads of accessor data. Malformed input throws IOException.
+ */
+final class GlbFile {
+    private static final int CHUNK_JSON = 0x4E4F534A; // "JSON"
+    private static final int CHUNK_BIN = 0x004E4942;  // "BIN\0"
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    final ObjectNode json;
+    // Little-endian view of the BIN chunk, positioned at 0; null when the file has none
+    final ByteBuffer bin;
+
+    GlbFile(ObjectNode json, ByteBuffer bin) {
+        this.json = json;
+        this.bin = bin;
+    }
+
+    static GlbFile parse(byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.length < 20 || buffer.getInt(0) != StreamingUploadService.GLB_MAGIC) {
+            throw new IOException("Not a GLB file");
+        }
+        if (buffer.getInt(4) != 2) {
+            throw new IOException("Unsupported glTF container version " + buffer.getInt(4));
+        }
+        long declared = buffer.getInt(8) & 0xFFFFFFFFL;
+        if (declared > data.length) {
+            throw new IOException("Truncated GLB file: header declares " + declared + " bytes");
+        }
+
+        ObjectNode json = null;
+        ByteBuffer bin = null;
+        int offset = 12;
+        while (offset + 8 <= declared) {
+            long chunkLength = buffer.getInt(offset) & 0xFFFFFFFFL;
+            int chunkType = buffer.getInt(offset + 4);
+            int start = offset + 8;
+            if (start + chunkLength > declared) {
+                throw new IOException("GLB chunk overruns the file");
+            }
+            if (chunkType == CHUNK_JSON && json == null) {
+                JsonNode node = MAPPER.readTree(data, start, (int) chunkLength);
+                if (!(node instanceof ObjectNode object)) {
+                    throw new IOException("GLB JSON chunk is not an object");
+                }
+                json = object;
+            } else if (chunkType == CHUNK_BIN && bin == null && json != null) {
+                bin = ByteBuffer.wrap(data, start, (int) chunkLength).slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+            // Unknown chunk types are skipped, as the spec requires
+            offset = start + (int) ((chunkLength + 3) & ~3L);
+        }
+        if (json == null) {
+            throw new IOException("GLB file has no JSON chunk");
+        }
+        checkNodeTree(json);
+        return new GlbFile(json, bin);
+    }
+
+    /**
+     * glTF requires the node hierarchy to be a forest: every node has at most one parent, no node
+     * is its own ancestor and scenes list only root nodes. Anything else would make a traversal
+     * revisit shared subtrees, exponentially for a chain of diamonds, or loop forever.
+     */
+    private static void checkNodeTree(JsonNode json) throws IOException {
+        JsonNode nodes = json.path("nodes");
+        if (!nodes.isMissingNode() && !nodes.isArray()) {
+            throw new IOException("glTF nodes is not an array");
+        }
+        int count = nodes.size();
+        BitSet hasParent = new BitSet(count);
+        for (int n = 0; n < count; n++) {
+            for (JsonNode child : nodes.get(n).path("children")) {
+                int index = child.asInt(-1);
+                if (!child.canConvertToInt() || index < 0 || index >= count) {
+                    throw new IOException("glTF node " + n + " has an invalid child " + child);
+                }
+                if (hasParent.get(index)) {
+                    throw new IOException("glTF node " + index + " has more than one parent");
+                }
+                hasParent.set(index);
+            }
+        }
+
+        // With one parent at most, the nodes not reachable from a root are exactly those on a cycle
+        BitSet reached = new BitSet(count);
+        Deque<Integer> pending = new ArrayDeque<>();
+        for (int n = hasParent.nextClearBit(0); n < count; n = hasParent.nextClearBit(n + 1)) {
+            pending.push(n);
+        }
+        while (!pending.isEmpty()) {
+            int n = pending.pop();
+            reached.set(n);
+            for (JsonNode child : nodes.get(n).path("children")) {
+                pending.push(child.asInt());
+            }
+        }
+        if (reached.cardinality() != count) {
+            throw new IOException("glTF node " + reached.nextClearBit(0) + " is its own ancestor");
+        }
+
+        for (JsonNode scene : json.path("scenes")) {
+            for (JsonNode root : scene.path("nodes")) {
+                int index = root.asInt(-1);
+                if (!root.canConvertToInt() || index < 0 || index >= count || hasParent.get(index)) {
+                    throw new IOException("glTF scene lists " + root + ", which is not a root node");
+                }
+            }
+        }
+    }
+
+    byte[] write() throws IOException {
+        byte[] jsonBytes = MAPPER.writeValueAsBytes(json);
+        int jsonLength = pad(jsonBytes.length);
+        int binLength = bin != null ? pad(bin.remaining()) : 0;
+        int total = 12 + 8 + jsonLength + (bin != null ? 8 + binLength : 0);
+
+        ByteBuffer header = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(StreamingUploadService.GLB_MAGIC).putInt(2).putInt(total).putInt(jsonLength).putInt(CHUNK_JSON);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(total);
+        out.write(header.array());
+        out.write(jsonBytes);
+        for (int i = jsonBytes.length; i < jsonLength; i++) {
+            out.write(' '); // JSON chunks are padded with spaces
+        }
+        if (bin != null) {
+            ByteBuffer binHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            binHeader.putInt(binLength).putInt(CHUNK_BIN);
+            out.write(binHeader.array());
+            byte[] binBytes = new byte[bin.remaining()];
+            bin.duplicate().get(binBytes);
+            out.write(binBytes);
+            out.write(new byte[binLength - binBytes.length]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * An accessor's elements as floats, components interleaved, for any component type; integer
+     * types are scaled to [0,1] or [-1,1] when the accessor is normalized. Accessors without a
+     * buffer view read as zeros and sparse substitutions are not applied.
+     */
+    float[] floats(int accessorIndex) throws IOException {
+        JsonNode accessor = json.path("accessors").path(accessorIndex);
+        int components = components(accessor.path("type").asText());
+        int count = accessor.path("count").asInt(0);
+        float[] values = new float[count * components];
+        if (!accessor.has("bufferView") || components == 0) {
+            return values;
+        }
+        int componentType = accessor.path("componentType").asInt();
+        int size = componentSize(componentType);
+        boolean normalized = accessor.path("normalized").asBoolean(false);
+        int stride = stride(accessor, components * size);
+        long base = base(accessor, stride, count, components * size);
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < components; c++) {
+                int at = (int) (base + (long) i * stride + (long) c * size);
+                values[i * components + c] = switch (componentType) {
+                    case 5120 -> normalized ? Math.max(bin.get(at) / 127f, -1f) : bin.get(at);
+                    case 5121 -> normalized ? (bin.get(at) & 0xFF) / 255f : bin.get(at) & 0xFF;
+                    case 5122 -> normalized ? Math.max(bin.getShort(at) / 32767f, -1f) : bin.getShort(at);
+                    case 5123 -> normalized ? (bin.getShort(at) & 0xFFFF) / 65535f : bin.getShort(at) & 0xFFFF;
+                    case 5125 -> bin.getInt(at) & 0xFFFFFFFFL;
+                    default -> bin.getFloat(at);
+                };
+            }
+        }
+        return values;
+    }
+
+    // A SCALAR index accessor (unsigned byte, short or int) as ints
+    int[] indices(int accessorIndex) throws IOException {
+        JsonNode accessor = json.path("accessors").path(accessorIndex);
+        int count = accessor.path("count").asInt(0);
+        int[] values = new int[count];
+        if (!accessor.has("bufferView")) {
+            return values;
+        }
+        int componentType = accessor.path("componentType").asInt();
+        int size = componentSize(componentType);
+        int stride = stride(accessor, size);
+        long base = base(accessor, stride, count, size);
+        for (int i = 0; i < count; i++) {
+            int at = (int) (base + (long) i * stride);
+            values[i] = switch (componentType) {
+                case 5121 -> bin.get(at) & 0xFF;
+                case 5123 -> bin.getShort(at) & 0xFFFF;
+                default -> bin.getInt(at);
+            };
+        }
+        return values;
+    }
+
+    private int stride(JsonNode accessor, int elementSize) {
+        int stride = json.path("bufferViews").path(accessor.path("bufferView").asInt()).path("byteStride").asInt(0);
+        return stride > 0 ? stride : elementSize;
+    }
+
+    // Start of the accessor's data in the BIN chunk, after checking all its elements lie inside it
+    private long base(JsonNode accessor, int stride, int count, int elementSize) throws IOException {
+        JsonNode view = json.path("bufferViews").path(accessor.path("bufferView").asInt());
+        long base = view.path("byteOffset").asLong(0) + accessor.path("byteOffset").asLong(0);
+        if (bin == null || view.isMissingNode() || view.path("buffer").asInt(0) != 0
+                || (count > 0 && base + (long) (count - 1) * stride + elementSize > bin.limit())) {
+            throw new IOException("Accessor data out of range");
+        }
+        return base;
+    }
+
+    private static int components(String type) {
+        return switch (type) {
+            case "SCALAR" -> 1;
+            case "VEC2" -> 2;
+            case "VEC3" -> 3;
+            case "VEC4", "MAT2" -> 4;
+            case "MAT3" -> 9;
+            case "MAT4" -> 16;
+            default -> 0;
+        };
+    }
+
+    private static int componentSize(int componentType) throws IOException {
+        return switch (componentType) {
+            case 5120, 5121 -> 1;
+            case 5122, 5123 -> 2;
+            case 5125, 5126 -> 4;
+            default -> throw new IOException("Unknown component type " + componentType);
+        };
+    }
+
+    static int pad(int length) {
+        return (length + 3) & ~3;
+    }
+}
@@ -0,0 +1,655 @@
+package com.realestate.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.realestate.model.ModelStats;
+import com.realestate.model.ModelTexture;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reads statistics from a GLB file and rewrites it lighter for phones, in three steps:
+ * <ul>
+ *   <li>embedded PNG/JPEG textures are downscaled to textureMaxSize and opaque PNGs become JPEG;</li>
+ *   <li>float positions, normals, tangents and [0,1] texture coordinates are quantized to 16/8 bit
+ *       (KHR_mesh_quantization); positions get their dequantization as an extra child node, so
+ *       meshes with morph targets or skins keep float positions;</li>
+ *   <li>the BIN chunk is rebuilt from the accessors and images still in use, dropping the rest.</li>
+ * </ul>
+ * Files with external buffers or extensions this class does not understand are left alone, see
+ * {@link #unsupportedReason}.
+ */
+final class GlbOptimizer {
+    static final String QUANTIZATION_EXTENSION = "KHR_mesh_quantization";
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of(
+        QUANTIZATION_EXTENSION, "KHR_texture_transform", "KHR_lights_punctual", "KHR_texture_basisu",
+        "EXT_texture_webp", "KHR_xmp_json_ld");
+
+    private static final int BYTE = 5120;
+    private static final int SHORT = 5122;
+    private static final int UNSIGNED_SHORT = 5123;
+    private static final int FLOAT = 5126;
+    private static final int ARRAY_BUFFER = 34962;
+
+    private final int textureMaxSize;
+    private final float jpegQuality;
+    private final boolean quantize;
+
+    GlbOptimizer(int textureMaxSize, float jpegQuality, boolean quantize) {
+        this.textureMaxSize = textureMaxSize;
+        this.jpegQuality = jpegQuality;
+        this.quantize = quantize;
+    }
+
+    // Why the file cannot be rewritten safely, or null when it can
+    static String unsupportedReason(GlbFile glb) {
+        ArrayNode buffers = array(glb.json, "buffers");
+        if (buffers.size() > 1) {
+            return "multiple buffers";
+        }
+        if (buffers.size() == 1 && (buffers.get(0).has("uri") || glb.bin == null)) {
+            return "buffer is not embedded";
+        }
+        for (JsonNode extension : array(glb.json, "extensionsUsed")) {
+            String name = extension.asText();
+            if (!SUPPORTED_EXTENSIONS.contains(name) && !name.startsWith("KHR_materials_")) {
+                return "unsupported extension " + name;
+            }
+        }
+        return null;
+    }
+
+    static ModelStats stats(GlbFile glb, long byteLength) {
+        ArrayNode accessors = array(glb.json, "accessors");
+        ArrayNode views = array(glb.json, "bufferViews");
+        ModelStats stats = new ModelStats();
+        stats.setByteLength(byteLength);
+        stats.setMeshes(array(glb.json, "meshes").size());
+        stats.setMaterials(array(glb.json, "materials").size());
+
+        int primitives = 0;
+        long vertices = 0;
+        long triangles = 0;
+        for (JsonNode mesh : array(glb.json, "meshes")) {
+            for (JsonNode primitive : mesh.path("primitives")) {
+                primitives++;
+                long count = accessors.path(primitive.path("attributes").path("POSITION").asInt(-1)).path("count").asLong(0);
+                long indexCount = primitive.has("indices")
+                    ? accessors.path(primitive.path("indices").asInt(-1)).path("count").asLong(0)
+                    : count;
+                vertices += count;
+                int mode = primitive.path("mode").asInt(4);
+                if (mode == 4) {
+                    triangles += indexCount / 3;
+                } else if (mode == 5 || mode == 6) {
+                    triangles += Math.max(0, indexCount - 2);
+                }
+            }
+        }
+        stats.setPrimitives(primitives);
+        stats.setVertices(vertices);
+        stats.setTriangles(triangles);
+
+        Set<Integer> geometryViews = new HashSet<>();
+        for (JsonNode accessor : accessors) {
+            addIndex(geometryViews, accessor.path("bufferView"));
+            addIndex(geometryViews, accessor.path("sparse").path("indices").path("bufferView"));
+            addIndex(geometryViews, accessor.path("sparse").path("values").path("bufferView"));
+        }
+        stats.setGeometryBytes(geometryViews.stream().mapToLong(v -> views.path(v).path("byteLength").asLong(0)).sum());
+
+        List<ModelTexture> textures = new ArrayList<>();
+        for (JsonNode image : array(glb.json, "images")) {
+            ModelTexture texture = new ModelTexture(image.path("mimeType").asText(null), null, null, 0);
+            JsonNode view = views.path(image.path("bufferView").asInt(-1));
+            if (!view.isMissingNode()) {
+                try {
+                    byte[] data = viewBytes(glb, view);
+                    texture.setBytes(data.length);
+                    int[] dimensions = ImageDimensions.read(data, Math.min(data.length, ImageDimensions.PROBE_BYTES));
+                    if (dimensions != null) {
+                        texture.setWidth(dimensions[0]);
+                        texture.setHeight(dimensions[1]);
+                    }
+                } catch (IOException e) {
+                    // Reported without size; optimize() fails on the same view
+                }
+            }
+            textures.add(texture);
+        }
+        stats.setTextures(textures);
+        return stats;
+    }
+
+    GlbFile optimize(GlbFile source) throws IOException {
+        String reason = unsupportedReason(source);
+        if (reason != null) {
+            throw new IOException("Cannot optimize GLB: " + reason);
+        }
+        ObjectNode json = source.json.deepCopy();
+        ArrayNode accessors = array(json, "accessors");
+        ArrayNode views = array(json, "bufferViews");
+        ArrayNode meshes = array(json, "meshes");
+        ArrayNode nodes = array(json, "nodes");
+
+        // How each accessor is used; accessors used nowhere are dropped
+        Map<Integer, Set<String>> roles = new TreeMap<>();
+        Map<Integer, Integer> positionMesh = new HashMap<>();
+        Set<Integer> floatPositionMeshes = new HashSet<>();
+        for (int m = 0; m < meshes.size(); m++) {
+            boolean eligible = true;
+            for (JsonNode primitive : meshes.get(m).path("primitives")) {
+                Iterator<Map.Entry<String, JsonNode>> attributes = primitive.path("attributes").fields();
+                while (attributes.hasNext()) {
+                    Map.Entry<String, JsonNode> attribute = attributes.next();
+                    String semantic = attribute.getKey();
+                    int accessor = attribute.getValue().asInt();
+                    addRole(roles, accessor, semantic.startsWith("TEXCOORD_") ? "TEXCOORD" : semantic);
+                    if ("POSITION".equals(semantic)) {
+                        Integer owner = positionMesh.putIfAbsent(accessor, m);
+                        if (owner != null && owner != m) {
+                            addRole(roles, accessor, "SHARED");
+                        }
+                    }
+                }
+                if (primitive.has("indices")) {
+                    addRole(roles, primitive.get("indices").asInt(), "INDICES");
+                }
+                for (JsonNode target : primitive.path("targets")) {
+                    eligible = false;
+                    target.fields().forEachRemaining(attribute -> addRole(roles, attribute.getValue().asInt(), "TARGET"));
+                }
+            }
+            if (!eligible) {
+                floatPositionMeshes.add(m);
+            }
+        }
+        for (JsonNode skin : array(json, "skins")) {
+            if (skin.has("inverseBindMatrices")) {
+                addRole(roles, skin.get("inverseBindMatrices").asInt(), "SKIN");
+            }
+        }
+        for (JsonNode animation : array(json, "animations")) {
+            for (JsonNode sampler : animation.path("samplers")) {
+                addRole(roles, sampler.path("input").asInt(), "ANIMATION");
+                addRole(roles, sampler.path("output").asInt(), "ANIMATION");
+            }
+        }
+        for (JsonNode node : nodes) {
+            if (node.has("mesh") && node.has("skin")) {
+                floatPositionMeshes.add(node.get("mesh").asInt());
+            }
+        }
+
+        // Per mesh dequantization transform: center and a uniform scale, which keeps normals valid
+        Map<Integer, float[]> meshTransforms = new HashMap<>();
+        if (quantize) {
+            for (int m = 0; m < meshes.size(); m++) {
+                if (!floatPositionMeshes.contains(m)) {
+                    float[] transform = positionTransform(source, views, accessors, meshes.get(m), roles);
+                    if (transform != null) {
+                        meshTransforms.put(m, transform);
+                    }
+                }
+            }
+        }
+
+        BinWriter bin = new BinWriter(json.arrayNode());
+        Map<Integer, Integer> viewRemap = new HashMap<>();
+        ArrayNode keptAccessors = json.arrayNode();
+        Map<Integer, Integer> accessorRemap = new HashMap<>();
+        boolean quantized = false;
+        for (Map.Entry<Integer, Set<String>> entry : roles.entrySet()) {
+            int index = entry.getKey();
+            if (index < 0 || index >= accessors.size()) {
+                throw new IOException("Accessor " + index + " does not exist");
+            }
+            ObjectNode accessor = (ObjectNode) accessors.get(index);
+            String role = entry.getValue().size() == 1 ? entry.getValue().iterator().next() : null;
+            boolean rewritten = quantize && role != null && quantizeAccessor(source, views, accessor, role,
+                "POSITION".equals(role) ? meshTransforms.get(positionMesh.get(index)) : null, bin);
+            if (rewritten) {
+                quantized = true;
+            } else {
+                remapView(source, views, accessor, bin, viewRemap);
+                if (accessor.has("sparse")) {
+                    remapView(source, views, (ObjectNode) accessor.get("sparse").get("indices"), bin, viewRemap);
+                    remapView(source, views, (ObjectNode) accessor.get("sparse").get("values"), bin, viewRemap);
+                }
+            }
+            accessorRemap.put(index, keptAccessors.size());
+            keptAccessors.add(accessor);
+        }
+
+        // Images no texture points at are dropped, the rest recompressed where that helps
+        ArrayNode images = array(json, "images");
+        Set<Integer> usedImages = new TreeSet<>();
+        for (JsonNode texture : array(json, "textures")) {
+            addIndex(usedImages, texture.path("source"));
+            texture.path("extensions").forEach(extension -> addIndex(usedImages, extension.path("source")));
+        }
+        ArrayNode keptImages = json.arrayNode();
+        Map<Integer, Integer> imageRemap = new HashMap<>();
+        for (int index : usedImages) {
+            if (index >= images.size()) {
+                throw new IOException("Image " + index + " does not exist");
+            }
+            ObjectNode image = (ObjectNode) images.get(index);
+            if (image.has("bufferView")) {
+                byte[] data = viewBytes(source, views.path(image.get("bufferView").asInt()));
+                Texture texture = recompress(data, image.path("mimeType").asText(""));
+                if (texture != null) {
+                    image.put("bufferView", bin.add(texture.data(), null));
+                    image.put("mimeType", texture.mimeType());
+                } else {
+                    remapView(source, views, image, bin, viewRemap);
+                }
+            }
+            imageRemap.put(index, keptImages.size());
+            keptImages.add(image);
+        }
+
+        // Point everything at the new accessor, image and buffer view indices
+        for (JsonNode mesh : meshes) {
+            for (JsonNode primitive : mesh.path("primitives")) {
+                remapFields((ObjectNode) primitive.get("attributes"), accessorRemap);
+                if (primitive.has("indices")) {
+                    ((ObjectNode) primitive).put("indices", accessorRemap.get(primitive.get("indices").asInt()));
+                }
+                for (JsonNode target : primitive.path("targets")) {
+                    remapFields((ObjectNode) target, accessorRemap);
+                }
+            }
+        }
+        for (JsonNode skin : array(json, "skins")) {
+            if (skin.has("inverseBindMatrices")) {
+                ((ObjectNode) skin).put("inverseBindMatrices", accessorRemap.get(skin.get("inverseBindMatrices").asInt()));
+            }
+        }
+        for (JsonNode animation : array(json, "animations")) {
+            for (JsonNode sampler : animation.path("samplers")) {
+                ((ObjectNode) sampler).put("input", accessorRemap.get(sampler.get("input").asInt()));
+                ((ObjectNode) sampler).put("output", accessorRemap.get(sampler.get("output").asInt()));
+            }
+        }
+        for (JsonNode texture : array(json, "textures")) {
+            if (texture.has("source")) {
+                ((ObjectNode) texture).put("source", imageRemap.get(texture.get("source").asInt()));
+            }
+            for (JsonNode extension : texture.path("extensions")) {
+                if (extension.has("source")) {
+                    ((ObjectNode) extension).put("source", imageRemap.get(extension.get("source").asInt()));
+                }
+            }
+        }
+
+        // Quantized meshes hang off a child node carrying their dequantization transform
+        int nodeCount = nodes.size();
+        for (int n = 0; n < nodeCount; n++) {
+            ObjectNode node = (ObjectNode) nodes.get(n);
+            float[] transform = node.has("mesh") ? meshTransforms.get(node.get("mesh").asInt()) : null;
+            if (transform == null) {
+                continue;
+            }
+            ObjectNode child = nodes.addObject();
+            child.put("mesh", node.get("mesh").asInt());
+            child.putArray("translation").add(transform[0]).add(transform[1]).add(transform[2]);
+            child.putArray("scale").add(transform[3]).add(transform[3]).add(transform[3]);
+            node.remove("mesh");
+            ArrayNode children = node.has("children") ? (ArrayNode) node.get("children") : node.putArray("children");
+            children.add(nodes.size() - 1);
+        }
+
+        setOrRemove(json, "accessors", keptAccessors);
+        setOrRemove(json, "images", keptImages);
+        setOrRemove(json, "bufferViews", bin.views);
+        byte[] binBytes = bin.toByteArray();
+        if (binBytes.length > 0) {
+            ObjectNode buffer = array(json, "buffers").isEmpty() ? json.withArray("buffers").addObject()
+                : (ObjectNode) json.get("buffers").get(0);
+            buffer.put("byteLength", binBytes.length);
+        } else {
+            json.remove("buffers");
+        }
+        if (quantized) {
+            addExtension(json, "extensionsUsed");
+            addExtension(json, "extensionsRequired");
+        }
+        return new GlbFile(json, binBytes.length > 0 ? ByteBuffer.wrap(binBytes).order(ByteOrder.LITTLE_ENDIAN) : null);
+    }
+
+    private record Texture(byte[] data, String mimeType) {}
+
+    // Downscaled and/or re-encoded image, or null when the original is kept
+    private Texture recompress(byte[] data, String mimeType) throws IOException {
+        if (!"image/png".equals(mimeType) && !"image/jpeg".equals(mimeType)) {
+            return null;
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            return null;
+        }
+        boolean alpha = image.getColorModel().hasAlpha();
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        boolean opaquePng = "image/png".equals(mimeType) && !alpha;
+        if (longest <= textureMaxSize && !opaquePng) {
+            return null;
+        }
+        if (longest > textureMaxSize) {
+            int width = Math.max(1, (int) Math.round(image.getWidth() * (double) textureMaxSize / longest));
+            image = ImageDerivativeService.scale(image, width, alpha);
+        }
+        byte[] encoded = alpha ? ImageDerivativeService.encode(image, "png", jpegQuality)
+            : ImageDerivativeService.encode(toRgb(image), "jpg", jpegQuality);
+        if (encoded.length >= data.length) {
+            return null;
+        }
+        return new Texture(encoded, alpha ? "image/png" : "image/jpeg");
+    }
+
+    // The JPEG writer rejects indexed and alpha images
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    /**
+     * Center and half extent of a mesh's positions, or null when one of its position accessors
+     * cannot be quantized (not plain float VEC3, or shared with anything else).
+     */
+    private static float[] positionTransform(GlbFile source, ArrayNode views, ArrayNode accessors, JsonNode mesh,
+                                             Map<Integer, Set<String>> roles) throws IOException {
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        boolean any = false;
+        for (JsonNode primitive : mesh.path("primitives")) {
+            JsonNode index = primitive.path("attributes").path("POSITION");
+            if (index.isMissingNode()) {
+                continue;
+            }
+            JsonNode accessor = accessors.path(index.asInt());
+            if (!Set.of("POSITION").equals(roles.get(index.asInt())) || !isPlainFloat(accessor, "VEC3")) {
+                return null;
+            }
+            float[] values = readFloats(source, views, accessor, 3);
+            for (int i = 0; i < values.length; i++) {
+                min[i % 3] = Math.min(min[i % 3], values[i]);
+                max[i % 3] = Math.max(max[i % 3], values[i]);
+            }
+            any = any || values.length > 0;
+        }
+        if (!any) {
+            return null;
+        }
+        float extent = 0;
+        for (int c = 0; c < 3; c++) {
+            extent = Math.max(extent, (max[c] - min[c]) / 2);
+        }
+        if (!(extent > 0) || !Float.isFinite(extent)) {
+            return null;
+        }
+        return new float[]{(min[0] + max[0]) / 2, (min[1] + max[1]) / 2, (min[2] + max[2]) / 2, extent};
+    }
+
+    /**
+     * Rewrites a float accessor with a single role into a new normalized integer buffer view.
+     * Returns false, leaving the accessor untouched, when the role or data does not allow it.
+     */
+    private static boolean quantizeAccessor(GlbFile source, ArrayNode views, ObjectNode accessor, String role,
+                                            float[] transform, BinWriter bin) throws IOException {
+        int components;
+        int componentType;
+        int stride;
+        switch (role) {
+            case "POSITION" -> {
+                if (transform == null) {
+                    return false;
+                }
+                components = 3;
+                componentType = SHORT;
+                stride = 8;
+            }
+            case "NORMAL" -> {
+                components = 3;
+                componentType = BYTE;
+                stride = 4;
+            }
+            case "TANGENT" -> {
+                components = 4;
+                componentType = BYTE;
+                stride = 4;
+            }
+            case "TEXCOORD" -> {
+                components = 2;
+                componentType = UNSIGNED_SHORT;
+                stride = 4;
+            }
+            default -> {
+                return false;
+            }
+        }
+        if (!isPlainFloat(accessor, components == 2 ? "VEC2" : components == 3 ? "VEC3" : "VEC4")) {
+            return false;
+        }
+        float[] values = readFloats(source, views, accessor, components);
+        if ("TEXCOORD".equals(role)) {
+            for (float value : values) {
+                if (!(value >= 0 && value <= 1)) {
+                    return false; // wrapping coordinates would need KHR_texture_transform to rescale
+                }
+            }
+        }
+
+        int count = values.length / components;
+        ByteBuffer out = ByteBuffer.allocate(count * stride).order(ByteOrder.LITTLE_ENDIAN);
+        int[] min = new int[components];
+        int[] max = new int[components];
+        Arrays.fill(min, Integer.MAX_VALUE);
+        Arrays.fill(max, Integer.MIN_VALUE);
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < components; c++) {
+                float value = values[i * components + c];
+                int q;
+                if (componentType == SHORT) {
+                    q = clamp(Math.round((value - transform[c]) / transform[3] * 32767), -32767, 32767);
+                    out.putShort(i * stride + c * 2, (short) q);
+                } else if (componentType == BYTE) {
+                    q = clamp(Math.round(value * 127), -127, 127);
+                    out.put(i * stride + c, (byte) q);
+                } else {
+                    q = clamp(Math.round(value * 65535), 0, 65535);
+                    out.putShort(i * stride + c * 2, (short) q);
+                }
+                min[c] = Math.min(min[c], q);
+                max[c] = Math.max(max[c], q);
+            }
+        }
+
+        accessor.put("bufferView", bin.add(out.array(), stride));
+        accessor.remove("byteOffset");
+        accessor.put("componentType", componentType);
+        accessor.put("normalized", true);
+        accessor.remove("min");
+        accessor.remove("max");
+        if ("POSITION".equals(role)) {
+            // Required for positions; bounds are in the stored integer values
+            ArrayNode minNode = accessor.putArray("min");
+            ArrayNode maxNode = accessor.putArray("max");
+            for (int c = 0; c < components; c++) {
+                minNode.add(count > 0 ? min[c] : 0);
+                maxNode.add(count > 0 ? max[c] : 0);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPlainFloat(JsonNode accessor, String type) {
+        return accessor.path("componentType").asInt() == FLOAT && type.equals(accessor.path("type").asText())
+            && accessor.has("bufferView") && !accessor.has("sparse");
+    }
+
+    private static float[] readFloats(GlbFile source, ArrayNode views, JsonNode accessor, int components) throws IOException {
+        JsonNode view = views.path(accessor.get("bufferView").asInt());
+        int stride = view.path("byteStride").asInt(0);
+        if (stride == 0) {
+            stride = components * 4;
+        }
+        long base = view.path("byteOffset").asLong(0) + accessor.path("byteOffset").asLong(0);
+        int count = accessor.path("count").asInt(0);
+        if (source.bin == null || view.isMissingNode()
+                || (count > 0 && base + (long) (count - 1) * stride + components * 4L > source.bin.limit())) {
+            throw new IOException("Accessor data out of range");
+        }
+        float[] values = new float[count * components];
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < components; c++) {
+                values[i * components + c] = source.bin.getFloat((int) (base + (long) i * stride + c * 4L));
+            }
+        }
+        return values;
+    }
+
+    // Copies the buffer view an accessor, sparse part or image points at, once per view
+    private static void remapView(GlbFile source, ArrayNode views, ObjectNode owner, BinWriter bin,
+                                  Map<Integer, Integer> viewRemap) throws IOException {
+        if (!owner.has("bufferView")) {
+            return;
+        }
+        int index = owner.get("bufferView").asInt();
+        Integer mapped = viewRemap.get(index);
+        if (mapped == null) {
+            JsonNode view = views.path(index);
+            mapped = bin.copy((ObjectNode) view, viewBytes(source, view));
+            viewRemap.put(index, mapped);
+        }
+        owner.put("bufferView", mapped);
+    }
+
+    private static byte[] viewBytes(GlbFile source, JsonNode view) throws IOException {
+        long offset = view.path("byteOffset").asLong(0);
+        long length = view.path("byteLength").asLong(-1);
+        if (view.isMissingNode() || source.bin == null || length < 0 || offset + length > source.bin.limit()) {
+            throw new IOException("Buffer view out of range");
+        }
+        byte[] data = new byte[(int) length];
+        source.bin.get((int) offset, data);
+        return data;
+    }
+
+    // New BIN chunk and its buffer views, each view starting 4-byte aligned
+    private static final class BinWriter {
+        final ArrayNode views;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BinWriter(ArrayNode views) {
+            this.views = views;
+        }
+
+        int add(byte[] data, Integer stride) {
+            ObjectNode view = append(data);
+            if (stride != null) {
+                view.put("byteStride", stride);
+                view.put("target", ARRAY_BUFFER);
+            }
+            return views.size() - 1;
+        }
+
+        int copy(ObjectNode original, byte[] data) {
+            ObjectNode view = append(data);
+            original.fields().forEachRemaining(field -> {
+                if (!view.has(field.getKey())) {
+                    view.set(field.getKey(), field.getValue());
+                }
+            });
+            return views.size() - 1;
+        }
+
+        private ObjectNode append(byte[] data) {
+            while (out.size() % 4 != 0) {
+                out.write(0);
+            }
+            ObjectNode view = views.addObject();
+            view.put("buffer", 0);
+            view.put("byteOffset", out.size());
+            view.put("byteLength", data.length);
+            out.write(data, 0, data.length);
+            return view;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static ArrayNode array(ObjectNode json, String field) {
+        JsonNode node = json.get(field);
+        return node instanceof ArrayNode array ? array : json.arrayNode();
+    }
+
+    private static void setOrRemove(ObjectNode json, String field, ArrayNode values) {
+        if (values.isEmpty()) {
+            json.remove(field);
+        } else {
+            json.set(field, values);
+        }
+    }
+
+    private static void addExtension(ObjectNode json, String field) {
+        ArrayNode extensions = json.withArray(field);
+        for (JsonNode extension : extensions) {
+            if (QUANTIZATION_EXTENSION.equals(extension.asText())) {
+                return;
+            }
+        }
+        extensions.add(QUANTIZATION_EXTENSION);
+    }
+
+    private static void remapFields(ObjectNode object, Map<Integer, Integer> remap) {
+        if (object == null) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        object.fieldNames().forEachRemaining(names::add);
+        for (String name : names) {
+            object.put(name, remap.get(object.get(name).asInt()));
+        }
+    }
+
+    private static void addRole(Map<Integer, Set<String>> roles, int accessor, String role) {
+        roles.computeIfAbsent(accessor, key -> new HashSet<>()).add(role);
+    }
+
+    private static void addIndex(Set<Integer> indices, JsonNode node) {
+        if (node.canConvertToInt() && node.isIntegralNumber()) {
+            indices.add(node.asInt());
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
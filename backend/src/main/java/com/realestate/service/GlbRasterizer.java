@@ -0,0 +1,397 @@
+package com.realestate.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders a GLB scene on the CPU from a fixed three-quarter camera above the front right, with
+ * an orthographic projection fitted to the scene bounds. Triangles are flat shaded from their
+ * face normals with one directional light, colored by the material's base color factor times
+ * the average color of its base color texture; the background stays transparent. Mostly
+ * transparent (BLEND, alpha below 0.5) materials such as glazing are left out so interiors stay
+ * visible.
+ */
+final class GlbRasterizer {
+    private static final float[] VIEW_DIRECTION = normalize(new float[]{0.8f, 0.9f, 1.0f});
+    private static final float[] LIGHT_DIRECTION = normalize(new float[]{0.4f, 1.0f, 0.6f});
+    private static final float AMBIENT = 0.35f;
+    private static final float MARGIN = 0.05f;
+    private static final int MAX_NODE_DEPTH = 64;
+
+    // Triangles of one primitive in world space
+    private record Mesh(float[] positions, int[] triangles, float[] color) {}
+
+    private GlbRasterizer() {}
+
+    /**
+     * Draws the scene into a width x height ARGB image, or returns null when it has no visible
+     * triangles.
+     */
+    static BufferedImage render(GlbFile glb, int width, int height) throws IOException {
+        List<Mesh> meshes = collect(glb);
+        if (meshes.isEmpty()) {
+            return null;
+        }
+
+        // Camera basis: d points towards the camera, r to the right, u up on screen
+        float[] d = VIEW_DIRECTION;
+        float[] r = normalize(cross(new float[]{0, 1, 0}, d));
+        float[] u = cross(d, r);
+        float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (Mesh mesh : meshes) {
+            float[] p = mesh.positions;
+            for (int i = 0; i < p.length; i += 3) {
+                float x = p[i] * r[0] + p[i + 1] * r[1] + p[i + 2] * r[2];
+                float y = p[i] * u[0] + p[i + 1] * u[1] + p[i + 2] * u[2];
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        float spanX = Math.max(maxX - minX, 1e-6f);
+        float spanY = Math.max(maxY - minY, 1e-6f);
+        float scale = Math.min(width * (1 - 2 * MARGIN) / spanX, height * (1 - 2 * MARGIN) / spanY);
+        float centerX = (minX + maxX) / 2;
+        float centerY = (minY + maxY) / 2;
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        float[] depth = new float[width * height];
+        Arrays.fill(depth, Float.NEGATIVE_INFINITY);
+        boolean drawn = false;
+
+        float[] screen = new float[9];
+        for (Mesh mesh : meshes) {
+            float[] p = mesh.positions;
+            for (int t = 0; t < mesh.triangles.length; t += 3) {
+                int a = mesh.triangles[t] * 3;
+                int b = mesh.triangles[t + 1] * 3;
+                int c = mesh.triangles[t + 2] * 3;
+                float[] normal = cross(
+                    new float[]{p[b] - p[a], p[b + 1] - p[a + 1], p[b + 2] - p[a + 2]},
+                    new float[]{p[c] - p[a], p[c + 1] - p[a + 1], p[c + 2] - p[a + 2]});
+                float length = (float) Math.sqrt(dot(normal, normal));
+                if (!(length > 0)) {
+                    continue;
+                }
+                // Two-sided: shade the side facing the camera
+                float facing = dot(normal, d) >= 0 ? 1 : -1;
+                float diffuse = Math.max(0, facing * dot(normal, LIGHT_DIRECTION) / length);
+                int argb = shade(mesh.color, AMBIENT + (1 - AMBIENT) * diffuse);
+
+                int[] corners = {a, b, c};
+                for (int k = 0; k < 3; k++) {
+                    int v = corners[k];
+                    float x = p[v] * r[0] + p[v + 1] * r[1] + p[v + 2] * r[2];
+                    float y = p[v] * u[0] + p[v + 1] * u[1] + p[v + 2] * u[2];
+                    screen[k * 3] = width / 2f + (x - centerX) * scale;
+                    screen[k * 3 + 1] = height / 2f - (y - centerY) * scale;
+                    screen[k * 3 + 2] = p[v] * d[0] + p[v + 1] * d[1] + p[v + 2] * d[2];
+                }
+                drawn |= fill(screen, argb, pixels, depth, width, height);
+            }
+        }
+        return drawn ? image : null;
+    }
+
+    // Scan-converts one triangle with a depth test; larger depth is closer to the camera
+    private static boolean fill(float[] s, int argb, int[] pixels, float[] depth, int width, int height) {
+        float area = (s[3] - s[0]) * (s[7] - s[1]) - (s[4] - s[1]) * (s[6] - s[0]);
+        if (Math.abs(area) < 1e-12f) {
+            return false;
+        }
+        int x0 = Math.max(0, (int) Math.floor(Math.min(s[0], Math.min(s[3], s[6]))));
+        int x1 = Math.min(width - 1, (int) Math.ceil(Math.max(s[0], Math.max(s[3], s[6]))));
+        int y0 = Math.max(0, (int) Math.floor(Math.min(s[1], Math.min(s[4], s[7]))));
+        int y1 = Math.min(height - 1, (int) Math.ceil(Math.max(s[1], Math.max(s[4], s[7]))));
+        boolean drawn = false;
+        for (int y = y0; y <= y1; y++) {
+            float py = y + 0.5f;
+            for (int x = x0; x <= x1; x++) {
+                float px = x + 0.5f;
+                float w0 = ((s[3] - px) * (s[7] - py) - (s[4] - py) * (s[6] - px)) / area;
+                float w1 = ((s[6] - px) * (s[1] - py) - (s[7] - py) * (s[0] - px)) / area;
+                float w2 = 1 - w0 - w1;
+                if (w0 < 0 || w1 < 0 || w2 < 0) {
+                    continue;
+                }
+                float z = w0 * s[2] + w1 * s[5] + w2 * s[8];
+                int index = y * width + x;
+                if (z > depth[index]) {
+                    depth[index] = z;
+                    pixels[index] = argb;
+                    drawn = true;
+                }
+            }
+        }
+        return drawn;
+    }
+
+    // Linear color times light, to opaque sRGB
+    private static int shade(float[] color, float light) {
+        int argb = 0xFF000000;
+        for (int c = 0; c < 3; c++) {
+            float linear = Math.min(1, color[c] * light);
+            int value = Math.round((float) Math.pow(linear, 1 / 2.2) * 255);
+            argb |= value << (16 - 8 * c);
+        }
+        return argb;
+    }
+
+    // World-space triangles of every mesh instance in the default scene
+    private static List<Mesh> collect(GlbFile glb) throws IOException {
+        JsonNode json = glb.json;
+        JsonNode nodes = json.path("nodes");
+        List<Integer> roots = new ArrayList<>();
+        JsonNode scene = json.path("scenes").path(json.path("scene").asInt(0));
+        if (!scene.isMissingNode()) {
+            scene.path("nodes").forEach(node -> roots.add(node.asInt()));
+        } else {
+            Set<Integer> children = new HashSet<>();
+            nodes.forEach(node -> node.path("children").forEach(child -> children.add(child.asInt())));
+            for (int n = 0; n < nodes.size(); n++) {
+                if (!children.contains(n)) {
+                    roots.add(n);
+                }
+            }
+        }
+
+        List<Mesh> meshes = new ArrayList<>();
+        Map<Integer, float[]> colors = new HashMap<>();
+        BitSet visited = new BitSet(nodes.size());
+        for (int root : roots) {
+            visit(glb, root, identity(), 0, visited, meshes, colors);
+        }
+        return meshes;
+    }
+
+    // GlbFile.parse already rejects node graphs that are not trees; visited guards files built in code
+    private static void visit(GlbFile glb, int index, float[] parent, int depth, BitSet visited, List<Mesh> meshes,
+                              Map<Integer, float[]> colors) throws IOException {
+        JsonNode node = glb.json.path("nodes").path(index);
+        if (node.isMissingNode() || depth > MAX_NODE_DEPTH) {
+            return;
+        }
+        if (visited.get(index)) {
+            throw new IOException("glTF node " + index + " is reached more than once");
+        }
+        visited.set(index);
+        float[] world = multiply(parent, localMatrix(node));
+        JsonNode mesh = glb.json.path("meshes").path(node.path("mesh").asInt(-1));
+        for (JsonNode primitive : mesh.path("primitives")) {
+            int mode = primitive.path("mode").asInt(4);
+            JsonNode position = primitive.path("attributes").path("POSITION");
+            if ((mode != 4 && mode != 5 && mode != 6) || position.isMissingNode()) {
+                continue;
+            }
+            float[] color = colors.get(primitive.path("material").asInt(-1));
+            if (color == null) {
+                color = materialColor(glb, primitive.path("material").asInt(-1));
+                colors.put(primitive.path("material").asInt(-1), color);
+            }
+            if (color[3] < 0.5f) {
+                continue;
+            }
+            float[] local = glb.floats(position.asInt());
+            float[] positions = new float[local.length];
+            for (int i = 0; i + 2 < local.length; i += 3) {
+                for (int row = 0; row < 3; row++) {
+                    positions[i + row] = world[row] * local[i] + world[4 + row] * local[i + 1]
+                        + world[8 + row] * local[i + 2] + world[12 + row];
+                }
+            }
+            int vertexCount = local.length / 3;
+            int[] order = primitive.has("indices") ? glb.indices(primitive.get("indices").asInt()) : sequence(vertexCount);
+            int[] triangles = triangles(order, mode);
+            for (int v : triangles) {
+                if (v < 0 || v >= vertexCount) {
+                    throw new IOException("Index out of range");
+                }
+            }
+            meshes.add(new Mesh(positions, triangles, color));
+        }
+        for (JsonNode child : node.path("children")) {
+            visit(glb, child.asInt(), world, depth + 1, visited, meshes, colors);
+        }
+    }
+
+    // Strips and fans unrolled into a plain triangle list
+    private static int[] triangles(int[] order, int mode) {
+        if (mode == 4) {
+            return order.length % 3 == 0 ? order : Arrays.copyOf(order, order.length - order.length % 3);
+        }
+        int count = Math.max(0, order.length - 2);
+        int[] triangles = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            if (mode == 6) {
+                triangles[i * 3] = order[0];
+                triangles[i * 3 + 1] = order[i + 1];
+                triangles[i * 3 + 2] = order[i + 2];
+            } else {
+                triangles[i * 3] = order[i];
+                triangles[i * 3 + 1] = order[i + 1 + (i & 1)];
+                triangles[i * 3 + 2] = order[i + 2 - (i & 1)];
+            }
+        }
+        return triangles;
+    }
+
+    // Linear RGBA base color; BLEND materials keep their alpha, others count as opaque
+    private static float[] materialColor(GlbFile glb, int index) {
+        JsonNode material = glb.json.path("materials").path(index);
+        JsonNode pbr = material.path("pbrMetallicRoughness");
+        float[] color = {1, 1, 1, 1};
+        JsonNode factor = pbr.path("baseColorFactor");
+        for (int c = 0; c < 4 && c < factor.size(); c++) {
+            color[c] = (float) factor.get(c).asDouble();
+        }
+        JsonNode texture = glb.json.path("textures").path(pbr.path("baseColorTexture").path("index").asInt(-1));
+        float[] average = averageColor(glb, texture.path("source").asInt(-1));
+        if (average != null) {
+            for (int c = 0; c < 4; c++) {
+                color[c] *= average[c];
+            }
+        }
+        if (!"BLEND".equals(material.path("alphaMode").asText())) {
+            color[3] = 1;
+        }
+        return color;
+    }
+
+    // Mean linear RGBA of an embedded PNG/JPEG image, decoded subsampled; null when unreadable
+    private static float[] averageColor(GlbFile glb, int imageIndex) {
+        JsonNode image = glb.json.path("images").path(imageIndex);
+        JsonNode view = glb.json.path("bufferViews").path(image.path("bufferView").asInt(-1));
+        if (view.isMissingNode() || glb.bin == null) {
+            return null;
+        }
+        long offset = view.path("byteOffset").asLong(0);
+        long length = view.path("byteLength").asLong(0);
+        if (offset + length > glb.bin.limit()) {
+            return null;
+        }
+        byte[] data = new byte[(int) length];
+        glb.bin.get((int) offset, data);
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / 64);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                double[] sum = new double[4];
+                for (int y = 0; y < decoded.getHeight(); y++) {
+                    for (int x = 0; x < decoded.getWidth(); x++) {
+                        int argb = decoded.getRGB(x, y);
+                        sum[0] += Math.pow(((argb >> 16) & 0xFF) / 255.0, 2.2);
+                        sum[1] += Math.pow(((argb >> 8) & 0xFF) / 255.0, 2.2);
+                        sum[2] += Math.pow((argb & 0xFF) / 255.0, 2.2);
+                        sum[3] += ((argb >>> 24) & 0xFF) / 255.0;
+                    }
+                }
+                double pixels = (double) decoded.getWidth() * decoded.getHeight();
+                return new float[]{(float) (sum[0] / pixels), (float) (sum[1] / pixels),
+                    (float) (sum[2] / pixels), (float) (sum[3] / pixels)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Column-major 4x4 from a node's matrix or translation/rotation/scale
+    private static float[] localMatrix(JsonNode node) {
+        JsonNode matrix = node.path("matrix");
+        if (matrix.size() == 16) {
+            float[] m = new float[16];
+            for (int i = 0; i < 16; i++) {
+                m[i] = (float) matrix.get(i).asDouble();
+            }
+            return m;
+        }
+        float[] t = vector(node.path("translation"), 0, 3);
+        float[] q = vector(node.path("rotation"), 0, 4);
+        if (!node.has("rotation")) {
+            q[3] = 1;
+        }
+        float[] s = vector(node.path("scale"), 1, 3);
+        float x = q[0], y = q[1], z = q[2], w = q[3];
+        return new float[]{
+            (1 - 2 * (y * y + z * z)) * s[0], (2 * (x * y + z * w)) * s[0], (2 * (x * z - y * w)) * s[0], 0,
+            (2 * (x * y - z * w)) * s[1], (1 - 2 * (x * x + z * z)) * s[1], (2 * (y * z + x * w)) * s[1], 0,
+            (2 * (x * z + y * w)) * s[2], (2 * (y * z - x * w)) * s[2], (1 - 2 * (x * x + y * y)) * s[2], 0,
+            t[0], t[1], t[2], 1
+        };
+    }
+
+    private static float[] vector(JsonNode node, float fallback, int size) {
+        float[] v = new float[size];
+        for (int i = 0; i < size; i++) {
+            v[i] = i < node.size() ? (float) node.get(i).asDouble() : fallback;
+        }
+        return v;
+    }
+
+    private static float[] identity() {
+        return new float[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+    }
+
+    private static float[] multiply(float[] a, float[] b) {
+        float[] m = new float[16];
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 4; row++) {
+                float sum = 0;
+                for (int k = 0; k < 4; k++) {
+                    sum += a[k * 4 + row] * b[col * 4 + k];
+                }
+                m[col * 4 + row] = sum;
+            }
+        }
+        return m;
+    }
+
+    private static int[] sequence(int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    private static float[] cross(float[] a, float[] b) {
+        return new float[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+    }
+
+    private static float dot(float[] a, float[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    private static float[] normalize(float[] v) {
+        float length = (float) Math.sqrt(dot(v, v));
+        return new float[]{v[0] / length, v[1] / length, v[2] / length};
+    }
+}
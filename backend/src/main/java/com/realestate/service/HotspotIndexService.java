@@ -0,0 +1,132 @@
+package com.realestate.service;
+
+import com.realestate.dto.HotspotOverlap;
+import com.realestate.model.Floor;
+import com.realestate.model.Hotspot;
+import com.realestate.repository.FloorAngleRepository;
+import com.realestate.repository.FloorRepository;
+import com.realestate.repository.HotspotCodec;
+import com.realestate.repository.RepositoryListener;
+import com.realestate.search.HotspotGrid;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class HotspotIndexService {
+    // Angle key used for Floor.topViewHotspots; angle images use their angleHotspots key
+    public static final String TOP_VIEW = FloorAngleRepository.TOP_VIEW;
+
+    private final FloorRepository floorRepository;
+    private final FloorAngleRepository angleRepository;
+    // floorId -> angle -> grid; angles are indexed as they are written or first queried
+    private final Map<String, Map<String, HotspotGrid>> gridsByFloor = new ConcurrentHashMap<>();
+
+    public HotspotIndexService(FloorRepository floorRepository, FloorAngleRepository angleRepository) {
+        this.floorRepository = floorRepository;
+        this.angleRepository = angleRepository;
+        floorRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Floor floor) {
+                HotspotCodec.unpack(floor);
+                put(id, TOP_VIEW, floor.getTopViewHotspots());
+                if (floor.getAngleHotspots() != null) {
+                    floor.getAngleHotspots().forEach((angle, hotspots) -> put(id, angle, hotspots));
+                }
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                gridsByFloor.remove(id);
+            }
+        });
+        angleRepository.addListener(new FloorAngleRepository.AngleListener() {
+            @Override
+            public void onAngleSaved(String floorId, String angle, List<Hotspot> hotspots) {
+                put(floorId, angle, hotspots);
+            }
+
+            @Override
+            public void onAngleDeleted(String floorId, String angle) {
+                put(floorId, angle, null);
+            }
+        });
+    }
+
+    // Grids for the given lists, as used to report overlaps back to the annotator
+    public static Map<String, HotspotGrid> build(List<Hotspot> topView, Map<String, List<Hotspot>> angleHotspots) {
+        Map<String, HotspotGrid> grids = new HashMap<>();
+        if (topView != null) {
+            grids.put(TOP_VIEW, HotspotGrid.build(topView));
+        }
+        if (angleHotspots != null) {
+            angleHotspots.forEach((angle, hotspots) -> grids.put(angle, HotspotGrid.build(hotspots)));
+        }
+        return grids;
+    }
+
+    public List<Hotspot> hit(String floorId, String angle, double x, double y) {
+        HotspotGrid grid = grid(floorId, angle);
+        if (grid == null) {
+            return null;
+        }
+        return grid.hit(x, y).stream().map(grid::get).toList();
+    }
+
+    public List<Hotspot> region(String floorId, String angle, double x1, double y1, double x2, double y2) {
+        HotspotGrid grid = grid(floorId, angle);
+        if (grid == null) {
+            return null;
+        }
+        return grid.region(x1, y1, x2, y2).stream().map(grid::get).toList();
+    }
+
+    public static List<HotspotOverlap> overlaps(Map<String, HotspotGrid> grids) {
+        List<HotspotOverlap> overlaps = new ArrayList<>();
+        grids.forEach((angle, grid) -> {
+            for (int[] pair : grid.overlaps()) {
+                overlaps.add(new HotspotOverlap(angle, pair[0], pair[1],
+                    grid.get(pair[0]).getApartmentId(), grid.get(pair[1]).getApartmentId()));
+            }
+        });
+        return overlaps;
+    }
+
+    private HotspotGrid put(String floorId, String angle, List<Hotspot> hotspots) {
+        HotspotGrid grid = HotspotGrid.build(hotspots);
+        gridsByFloor.computeIfAbsent(floorId, k -> new ConcurrentHashMap<>()).put(angle, grid);
+        return grid;
+    }
+
+    private HotspotGrid grid(String floorId, String angle) {
+        String key = angle != null ? angle : TOP_VIEW;
+        Map<String, HotspotGrid> grids = gridsByFloor.get(floorId);
+        HotspotGrid grid = grids != null ? grids.get(key) : null;
+        if (grid != null) {
+            return grid;
+        }
+
+        // Not indexed since startup: load just this angle once
+        List<Hotspot> hotspots;
+        if (TOP_VIEW.equals(key)) {
+            Floor floor = HotspotCodec.unpack(floorRepository.findById(floorId));
+            if (floor == null) {
+                return null;
+            }
+            hotspots = floor.getTopViewHotspots();
+        } else {
+            hotspots = angleRepository.findAngle(floorId, key);
+            if (hotspots == null && floorRepository.findById(floorId) == null) {
+                return null;
+            }
+        }
+        // A write indexed while we were loading wins over what we read
+        HotspotGrid loaded = HotspotGrid.build(hotspots);
+        HotspotGrid existing = gridsByFloor.computeIfAbsent(floorId, k -> new ConcurrentHashMap<>()).putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+}
@@ -0,0 +1,232 @@
+package com.realestate.service;
+
+import com.realestate.dto.HotspotOverlayEntry;
+import com.realestate.model.Apartment;
+import com.realestate.model.Floor;
+import com.realestate.model.Hotspot;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.FloorAngleRepository;
+import com.realestate.repository.FloorRepository;
+import com.realestate.repository.HotspotCodec;
+import com.realestate.repository.RepositoryListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materialized per-floor, per-angle hotspot overlays: geometry joined with the referenced
+ * apartment's lot number, status and price. Angles are built lazily on first request and
+ * rebuilt when their shard is written; an apartment write only rebuilds the angle lists
+ * that reference the apartment.
+ */
+@Service
+public class HotspotOverlayService {
+    private static final Logger logger = LoggerFactory.getLogger(HotspotOverlayService.class);
+
+    private final FloorRepository floorRepository;
+    private final FloorAngleRepository angleRepository;
+    private final ApartmentRepository apartmentRepository;
+
+    private final Map<String, Apartment> apartments = new ConcurrentHashMap<>();
+    // floorId -> angle -> geometry and the overlay served to clients
+    private final Map<String, Map<String, AngleOverlay>> overlays = new ConcurrentHashMap<>();
+    // apartmentId -> floorIds whose loaded hotspots reference it
+    private final Map<String, Set<String>> floorsByApartment = new ConcurrentHashMap<>();
+
+    // hotspots is null when the floor has no stored list for the angle
+    private record AngleOverlay(List<Hotspot> hotspots, List<HotspotOverlayEntry> entries) {
+    }
+
+    public HotspotOverlayService(FloorRepository floorRepository, FloorAngleRepository angleRepository,
+                                 ApartmentRepository apartmentRepository) {
+        this.floorRepository = floorRepository;
+        this.angleRepository = angleRepository;
+        this.apartmentRepository = apartmentRepository;
+
+        floorRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Floor floor) {
+                HotspotCodec.unpack(floor);
+                putAngle(id, HotspotIndexService.TOP_VIEW, floor.getTopViewHotspots());
+                if (floor.getAngleHotspots() != null) {
+                    floor.getAngleHotspots().forEach((angle, hotspots) -> putAngle(id, angle, hotspots));
+                }
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                removeFloor(id);
+            }
+        });
+        angleRepository.addListener(new FloorAngleRepository.AngleListener() {
+            @Override
+            public void onAngleSaved(String floorId, String angle, List<Hotspot> hotspots) {
+                putAngle(floorId, angle, hotspots);
+            }
+
+            @Override
+            public void onAngleDeleted(String floorId, String angle) {
+                putAngle(floorId, angle, null);
+            }
+        });
+        apartmentRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onSaved(String id, Apartment apartment) {
+                apartments.put(id, apartment);
+                refreshApartment(id);
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                apartments.remove(id);
+                refreshApartment(id);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadApartments() {
+        try {
+            apartmentRepository.findAll().stream()
+                .filter(a -> a.getId() != null)
+                .forEach(a -> apartments.put(a.getId(), a));
+            logger.info("Hotspot overlay service loaded {} apartments", apartments.size());
+        } catch (Exception e) {
+            logger.error("Error loading apartments for hotspot overlays: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Overlay for one angle image. Falls back to the top-view hotspots for image 0 when the
+     * floor has no angle-specific hotspots for it, matching how the viewer resolves them.
+     */
+    public List<HotspotOverlayEntry> getOverlay(String floorId, String angle) {
+        AngleOverlay overlay = angle(floorId, angle);
+        if (overlay == null) {
+            return null;
+        }
+        if (overlay.hotspots() == null && "0".equals(angle)) {
+            overlay = angle(floorId, HotspotIndexService.TOP_VIEW);
+        }
+        return overlay != null ? overlay.entries() : List.of();
+    }
+
+    private AngleOverlay angle(String floorId, String angle) {
+        Map<String, AngleOverlay> floorOverlays = overlays.get(floorId);
+        AngleOverlay overlay = floorOverlays != null ? floorOverlays.get(angle) : null;
+        if (overlay != null) {
+            return overlay;
+        }
+
+        List<Hotspot> hotspots;
+        if (HotspotIndexService.TOP_VIEW.equals(angle)) {
+            Floor floor = HotspotCodec.unpack(floorRepository.findById(floorId));
+            if (floor == null) {
+                return null;
+            }
+            hotspots = floor.getTopViewHotspots();
+        } else {
+            hotspots = angleRepository.findAngle(floorId, angle);
+            if (hotspots == null && floorRepository.findById(floorId) == null) {
+                return null;
+            }
+        }
+        return loadAngle(floorId, angle, hotspots);
+    }
+
+    // A write that landed while the angle was being read wins over the loaded copy
+    private synchronized AngleOverlay loadAngle(String floorId, String angle, List<Hotspot> hotspots) {
+        Map<String, AngleOverlay> floorOverlays = overlays.get(floorId);
+        AngleOverlay existing = floorOverlays != null ? floorOverlays.get(angle) : null;
+        return existing != null ? existing : putAngle(floorId, angle, hotspots);
+    }
+
+    private synchronized AngleOverlay putAngle(String floorId, String angle, List<Hotspot> hotspots) {
+        List<Hotspot> geometry = hotspots != null ? List.copyOf(hotspots) : null;
+        AngleOverlay overlay = new AngleOverlay(geometry, geometry != null ? join(geometry) : List.of());
+        AngleOverlay previous = overlays.computeIfAbsent(floorId, k -> new ConcurrentHashMap<>()).put(angle, overlay);
+
+        if (geometry != null) {
+            for (Hotspot hotspot : geometry) {
+                if (hotspot.getApartmentId() != null) {
+                    floorsByApartment.computeIfAbsent(hotspot.getApartmentId(), k -> ConcurrentHashMap.newKeySet()).add(floorId);
+                }
+            }
+        }
+        if (previous != null && previous.hotspots() != null) {
+            previous.hotspots().forEach(hotspot -> unlinkIfUnused(floorId, hotspot.getApartmentId()));
+        }
+        return overlay;
+    }
+
+    private synchronized void refreshApartment(String apartmentId) {
+        Set<String> floorIds = floorsByApartment.get(apartmentId);
+        if (floorIds == null) {
+            return;
+        }
+        for (String floorId : floorIds) {
+            Map<String, AngleOverlay> floorOverlays = overlays.get(floorId);
+            if (floorOverlays == null) {
+                continue;
+            }
+            floorOverlays.replaceAll((angle, overlay) -> overlay.hotspots() != null
+                    && overlay.hotspots().stream().anyMatch(h -> apartmentId.equals(h.getApartmentId()))
+                ? new AngleOverlay(overlay.hotspots(), join(overlay.hotspots()))
+                : overlay);
+        }
+    }
+
+    private synchronized void removeFloor(String floorId) {
+        Map<String, AngleOverlay> previous = overlays.remove(floorId);
+        if (previous == null) {
+            return;
+        }
+        previous.values().stream()
+            .filter(overlay -> overlay.hotspots() != null)
+            .flatMap(overlay -> overlay.hotspots().stream())
+            .forEach(hotspot -> unlinkIfUnused(floorId, hotspot.getApartmentId()));
+    }
+
+    // Drops the floor from the apartment's reverse entry once no loaded angle references it
+    private void unlinkIfUnused(String floorId, String apartmentId) {
+        Set<String> floorIds = apartmentId != null ? floorsByApartment.get(apartmentId) : null;
+        if (floorIds == null) {
+            return;
+        }
+        Map<String, AngleOverlay> floorOverlays = overlays.get(floorId);
+        boolean referenced = floorOverlays != null && floorOverlays.values().stream()
+            .anyMatch(overlay -> overlay.hotspots() != null
+                && overlay.hotspots().stream().anyMatch(h -> apartmentId.equals(h.getApartmentId())));
+        if (!referenced) {
+            floorIds.remove(floorId);
+            if (floorIds.isEmpty()) {
+                floorsByApartment.remove(apartmentId);
+            }
+        }
+    }
+
+    private List<HotspotOverlayEntry> join(List<Hotspot> hotspots) {
+        List<HotspotOverlayEntry> entries = new ArrayList<>(hotspots.size());
+        for (Hotspot hotspot : hotspots) {
+            Apartment apartment = hotspot.getApartmentId() != null ? apartments.get(hotspot.getApartmentId()) : null;
+            entries.add(new HotspotOverlayEntry(
+                hotspot.getApartmentId(),
+                hotspot.getX(),
+                hotspot.getY(),
+                hotspot.getWidth(),
+                hotspot.getHeight(),
+                apartment != null ? apartment.getLotNumber() : null,
+                apartment != null ? apartment.getStatus() : null,
+                apartment != null ? apartment.getPrice() : null));
+        }
+        return List.copyOf(entries);
+    }
+}
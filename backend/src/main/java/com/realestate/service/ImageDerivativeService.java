@@ -0,0 +1,402 @@
+package com.realestate.service;
+
+import com.realestate.storage.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Generates downscaled variants (thumb, medium, large) of uploaded images on a bounded worker
+ * pool. Variants are stored content-addressed under derived/{sha256}/{variant}.{ext}, so they
+ * survive renames and identical uploads share them. Every variant is written as JPEG (PNG for
+ * images with alpha). WebP variants are off by default: the build ships no ImageIO WebP writer,
+ * so they are only written when images.derivatives.webp is set and a writer plugin is installed.
+ * Decode, resize and encode CPU time is tracked per source megapixel.
+ */
+@Service
+public class ImageDerivativeService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+    public static final String DERIVED_PREFIX = "derived/";
+    // Content-addressed blobs never change under a name
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Which variant and format a client wants; an empty hint selects the original
+    public record Hint(boolean webp, Integer width) {
+        public static final Hint NONE = new Hint(false, null);
+
+        /**
+         * From an Accept header (or explicit format parameter) and a width in device pixels,
+         * taken from the width parameter or the Sec-CH-Width/Width client hint.
+         */
+        public static Hint of(String accept, String format, Integer width, String widthHint) {
+            boolean webp = "webp".equalsIgnoreCase(format) || (accept != null && accept.contains("image/webp"));
+            Integer targetWidth = width;
+            if (targetWidth == null && widthHint != null) {
+                try {
+                    targetWidth = (int) Math.ceil(Double.parseDouble(widthHint.trim()));
+                } catch (NumberFormatException e) {
+                    targetWidth = null;
+                }
+            }
+            return new Hint(webp, targetWidth != null && targetWidth > 0 ? targetWidth : null);
+        }
+    }
+
+    private final BlobStore blobStore;
+    private final float quality;
+    private final boolean webpSupported;
+    // Variant name -> maximum width, smallest first
+    private final Map<String, Integer> variants = new LinkedHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder sourcePixels = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder resizeNanos = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+
+    public ImageDerivativeService(BlobStore blobStore,
+                                  @Value("${images.derivatives.thumb-width:320}") int thumbWidth,
+                                  @Value("${images.derivatives.medium-width:1280}") int mediumWidth,
+                                  @Value("${images.derivatives.large-width:2560}") int largeWidth,
+                                  @Value("${images.derivatives.quality:0.82}") float quality,
+                                  @Value("${images.derivatives.workers:2}") int workers,
+                                  @Value("${images.derivatives.queue-size:200}") int queueSize,
+                                  @Value("${images.derivatives.webp:false}") boolean webp) {
+        this.blobStore = blobStore;
+        this.quality = quality;
+        this.webpSupported = webp && ImageIO.getImageWritersByFormatName("webp").hasNext();
+        variants.put("thumb", thumbWidth);
+        variants.put("medium", mediumWidth);
+        variants.put("large", largeWidth);
+
+        this.executor = backgroundPool("image-derivatives", workers, queueSize);
+        if (webp && !webpSupported) {
+            logger.warn("WebP variants enabled but no ImageIO WebP writer installed; generating JPEG/PNG only");
+        }
+    }
+
+    /**
+     * Queues variant generation for an uploaded image. onComplete receives the generated
+     * variant file names (e.g. "medium.webp") from the worker thread. A full queue drops the
+     * job; clients keep getting the original until the image is uploaded again.
+     */
+    public void submit(String blobName, String sha256, Consumer<List<String>> onComplete) {
+        if (sha256 == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    List<String> generated = generate(blobName, sha256);
+                    if (!generated.isEmpty()) {
+                        onComplete.accept(generated);
+                    }
+                } catch (Exception e) {
+                    failures.increment();
+                    logger.warn("Could not generate variants of {}: {}", blobName, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Derivative queue full, skipping variants of {}", blobName);
+        }
+    }
+
+    /**
+     * Blob name of the variant that best fits the hint: the smallest one at least as wide as the
+     * requested width, in WebP when accepted. Null means the original should be served, either
+     * because there is no hint or because no variant is wide enough.
+     */
+    public String select(String sha256, List<String> available, Hint hint) {
+        if (sha256 == null || available == null || available.isEmpty() || hint == null
+                || (hint.width() == null && !hint.webp())) {
+            return null;
+        }
+        String chosen = null;
+        for (Map.Entry<String, Integer> variant : variants.entrySet()) {
+            String file = pick(variant.getKey(), available, hint.webp());
+            if (file == null) {
+                continue;
+            }
+            chosen = file;
+            if (hint.width() != null && variant.getValue() >= hint.width()) {
+                break;
+            }
+        }
+        // Without a width hint the largest variant wins, only for the smaller format
+        if (chosen == null || (hint.width() != null && variants.get(variantName(chosen)) < hint.width())
+                || (hint.width() == null && !chosen.endsWith(".webp"))) {
+            return null;
+        }
+        return blobName(sha256, chosen);
+    }
+
+    public static String blobName(String sha256, String variantFile) {
+        return DERIVED_PREFIX + sha256 + "/" + variantFile;
+    }
+
+    public Map<String, Object> getStats() {
+        double megapixels = sourcePixels.sum() / 1_000_000.0;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("jobs", jobs.sum());
+        stats.put("failures", failures.sum());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("megapixels", megapixels);
+        stats.put("webpSupported", webpSupported);
+        stats.put("decodeCpuMsPerMegapixel", perMegapixel(decodeNanos, megapixels));
+        stats.put("resizeCpuMsPerMegapixel", perMegapixel(resizeNanos, megapixels));
+        stats.put("encodeCpuMsPerMegapixel", perMegapixel(encodeNanos, megapixels));
+        stats.put("totalCpuMsPerMegapixel",
+            megapixels > 0 ? (decodeNanos.sum() + resizeNanos.sum() + encodeNanos.sum()) / 1_000_000.0 / megapixels : 0);
+        return stats;
+    }
+
+    private List<String> generate(String blobName, String sha256) throws IOException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long started = cpuTime(threadBean);
+        int largest = variants.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+        BufferedImage source;
+        int sourceWidth;
+        int sourceHeight;
+        int orientation;
+        try (BufferedInputStream in = new BufferedInputStream(blobStore.open(blobName), ImageDimensions.PROBE_BYTES)) {
+            // The EXIF segment sits in the leading bytes; the decoder then reads from the start again
+            in.mark(ImageDimensions.PROBE_BYTES);
+            byte[] head = in.readNBytes(ImageDimensions.PROBE_BYTES);
+            orientation = ImageDimensions.orientation(head, head.length);
+            in.reset();
+            try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+                if (!readers.hasNext()) {
+                    throw new IOException("No image reader for " + blobName);
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(iis, true, true);
+                    // Sizes as the image is displayed, which is turned for orientations 5-8
+                    boolean turned = orientation >= 5;
+                    sourceWidth = turned ? reader.getHeight(0) : reader.getWidth(0);
+                    sourceHeight = turned ? reader.getWidth(0) : reader.getHeight(0);
+                    // Decode at no less than twice the largest variant; subsampling keeps huge sources cheap
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    int subsampling = Math.max(1, sourceWidth / (2 * largest));
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    source = reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+        // Variants drop all metadata, so the EXIF orientation is applied to the pixels
+        source = orient(source, orientation);
+        long decoded = cpuTime(threadBean);
+
+        boolean alpha = source.getColorModel().hasAlpha();
+        String baseFormat = alpha ? "png" : "jpg";
+        List<String> generated = new ArrayList<>();
+        long resizeTime = 0;
+        long encodeTime = 0;
+        // Largest first, each one scaled down from the previous
+        BufferedImage current = source;
+        List<Map.Entry<String, Integer>> descending = new ArrayList<>(variants.entrySet());
+        Collections.reverse(descending);
+        for (Map.Entry<String, Integer> variant : descending) {
+            if (sourceWidth <= variant.getValue()) {
+                continue; // never upscale; the original already fits
+            }
+            long resizeStart = cpuTime(threadBean);
+            current = scale(current, variant.getValue(), alpha);
+            long encodeStart = cpuTime(threadBean);
+            resizeTime += encodeStart - resizeStart;
+
+            write(sha256, variant.getKey(), baseFormat, encode(current, baseFormat, quality), generated);
+            if (webpSupported) {
+                write(sha256, variant.getKey(), "webp", encode(current, "webp", quality), generated);
+            }
+            encodeTime += cpuTime(threadBean) - encodeStart;
+        }
+
+        jobs.increment();
+        sourcePixels.add((long) sourceWidth * sourceHeight);
+        decodeNanos.add(decoded - started);
+        resizeNanos.add(resizeTime);
+        encodeNanos.add(encodeTime);
+        logger.debug("Generated {} variants of {} ({}x{}) in {} ms CPU", generated.size(), blobName,
+            sourceWidth, sourceHeight, (cpuTime(threadBean) - started) / 1_000_000);
+        return generated;
+    }
+
+    private void write(String sha256, String variant, String format, byte[] bytes, List<String> generated) throws IOException {
+        String file = variant + "." + format;
+        blobStore.put(blobName(sha256, file), bytes, contentType(format), CACHE_CONTROL);
+        generated.add(file);
+    }
+
+    // Turns and mirrors the decoded image upright, as browsers show the original
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        boolean turned = orientation >= 5;
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            default -> new AffineTransform(0, -1, 1, 0, 0, w);
+        };
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage result = new BufferedImage(turned ? h : w, turned ? w : h, type);
+        Graphics2D g = result.createGraphics();
+        g.drawImage(image, transform, null);
+        g.dispose();
+        return result;
+    }
+
+    // Halves repeatedly before the final step, which keeps bilinear filtering from aliasing
+    static BufferedImage scale(BufferedImage source, int width, boolean alpha) {
+        if (source.getWidth() <= width) {
+            return source;
+        }
+        int height = Math.max(1, (int) Math.round(source.getHeight() * (double) width / source.getWidth()));
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = w == width ? height : Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != width);
+        return current;
+    }
+
+    // Lossy formats are written at the given quality; PNG ignores it
+    static byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!"png".equals(format) && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0) {
+                    param.setCompressionType(types[0]); // JPEG's only type, WebP's lossy mode
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Bounded pool of low-priority daemon workers; a full queue rejects new work
+    static ThreadPoolExecutor backgroundPool(String name, int workers, int queueSize) {
+        return new ThreadPoolExecutor(Math.max(1, workers), Math.max(1, workers), 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)), daemonThreads(name, Thread.MIN_PRIORITY));
+    }
+
+    static ThreadFactory daemonThreads(String name, int priority) {
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+
+    private static String pick(String variant, List<String> available, boolean webp) {
+        String fallback = null;
+        for (String file : available) {
+            if (!variant.equals(variantName(file))) {
+                continue;
+            }
+            if (file.endsWith(".webp")) {
+                if (webp) {
+                    return file;
+                }
+            } else {
+                fallback = file;
+            }
+        }
+        return fallback;
+    }
+
+    private static String variantName(String file) {
+        int dot = file.lastIndexOf('.');
+        return dot > 0 ? file.substring(0, dot) : file;
+    }
+
+    private static String contentType(String format) {
+        return switch (format.toLowerCase(Locale.ROOT)) {
+            case "webp" -> "image/webp";
+            case "png" -> "image/png";
+            default -> "image/jpeg";
+        };
+    }
+
+    private static long cpuTime(ThreadMXBean threadBean) {
+        long cpu = threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+        return cpu >= 0 ? cpu : System.nanoTime();
+    }
+
+    private static double perMegapixel(LongAdder nanos, double megapixels) {
+        return megapixels > 0 ? nanos.sum() / 1_000_000.0 / megapixels : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,170 @@
+package com.realestate.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads pixel dimensions from the leading bytes of an image without decoding it. Covers the
+ * formats StreamingUploadService accepts; returns null when the header is not within the
+ * given bytes or the format is not recognized. Also reads the EXIF orientation of JPEGs,
+ * which ImageIO ignores.
+ */
+final class ImageDimensions {
+    // Enough for the JPEG frame header behind typical EXIF/ICC segments
+    static final int PROBE_BYTES = 65536;
+
+    private ImageDimensions() {
+    }
+
+    // {width, height} or null
+    static int[] read(byte[] data, int length) {
+        String type = StreamingUploadService.detect(data, length);
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            case "image/png" -> length >= 24 ? dims(bigEndianInt(data, 16), bigEndianInt(data, 20)) : null;
+            case "image/gif" -> length >= 10 ? dims(littleEndianShort(data, 6), littleEndianShort(data, 8)) : null;
+            case "image/bmp" -> length >= 26 ? dims(littleEndianInt(data, 18), Math.abs(littleEndianInt(data, 22))) : null;
+            case "image/webp" -> webp(data, length);
+            case "image/jpeg" -> jpeg(data, length);
+            default -> null;
+        };
+    }
+
+    private static int[] jpeg(byte[] data, int length) {
+        int pos = 2;
+        while (pos + 4 <= length) {
+            if ((data[pos] & 0xFF) != 0xFF) {
+                return null;
+            }
+            int marker = data[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++; // fill byte
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                pos += 2; // standalone marker without a length
+                continue;
+            }
+            int segmentLength = bigEndianShort(data, pos + 2);
+            // SOF0-SOF15 except DHT (C4), JPG (C8) and DAC (CC)
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                return pos + 9 <= length ? dims(bigEndianShort(data, pos + 7), bigEndianShort(data, pos + 5)) : null;
+            }
+            if (marker == 0xDA || marker == 0xD9) {
+                return null; // scan data or end of image before any frame header
+            }
+            pos += 2 + segmentLength;
+        }
+        return null;
+    }
+
+    /**
+     * The EXIF Orientation tag (1-8) of a JPEG: 1 is upright, 3 and 6/8 are turned 180 and
+     * 90/270 degrees, 2, 4, 5 and 7 are their mirrored forms. 1 when there is no tag.
+     */
+    static int orientation(byte[] data, int length) {
+        if (!"image/jpeg".equals(StreamingUploadService.detect(data, length))) {
+            return 1;
+        }
+        int pos = 2;
+        while (pos + 4 <= length) {
+            if ((data[pos] & 0xFF) != 0xFF) {
+                return 1;
+            }
+            int marker = data[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                pos += 2;
+                continue;
+            }
+            if (marker == 0xDA || marker == 0xD9) {
+                return 1;
+            }
+            int segmentLength = bigEndianShort(data, pos + 2);
+            int start = pos + 4;
+            int end = Math.min(length, pos + 2 + segmentLength);
+            if (marker == 0xE1 && end - start >= 14 && new String(data, start, 6, StandardCharsets.ISO_8859_1).equals("Exif\0\0")) {
+                return exifOrientation(data, start + 6, end);
+            }
+            pos += 2 + segmentLength;
+        }
+        return 1;
+    }
+
+    // Looks the tag up in IFD0 of the TIFF structure at tiff, which must end before end
+    private static int exifOrientation(byte[] data, int tiff, int end) {
+        boolean little = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        if (!little && !(data[tiff] == 'M' && data[tiff + 1] == 'M')) {
+            return 1;
+        }
+        long ifdOffset = (little ? littleEndianInt(data, tiff + 4) : bigEndianInt(data, tiff + 4)) & 0xFFFFFFFFL;
+        long ifd = tiff + ifdOffset;
+        if (ifd + 2 > end) {
+            return 1;
+        }
+        int entries = little ? littleEndianShort(data, (int) ifd) : bigEndianShort(data, (int) ifd);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                return 1;
+            }
+            int tag = little ? littleEndianShort(data, entry) : bigEndianShort(data, entry);
+            if (tag == 0x0112) {
+                int value = little ? littleEndianShort(data, entry + 8) : bigEndianShort(data, entry + 8);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int[] webp(byte[] data, int length) {
+        if (length < 30) {
+            return null;
+        }
+        String chunk = new String(data, 12, 4, StandardCharsets.US_ASCII);
+        switch (chunk) {
+            case "VP8 ":
+                return dims(littleEndianShort(data, 26) & 0x3FFF, littleEndianShort(data, 28) & 0x3FFF);
+            case "VP8L": {
+                int b1 = data[22] & 0xFF;
+                int b2 = data[23] & 0xFF;
+                int b3 = data[24] & 0xFF;
+                int width = 1 + (((b1 & 0x3F) << 8) | (data[21] & 0xFF));
+                int height = 1 + (((b3 & 0x0F) << 10) | (b2 << 2) | ((b1 & 0xC0) >> 6));
+                return dims(width, height);
+            }
+            case "VP8X":
+                return dims(1 + littleEndian24(data, 24), 1 + littleEndian24(data, 27));
+            default:
+                return null;
+        }
+    }
+
+    private static int[] dims(int width, int height) {
+        return width > 0 && height > 0 ? new int[] {width, height} : null;
+    }
+
+    private static int bigEndianInt(byte[] b, int offset) {
+        return (b[offset] & 0xFF) << 24 | (b[offset + 1] & 0xFF) << 16 | (b[offset + 2] & 0xFF) << 8 | (b[offset + 3] & 0xFF);
+    }
+
+    private static int bigEndianShort(byte[] b, int offset) {
+        return (b[offset] & 0xFF) << 8 | (b[offset + 1] & 0xFF);
+    }
+
+    private static int littleEndianInt(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8 | (b[offset + 2] & 0xFF) << 16 | (b[offset + 3] & 0xFF) << 24;
+    }
+
+    private static int littleEndian24(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8 | (b[offset + 2] & 0xFF) << 16;
+    }
+
+    private static int littleEndianShort(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8;
+    }
+}
@@ -1,51 +1,38 @@
 package com.realestate.service;
 
-import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
-import com.google.firebase.cloud.StorageClient;
+import com.realestate.storage.BlobStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class MediaService {
-    private final Storage storage;
-    private static final String BUCKET_NAME = "real-estate-3d-visualization.appspot.com";
+    private final BlobStore blobStore;
+    private final StreamingUploadService uploadService;
 
     public String uploadFile(MultipartFile file, String folder) throws IOException {
         String fileName = generateUniqueFileName(file.getOriginalFilename());
         String filePath = folder + "/" + fileName;
         
-        BlobId blobId = BlobId.of(BUCKET_NAME, filePath);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                .setContentType(file.getContentType())
-                .build();
-        
-        storage.create(blobInfo, file.getBytes());
+        try (InputStream in = file.getInputStream()) {
+            uploadService.upload(in, filePath, file.getOriginalFilename(), file.getContentType(), null, null);
+        }
         
         return getSignedUrl(filePath);
     }
 
     public void deleteFile(String filePath) {
-        BlobId blobId = BlobId.of(BUCKET_NAME, filePath);
-        storage.delete(blobId);
+        blobStore.delete(filePath);
     }
 
+    // Signed locally without checking that the blob exists; use isFileExists for that
     public String getSignedUrl(String filePath) {
-        BlobId blobId = BlobId.of(BUCKET_NAME, filePath);
-        Blob blob = storage.get(blobId);
-        
-        if (blob != null) {
-            return blob.signUrl(7, TimeUnit.DAYS).toString();
-        }
-        return null;
+        return blobStore.sign(filePath);
     }
 
     private String generateUniqueFileName(String originalFileName) {
@@ -54,8 +41,6 @@ public class MediaService {
     }
 
     public boolean isFileExists(String filePath) {
-        BlobId blobId = BlobId.of(BUCKET_NAME, filePath);
-        Blob blob = storage.get(blobId);
-        return blob != null;
+        return blobStore.stat(filePath) != null;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,264 @@
+package com.realestate.service;
+
+import com.google.cloud.Timestamp;
+import com.realestate.dto.UploadResult;
+import com.realestate.model.ModelAsset;
+import com.realestate.repository.ModelAssetRepository;
+import com.realestate.storage.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Processes uploaded GLB models on a bounded worker pool: records their statistics, renders
+ * their preview images ({@link ModelPreviewService}) and, when {@link GlbOptimizer} saves
+ * enough, writes a lighter "mobile" variant next to the original ({name}.mobile.glb).
+ * Everything runs on the CPU in plain Java. Results are kept in the
+ * modelAssets collection, keyed by the original's blob name.
+ */
+@Service
+public class ModelOptimizationService {
+    private static final Logger logger = LoggerFactory.getLogger(ModelOptimizationService.class);
+    private static final String MOBILE_SUFFIX = ".mobile.glb";
+    // Request headers a model redirect depends on, and the client hints it asks browsers for
+    public static final String VARY = "Sec-CH-UA-Mobile, Save-Data, Device-Memory, ECT";
+    public static final String ACCEPT_CH = "Sec-CH-UA-Mobile, Device-Memory, ECT";
+    private static final Set<String> SLOW_CONNECTIONS = Set.of("slow-2g", "2g", "3g");
+
+    // Which variant a client wants, from an explicit parameter or its client hints
+    public record Hint(boolean mobile) {
+        public static final Hint NONE = new Hint(false);
+
+        /**
+         * variant=mobile|original wins; otherwise a mobile user agent (Sec-CH-UA-Mobile), Save-Data,
+         * less than 4 GB of Device-Memory or a 3G-or-slower ECT selects the mobile variant.
+         */
+        public static Hint of(String variant, String uaMobile, String saveData, String deviceMemory, String ect) {
+            if (variant != null) {
+                return new Hint("mobile".equalsIgnoreCase(variant));
+            }
+            boolean mobile = "?1".equals(uaMobile) || "on".equalsIgnoreCase(saveData)
+                || (ect != null && SLOW_CONNECTIONS.contains(ect.trim().toLowerCase(Locale.ROOT)));
+            if (!mobile && deviceMemory != null) {
+                try {
+                    mobile = Double.parseDouble(deviceMemory.trim()) < 4;
+                } catch (NumberFormatException e) {
+                    // Ignore malformed hints
+                }
+            }
+            return new Hint(mobile);
+        }
+    }
+
+    private final BlobStore blobStore;
+    private final ModelPreviewService previewService;
+    private final AssetCacheService assetCacheService;
+    private final ModelAssetRepository repository;
+    private final GlbOptimizer optimizer;
+    private final double minSavings;
+    private final long maxInputBytes;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    public ModelOptimizationService(BlobStore blobStore,
+                                    ModelPreviewService previewService,
+                                    AssetCacheService assetCacheService,
+                                    ModelAssetRepository repository,
+                                    @Value("${models.optimization.texture-max-size:1024}") int textureMaxSize,
+                                    @Value("${models.optimization.quality:0.85}") float quality,
+                                    @Value("${models.optimization.quantize:true}") boolean quantize,
+                                    @Value("${models.optimization.min-savings:0.1}") double minSavings,
+                                    @Value("${models.optimization.max-input-bytes:268435456}") long maxInputBytes,
+                                    @Value("${models.optimization.workers:1}") int workers,
+                                    @Value("${models.optimization.queue-size:20}") int queueSize) {
+        this.blobStore = blobStore;
+        this.previewService = previewService;
+        this.assetCacheService = assetCacheService;
+        this.repository = repository;
+        this.optimizer = new GlbOptimizer(textureMaxSize, quality, quantize);
+        this.minSavings = minSavings;
+        this.maxInputBytes = maxInputBytes;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, workers), Math.max(1, workers), 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                Thread thread = new Thread(runnable, "model-optimizer-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+    }
+
+    /**
+     * Queues processing of an uploaded model; anything but a GLB is ignored. A full queue drops
+     * the job, so the model is only ever served in its original form.
+     */
+    public void submit(UploadResult result) {
+        if (!StreamingUploadService.GLB_CONTENT_TYPE.equals(result.getContentType())) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(result);
+                } catch (Exception e) {
+                    failures.increment();
+                    logger.warn("Could not optimize model {}: {}", result.getBlobName(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Model optimization queue full, skipping {}", result.getBlobName());
+        }
+    }
+
+    // Processing result of the model at this URL, or null when it has none (yet)
+    public ModelAsset getAsset(String modelUrl) {
+        String blobName = blobName(modelUrl);
+        return blobName != null ? repository.find(blobName) : null;
+    }
+
+    // URL to serve for a model: a signed URL of its mobile variant when hinted and available, else modelUrl
+    public String select(String modelUrl, Hint hint) {
+        if (modelUrl == null || hint == null || !hint.mobile()) {
+            return modelUrl;
+        }
+        ModelAsset asset = getAsset(modelUrl);
+        if (asset == null || asset.getMobileBlobName() == null) {
+            return modelUrl;
+        }
+        return blobStore.sign(asset.getMobileBlobName());
+    }
+
+    // Signed URL of the model's preview image best fitting the hint, or null until one is rendered
+    public String previewUrl(String modelUrl, ImageDerivativeService.Hint hint) {
+        ModelAsset asset = getAsset(modelUrl);
+        String blobName = asset != null ? previewService.select(asset.getSha256(), asset.getPreviews(), hint) : null;
+        return blobName != null ? blobStore.sign(blobName) : null;
+    }
+
+    // Removes what processing the model produced; the original itself is left to the caller and
+    // previews stay, as other models with the same content hash share them
+    public void deleteVariants(String modelUrl) {
+        String blobName = blobName(modelUrl);
+        if (blobName == null) {
+            return;
+        }
+        try {
+            ModelAsset asset = repository.find(blobName);
+            if (asset == null) {
+                return;
+            }
+            if (asset.getMobileBlobName() != null) {
+                assetCacheService.remove(asset.getMobileBlobName());
+                blobStore.delete(asset.getMobileBlobName());
+            }
+            repository.delete(blobName);
+        } catch (Exception e) {
+            logger.warn("Could not delete variants of model {}: {}", blobName, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("jobs", jobs.sum());
+        stats.put("failures", failures.sum());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("bytesIn", bytesIn.sum());
+        stats.put("bytesOut", bytesOut.sum());
+        return stats;
+    }
+
+    private void process(UploadResult result) throws IOException {
+        // Content uploaded again shares the stored blob, and with it the earlier result
+        if (result.isDeduplicated() && repository.find(result.getBlobName()) != null) {
+            return;
+        }
+        long started = System.nanoTime();
+        ModelAsset asset = new ModelAsset();
+        asset.setBlobName(result.getBlobName());
+        asset.setSha256(result.getSha256());
+        asset.setProcessedAt(Timestamp.now());
+        if (result.getSize() > maxInputBytes) {
+            asset.setSkippedReason("larger than " + maxInputBytes + " bytes");
+            repository.save(asset);
+            return;
+        }
+
+        byte[] original = blobStore.read(result.getBlobName());
+        if (original == null) {
+            throw new IOException("Model blob is gone: " + result.getBlobName());
+        }
+        GlbFile glb = GlbFile.parse(original);
+        asset.setStats(GlbOptimizer.stats(glb, original.length));
+        try {
+            asset.setPreviews(previewService.render(result.getSha256(), glb));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not render previews of model {}: {}", result.getBlobName(), e.getMessage());
+        }
+        String reason = GlbOptimizer.unsupportedReason(glb);
+        if (reason != null) {
+            asset.setSkippedReason(reason);
+            repository.save(asset);
+            return;
+        }
+
+        byte[] optimized = optimizer.optimize(glb).write();
+        jobs.increment();
+        bytesIn.add(original.length);
+        if (optimized.length > original.length * (1 - minSavings)) {
+            asset.setSkippedReason("saved less than " + Math.round(minSavings * 100) + "%");
+            bytesOut.add(original.length);
+            repository.save(asset);
+            return;
+        }
+
+        String mobileBlobName = mobileBlobName(result.getBlobName());
+        blobStore.put(mobileBlobName, optimized, StreamingUploadService.GLB_CONTENT_TYPE, null);
+        bytesOut.add(optimized.length);
+        asset.setMobileBlobName(mobileBlobName);
+        asset.setMobileStats(GlbOptimizer.stats(GlbFile.parse(optimized), optimized.length));
+        repository.save(asset);
+        assetCacheService.prefetch(mobileBlobName);
+        logger.info("Optimized model {}: {} -> {} bytes in {} ms", result.getBlobName(), original.length,
+            optimized.length, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Blob name behind a model URL as produced by FirebaseService.publicUrl, or null for other URLs
+    private String blobName(String modelUrl) {
+        return blobStore.blobNameOf(modelUrl);
+    }
+
+    static boolean isMobileBlobName(String blobName) {
+        return blobName.endsWith(MOBILE_SUFFIX);
+    }
+
+    static String mobileBlobName(String blobName) {
+        String base = blobName.toLowerCase(Locale.ROOT).endsWith(".glb")
+            ? blobName.substring(0, blobName.length() - 4)
+            : blobName;
+        return base + MOBILE_SUFFIX;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
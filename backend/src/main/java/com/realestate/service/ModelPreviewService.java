@@ -0,0 +1,130 @@
+package com.realestate.service;
+
+import com.realestate.storage.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Preview images of 3D models for listing cards, rendered on the CPU by {@link GlbRasterizer}
+ * at a few widths. They are stored with the image variants under derived/{sha256}/preview-{width}
+ * as PNG (plus WebP when image variants are written as WebP too), so a model uploaded again, or for
+ * another floor or apartment, reuses the existing previews. Rendering runs on the model
+ * processing workers of {@link ModelOptimizationService}.
+ */
+@Service
+public class ModelPreviewService {
+    private static final Logger logger = LoggerFactory.getLogger(ModelPreviewService.class);
+    private static final String PREFIX = "preview-";
+
+    private final BlobStore blobStore;
+    private final int[] widths;
+    private final double aspectRatio;
+    private final int supersampling;
+    private final float quality;
+    private final boolean webpSupported;
+
+    public ModelPreviewService(BlobStore blobStore,
+                               @Value("${models.previews.widths:320,640,1280}") int[] widths,
+                               @Value("${models.previews.aspect-ratio:0.75}") double aspectRatio,
+                               @Value("${models.previews.supersampling:2}") int supersampling,
+                               @Value("${images.derivatives.quality:0.82}") float quality,
+                               @Value("${images.derivatives.webp:false}") boolean webp) {
+        this.blobStore = blobStore;
+        this.widths = Arrays.stream(widths).filter(w -> w > 0).sorted().toArray();
+        this.aspectRatio = aspectRatio;
+        this.supersampling = Math.max(1, supersampling);
+        this.quality = quality;
+        this.webpSupported = webp && ImageIO.getImageWritersByFormatName("webp").hasNext();
+    }
+
+    /**
+     * Renders and stores the previews of a model, returning their file names (e.g.
+     * "preview-640.png"); an empty list when the scene has nothing to draw. Previews already
+     * stored for this content hash are reused without rendering.
+     */
+    List<String> render(String sha256, GlbFile glb) throws IOException {
+        if (sha256 == null || widths.length == 0) {
+            return List.of();
+        }
+        List<String> files = new ArrayList<>();
+        for (int width : widths) {
+            files.add(PREFIX + width + ".png");
+            if (webpSupported) {
+                files.add(PREFIX + width + ".webp");
+            }
+        }
+        // The narrowest preview is written last, so it only exists once all of them do
+        String last = PREFIX + widths[0] + (webpSupported ? ".webp" : ".png");
+        if (blobStore.stat(ImageDerivativeService.blobName(sha256, last)) != null) {
+            return files;
+        }
+
+        long started = System.nanoTime();
+        int largest = widths[widths.length - 1];
+        BufferedImage current = GlbRasterizer.render(glb, largest * supersampling,
+            Math.max(1, (int) Math.round(largest * aspectRatio)) * supersampling);
+        if (current == null) {
+            return List.of();
+        }
+        // Largest first, each one scaled down from the previous
+        for (int i = widths.length - 1; i >= 0; i--) {
+            current = ImageDerivativeService.scale(current, widths[i], true);
+            write(sha256, widths[i], "png", current);
+            if (webpSupported) {
+                write(sha256, widths[i], "webp", current);
+            }
+        }
+        logger.debug("Rendered previews of model {} in {} ms", sha256, (System.nanoTime() - started) / 1_000_000);
+        return files;
+    }
+
+    /**
+     * Blob name of the stored preview best fitting the hint: the narrowest at least as wide as
+     * the requested width (the widest without one), in WebP when accepted. Null when there is none.
+     */
+    public String select(String sha256, List<String> previews, ImageDerivativeService.Hint hint) {
+        if (sha256 == null || previews == null || previews.isEmpty()) {
+            return null;
+        }
+        Integer wanted = hint != null ? hint.width() : null;
+        int[] available = previews.stream().mapToInt(ModelPreviewService::width).filter(w -> w > 0).distinct().sorted().toArray();
+        if (available.length == 0) {
+            return null;
+        }
+        int width = available[available.length - 1];
+        for (int candidate : available) {
+            if (wanted != null && candidate >= wanted) {
+                width = candidate;
+                break;
+            }
+        }
+        String chosen = PREFIX + width + ".png";
+        if (hint != null && hint.webp() && previews.contains(PREFIX + width + ".webp")) {
+            chosen = PREFIX + width + ".webp";
+        }
+        return ImageDerivativeService.blobName(sha256, chosen);
+    }
+
+    private void write(String sha256, int width, String format, BufferedImage image) throws IOException {
+        blobStore.put(ImageDerivativeService.blobName(sha256, PREFIX + width + "." + format),
+            ImageDerivativeService.encode(image, format, quality), "image/" + format, ImageDerivativeService.CACHE_CONTROL);
+    }
+
+    private static int width(String file) {
+        int dot = file.lastIndexOf('.');
+        try {
+            return Integer.parseInt(file.substring(PREFIX.length(), dot));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
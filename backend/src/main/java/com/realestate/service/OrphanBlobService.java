@@ -0,0 +1,319 @@
+package com.realestate.service;
+
+import com.google.cloud.Timestamp;
+import com.realestate.dto.OrphanBlobReport;
+import com.realestate.model.Apartment;
+import com.realestate.model.Floor;
+import com.realestate.model.FloorImageEntry;
+import com.realestate.model.ModelAsset;
+import com.realestate.model.Picture;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.ContentBlobRepository;
+import com.realestate.repository.FirebaseRepository;
+import com.realestate.repository.FloorImageManifestRepository;
+import com.realestate.repository.FloorRepository;
+import com.realestate.repository.ModelAssetRepository;
+import com.realestate.storage.BlobStore;
+import com.realestate.storage.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mark-and-sweep collector for blobs nothing refers to any more: uploads whose records went
+ * before deletes released them, files of deleted floors, derived images and tiles of content
+ * that is gone, and leftovers of interrupted uploads and moves. Marking reads every floor,
+ * apartment and picture; sweeping streams the bucket listing and deletes in batches. Only the
+ * prefixes this backend writes are swept (the frontend's own uploads are left alone), and only
+ * blobs older than the grace period, so an upload whose record is not saved yet survives.
+ * Scheduled runs only report until blobs.gc.dry-run is turned off.
+ */
+@Service
+public class OrphanBlobService {
+    private static final Logger logger = LoggerFactory.getLogger(OrphanBlobService.class);
+    private static final String FLOORS_PREFIX = "floors/";
+    private static final String ATLAS_PREFIX = "atlases/";
+    private static final String TILES_PREFIX = "tiles/";
+    private static final String MOVING_PREFIX = "_moving/";
+    // Where MediaService puts uploads
+    private static final List<String> MEDIA_PREFIXES = List.of("models/", "images/");
+    private static final String ROOT = "(root)";
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private final BlobStore blobStore;
+    private final FloorRepository floorRepository;
+    private final ApartmentRepository apartmentRepository;
+    private final FirebaseRepository<Picture> pictureRepository;
+    private final FloorImageManifestRepository manifestRepository;
+    private final ModelAssetRepository modelAssetRepository;
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentStoreService contentStoreService;
+    private final AssetCacheService assetCacheService;
+    private final String stagingPrefix;
+    private final boolean enabled;
+    private final boolean scheduledDryRun;
+    private final long graceMillis;
+    private final int sampleLimit;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile OrphanBlobReport lastReport;
+
+    /**
+     * What the records refer to: blob names, content hashes whose derived images and tiles are
+     * in use, and existing floors. Hashes are only complete when every floor with images has a
+     * manifest, as floor images are only known by hash through it.
+     */
+    private record Marks(Set<String> blobNames, Set<String> sha256s, Set<String> floorIds, boolean sha256sComplete) {
+    }
+
+    public OrphanBlobService(BlobStore blobStore,
+                             FloorRepository floorRepository,
+                             ApartmentRepository apartmentRepository,
+                             FirebaseRepository<Picture> pictureRepository,
+                             FloorImageManifestRepository manifestRepository,
+                             ModelAssetRepository modelAssetRepository,
+                             ContentBlobRepository contentBlobRepository,
+                             ContentStoreService contentStoreService,
+                             AssetCacheService assetCacheService,
+                             @Value("${content.staging-prefix:staging}") String stagingPrefix,
+                             @Value("${blobs.gc.enabled:true}") boolean enabled,
+                             @Value("${blobs.gc.dry-run:true}") boolean scheduledDryRun,
+                             @Value("${blobs.gc.grace-hours:24}") long graceHours,
+                             @Value("${blobs.gc.sample-limit:200}") int sampleLimit) {
+        this.blobStore = blobStore;
+        this.floorRepository = floorRepository;
+        this.apartmentRepository = apartmentRepository;
+        this.pictureRepository = pictureRepository;
+        this.manifestRepository = manifestRepository;
+        this.modelAssetRepository = modelAssetRepository;
+        this.contentBlobRepository = contentBlobRepository;
+        this.contentStoreService = contentStoreService;
+        this.assetCacheService = assetCacheService;
+        this.stagingPrefix = stagingPrefix + "/";
+        this.enabled = enabled;
+        this.scheduledDryRun = scheduledDryRun;
+        this.graceMillis = TimeUnit.HOURS.toMillis(graceHours);
+        this.sampleLimit = sampleLimit;
+    }
+
+    @Scheduled(cron = "${blobs.gc.cron:0 15 4 * * *}")
+    public void collectScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            collect(scheduledDryRun);
+        } catch (Exception e) {
+            logger.error("Error collecting orphan blobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Finds (and unless dryRun, deletes) the orphans and returns the report. Throws
+     * IllegalStateException while another run is in progress.
+     */
+    public OrphanBlobReport collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Orphan blob collection is already running");
+        }
+        try {
+            long started = System.nanoTime();
+            OrphanBlobReport report = new OrphanBlobReport();
+            report.setDryRun(dryRun);
+            report.setStartedAt(Timestamp.now());
+            // Taken before marking, so a blob created while the records are read is never old enough
+            long cutoff = System.currentTimeMillis() - graceMillis;
+            Marks marks = mark(report);
+            report.setReferenced(marks.blobNames().size());
+
+            List<String> batch = new ArrayList<>();
+            blobStore.scan("", blob -> {
+                report.setScanned(report.getScanned() + 1);
+                String prefix = orphanPrefix(blob.name(), marks);
+                if (prefix == null) {
+                    return;
+                }
+                // An unknown creation time counts as young
+                if (blob.createTime() <= 0 || blob.createTime() > cutoff) {
+                    report.setYoung(report.getYoung() + 1);
+                    return;
+                }
+                count(report, prefix, blob);
+                if (!dryRun) {
+                    batch.add(blob.name());
+                    if (batch.size() >= DELETE_BATCH_SIZE) {
+                        report.setDeleted(report.getDeleted() + sweep(batch, cutoff));
+                        batch.clear();
+                    }
+                }
+            });
+            if (!batch.isEmpty()) {
+                report.setDeleted(report.getDeleted() + sweep(batch, cutoff));
+            }
+
+            report.setDurationMs((System.nanoTime() - started) / 1_000_000);
+            lastReport = report;
+            logger.info("Orphan blob collection{}: {} of {} blobs orphaned ({} bytes), {} deleted in {} ms",
+                dryRun ? " (dry run)" : "", report.getOrphans(), report.getScanned(), report.getOrphanBytes(),
+                report.getDeleted(), report.getDurationMs());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // The last run's report, or null when none ran since startup
+    public OrphanBlobReport getLastReport() {
+        return lastReport;
+    }
+
+    private Marks mark(OrphanBlobReport report) {
+        Set<String> blobNames = new HashSet<>();
+        Set<String> sha256s = new HashSet<>();
+        Set<String> floorIds = new HashSet<>();
+        boolean sha256sComplete = true;
+
+        for (Floor floor : floorRepository.findAll()) {
+            floorIds.add(floor.getId());
+            markUrl(floor.getModel3dUrl(), blobNames, sha256s);
+            markUrl(floor.getFloorPlanUrl(), blobNames, sha256s);
+            if (floor.getImageUrls() != null) {
+                floor.getImageUrls().forEach(url -> markUrl(url, blobNames, sha256s));
+            }
+            List<FloorImageEntry> images = manifestRepository.find(floor.getId());
+            if (images != null) {
+                images.stream().map(FloorImageEntry::getSha256).filter(sha256 -> sha256 != null).forEach(sha256s::add);
+            } else if (!blobStore.list(FLOORS_PREFIX + floor.getId() + "/").isEmpty()) {
+                sha256sComplete = false;
+                report.getWarnings().add(ImageDerivativeService.DERIVED_PREFIX + " and " + TILES_PREFIX
+                    + " not swept: floor " + floor.getId() + " has images but no manifest yet");
+            }
+        }
+        for (Apartment apartment : apartmentRepository.findAll()) {
+            markUrl(apartment.getModel3dUrl(), blobNames, sha256s);
+            if (apartment.getMediaUrls() != null) {
+                apartment.getMediaUrls().forEach(url -> markUrl(url, blobNames, sha256s));
+            }
+        }
+        for (Picture picture : pictureRepository.findAll()) {
+            markUrl(picture.getUrl(), blobNames, sha256s);
+            if (picture.getVariantUrls() != null) {
+                picture.getVariantUrls().values().forEach(url -> markUrl(url, blobNames, sha256s));
+            }
+        }
+        return new Marks(blobNames, sha256s, floorIds, sha256sComplete);
+    }
+
+    private void markUrl(String url, Set<String> blobNames, Set<String> sha256s) {
+        String blobName = url != null ? blobStore.blobNameOf(url) : null;
+        if (blobName == null) {
+            return;
+        }
+        blobNames.add(blobName);
+        if (contentStoreService.isContentBlob(blobName)) {
+            sha256s.add(contentStoreService.sha256Of(blobName));
+        } else if (blobName.startsWith(ImageDerivativeService.DERIVED_PREFIX)) {
+            sha256s.add(segment(blobName, ImageDerivativeService.DERIVED_PREFIX));
+        }
+        // A model keeps its mobile variant and, through its hash, its previews
+        if (blobName.toLowerCase(Locale.ROOT).endsWith(".glb")) {
+            ModelAsset asset = modelAssetRepository.find(blobName);
+            if (asset != null) {
+                if (asset.getSha256() != null) {
+                    sha256s.add(asset.getSha256());
+                }
+                if (asset.getMobileBlobName() != null) {
+                    blobNames.add(asset.getMobileBlobName());
+                }
+            }
+        }
+    }
+
+    // The prefix an orphan is reported under, or null when the blob is in use or not ours to sweep
+    private String orphanPrefix(String name, Marks marks) {
+        if (name.startsWith(stagingPrefix)) {
+            return stagingPrefix;
+        }
+        if (name.startsWith(MOVING_PREFIX)) {
+            return MOVING_PREFIX;
+        }
+        for (String prefix : List.of(FLOORS_PREFIX, ATLAS_PREFIX)) {
+            if (name.startsWith(prefix)) {
+                return marks.floorIds().contains(segment(name, prefix)) ? null : prefix;
+            }
+        }
+        for (String prefix : List.of(ImageDerivativeService.DERIVED_PREFIX, TILES_PREFIX)) {
+            if (name.startsWith(prefix)) {
+                return marks.sha256sComplete() && !marks.sha256s().contains(segment(name, prefix)) ? prefix : null;
+            }
+        }
+        if (marks.blobNames().contains(name)) {
+            return null;
+        }
+        if (contentStoreService.isContentBlob(name) || MEDIA_PREFIXES.stream().anyMatch(name::startsWith)) {
+            return name.substring(0, name.indexOf('/') + 1);
+        }
+        // Uploads from before the content store sit at the top level
+        return name.contains("/") ? null : ROOT;
+    }
+
+    private void count(OrphanBlobReport report, String prefix, StoredBlob blob) {
+        report.setOrphans(report.getOrphans() + 1);
+        report.setOrphanBytes(report.getOrphanBytes() + blob.size());
+        report.getOrphansByPrefix().merge(prefix, 1L, Long::sum);
+        if (report.getSamples().size() < sampleLimit) {
+            report.getSamples().add(blob.name());
+        }
+    }
+
+    /**
+     * Deletes the batch and what describes it. Content goes one file at a time, each fenced by
+     * its index entry: marked deleting first (unless an upload acquired it since the cutoff, as
+     * its record is about to refer to it), so no upload can take it up while the file goes.
+     */
+    private int sweep(List<String> names, long cutoff) {
+        Timestamp indexCutoff = Timestamp.ofTimeMicroseconds(TimeUnit.MILLISECONDS.toMicros(cutoff));
+        List<String> unused = new ArrayList<>();
+        int deleted = 0;
+        for (String name : names) {
+            try {
+                boolean mobile = ModelOptimizationService.isMobileBlobName(name);
+                if (!mobile && name.toLowerCase(Locale.ROOT).endsWith(".glb")) {
+                    modelAssetRepository.delete(name);
+                }
+                if (contentStoreService.isContentBlob(name) && !mobile) {
+                    String sha256 = contentStoreService.sha256Of(name);
+                    if (contentBlobRepository.markDeleting(sha256, name, indexCutoff)) {
+                        assetCacheService.remove(name);
+                        if (blobStore.delete(name)) {
+                            deleted++;
+                        }
+                        contentBlobRepository.finishDelete(sha256);
+                    }
+                    continue;
+                }
+                assetCacheService.remove(name);
+                unused.add(name);
+            } catch (Exception e) {
+                logger.warn("Skipping orphan blob {}: {}", name, e.getMessage());
+            }
+        }
+        return deleted + (unused.isEmpty() ? 0 : blobStore.deleteAll(unused));
+    }
+
+    // floors/{id}/x.jpg -> id
+    private static String segment(String name, String prefix) {
+        int end = name.indexOf('/', prefix.length());
+        return end >= 0 ? name.substring(prefix.length(), end) : name.substring(prefix.length());
+    }
+}
@@ -1,38 +1,48 @@
 package com.realestate.service;
 
+import com.realestate.dto.UploadResult;
 import com.realestate.model.Picture;
 import com.realestate.repository.FirebaseRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 import java.time.LocalDateTime;
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
 public class PictureService {
     private final FirebaseRepository<Picture> pictureRepository;
     private final FirebaseService firebaseService;
+    private final ImageDerivativeService imageDerivativeService;
 
-    public PictureService(FirebaseRepository<Picture> pictureRepository, FirebaseService firebaseService) {
+    public PictureService(FirebaseRepository<Picture> pictureRepository, FirebaseService firebaseService,
+                          ImageDerivativeService imageDerivativeService) {
         this.pictureRepository = pictureRepository;
         this.firebaseService = firebaseService;
+        this.imageDerivativeService = imageDerivativeService;
     }
 
     public String createPicture(Picture picture, MultipartFile file) throws IOException {
         // Upload image to Firebase Storage
-        String imageUrl = firebaseService.uploadFile(file);
-        picture.setUrl(imageUrl);
+        UploadResult upload = firebaseService.uploadFileWithResult(file);
+        picture.setUrl(upload.getUrl());
         picture.setCreatedAt(LocalDateTime.now());
         
-        return pictureRepository.save(picture);
+        String id = pictureRepository.save(picture);
+        generateVariants(id, upload);
+        return id;
     }
 
     public void deletePicture(String id) {
         Picture picture = pictureRepository.findById(id);
         if (picture != null && picture.getUrl() != null) {
-            // Delete from Firebase Storage
-            firebaseService.deleteFile(picture.getUrl());
+            // Other pictures may share the stored file
+            firebaseService.releaseFile(picture.getUrl());
         }
         pictureRepository.delete(id);
     }
@@ -81,17 +91,34 @@ public class PictureService {
 
         // Upload new pictures
         for (MultipartFile file : files) {
-            String imageUrl = firebaseService.uploadFile(file);
+            UploadResult upload = firebaseService.uploadFileWithResult(file);
             
             Picture picture = new Picture();
             picture.setApartmentId(apartmentId);
-            picture.setUrl(imageUrl);
+            picture.setUrl(upload.getUrl());
             picture.setOrder(order.getAndIncrement());
             
-            pictureRepository.save(picture);
+            generateVariants(pictureRepository.save(picture), upload);
         }
     }
 
+    // Runs in the background; the picture keeps its original URL until the variants exist
+    private void generateVariants(String pictureId, UploadResult upload) {
+        if (upload.getContentType() == null || !upload.getContentType().startsWith("image/")) {
+            return;
+        }
+        imageDerivativeService.submit(upload.getBlobName(), upload.getSha256(), variants -> {
+            Picture picture = pictureRepository.findById(pictureId);
+            if (picture == null || !upload.getUrl().equals(picture.getUrl())) {
+                return;
+            }
+            Map<String, String> variantUrls = new TreeMap<>();
+            variants.forEach(variant -> variantUrls.put(variant,
+                firebaseService.publicUrl(ImageDerivativeService.blobName(upload.getSha256(), variant))));
+            pictureRepository.updateFields(pictureId, Map.of("variantUrls", variantUrls));
+        });
+    }
+
     public void updatePictureOrder(List<String> pictureIds) {
         AtomicInteger counter = new AtomicInteger(0);
         pictureIds.forEach(id -> {
@@ -103,13 +130,17 @@ public class PictureService {
         });
     }
 
+    // One write batch for the documents and batched releases for their files, instead of a round trip each
     public void deleteAllPicturesForApartment(String apartmentId) {
         List<Picture> pictures = getPicturesByApartmentId(apartmentId);
-        for (Picture picture : pictures) {
-            if (picture.getUrl() != null) {
-                firebaseService.deleteFile(picture.getUrl());
-            }
-            pictureRepository.delete(picture.getId());
+        if (pictures.isEmpty()) {
+            return;
         }
+        // Documents first, so no picture is left pointing at a deleted file
+        pictureRepository.deleteAll(pictures.stream().map(Picture::getId).collect(Collectors.toList()));
+        firebaseService.releaseFiles(pictures.stream()
+            .map(Picture::getUrl)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList()));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,380 @@
+package com.realestate.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.dto.ResumableUploadRequest;
+import com.realestate.dto.ResumableUploadStatus;
+import com.realestate.dto.UploadResult;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.FloorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable model uploads spooled to local disk. A session preallocates a sparse file of the
+ * declared size; chunks may arrive in any order and in parallel, each written at its own
+ * offset, and the received byte ranges are persisted next to the file so a session survives a
+ * restart. Finalizing streams the assembled file to Storage and attaches it to the target.
+ */
+@Service
+public class ResumableUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    public static final String TARGET_FLOOR = "floor";
+    public static final String TARGET_APARTMENT = "apartment";
+
+    private final FirebaseService firebaseService;
+    private final FloorService floorService;
+    private final ApartmentService apartmentService;
+    private final ModelOptimizationService modelOptimizationService;
+    private final FloorRepository floorRepository;
+    private final ApartmentRepository apartmentRepository;
+    private final ObjectMapper objectMapper;
+    private final Path spoolDir;
+    private final long maxSize;
+    private final long maxChunkSize;
+    private final Duration expiry;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // Persisted as {uploadId}.json beside the {uploadId}.part data file
+    static final class Session {
+        public String uploadId;
+        public String fileName;
+        public long size;
+        public String contentType;
+        public String targetType;
+        public String targetId;
+        public String sha256;
+        public long createdAt;
+        // start -> end (exclusive) of the byte ranges received so far, kept merged
+        public TreeMap<Long, Long> ranges = new TreeMap<>();
+        // Both guarded by the session's monitor: finalizing turns new chunks away, and complete()
+        // refuses to start while any chunk is still being written
+        @JsonIgnore
+        boolean finalizing;
+        @JsonIgnore
+        int writers;
+    }
+
+    public ResumableUploadService(
+            FirebaseService firebaseService,
+            FloorService floorService,
+            ApartmentService apartmentService,
+            ModelOptimizationService modelOptimizationService,
+            FloorRepository floorRepository,
+            ApartmentRepository apartmentRepository,
+            ObjectMapper objectMapper,
+            @Value("${upload.resumable.spool-dir:${java.io.tmpdir}/real-estate-uploads}") String spoolDir,
+            @Value("${upload.resumable.max-size:524288000}") long maxSize,
+            @Value("${upload.resumable.max-chunk-size:8388608}") long maxChunkSize,
+            @Value("${upload.resumable.expiry-hours:24}") long expiryHours) throws IOException {
+        this.firebaseService = firebaseService;
+        this.floorService = floorService;
+        this.apartmentService = apartmentService;
+        this.modelOptimizationService = modelOptimizationService;
+        this.floorRepository = floorRepository;
+        this.apartmentRepository = apartmentRepository;
+        this.objectMapper = objectMapper;
+        this.spoolDir = Files.createDirectories(Paths.get(spoolDir));
+        this.maxSize = maxSize;
+        this.maxChunkSize = maxChunkSize;
+        this.expiry = Duration.ofHours(expiryHours);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSessions() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir, "*.json")) {
+            for (Path file : files) {
+                try {
+                    Session session = objectMapper.readValue(file.toFile(), Session.class);
+                    if (Files.exists(dataPath(session.uploadId))) {
+                        sessions.put(session.uploadId, session);
+                    } else {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Skipping unreadable upload session {}: {}", file, e.getMessage());
+                }
+            }
+            logger.info("Restored {} resumable upload sessions", sessions.size());
+        } catch (Exception e) {
+            logger.error("Error restoring resumable upload sessions: {}", e.getMessage());
+        }
+    }
+
+    public ResumableUploadStatus initiate(ResumableUploadRequest request) throws IOException {
+        if (request.getFileName() == null || request.getFileName().isBlank() || request.getFileName().contains("/")) {
+            throw new IllegalArgumentException("A plain file name is required");
+        }
+        if (request.getSize() <= 0 || request.getSize() > maxSize) {
+            throw new IllegalArgumentException("Upload size must be between 1 and " + maxSize + " bytes");
+        }
+        boolean targetExists;
+        if (TARGET_FLOOR.equals(request.getTargetType())) {
+            targetExists = request.getTargetId() != null && floorRepository.findById(request.getTargetId()) != null;
+        } else if (TARGET_APARTMENT.equals(request.getTargetType())) {
+            targetExists = request.getTargetId() != null && apartmentRepository.findById(request.getTargetId()) != null;
+        } else {
+            throw new IllegalArgumentException("Unsupported upload target: " + request.getTargetType());
+        }
+        if (!targetExists) {
+            throw new IllegalArgumentException("Upload target not found: " + request.getTargetType() + "/" + request.getTargetId());
+        }
+
+        Session session = new Session();
+        session.uploadId = UUID.randomUUID().toString();
+        session.fileName = request.getFileName();
+        session.size = request.getSize();
+        session.contentType = request.getContentType();
+        session.targetType = request.getTargetType();
+        session.targetId = request.getTargetId();
+        session.sha256 = request.getSha256();
+        session.createdAt = System.currentTimeMillis();
+
+        // Sparse preallocation: chunks are written in place at their offsets
+        try (RandomAccessFile file = new RandomAccessFile(dataPath(session.uploadId).toFile(), "rw")) {
+            file.setLength(session.size);
+        }
+        persist(session);
+        sessions.put(session.uploadId, session);
+        return status(session);
+    }
+
+    /**
+     * Writes one chunk at the given offset. Chunks of a session can be sent concurrently; a
+     * chunk cut short by a dropped connection still records the bytes that did arrive.
+     */
+    public ResumableUploadStatus writeChunk(String uploadId, long offset, long contentLength, InputStream in) throws IOException {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            return null;
+        }
+        if (offset < 0 || offset >= session.size) {
+            throw new IllegalArgumentException("Offset outside of the upload: " + offset);
+        }
+        long limit = Math.min(session.size - offset, maxChunkSize);
+        if (contentLength > limit) {
+            throw new IllegalArgumentException("Chunk of " + contentLength + " bytes exceeds the " + limit + " allowed at offset " + offset);
+        }
+
+        synchronized (session) {
+            if (session.finalizing) {
+                throw new IllegalArgumentException("Upload is being finalized");
+            }
+            session.writers++;
+        }
+        try {
+            long expected = contentLength >= 0 ? contentLength : limit;
+            long written = 0;
+            ReadableByteChannel source = Channels.newChannel(in);
+            try (FileChannel channel = FileChannel.open(dataPath(uploadId), StandardOpenOption.WRITE)) {
+                while (written < expected) {
+                    long transferred = channel.transferFrom(source, offset + written, expected - written);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+            }
+            if (contentLength < 0 && written == limit && in.read() != -1) {
+                throw new IllegalArgumentException("Chunk exceeds the " + limit + " bytes allowed at offset " + offset);
+            }
+
+            synchronized (session) {
+                // Aborted or expired meanwhile: do not bring its metadata back
+                if (sessions.get(uploadId) != session) {
+                    return null;
+                }
+                addRange(session.ranges, offset, offset + written);
+                persist(session);
+                return status(session);
+            }
+        } finally {
+            synchronized (session) {
+                session.writers--;
+            }
+        }
+    }
+
+    public ResumableUploadStatus getStatus(String uploadId) {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            return status(session);
+        }
+    }
+
+    /**
+     * Streams the assembled file to Storage, verifies the optional checksum and sets it as the
+     * target's model3dUrl. Throws IllegalStateException while bytes are still missing.
+     */
+    public UploadResult complete(String uploadId) throws IOException {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            if (session.finalizing) {
+                throw new IllegalStateException("Upload is already being finalized");
+            }
+            // A chunk still in flight may be rewriting bytes that are already counted as received
+            if (session.writers > 0) {
+                throw new IllegalStateException("Chunks are still being written");
+            }
+            if (!missing(session).isEmpty()) {
+                throw new IllegalStateException("Upload is incomplete");
+            }
+            session.finalizing = true;
+        }
+
+        boolean discard = true;
+        try {
+            UploadResult result;
+            try (InputStream in = Files.newInputStream(dataPath(uploadId))) {
+                result = firebaseService.uploadContent(in, session.fileName, session.contentType);
+            }
+            if (session.sha256 != null && !session.sha256.equalsIgnoreCase(result.getSha256())) {
+                firebaseService.releaseFile(result.getUrl());
+                throw new IllegalArgumentException("Checksum mismatch: expected " + session.sha256 + " but got " + result.getSha256());
+            }
+
+            boolean attached = TARGET_FLOOR.equals(session.targetType)
+                ? floorService.attachModel(session.targetId, result.getUrl())
+                : apartmentService.attachModel(session.targetId, result.getUrl());
+            if (!attached) {
+                firebaseService.releaseFile(result.getUrl());
+                throw new IllegalArgumentException("Upload target no longer exists: " + session.targetType + "/" + session.targetId);
+            }
+            modelOptimizationService.submit(result);
+            return result;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            // Storage or Firestore failures leave the spooled file so finalize can be retried
+            discard = false;
+            synchronized (session) {
+                session.finalizing = false;
+            }
+            throw e;
+        } finally {
+            if (discard) {
+                discard(session);
+            }
+        }
+    }
+
+    public boolean abort(String uploadId) {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            return false;
+        }
+        discard(session);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${upload.resumable.cleanup-interval-ms:3600000}")
+    public void expireSessions() {
+        long cutoff = System.currentTimeMillis() - expiry.toMillis();
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (session.createdAt >= cutoff || session.finalizing || session.writers > 0) {
+                    continue;
+                }
+                logger.info("Expiring abandoned upload {} ({})", session.uploadId, session.fileName);
+                discard(session);
+            }
+        }
+    }
+
+    private ResumableUploadStatus status(Session session) {
+        long received = session.ranges.entrySet().stream().mapToLong(r -> r.getValue() - r.getKey()).sum();
+        return new ResumableUploadStatus(session.uploadId, session.fileName, session.size, received,
+            missing(session), session.targetType, session.targetId);
+    }
+
+    private static List<long[]> missing(Session session) {
+        List<long[]> gaps = new ArrayList<>();
+        long position = 0;
+        for (Map.Entry<Long, Long> range : session.ranges.entrySet()) {
+            if (range.getKey() > position) {
+                gaps.add(new long[] {position, range.getKey()});
+            }
+            position = Math.max(position, range.getValue());
+        }
+        if (position < session.size) {
+            gaps.add(new long[] {position, session.size});
+        }
+        return gaps;
+    }
+
+    // Inserts [start, end) and merges it with any overlapping or adjacent ranges
+    private static void addRange(TreeMap<Long, Long> ranges, long start, long end) {
+        if (end <= start) {
+            return;
+        }
+        Map.Entry<Long, Long> before = ranges.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+            ranges.remove(before.getKey());
+        }
+        Map.Entry<Long, Long> after;
+        while ((after = ranges.ceilingEntry(start)) != null && after.getKey() <= end) {
+            end = Math.max(end, after.getValue());
+            ranges.remove(after.getKey());
+        }
+        ranges.put(start, end);
+    }
+
+    private void persist(Session session) throws IOException {
+        Path target = metadataPath(session.uploadId);
+        Path temp = spoolDir.resolve(session.uploadId + ".json.tmp");
+        objectMapper.writeValue(temp.toFile(), session);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void discard(Session session) {
+        sessions.remove(session.uploadId);
+        try {
+            Files.deleteIfExists(dataPath(session.uploadId));
+            Files.deleteIfExists(metadataPath(session.uploadId));
+        } catch (IOException e) {
+            logger.warn("Could not remove spooled upload {}: {}", session.uploadId, e.getMessage());
+        }
+    }
+
+    private Path dataPath(String uploadId) {
+        return spoolDir.resolve(uploadId + ".part");
+    }
+
+    private Path metadataPath(String uploadId) {
+        return spoolDir.resolve(uploadId + ".json");
+    }
+}
@@ -0,0 +1,153 @@
+package com.realestate.service;
+
+import com.google.auth.ServiceAccountSigner;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.realestate.storage.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * V2 signed GET URLs, signed locally with the service-account key. Expiries are aligned to
+ * fixed time buckets, so every request in the same bucket gets the identical URL and browsers
+ * and CDNs can keep reusing the cached image. URLs stay valid for at least validity minus one
+ * bucket. Signed URLs are kept in a bounded LRU cache keyed by blob.
+ */
+@Service
+public class SignedUrlService {
+    private static final Logger logger = LoggerFactory.getLogger(SignedUrlService.class);
+    private static final String STORAGE_HOST = "https://storage.googleapis.com";
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private final Storage storage;
+    private final ServiceAccountSigner signer;
+    private final long validitySeconds;
+    private final long bucketSeconds;
+    private final int cacheSize;
+    private final ForkJoinPool pool;
+    private final Map<String, SignedUrl> cache;
+
+    private record SignedUrl(long expires, String url) {
+    }
+
+    public SignedUrlService(Storage storage,
+                            @Value("${signed-url.validity-hours:168}") long validityHours,
+                            @Value("${signed-url.bucket-hours:24}") long bucketHours,
+                            @Value("${signed-url.cache-size:10000}") int cacheSize,
+                            @Value("${signed-url.parallelism:0}") int parallelism) {
+        this.storage = storage;
+        this.signer = storage.getOptions().getCredentials() instanceof ServiceAccountSigner serviceAccount ? serviceAccount : null;
+        this.validitySeconds = TimeUnit.HOURS.toSeconds(validityHours);
+        this.bucketSeconds = TimeUnit.HOURS.toSeconds(Math.max(1, Math.min(bucketHours, validityHours)));
+        this.cacheSize = cacheSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SignedUrl> eldest) {
+                return size() > SignedUrlService.this.cacheSize;
+            }
+        };
+        if (signer == null) {
+            logger.warn("Storage credentials cannot sign locally; signed URLs fall back to the client library");
+        }
+    }
+
+    public String sign(String bucket, String blobName) {
+        long expires = currentExpiry();
+        String key = key(bucket, blobName);
+        SignedUrl cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null && cached.expires() == expires) {
+            return cached.url();
+        }
+        String url = signAt(bucket, blobName, expires);
+        synchronized (cache) {
+            cache.put(key, new SignedUrl(expires, url));
+        }
+        return url;
+    }
+
+    // blobName -> URL; cache misses of a large listing are signed in parallel
+    public Map<String, String> signAll(String bucket, List<String> blobNames) {
+        long expires = currentExpiry();
+        Map<String, String> urls = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        synchronized (cache) {
+            for (String blobName : blobNames) {
+                SignedUrl cached = cache.get(key(bucket, blobName));
+                if (cached != null && cached.expires() == expires) {
+                    urls.put(blobName, cached.url());
+                } else {
+                    misses.add(blobName);
+                }
+            }
+        }
+        if (misses.isEmpty()) {
+            return urls;
+        }
+
+        List<String> signed = misses.size() < PARALLEL_THRESHOLD
+            ? misses.stream().map(blobName -> signAt(bucket, blobName, expires)).toList()
+            : pool.submit(() -> misses.parallelStream().map(blobName -> signAt(bucket, blobName, expires)).toList()).join();
+        synchronized (cache) {
+            for (int i = 0; i < misses.size(); i++) {
+                cache.put(key(bucket, misses.get(i)), new SignedUrl(expires, signed.get(i)));
+                urls.put(misses.get(i), signed.get(i));
+            }
+        }
+        return urls;
+    }
+
+    // Drops the cached URL of a blob that was deleted or moved away
+    public void evict(String bucket, String blobName) {
+        synchronized (cache) {
+            cache.remove(key(bucket, blobName));
+        }
+    }
+
+    // End of the current bucket's validity, in epoch seconds
+    private long currentExpiry() {
+        long now = System.currentTimeMillis() / 1000;
+        return now - now % bucketSeconds + validitySeconds;
+    }
+
+    private String signAt(String bucket, String blobName, long expires) {
+        if (signer == null) {
+            long remaining = expires - System.currentTimeMillis() / 1000;
+            return storage.signUrl(BlobInfo.newBuilder(BlobId.of(bucket, blobName)).build(), remaining, TimeUnit.SECONDS).toString();
+        }
+        String resource = "/" + bucket + "/" + BlobStore.escapePath(blobName);
+        String stringToSign = "GET\n\n\n" + expires + "\n" + resource;
+        byte[] signature = signer.sign(stringToSign.getBytes(StandardCharsets.UTF_8));
+        return STORAGE_HOST + resource
+            + "?GoogleAccessId=" + URLEncoder.encode(signer.getAccount(), StandardCharsets.UTF_8)
+            + "&Expires=" + expires
+            + "&Signature=" + URLEncoder.encode(Base64.getEncoder().encodeToString(signature), StandardCharsets.UTF_8);
+    }
+
+    private static String key(String bucket, String blobName) {
+        return bucket + "/" + blobName;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,344 @@
+package com.realestate.service;
+
+import com.google.cloud.Timestamp;
+import com.realestate.model.AtlasFrame;
+import com.realestate.model.AtlasTier;
+import com.realestate.model.FloorAtlas;
+import com.realestate.model.FloorImageEntry;
+import com.realestate.repository.FloorAtlasRepository;
+import com.realestate.storage.BlobStore;
+import com.realestate.storage.StoredBlob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs a floor's angle frames (its images in name order) into grid sprite sheets at several
+ * frame widths, so the rotation viewer needs one or a few requests per resolution instead of one
+ * per frame. Regenerated a short while after the floor's image manifest changes, which lets a
+ * burst of frame uploads settle into a single job. Sheets live under
+ * atlases/{floorId}/{version}/, where the version hashes the frames they were built from.
+ * Superseded versions are kept for a grace period, since viewers cache the frame map and load
+ * tiers lazily.
+ */
+@Service
+public class SpriteAtlasService {
+    private static final Logger logger = LoggerFactory.getLogger(SpriteAtlasService.class);
+    private static final String ATLAS_PREFIX = "atlases/";
+    private static final int MIN_FRAMES = 2;
+
+    private final FloorImageManifestService manifestService;
+    private final FloorAtlasRepository repository;
+    private final BlobStore blobStore;
+    private final int[] tierWidths;
+    private final int maxSheetSize;
+    private final float quality;
+    private final long debounceSeconds;
+    private final long graceMinutes;
+
+    // One thread: debounce timers and the (memory heavy) packing jobs run one at a time
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+
+    public SpriteAtlasService(FloorImageManifestService manifestService,
+                              FloorAtlasRepository repository,
+                              BlobStore blobStore,
+                              @Value("${atlas.tier-widths:256,512,1024}") int[] tierWidths,
+                              @Value("${atlas.max-sheet-size:4096}") int maxSheetSize,
+                              @Value("${atlas.quality:0.8}") float quality,
+                              @Value("${atlas.debounce-seconds:30}") long debounceSeconds,
+                              @Value("${atlas.superseded-grace-minutes:30}") long graceMinutes) {
+        this.manifestService = manifestService;
+        this.repository = repository;
+        this.blobStore = blobStore;
+        this.tierWidths = Arrays.stream(tierWidths).filter(w -> w > 0 && w <= maxSheetSize).sorted().toArray();
+        this.maxSheetSize = maxSheetSize;
+        this.quality = quality;
+        this.debounceSeconds = debounceSeconds;
+        this.graceMinutes = Math.max(0, graceMinutes);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            ImageDerivativeService.daemonThreads("sprite-atlas", Thread.MIN_PRIORITY));
+
+        manifestService.addListener(this::schedule);
+    }
+
+    /**
+     * The floor's current atlas with signed sheet URLs, or null when none has been built yet; in
+     * that case a build is scheduled. An atlas built from an older frame set is still returned
+     * until its replacement is ready.
+     */
+    public FloorAtlas getAtlas(String floorId) {
+        FloorAtlas atlas = repository.find(floorId);
+        if (atlas == null) {
+            schedule(floorId);
+            return null;
+        }
+        for (AtlasTier tier : atlas.getTiers()) {
+            Map<String, String> urls = blobStore.signAll(tier.getSheets());
+            tier.setSheetUrls(tier.getSheets().stream().map(urls::get).toList());
+        }
+        return atlas;
+    }
+
+    // (Re)starts the floor's debounce timer
+    public void schedule(String floorId) {
+        pending.compute(floorId, (id, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return scheduler.schedule(() -> {
+                pending.remove(floorId);
+                try {
+                    regenerate(floorId);
+                } catch (Exception e) {
+                    logger.error("Error building sprite atlas of floor {}: {}", floorId, e.getMessage());
+                }
+            }, debounceSeconds, TimeUnit.SECONDS);
+        });
+    }
+
+    // Drops the floor's atlas and sheets; runs on the packing thread, so a build in progress cannot bring them back
+    public void removeFloor(String floorId) {
+        ScheduledFuture<?> timer = pending.remove(floorId);
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        scheduler.execute(() -> {
+            try {
+                repository.delete(floorId);
+                deleteSheets(floorId, null);
+            } catch (Exception e) {
+                logger.error("Error removing sprite atlas of floor {}: {}", floorId, e.getMessage());
+            }
+        });
+    }
+
+    private void regenerate(String floorId) throws IOException {
+        List<FloorImageEntry> frames = manifestService.getImages(floorId).stream()
+            .filter(image -> image.getName().endsWith(".jpg") || image.getName().endsWith(".jpeg")
+                || image.getName().endsWith(".png"))
+            .toList();
+        FloorAtlas existing = repository.find(floorId);
+        if (frames.size() < MIN_FRAMES || tierWidths.length == 0) {
+            if (existing != null) {
+                repository.delete(floorId);
+                deleteSheets(floorId, null);
+            }
+            return;
+        }
+        String version = version(frames);
+        if (existing != null && version.equals(existing.getVersion())) {
+            // Also catches superseded sheets whose delayed cleanup was lost to a restart
+            deleteSupersededSheets(floorId);
+            return;
+        }
+
+        long started = System.nanoTime();
+        FloorAtlas atlas = build(floorId, version, frames);
+        repository.save(atlas);
+        scheduler.schedule(() -> {
+            try {
+                deleteSupersededSheets(floorId);
+            } catch (Exception e) {
+                logger.error("Error removing superseded sprite atlases of floor {}: {}", floorId, e.getMessage());
+            }
+        }, graceMinutes, TimeUnit.MINUTES);
+        logger.info("Built sprite atlas of floor {}: {} frames, {} tiers in {} ms", floorId, frames.size(),
+            atlas.getTiers().size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private FloorAtlas build(String floorId, String version, List<FloorImageEntry> frames) throws IOException {
+        int largest = tierWidths[tierWidths.length - 1];
+        List<SheetPacker> packers = new ArrayList<>();
+        for (int i = 0; i < frames.size(); i++) {
+            BufferedImage frame = decode(frames.get(i).getBlobName(), largest);
+            if (packers.isEmpty()) {
+                // Rotation frames share one size; the first frame fixes the cell aspect ratio
+                double aspect = frame.getHeight() / (double) frame.getWidth();
+                for (int width : tierWidths) {
+                    int height = Math.max(1, (int) Math.round(width * aspect));
+                    if (height <= maxSheetSize) {
+                        packers.add(new SheetPacker(floorId, version, width, height, frames.size()));
+                    }
+                }
+            }
+            // Largest tier first, each scaled down from the one before
+            BufferedImage current = frame;
+            for (int t = packers.size() - 1; t >= 0; t--) {
+                SheetPacker packer = packers.get(t);
+                current = ImageDerivativeService.scale(current, packer.tier.getFrameWidth(), false);
+                packer.add(current);
+            }
+        }
+
+        FloorAtlas atlas = new FloorAtlas();
+        atlas.setFloorId(floorId);
+        atlas.setVersion(version);
+        atlas.setFrames(frames.stream().map(FloorImageEntry::getName).toList());
+        List<AtlasTier> tiers = new ArrayList<>();
+        for (SheetPacker packer : packers) {
+            packer.finish();
+            tiers.add(packer.tier);
+        }
+        atlas.setTiers(tiers);
+        atlas.setGeneratedAt(Timestamp.now());
+        return atlas;
+    }
+
+    // Fills grid sheets of one tier, writing each sheet out as soon as it is full
+    private final class SheetPacker {
+        final String floorId;
+        final String version;
+        final AtlasTier tier = new AtlasTier();
+        final int perSheet;
+        final int frameCount;
+        BufferedImage sheet;
+        int placed;
+
+        SheetPacker(String floorId, String version, int width, int height, int frameCount) {
+            this.floorId = floorId;
+            this.version = version;
+            this.frameCount = frameCount;
+            tier.setFrameWidth(width);
+            tier.setFrameHeight(height);
+            tier.setColumns(Math.max(1, maxSheetSize / width));
+            tier.setRows(Math.max(1, maxSheetSize / height));
+            tier.setFormat("jpg");
+            tier.setSheets(new ArrayList<>());
+            tier.setFrames(new ArrayList<>());
+            this.perSheet = tier.getColumns() * tier.getRows();
+        }
+
+        void add(BufferedImage frame) throws IOException {
+            int index = placed % perSheet;
+            if (sheet == null) {
+                // The last sheet only gets the rows it needs
+                int remaining = Math.min(perSheet, frameCount - placed);
+                int columns = Math.min(tier.getColumns(), remaining);
+                int rows = (remaining + tier.getColumns() - 1) / tier.getColumns();
+                sheet = new BufferedImage(columns * tier.getFrameWidth(), rows * tier.getFrameHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            }
+            int x = (index % tier.getColumns()) * tier.getFrameWidth();
+            int y = (index / tier.getColumns()) * tier.getFrameHeight();
+            Graphics2D g = sheet.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(frame, x, y, tier.getFrameWidth(), tier.getFrameHeight(), null);
+            g.dispose();
+            tier.getFrames().add(new AtlasFrame(tier.getSheets().size(), x, y));
+            placed++;
+            if (index == perSheet - 1) {
+                writeSheet();
+            }
+        }
+
+        void finish() throws IOException {
+            if (sheet != null) {
+                writeSheet();
+            }
+        }
+
+        void writeSheet() throws IOException {
+            String blobName = ATLAS_PREFIX + floorId + "/" + version + "/" + tier.getFrameWidth() + "-"
+                + tier.getSheets().size() + "." + tier.getFormat();
+            blobStore.put(blobName, ImageDerivativeService.encode(sheet, "jpg", quality), "image/jpeg",
+                ImageDerivativeService.CACHE_CONTROL);
+            tier.getSheets().add(blobName);
+            sheet = null;
+        }
+    }
+
+    private BufferedImage decode(String blobName, int targetWidth) throws IOException {
+        try (InputStream in = blobStore.open(blobName);
+             ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + blobName);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                // Subsample to no less than twice the largest frame width
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, reader.getWidth(0) / (2 * targetWidth));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Removes the sheets of versions older than the current atlas once it has been current for
+     * the grace period, the longest a viewer may still use the frame map it replaced. A newer
+     * build meanwhile schedules its own cleanup, which also covers the versions before it.
+     */
+    private void deleteSupersededSheets(String floorId) {
+        FloorAtlas current = repository.find(floorId);
+        if (current == null || current.getGeneratedAt() == null) {
+            return;
+        }
+        long currentForMillis = System.currentTimeMillis() - current.getGeneratedAt().toDate().getTime();
+        if (currentForMillis >= TimeUnit.MINUTES.toMillis(graceMinutes)) {
+            deleteSheets(floorId, current.getVersion());
+        }
+    }
+
+    // Removes the floor's sheets of every version except keepVersion (all of them when null)
+    private void deleteSheets(String floorId, String keepVersion) {
+        String prefix = ATLAS_PREFIX + floorId + "/";
+        List<String> stale = new ArrayList<>();
+        for (StoredBlob blob : blobStore.list(prefix)) {
+            if (keepVersion == null || !blob.name().startsWith(prefix + keepVersion + "/")) {
+                stale.add(blob.name());
+            }
+        }
+        if (!stale.isEmpty()) {
+            blobStore.deleteAll(stale);
+        }
+    }
+
+    private static String version(List<FloorImageEntry> frames) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (FloorImageEntry frame : frames) {
+                digest.update((frame.getName() + "\n" + frame.getCrc32c() + "\n" + frame.getSize() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
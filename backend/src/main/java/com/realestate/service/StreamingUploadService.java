@@ -0,0 +1,218 @@
+package com.realestate.service;
+
+import com.realestate.dto.UploadResult;
+import com.realestate.storage.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Streams uploads into the {@link BlobStore} through a writer instead of buffering whole files.
+ * Bytes pass through a pooled fixed-size buffer; the file signature is checked against the
+ * name and declared type before anything is written, and SHA-256/CRC32C are computed in the
+ * same pass. The pool bounds how many uploads share preallocated buffers; an upload that waits
+ * longer than upload.buffer-wait-ms for one streams through a buffer of its own instead of
+ * blocking its request thread indefinitely.
+ */
+@Service
+public class StreamingUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingUploadService.class);
+
+    public static final String GLB_CONTENT_TYPE = "model/gltf-binary";
+    private static final int HEADER_BYTES = 12;
+    static final int GLB_MAGIC = 0x46546C67; // "glTF" read little-endian
+
+    // Extension -> content type the file's signature must match
+    private static final Map<String, String> EXPECTED_TYPES = Map.of(
+        "glb", GLB_CONTENT_TYPE,
+        "jpg", "image/jpeg",
+        "jpeg", "image/jpeg",
+        "png", "image/png",
+        "webp", "image/webp",
+        "gif", "image/gif",
+        "bmp", "image/bmp");
+
+    private final BlobStore blobStore;
+    private final BlockingQueue<byte[]> buffers;
+    private final int bufferSize;
+    private final long bufferWaitMillis;
+
+    public StreamingUploadService(
+            BlobStore blobStore,
+            @Value("${upload.buffer-size:262144}") int bufferSize,
+            @Value("${upload.buffer-pool-size:16}") int bufferPoolSize,
+            @Value("${upload.buffer-wait-ms:1000}") long bufferWaitMillis) {
+        this.blobStore = blobStore;
+        this.bufferSize = Math.max(bufferSize, HEADER_BYTES);
+        this.bufferWaitMillis = Math.max(0, bufferWaitMillis);
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, bufferPoolSize));
+        for (int i = 0; i < bufferPoolSize; i++) {
+            buffers.add(new byte[this.bufferSize]);
+        }
+    }
+
+    /**
+     * Streams the input into blobName. Throws IllegalArgumentException when the content does not
+     * match the file name or declared type; nothing is left in the store in that case.
+     */
+    public UploadResult upload(InputStream in, String blobName, String fileName, String declaredContentType,
+                               String cacheControl, String url) throws IOException {
+        byte[] pooled = acquire();
+        byte[] buffer = pooled != null ? pooled : new byte[bufferSize];
+        try {
+            int read = in.readNBytes(buffer, 0, HEADER_BYTES);
+            String detected = detect(buffer, read);
+            validate(fileName, declaredContentType, detected);
+            String contentType = detected != null ? detected
+                : declaredContentType != null ? declaredContentType : "application/octet-stream";
+            long declaredGlbLength = GLB_CONTENT_TYPE.equals(detected) ? littleEndianInt(buffer, 8) & 0xFFFFFFFFL : -1;
+
+            MessageDigest sha256 = sha256();
+            CRC32C crc32c = new CRC32C();
+            long size = 0;
+            // Leading bytes of an image, kept to read its dimensions once the header is in
+            byte[] head = detected != null && detected.startsWith("image/") ? new byte[ImageDimensions.PROBE_BYTES] : null;
+            int headLength = 0;
+
+            // The writer is only closed on success: closing commits the blob, so a failed
+            // stream is aborted instead of leaving a truncated file
+            BlobStore.Writer writer = blobStore.writer(blobName, contentType, cacheControl);
+            try {
+                while (read >= 0) {
+                    if (read > 0) {
+                        sha256.update(buffer, 0, read);
+                        crc32c.update(buffer, 0, read);
+                        if (head != null && headLength < head.length) {
+                            int copied = Math.min(read, head.length - headLength);
+                            System.arraycopy(buffer, 0, head, headLength, copied);
+                            headLength += copied;
+                        }
+                        size += read;
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                        while (chunk.hasRemaining()) {
+                            writer.write(chunk);
+                        }
+                    }
+                    read = in.read(buffer);
+                }
+            } catch (IOException | RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+            writer.close();
+
+            if (declaredGlbLength >= 0 && declaredGlbLength != size) {
+                blobStore.delete(blobName);
+                throw new IllegalArgumentException("Truncated GLB file: header declares " + declaredGlbLength
+                    + " bytes but " + size + " were uploaded");
+            }
+
+            logger.debug("Streamed {} bytes to {}", size, blobName);
+            UploadResult result = new UploadResult(url, blobName, size, contentType,
+                HexFormat.of().formatHex(sha256.digest()), crc32cBase64(crc32c.getValue()));
+            int[] dimensions = head != null ? ImageDimensions.read(head, headLength) : null;
+            if (dimensions != null) {
+                result.setWidth(dimensions[0]);
+                result.setHeight(dimensions[1]);
+            }
+            return result;
+        } finally {
+            if (pooled != null) {
+                buffers.offer(pooled);
+            }
+        }
+    }
+
+    // A pooled buffer, or null when none came free within the wait
+    private byte[] acquire() throws IOException {
+        try {
+            byte[] buffer = buffers.poll(bufferWaitMillis, TimeUnit.MILLISECONDS);
+            if (buffer == null) {
+                logger.debug("Upload buffer pool exhausted after {} ms, using a heap buffer", bufferWaitMillis);
+            }
+            return buffer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an upload buffer", e);
+        }
+    }
+
+    private static void validate(String fileName, String declaredContentType, String detected) {
+        String extension = extension(fileName);
+        String expected = extension != null ? EXPECTED_TYPES.get(extension) : null;
+        if (expected != null && !expected.equals(detected)) {
+            throw new IllegalArgumentException("File content does not match ." + extension + ": " + fileName);
+        }
+        if (declaredContentType != null && declaredContentType.startsWith("image/")
+                && (detected == null || !detected.startsWith("image/"))) {
+            throw new IllegalArgumentException("File declared as " + declaredContentType + " is not a supported image: " + fileName);
+        }
+    }
+
+    // Content type from the leading bytes, or null when the format is not one we validate
+    static String detect(byte[] header, int length) {
+        if (length >= 12 && littleEndianInt(header, 0) == GLB_MAGIC && littleEndianInt(header, 4) == 2) {
+            return GLB_CONTENT_TYPE;
+        }
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G'
+                && header[4] == 0x0D && header[5] == 0x0A && header[6] == 0x1A && header[7] == 0x0A) {
+            return "image/png";
+        }
+        if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        if (length >= 4 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return "image/gif";
+        }
+        if (length >= 2 && header[0] == 'B' && header[1] == 'M') {
+            return "image/bmp";
+        }
+        return null;
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null || fileName.lastIndexOf('.') < 0) {
+            return null;
+        }
+        return fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF)
+            | (bytes[offset + 1] & 0xFF) << 8
+            | (bytes[offset + 2] & 0xFF) << 16
+            | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    private static String crc32cBase64(long value) {
+        byte[] bytes = {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
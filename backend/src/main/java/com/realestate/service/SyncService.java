@@ -0,0 +1,160 @@
+package com.realestate.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.realestate.dto.ChangeSet;
+import com.realestate.dto.SyncResponse;
+import com.realestate.model.AngleIndexEntry;
+import com.realestate.model.Apartment;
+import com.realestate.model.Buyer;
+import com.realestate.model.Floor;
+import com.realestate.repository.ApartmentRepository;
+import com.realestate.repository.BuyerRepository;
+import com.realestate.repository.FirebaseRepository;
+import com.realestate.repository.FloorAngleRepository;
+import com.realestate.repository.FloorRepository;
+import com.realestate.repository.HotspotCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+@Service
+public class SyncService {
+    private static final Logger logger = LoggerFactory.getLogger(SyncService.class);
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private final Firestore firestore;
+    private final FloorRepository floorRepository;
+    private final FloorAngleRepository floorAngleRepository;
+    private final ApartmentRepository apartmentRepository;
+    private final BuyerRepository buyerRepository;
+    private final long tombstoneRetentionDays;
+
+    public SyncService(Firestore firestore,
+                       FloorRepository floorRepository,
+                       FloorAngleRepository floorAngleRepository,
+                       ApartmentRepository apartmentRepository,
+                       BuyerRepository buyerRepository,
+                       @Value("${sync.tombstone-retention-days:30}") long tombstoneRetentionDays) {
+        this.firestore = firestore;
+        this.floorRepository = floorRepository;
+        this.floorAngleRepository = floorAngleRepository;
+        this.apartmentRepository = apartmentRepository;
+        this.buyerRepository = buyerRepository;
+        this.tombstoneRetentionDays = tombstoneRetentionDays;
+    }
+
+    public SyncResponse sync(String sinceToken) {
+        Timestamp since = parseToken(sinceToken);
+
+        // Tokens older than the tombstone retention may have missed deletions, so fall back to a snapshot
+        boolean fullSync = since == null || since.compareTo(retentionCutoff()) < 0;
+
+        CompletableFuture<ChangeSet<Floor>> floors = CompletableFuture.supplyAsync(() -> changes(floorRepository, since, fullSync));
+        CompletableFuture<ChangeSet<Apartment>> apartments = CompletableFuture.supplyAsync(() -> changes(apartmentRepository, since, fullSync));
+        CompletableFuture<ChangeSet<Buyer>> buyers = CompletableFuture.supplyAsync(() -> changes(buyerRepository, since, fullSync));
+
+        SyncResponse response = new SyncResponse();
+        response.setFullSync(fullSync);
+        response.setFloors(floors.join());
+        response.getFloors().getUpserts().forEach(HotspotCodec::unpack);
+        withAngleIndexes(response.getFloors().getUpserts(), fullSync);
+        response.setApartments(apartments.join());
+        response.setBuyers(buyers.join());
+
+        // The earliest read time is safe: anything committed afterwards has a later updatedAt/deletedAt
+        Timestamp next = Stream.of(response.getFloors(), response.getApartments(), response.getBuyers())
+            .map(ChangeSet::getReadTime)
+            .filter(t -> t != null)
+            .min(Timestamp::compareTo)
+            .orElse(since != null ? since : Timestamp.now());
+        response.setToken(toToken(next));
+        return response;
+    }
+
+    /**
+     * Angle hotspots live in per-angle shards; writing one touches the floor's updatedAt, so the
+     * floor comes back here with its current angle index and clients re-fetch the angles whose
+     * updatedAt is newer than their copy. A full sync returns every floor, so it reads every shard
+     * in one collection group query; a delta only reads the shards of the floors it returns.
+     */
+    private void withAngleIndexes(List<Floor> floors, boolean fullSync) {
+        if (floors.isEmpty()) {
+            return;
+        }
+        if (!fullSync) {
+            floors.forEach(floor -> floor.setAngleIndex(floorAngleRepository.findIndex(floor.getId())));
+            return;
+        }
+        Map<String, Map<String, AngleIndexEntry>> indexes = floorAngleRepository.findAllIndexes();
+        for (Floor floor : floors) {
+            Map<String, AngleIndexEntry> index = indexes.get(floor.getId());
+            if (index != null) {
+                floor.setAngleIndex(index);
+            }
+        }
+    }
+
+    private <T> ChangeSet<T> changes(FirebaseRepository<T> repository, Timestamp since, boolean fullSync) {
+        return fullSync ? repository.findAllWithReadTime() : repository.findChangedSince(since);
+    }
+
+    @Scheduled(cron = "${sync.tombstone-prune-cron:0 30 3 * * *}")
+    public void pruneTombstones() {
+        Timestamp cutoff = retentionCutoff();
+        int pruned = 0;
+        try {
+            while (true) {
+                List<QueryDocumentSnapshot> expired = firestore.collection(FirebaseRepository.DELETIONS_COLLECTION)
+                    .whereLessThan("deletedAt", cutoff)
+                    .limit(DELETE_BATCH_SIZE)
+                    .get()
+                    .get()
+                    .getDocuments();
+                if (expired.isEmpty()) {
+                    break;
+                }
+                WriteBatch batch = firestore.batch();
+                expired.forEach(doc -> batch.delete(doc.getReference()));
+                batch.commit().get();
+                pruned += expired.size();
+            }
+            logger.info("Pruned {} sync tombstones older than {}", pruned, cutoff);
+        } catch (Exception e) {
+            logger.error("Error pruning sync tombstones: {}", e.getMessage());
+        }
+    }
+
+    private Timestamp retentionCutoff() {
+        Instant cutoff = Instant.now().minus(tombstoneRetentionDays, ChronoUnit.DAYS);
+        return Timestamp.ofTimeSecondsAndNanos(cutoff.getEpochSecond(), cutoff.getNano());
+    }
+
+    private static Timestamp parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            Instant instant = Instant.parse(token);
+            return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid sync token: " + token);
+        }
+    }
+
+    private static String toToken(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos()).toString();
+    }
+}
@@ -0,0 +1,260 @@
+package com.realestate.service;
+
+import com.realestate.storage.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+/**
+ * Deep-zoom tile pyramids for large floor images, DZI-style: level L is the image scaled by
+ * 2^(L - maxLevel) with maxLevel = ceil(log2(max(width, height))), cut into 256px tiles stored at
+ * tiles/{sha256}/{level}/{col}_{row}.{ext}. The source is decoded in horizontal bands through
+ * ImageReader source regions, and every level is built from the bands of the level above as
+ * they stream past, so memory stays at a few bands instead of the full raster.
+ */
+@Service
+public class TilePyramidService {
+    private static final Logger logger = LoggerFactory.getLogger(TilePyramidService.class);
+    public static final int TILE_SIZE = 256;
+    private static final String TILES_PREFIX = "tiles/";
+    private static final int MAX_PENDING_UPLOADS = 64;
+
+    private final BlobStore blobStore;
+    private final int minSize;
+    private final long bandBytes;
+    private final float quality;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService uploads;
+
+    public TilePyramidService(BlobStore blobStore,
+                              @Value("${tiles.min-size:2048}") int minSize,
+                              @Value("${tiles.band-bytes:33554432}") long bandBytes,
+                              @Value("${tiles.quality:0.85}") float quality,
+                              @Value("${tiles.workers:1}") int workers,
+                              @Value("${tiles.queue-size:50}") int queueSize,
+                              @Value("${tiles.upload-parallelism:8}") int uploadParallelism) {
+        this.blobStore = blobStore;
+        this.minSize = minSize;
+        this.bandBytes = bandBytes;
+        this.quality = quality;
+
+        this.executor = ImageDerivativeService.backgroundPool("tile-pyramid", workers, queueSize);
+        this.uploads = Executors.newFixedThreadPool(Math.max(1, uploadParallelism),
+            ImageDerivativeService.daemonThreads("tile-upload", Thread.NORM_PRIORITY));
+    }
+
+    // Images below the minimum size load fast enough whole and get no pyramid
+    public boolean needsPyramid(Integer width, Integer height) {
+        return width != null && height != null && Math.max(width, height) > minSize;
+    }
+
+    /**
+     * Queues pyramid generation. onComplete receives the tile format ("jpg" or "png") once every
+     * tile is stored; a full queue drops the job.
+     */
+    public void submit(String blobName, String sha256, Consumer<String> onComplete) {
+        if (sha256 == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    onComplete.accept(generate(blobName, sha256));
+                } catch (Exception e) {
+                    logger.warn("Could not generate tile pyramid of {}: {}", blobName, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Tile queue full, skipping pyramid of {}", blobName);
+        }
+    }
+
+    // Encoded tile, or null when it does not exist
+    public byte[] getTile(String sha256, int level, int col, int row, String format) {
+        try {
+            return blobStore.read(tileName(sha256, level, col, row, format));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static int maxLevel(int width, int height) {
+        int size = Math.max(width, height);
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    private String generate(String blobName, String sha256) throws IOException {
+        long started = System.nanoTime();
+        try (InputStream in = blobStore.open(blobName);
+             ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + blobName);
+            }
+            ImageReader reader = readers.next();
+            try {
+                // Not forward-only: every band read seeks back to the image start, which ImageIO's
+                // disk-backed stream cache allows without refetching the blob
+                reader.setInput(iis, false, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+                boolean alpha = types.hasNext() && types.next().getColorModel().hasAlpha();
+                Pyramid pyramid = new Pyramid(sha256, width, height, alpha);
+
+                // Tile-aligned bands within the memory budget (4 bytes per pixel once converted)
+                int bandRows = (int) Math.max(TILE_SIZE, bandBytes / (4L * width) / TILE_SIZE * TILE_SIZE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                for (int top = 0; top < height; top += bandRows) {
+                    param.setSourceRegion(new Rectangle(0, top, width, Math.min(bandRows, height - top)));
+                    pyramid.push(pyramid.maxLevel, reader.read(0, param));
+                }
+                pyramid.finish();
+                logger.info("Generated {} tiles ({} levels) for {} in {} ms", pyramid.tileCount, pyramid.maxLevel + 1,
+                    blobName, (System.nanoTime() - started) / 1_000_000);
+                return pyramid.format;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Streaming pyramid builder. Each level accumulates rows until it has a full tile row,
+     * stores those tiles and hands a half-size copy of the rows to the level below.
+     */
+    private final class Pyramid {
+        final String sha256;
+        final int maxLevel;
+        final boolean alpha;
+        final String format;
+        final int[] widths;
+        final int[] heights;
+        final BufferedImage[] bands;
+        final int[] bandRows;
+        final int[] tileRows;
+        final List<CompletableFuture<Void>> pending = new ArrayList<>();
+        // Caps encoded tiles waiting for upload
+        final Semaphore inFlight = new Semaphore(MAX_PENDING_UPLOADS);
+        int tileCount;
+
+        Pyramid(String sha256, int width, int height, boolean alpha) {
+            this.sha256 = sha256;
+            this.maxLevel = maxLevel(width, height);
+            this.alpha = alpha;
+            this.format = alpha ? "png" : "jpg";
+            this.widths = new int[maxLevel + 1];
+            this.heights = new int[maxLevel + 1];
+            this.bands = new BufferedImage[maxLevel + 1];
+            this.bandRows = new int[maxLevel + 1];
+            this.tileRows = new int[maxLevel + 1];
+            for (int level = maxLevel; level >= 0; level--) {
+                int shift = maxLevel - level;
+                widths[level] = Math.max(1, (int) Math.ceil(width / (double) (1L << shift)));
+                heights[level] = Math.max(1, (int) Math.ceil(height / (double) (1L << shift)));
+                bands[level] = new BufferedImage(widths[level], TILE_SIZE,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            }
+        }
+
+        void push(int level, BufferedImage strip) throws IOException {
+            int y = 0;
+            while (y < strip.getHeight()) {
+                int take = Math.min(TILE_SIZE - bandRows[level], strip.getHeight() - y);
+                Graphics2D g = bands[level].createGraphics();
+                g.drawImage(strip.getSubimage(0, y, Math.min(strip.getWidth(), widths[level]), take), 0, bandRows[level], null);
+                g.dispose();
+                bandRows[level] += take;
+                y += take;
+                if (bandRows[level] == TILE_SIZE) {
+                    flush(level);
+                }
+            }
+        }
+
+        void flush(int level) throws IOException {
+            int rows = bandRows[level];
+            BufferedImage band = bands[level];
+            for (int x = 0; x < widths[level]; x += TILE_SIZE) {
+                BufferedImage tile = band.getSubimage(x, 0, Math.min(TILE_SIZE, widths[level] - x), rows);
+                store(level, x / TILE_SIZE, tileRows[level], ImageDerivativeService.encode(tile, format, quality));
+            }
+            tileRows[level]++;
+            bandRows[level] = 0;
+            if (level > 0) {
+                push(level - 1, halve(band, widths[level], rows, widths[level - 1], (rows + 1) / 2));
+            }
+        }
+
+        // Flushes the partial last tile row of every level, top down
+        void finish() throws IOException {
+            for (int level = maxLevel; level >= 0; level--) {
+                if (bandRows[level] > 0) {
+                    flush(level);
+                }
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        }
+
+        // Only the filled rows count; the rest of the band still holds the previous tile row
+        BufferedImage halve(BufferedImage band, int sourceWidth, int sourceRows, int width, int rows) {
+            BufferedImage half = new BufferedImage(width, rows, band.getType());
+            Graphics2D g = half.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(band, 0, 0, width, rows, 0, 0, sourceWidth, sourceRows, null);
+            g.dispose();
+            return half;
+        }
+
+        void store(int level, int col, int row, byte[] bytes) {
+            String name = tileName(sha256, level, col, row, format);
+            String contentType = alpha ? "image/png" : "image/jpeg";
+            inFlight.acquireUninterruptibly();
+            pending.add(CompletableFuture.runAsync(() -> {
+                try {
+                    blobStore.put(name, bytes, contentType, ImageDerivativeService.CACHE_CONTROL);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    inFlight.release();
+                }
+            }, uploads));
+            tileCount++;
+        }
+    }
+
+    private static String tileName(String sha256, int level, int col, int row, String format) {
+        return TILES_PREFIX + sha256 + "/" + level + "/" + col + "_" + row + "." + format;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        uploads.shutdown();
+    }
+}
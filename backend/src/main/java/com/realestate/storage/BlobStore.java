@@ -0,0 +1,91 @@
+package com.realestate.storage;
+
+import com.google.common.net.UrlEscapers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * The media bucket: flat blob names with '/' as a pseudo-directory separator. {@link GcsBlobStore}
+ * is the Cloud Storage bucket of firebase.storage.bucket; the "local-storage" profile swaps in
+ * {@link LocalBlobStore}, a directory on local disk.
+ */
+public interface BlobStore {
+
+    /**
+     * A streaming write. Closing it commits the blob; a failed write is abandoned with abort()
+     * instead, which leaves nothing behind.
+     */
+    interface Writer extends WritableByteChannel {
+        void abort();
+    }
+
+    Writer writer(String name, String contentType, String cacheControl) throws IOException;
+
+    void put(String name, byte[] data, String contentType, String cacheControl) throws IOException;
+
+    // Whole blob, or null when it does not exist
+    byte[] read(String name) throws IOException;
+
+    // Bytes from offset up to limit (exclusive, -1 for the end) of an existing blob
+    ReadableByteChannel reader(String name, long offset, long limit) throws IOException;
+
+    default InputStream open(String name) throws IOException {
+        return Channels.newInputStream(reader(name, 0, -1));
+    }
+
+    // Null when the blob does not exist
+    StoredBlob stat(String name);
+
+    // Streams every blob whose name starts with the prefix, at any depth, without holding the listing
+    void scan(String prefix, Consumer<StoredBlob> consumer);
+
+    default List<StoredBlob> list(String prefix) {
+        List<StoredBlob> blobs = new ArrayList<>();
+        scan(prefix, blobs::add);
+        return blobs;
+    }
+
+    // Pseudo-directories directly below the prefix, as full prefixes ending in '/'
+    List<String> listDirectories(String prefix);
+
+    /**
+     * Server-side copy keeping content type and Cache-Control. With failIfExists the copy only
+     * happens when the target does not exist yet, and false is returned otherwise.
+     */
+    boolean copy(String from, String to, boolean failIfExists);
+
+    // Whether the blob existed
+    boolean delete(String name);
+
+    // Deletes in batches; returns how many of the blobs existed
+    int deleteAll(List<String> names);
+
+    // Time-limited URL a browser can fetch the blob from
+    String sign(String name);
+
+    // name -> URL, for listings
+    Map<String, String> signAll(List<String> names);
+
+    // Permanent URL of the blob, as stored on floors, apartments and pictures
+    String publicUrl(String name);
+
+    // Blob name behind a URL from publicUrl or sign, or null for URLs of anything else
+    String blobNameOf(String url);
+
+    // The name as a URL path: each '/'-separated segment escaped, so '?' and '#' stay in the path
+    static String escapePath(String name) {
+        return Arrays.stream(name.split("/", -1))
+            .map(UrlEscapers.urlPathSegmentEscaper()::escape)
+            .collect(Collectors.joining("/"));
+    }
+}
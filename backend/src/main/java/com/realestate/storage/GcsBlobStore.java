@@ -0,0 +1,219 @@
+package com.realestate.storage;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.CopyWriter;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import com.realestate.service.SignedUrlService;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// The Cloud Storage bucket; URLs are signed by SignedUrlService, which also caches them
+public class GcsBlobStore implements BlobStore {
+    private static final String STORAGE_HOST = "https://storage.googleapis.com/";
+    // Cloud Storage batches take at most 100 calls
+    private static final int DELETE_BATCH_SIZE = 100;
+
+    private final Storage storage;
+    private final SignedUrlService signedUrlService;
+    private final String bucketName;
+    private final int chunkSize;
+
+    public GcsBlobStore(Storage storage, SignedUrlService signedUrlService, String bucketName, int chunkSize) {
+        this.storage = storage;
+        this.signedUrlService = signedUrlService;
+        this.bucketName = bucketName;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Writer writer(String name, String contentType, String cacheControl) {
+        WriteChannel channel = storage.writer(info(name, contentType, cacheControl));
+        channel.setChunkSize(chunkSize);
+        return new Writer() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            // Closing commits the object
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+
+            // Not closing the channel abandons the resumable session, so no partial object appears
+            @Override
+            public void abort() {
+            }
+        };
+    }
+
+    @Override
+    public void put(String name, byte[] data, String contentType, String cacheControl) {
+        storage.create(info(name, contentType, cacheControl), data);
+    }
+
+    @Override
+    public byte[] read(String name) {
+        try {
+            return storage.readAllBytes(BlobId.of(bucketName, name));
+        } catch (StorageException e) {
+            if (e.getCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public ReadableByteChannel reader(String name, long offset, long limit) throws IOException {
+        ReadChannel reader = storage.reader(BlobId.of(bucketName, name));
+        if (offset > 0) {
+            reader.seek(offset);
+        }
+        if (limit >= 0) {
+            reader.limit(limit);
+        }
+        return reader;
+    }
+
+    @Override
+    public StoredBlob stat(String name) {
+        Blob blob = storage.get(BlobId.of(bucketName, name));
+        return blob != null ? toStoredBlob(blob) : null;
+    }
+
+    // iterateAll fetches the next page only once the previous one is consumed
+    @Override
+    public void scan(String prefix, Consumer<StoredBlob> consumer) {
+        for (Blob blob : storage.list(bucketName, Storage.BlobListOption.prefix(prefix)).iterateAll()) {
+            if (!blob.isDirectory()) {
+                consumer.accept(toStoredBlob(blob));
+            }
+        }
+    }
+
+    @Override
+    public List<String> listDirectories(String prefix) {
+        List<String> directories = new ArrayList<>();
+        for (Blob blob : storage.list(bucketName, Storage.BlobListOption.prefix(prefix),
+                Storage.BlobListOption.currentDirectory()).iterateAll()) {
+            if (blob.isDirectory()) {
+                directories.add(blob.getName());
+            }
+        }
+        return directories;
+    }
+
+    // A rewrite, so no bytes pass through this process; large or cross-location rewrites take several calls
+    @Override
+    public boolean copy(String from, String to, boolean failIfExists) {
+        BlobId source = BlobId.of(bucketName, from);
+        BlobId target = BlobId.of(bucketName, to);
+        Storage.CopyRequest request = failIfExists
+            ? Storage.CopyRequest.newBuilder().setSource(source).setTarget(target, Storage.BlobTargetOption.doesNotExist()).build()
+            : Storage.CopyRequest.newBuilder().setSource(source).setTarget(target).build();
+        try {
+            CopyWriter copyWriter = storage.copy(request);
+            while (!copyWriter.isDone()) {
+                copyWriter.copyChunk();
+            }
+            return true;
+        } catch (StorageException e) {
+            if (failIfExists && e.getCode() == 412) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean delete(String name) {
+        signedUrlService.evict(bucketName, name);
+        return storage.delete(BlobId.of(bucketName, name));
+    }
+
+    @Override
+    public int deleteAll(List<String> names) {
+        int deleted = 0;
+        for (int start = 0; start < names.size(); start += DELETE_BATCH_SIZE) {
+            List<BlobId> batch = new ArrayList<>();
+            for (String name : names.subList(start, Math.min(names.size(), start + DELETE_BATCH_SIZE))) {
+                signedUrlService.evict(bucketName, name);
+                batch.add(BlobId.of(bucketName, name));
+            }
+            for (Boolean existed : storage.delete(batch)) {
+                if (Boolean.TRUE.equals(existed)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public String sign(String name) {
+        return signedUrlService.sign(bucketName, name);
+    }
+
+    @Override
+    public Map<String, String> signAll(List<String> names) {
+        return signedUrlService.signAll(bucketName, names);
+    }
+
+    @Override
+    public String publicUrl(String name) {
+        return STORAGE_HOST + bucketName + "/" + name;
+    }
+
+    // Public URLs carry the name as is; signed URLs escape it and add a query
+    @Override
+    public String blobNameOf(String url) {
+        String prefix = STORAGE_HOST + bucketName + "/";
+        if (url == null || !url.startsWith(prefix)) {
+            return null;
+        }
+        String path = url.substring(prefix.length());
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = URLDecoder.decode(path.substring(0, query).replace("+", "%2B"), StandardCharsets.UTF_8);
+        }
+        return path.isEmpty() ? null : path;
+    }
+
+    private BlobInfo info(String name, String contentType, String cacheControl) {
+        BlobInfo.Builder builder = BlobInfo.newBuilder(BlobId.of(bucketName, name)).setContentType(contentType);
+        if (cacheControl != null) {
+            builder.setCacheControl(cacheControl);
+        }
+        return builder.build();
+    }
+
+    private static StoredBlob toStoredBlob(Blob blob) {
+        return new StoredBlob(blob.getName(),
+            blob.getSize() != null ? blob.getSize() : 0,
+            blob.getContentType(),
+            blob.getCacheControl(),
+            blob.getCrc32c(),
+            blob.getGeneration() != null ? blob.getGeneration() : 0,
+            blob.getCreateTime() != null ? blob.getCreateTime() : 0);
+    }
+}
@@ -0,0 +1,397 @@
+package com.realestate.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Blobs as files under {root}/data, for development, benchmarks and on-premise installs without
+ * Cloud Storage. Content type, Cache-Control, CRC32C and generation live in a properties file per
+ * blob under {root}/meta. Writes go to {root}/tmp first and are moved into place, so readers
+ * never see a partial blob. URLs point at the app's /local-blobs resource handler and are not
+ * signed: anyone who can reach the app can read every blob.
+ */
+public class LocalBlobStore implements BlobStore {
+    private final Path dataDir;
+    private final Path metaDir;
+    private final Path tmpDir;
+    private final String baseUrl;
+    // Generations only need to differ between writes of the same name
+    private final AtomicLong generations = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    public LocalBlobStore(Path root, String baseUrl) throws IOException {
+        this.dataDir = Files.createDirectories(root.resolve("data")).toAbsolutePath().normalize();
+        this.metaDir = Files.createDirectories(root.resolve("meta")).toAbsolutePath().normalize();
+        this.tmpDir = Files.createDirectories(root.resolve("tmp")).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public Path getDataDir() {
+        return dataDir;
+    }
+
+    @Override
+    public Writer writer(String name, String contentType, String cacheControl) throws IOException {
+        Path target = path(name);
+        Path temp = tmpDir.resolve(UUID.randomUUID().toString());
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        CRC32C crc32c = new CRC32C();
+        return new Writer() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                ByteBuffer written = src.duplicate();
+                int count = channel.write(src);
+                written.limit(written.position() + count);
+                crc32c.update(written);
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!channel.isOpen()) {
+                    return;
+                }
+                channel.force(false);
+                channel.close();
+                commit(temp, target, name, contentType, cacheControl, crc32c.getValue());
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    channel.close();
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Left for the operating system's temp cleanup
+                }
+            }
+        };
+    }
+
+    @Override
+    public void put(String name, byte[] data, String contentType, String cacheControl) throws IOException {
+        Path target = path(name);
+        Path temp = tmpDir.resolve(UUID.randomUUID().toString());
+        Files.write(temp, data, StandardOpenOption.CREATE_NEW);
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(data);
+        commit(temp, target, name, contentType, cacheControl, crc32c.getValue());
+    }
+
+    @Override
+    public byte[] read(String name) throws IOException {
+        try {
+            return Files.readAllBytes(path(name));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public ReadableByteChannel reader(String name, long offset, long limit) throws IOException {
+        FileChannel channel = FileChannel.open(path(name), StandardOpenOption.READ);
+        channel.position(offset);
+        if (limit < 0) {
+            return channel;
+        }
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                long remaining = limit - channel.position();
+                if (remaining <= 0) {
+                    return -1;
+                }
+                if (dst.remaining() <= remaining) {
+                    return channel.read(dst);
+                }
+                ByteBuffer slice = dst.slice().limit((int) remaining);
+                int read = channel.read(slice);
+                if (read > 0) {
+                    dst.position(dst.position() + read);
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    @Override
+    public StoredBlob stat(String name) {
+        Path file = path(name);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return toStoredBlob(name, file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void scan(String prefix, Consumer<StoredBlob> consumer) {
+        int slash = prefix.lastIndexOf('/');
+        Path start = slash >= 0 ? path(prefix.substring(0, slash)) : dataDir;
+        if (!Files.isDirectory(start)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(start)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = name(file);
+                if (name.startsWith(prefix)) {
+                    StoredBlob blob;
+                    try {
+                        blob = toStoredBlob(name, file);
+                    } catch (NoSuchFileException e) {
+                        // Deleted while listing
+                        continue;
+                    }
+                    consumer.accept(blob);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<String> listDirectories(String prefix) {
+        int slash = prefix.lastIndexOf('/');
+        String parent = slash >= 0 ? prefix.substring(0, slash + 1) : "";
+        String partial = prefix.substring(parent.length());
+        Path directory = parent.isEmpty() ? dataDir : path(parent.substring(0, parent.length() - 1));
+        List<String> directories = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return directories;
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path child : children) {
+                String childName = child.getFileName().toString();
+                if (childName.startsWith(partial)) {
+                    directories.add(parent + childName + "/");
+                }
+            }
+            directories.sort(null);
+            return directories;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean copy(String from, String to, boolean failIfExists) {
+        Path source = path(from);
+        Path target = path(to);
+        Path temp = tmpDir.resolve(UUID.randomUUID().toString());
+        try {
+            Properties metadata = metadata(from);
+            Files.copy(source, temp);
+            Files.createDirectories(target.getParent());
+            if (failIfExists) {
+                // Creating a link fails atomically when the target exists
+                try {
+                    Files.createLink(target, temp);
+                } catch (FileAlreadyExistsException e) {
+                    return false;
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            } else {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            metadata.setProperty("generation", String.valueOf(generations.incrementAndGet()));
+            metadata.setProperty("createTime", String.valueOf(System.currentTimeMillis()));
+            writeMetadata(to, metadata);
+            return true;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean delete(String name) {
+        Path file = path(name);
+        try {
+            boolean existed = Files.deleteIfExists(file);
+            Files.deleteIfExists(metadataPath(name));
+            pruneEmptyDirectories(file.getParent(), dataDir);
+            pruneEmptyDirectories(metadataPath(name).getParent(), metaDir);
+            return existed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int deleteAll(List<String> names) {
+        int deleted = 0;
+        for (String name : names) {
+            if (delete(name)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    // Local URLs do not expire
+    @Override
+    public String sign(String name) {
+        return publicUrl(name);
+    }
+
+    @Override
+    public Map<String, String> signAll(List<String> names) {
+        Map<String, String> urls = new HashMap<>();
+        names.forEach(name -> urls.put(name, publicUrl(name)));
+        return urls;
+    }
+
+    @Override
+    public String publicUrl(String name) {
+        return baseUrl + "/" + BlobStore.escapePath(name);
+    }
+
+    @Override
+    public String blobNameOf(String url) {
+        String prefix = baseUrl + "/";
+        if (url == null || !url.startsWith(prefix)) {
+            return null;
+        }
+        String path = url.substring(prefix.length());
+        int query = path.indexOf('?');
+        path = query >= 0 ? path.substring(0, query) : path;
+        path = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+        return path.isEmpty() ? null : path;
+    }
+
+    private void commit(Path temp, Path target, String name, String contentType, String cacheControl, long crc32c) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Properties metadata = new Properties();
+        if (contentType != null) {
+            metadata.setProperty("contentType", contentType);
+        }
+        if (cacheControl != null) {
+            metadata.setProperty("cacheControl", cacheControl);
+        }
+        metadata.setProperty("crc32c", crc32cBase64(crc32c));
+        metadata.setProperty("generation", String.valueOf(generations.incrementAndGet()));
+        metadata.setProperty("createTime", String.valueOf(System.currentTimeMillis()));
+        writeMetadata(name, metadata);
+    }
+
+    private StoredBlob toStoredBlob(String name, Path file) throws IOException {
+        long size = Files.size(file);
+        Properties metadata = metadata(name);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        return new StoredBlob(name, size,
+            metadata.getProperty("contentType", Files.probeContentType(file)),
+            metadata.getProperty("cacheControl"),
+            metadata.getProperty("crc32c"),
+            Long.parseLong(metadata.getProperty("generation", String.valueOf(lastModified))),
+            Long.parseLong(metadata.getProperty("createTime", String.valueOf(lastModified))));
+    }
+
+    // Empty for blobs copied in by hand
+    private Properties metadata(String name) throws IOException {
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(metadataPath(name))) {
+            metadata.load(in);
+        } catch (NoSuchFileException e) {
+            // No metadata recorded
+        }
+        return metadata;
+    }
+
+    private void writeMetadata(String name, Properties metadata) throws IOException {
+        Path target = metadataPath(name);
+        Path temp = tmpDir.resolve(UUID.randomUUID() + ".properties");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            metadata.store(out, null);
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // The file of a blob; names that would leave the data directory are rejected
+    private Path path(String name) {
+        if (name == null || name.isEmpty() || name.startsWith("/") || name.contains("\\")) {
+            throw new IllegalArgumentException("Invalid blob name: " + name);
+        }
+        Path file = dataDir.resolve(name).normalize();
+        if (!file.startsWith(dataDir) || file.equals(dataDir)) {
+            throw new IllegalArgumentException("Invalid blob name: " + name);
+        }
+        return file;
+    }
+
+    private Path metadataPath(String name) {
+        return metaDir.resolve(dataDir.relativize(path(name)).toString() + ".properties");
+    }
+
+    private String name(Path file) {
+        return dataDir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private static void pruneEmptyDirectories(Path directory, Path root) throws IOException {
+        while (directory != null && directory.startsWith(root) && !directory.equals(root)) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (DirectoryNotEmptyException e) {
+                return;
+            }
+            directory = directory.getParent();
+        }
+    }
+
+    private static String crc32cBase64(long value) {
+        byte[] bytes = {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,9 @@
+package com.realestate.storage;
+
+/**
+ * Metadata of a stored blob. The generation changes whenever the blob's bytes are replaced, and
+ * crc32c is base64 in the encoding Cloud Storage reports; createTime is in epoch milliseconds.
+ */
+public record StoredBlob(String name, long size, String contentType, String cacheControl,
+                         String crc32c, long generation, long createTime) {
+}
@@ -73,6 +73,8 @@ const FloorImageViewer: React.FC<FloorImageViewerProps> = ({ floorId, onApartmen
   const imageRef = useRef<HTMLImageElement>(null);
   const [topViewImageSrc, setTopViewImageSrc] = useState('');
   const [topViewHotspots, setTopViewHotspots] = useState<Hotspot[]>([]);
+  // Angle hotspots loaded on demand, keyed by `${floorId}:${imageNumber}`
+  const [angleHotspotCache, setAngleHotspotCache] = useState<{ [key: string]: Hotspot[] }>({});
   
   // NEW: Track rendered image dimensions and position
   const [renderedImageRect, setRenderedImageRect] = useState<DOMRect | null>(null);
@@ -207,9 +209,9 @@ const FloorImageViewer: React.FC<FloorImageViewerProps> = ({ floorId, onApartmen
     // NEW: Debug available hotspots in database
     console.log('🔍 AVAILABLE HOTSPOTS IN DATABASE:');
     console.log('  - topViewHotspots:', currentFloor?.topViewHotspots?.length || 0, 'hotspots');
-    if (currentFloor?.angleHotspots) {
-      Object.keys(currentFloor.angleHotspots).forEach(key => {
-        const count = currentFloor.angleHotspots?.[key]?.length || 0;
+    if (currentFloor?.angleIndex) {
+      Object.keys(currentFloor.angleIndex).forEach(key => {
+        const count = currentFloor.angleIndex?.[key]?.count || 0;
         console.log(`  - angleHotspots["${key}"]`, count, 'hotspots');
       });
     }
@@ -222,7 +224,7 @@ const FloorImageViewer: React.FC<FloorImageViewerProps> = ({ floorId, onApartmen
       console.log('🔍 Hotspot Debug - showing topViewHotspots:', hotspots);
     } else {
       // On numbered images: show only image-specific hotspots for this image number
-      hotspots = currentFloor?.angleHotspots?.[imageNumber] || [];
+      hotspots = angleHotspotCache[`${selectedFloor}:${imageNumber}`] || [];
       console.log('🔍 Hotspot Debug - showing angleHotspots for image number', imageNumber, ':', hotspots);
       
       // SUCCESS: Image 10 hotspots are working! Removing excessive debug logs.
@@ -240,7 +242,23 @@ const FloorImageViewer: React.FC<FloorImageViewerProps> = ({ floorId, onApartmen
 
     console.log('🔍 Hotspot Debug - combinedHotspots result:', result);
     return result;
-  }, [floorImages, currentImageIndex, currentFloor, floorApartments]);
+  }, [floorImages, currentImageIndex, currentFloor, floorApartments, angleHotspotCache, selectedFloor]);
+
+  // Fetch the current angle's hotspots the first time it is shown
+  useEffect(() => {
+    const imageNumber = String(currentImageIndex + 1);
+    const cacheKey = `${selectedFloor}:${imageNumber}`;
+    if (!currentFloor?.angleIndex?.[imageNumber]?.count || angleHotspotCache[cacheKey]) return;
+    let cancelled = false;
+    floorService.getAngleHotspots(selectedFloor, imageNumber).then(angleHotspots => {
+      if (!cancelled) {
+        setAngleHotspotCache(prev => ({ ...prev, [cacheKey]: angleHotspots || [] }));
+      }
+    });
+    return () => {
+      cancelled = true;
+    };
+  }, [selectedFloor, currentImageIndex, currentFloor, angleHotspotCache]);
 
 
 
@@ -44,6 +44,7 @@ export interface Picture {
   type: 'MAIN' | 'INTERIOR' | 'EXTERIOR' | 'FLOOR_PLAN';
   order: number;
   createdAt: Date;
+  variantUrls?: Record<string, string>;
 }
 
 export interface Buyer {
@@ -143,10 +143,16 @@ const FloorAnnotator: React.FC = () => {
     if (selectedImageType === 'topView') {
       setHotspots(floor.topViewHotspots || []);
     } else {
-      // Load angle-specific hotspots
+      // Load angle-specific hotspots on demand
       const angleKey = selectedImageNumber;
-      const angleHotspots = floor.angleHotspots?.[angleKey] || [];
-      setHotspots(angleHotspots);
+      let cancelled = false;
+      setHotspots([]);
+      floorService.getAngleHotspots(floor.id, angleKey).then(angleHotspots => {
+        if (!cancelled) setHotspots(angleHotspots || []);
+      });
+      return () => {
+        cancelled = true;
+      };
     }
   }, [floor, selectedImageType, selectedImageNumber]);
 
@@ -174,10 +180,7 @@ const FloorAnnotator: React.FC = () => {
         await floorService.updateHotspots(floor.id, { topViewHotspots: hotspots });
       } else {
         console.log('  - Saving as angleHotspots with key:', selectedImageNumber);
-        const currentAngleHotspots = floor.angleHotspots || {};
-        currentAngleHotspots[selectedImageNumber] = hotspots;
-        console.log('  - Updated angleHotspots:', currentAngleHotspots);
-        await floorService.updateHotspots(floor.id, { angleHotspots: currentAngleHotspots });
+        await floorService.updateAngleHotspots(floor.id, selectedImageNumber, hotspots);
       }
       
       // Refresh floor data to show updated hotspots
@@ -19,6 +19,23 @@ export interface Hotspot {
   label?: string;      // optional label for display
 }
 
+export interface HotspotOperation {
+  op: 'add' | 'move' | 'resize' | 'delete';
+  angle?: string;      // image number, or 'top' / omitted for the top view
+  hotspotId?: string;  // required except for add
+  x?: number;
+  y?: number;
+  width?: number;
+  height?: number;
+  apartmentId?: string;
+}
+
+export interface HotspotPatchResult {
+  applied: number;
+  addedIds: string[];
+  conflicts: string[];
+}
+
 export const floorService = {
   // Get all floors
   getAll: async (): Promise<Floor[]> => {
@@ -66,6 +83,15 @@ export const floorService = {
       
       const imageUrls = imagesResponse.data;
       const floor = floorResponse.data;
+
+      // Angles are stored separately; fetch only the ones that have hotspots
+      const angleKeys = Object.keys(floor.angleIndex || {})
+        .filter(key => floor.angleIndex[key]?.count > 0 && imageUrls && Number(key) < imageUrls.length);
+      const angleLists = await Promise.all(angleKeys.map(key => floorService.getAngleHotspots(floorId, key)));
+      const angleHotspots: { [imageNumber: string]: Hotspot[] } = {};
+      angleKeys.forEach((key, i) => {
+        angleHotspots[key] = angleLists[i];
+      });
       
       if (imageUrls && imageUrls.length > 0) {
         return imageUrls.map((url: string, index: number) => {
@@ -73,8 +99,8 @@ export const floorService = {
           let hotspots: Hotspot[] = [];
           
           // Check if there are angle-specific hotspots for this image
-          if (floor.angleHotspots && floor.angleHotspots[index.toString()]) {
-            hotspots = floor.angleHotspots[index.toString()];
+          if (angleHotspots[index.toString()]) {
+            hotspots = angleHotspots[index.toString()];
           }
           // If no angle-specific hotspots, use top-view hotspots for all images
           else if (floor.topViewHotspots && index === 0) {
@@ -107,6 +133,28 @@ export const floorService = {
     }
   },
 
+  // Get the stored hotspots of a single angle
+  getAngleHotspots: async (floorId: string, angle: string): Promise<Hotspot[]> => {
+    try {
+      const response = await api.get(`/floors/${floorId}/angles/${angle}`);
+      return response.data;
+    } catch (error) {
+      console.warn('Failed to load angle hotspots:', error);
+      return [];
+    }
+  },
+
+  // Replace the hotspots of a single angle without touching the others
+  updateAngleHotspots: async (floorId: string, angle: string, hotspots: Hotspot[]): Promise<void> => {
+    await api.put(`/floors/${floorId}/angles/${angle}`, hotspots);
+  },
+
+  // Apply individual hotspot edits; concurrent edits by others are merged server-side
+  patchHotspots: async (floorId: string, operations: HotspotOperation[]): Promise<HotspotPatchResult> => {
+    const response = await api.patch(`/floors/${floorId}/hotspots`, { operations });
+    return response.data;
+  },
+
   // Get floor hotspots
   getFloorHotspots: async (floorId: string, imageIndex: number): Promise<Hotspot[]> => {
     try {
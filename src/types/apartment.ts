@@ -9,6 +9,7 @@ export interface Apartment {
   description: string;
   mediaUrls?: string[];
   model3dUrl?: string;
+  previewUrl?: string;
   createdAt: Date;
   updatedAt: Date;
 }
@@ -8,6 +8,11 @@ export interface Hotspot {
   label?: string;      // optional label for display
 }
 
+export interface AngleIndexEntry {
+  count: number;
+  updatedAt?: string;
+}
+
 export interface Floor {
   id: string;
   name: string;
@@ -16,6 +21,7 @@ export interface Floor {
   totalApartments: number;
   floorPlanUrl?: string;
   model3dUrl?: string;
+  previewUrl?: string;
   buildingId: string;
   floorNumber: number;
   area: number;
@@ -28,6 +34,9 @@ export interface Floor {
 
   // New fields for top-view and image-specific hotspots
   topViewHotspots: Hotspot[];
-  // Key is image number (e.g., "1", "2", "3") extracted from filename
-  angleHotspots: { [imageNumber: string]: Hotspot[] };
+  // Key is image number (e.g., "1", "2", "3") extracted from filename.
+  // Only present on writes; reads return angleIndex and load angles individually.
+  angleHotspots?: { [imageNumber: string]: Hotspot[] };
+  // Image number -> hotspot count and last change (ISO string) for the angles stored on the backend
+  angleIndex?: { [imageNumber: string]: AngleIndexEntry };
 } 
\ No newline at end of file
@@ -6,6 +6,8 @@ export interface FloorImageInfo {
   contentType: string;
   uploadDate: string;
   isImage: boolean;
+  width?: number;
+  height?: number;
 }
 
 export interface ImageUploadResponse {
@@ -33,3 +35,27 @@ export interface ImageActionResponse {
   imageInfo?: FloorImageInfo;
   error?: string;
 }
+
+export interface AtlasFrame {
+  sheet: number;
+  x: number;
+  y: number;
+}
+
+export interface AtlasTier {
+  frameWidth: number;
+  frameHeight: number;
+  columns: number;
+  rows: number;
+  format: string;
+  sheets: string[];
+  frames: AtlasFrame[];
+  sheetUrls: string[];
+}
+
+export interface FloorAtlas {
+  floorId: string;
+  version: string;
+  frames: string[];
+  tiers: AtlasTier[];
+}